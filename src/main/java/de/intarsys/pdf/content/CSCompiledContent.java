@@ -0,0 +1,435 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.content;
+
+import de.intarsys.pdf.cos.COSArray;
+import de.intarsys.pdf.cos.COSFixed;
+import de.intarsys.pdf.cos.COSInteger;
+import de.intarsys.pdf.cos.COSObject;
+import de.intarsys.pdf.cos.COSRuntimeException;
+import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.pdf.parser.COSLoadException;
+import de.intarsys.pdf.parser.CSContentParser;
+import de.intarsys.pdf.parser.ChunkedRandomAccess;
+import de.intarsys.tools.randomaccess.RandomAccessByteArray;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A compact, read only representation of a parsed content stream.
+ * <p>
+ * Instead of a {@link CSOperation} object per operation and a
+ * {@link COSObject} per operand, the operations are stored in an
+ * {@code int[]} code stream. Numeric operands are encoded inline (integers)
+ * or in a {@code float[]} (reals), names, strings and other operands are kept
+ * in a side table, and each distinct operator token is stored once.
+ * <p>
+ * This is intended for content that is parsed once and replayed often, for
+ * example form XObjects and type 3 glyph procedures. Replay does not
+ * allocate per operation: a single {@link CSOperation} is reset for each
+ * operation and numeric operands are handed over as primitive values, see
+ * {@link CSOperation#getOperandFloat(int)}. The operator code used by
+ * {@link CSInterpreter} is resolved once per distinct operator. Use
+ * {@link ICSInterpreter#process(CSCompiledContent, de.intarsys.pdf.pd.PDResources)} to
+ * interpret it.
+ * <p>
+ * The code stream is a sequence of
+ *
+ * <pre>
+ * opcode count operand_1 ... operand_count
+ * </pre>
+ *
+ * where opcode is the index of the operator token and each operand is a
+ * tagged reference.
+ */
+public class CSCompiledContent {
+
+    /**
+     * Receives the operations of a {@link CSCompiledContent} together with
+     * the operator code, see {@link CSInterpreter#getOperatorCode(byte[])}.
+     */
+    interface IOperatorCodeHandler {
+        boolean handleOperation(int operatorCode, CSOperation operation);
+    }
+
+    /**
+     * Handler collecting the operations of a parser into a
+     * {@link CSCompiledContent}.
+     */
+    protected static class Compiler implements ICSOperationHandler {
+
+        private final CSCompiledContent content;
+
+        private final Map<String, Integer> opcodes = new HashMap<>();
+
+        private final List<byte[]> operators = new ArrayList<>();
+
+        public Compiler(CSCompiledContent content) {
+            this.content = content;
+        }
+
+        public CSCompiledContent finish() {
+            content.operators = operators.toArray(new byte[operators.size()][]);
+            content.operatorCodes = new int[content.operators.length];
+            for (int i = 0; i < content.operators.length; i++) {
+                content.operatorCodes[i] = CSInterpreter.getOperatorCode(content.operators[i]);
+            }
+            content.caches = new AtomicReferenceArray<>(content.operationCount);
+            return content;
+        }
+
+        protected int getOpcode(byte[] token) {
+            String key = new String(token, StandardCharsets.ISO_8859_1);
+            Integer opcode = opcodes.get(key);
+            if (opcode == null) {
+                opcode = operators.size();
+                operators.add(token);
+                opcodes.put(key, opcode);
+            }
+            return opcode;
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see de.intarsys.pdf.content.ICSOperationHandler#handleOperation(de.intarsys.pdf.content.CSOperation)
+         */
+        @Override
+        public boolean handleOperation(CSOperation operation) {
+            content.addOperation(getOpcode(operation.getOperatorToken()), operation);
+            return true;
+        }
+    }
+
+    private static final int TAG_BITS = 2;
+
+    private static final int TAG_MASK = 0x3;
+
+    private static final int TAG_INTEGER = 0;
+
+    private static final int TAG_FIXED = 1;
+
+    private static final int TAG_OBJECT = 2;
+
+    private static final int PRECISION_BITS = 4;
+
+    private static final int PRECISION_MASK = 0xF;
+
+    private static final int INTEGER_MIN = Integer.MIN_VALUE >> TAG_BITS;
+
+    private static final int INTEGER_MAX = Integer.MAX_VALUE >> TAG_BITS;
+
+    /**
+     * Integers up to this magnitude are exact as a float.
+     */
+    private static final int FLOAT_EXACT = 1 << 24;
+
+    private static final byte[] EMPTY_TOKEN = new byte[0];
+
+    private static final COSObject[] EMPTY_OPERANDS = new COSObject[0];
+
+    /**
+     * Create {@link CSCompiledContent} from a byte array containing a PDF
+     * content stream.
+     *
+     * @param data The bytes defining the PDF content stream.
+     * @return The new {@link CSCompiledContent}
+     */
+    public static CSCompiledContent createFromBytes(byte[] data) {
+        Compiler compiler = new Compiler(new CSCompiledContent());
+        try {
+            CSContentParser parser = new CSContentParser();
+            parser.parseStream(new RandomAccessByteArray(data), compiler);
+        } catch (IOException | COSLoadException e) {
+            throw new COSRuntimeException(e);
+        }
+        return compiler.finish();
+    }
+
+    /**
+     * Create {@link CSCompiledContent} from an array of {@link COSStream},
+     * together defining a PDF content stream.
+     *
+     * @param streams An array of {@link COSStream} objects containing each a
+     *                chunk of the content stream.
+     * @return The new {@link CSCompiledContent}.
+     */
+    public static CSCompiledContent createFromCos(COSArray streams) {
+        List<COSStream> chunks = new ArrayList<>(streams.size());
+        for (Iterator it = streams.iterator(); it.hasNext(); ) {
+            COSStream stream = ((COSObject) it.next()).asStream();
+            if (stream != null) {
+                chunks.add(stream);
+            }
+        }
+        Compiler compiler = new Compiler(new CSCompiledContent());
+        try {
+            CSContentParser parser = new CSContentParser();
+            // force at least a single space between streams
+            parser.parseStream(ChunkedRandomAccess.createFromStreams(chunks.toArray(new COSStream[chunks.size()]), ' '),
+                               compiler);
+        } catch (IOException | COSLoadException e) {
+            throw new COSRuntimeException(e);
+        }
+        return compiler.finish();
+    }
+
+    /**
+     * Create {@link CSCompiledContent} from a {@link COSStream} containing a
+     * PDF content stream.
+     *
+     * @param stream The stream defining containing the PDF content stream.
+     * @return The new {@link CSCompiledContent}
+     */
+    public static CSCompiledContent createFromCos(COSStream stream) {
+        return createFromBytes(stream.getDecodedBytes());
+    }
+
+    /**
+     * Create {@link CSCompiledContent} from an already parsed
+     * {@link CSContent}.
+     *
+     * @param content The parsed content
+     * @return The new {@link CSCompiledContent}
+     */
+    public static CSCompiledContent createFromContent(CSContent content) {
+        Compiler compiler = new Compiler(new CSCompiledContent());
+        int len = content.size();
+        for (int i = 0; i < len; i++) {
+            compiler.handleOperation(content.getOperation(i));
+        }
+        return compiler.finish();
+    }
+
+    private int[] code = new int[64];
+
+    private int codeSize;
+
+    private float[] numbers = new float[16];
+
+    private int numbersSize;
+
+    private Object[] objects = new Object[8];
+
+    private int objectsSize;
+
+    private byte[][] operators;
+
+    /**
+     * The {@link CSInterpreter} operator code for each entry in
+     * {@code operators}.
+     */
+    private int[] operatorCodes;
+
+    private int operationCount;
+
+    private int maxOperandCount;
+
+    /**
+     * The {@link CSOperation#getCache()} values per operation, kept between
+     * replays. Replays may run concurrently, a value is published only if
+     * the slot is still unchanged.
+     */
+    private AtomicReferenceArray<Object> caches;
+
+    protected CSCompiledContent() {
+        super();
+    }
+
+    protected void addOperation(int opcode, CSOperation operation) {
+        int count = operation.operandSize();
+        ensureCode(count + 2);
+        code[codeSize++] = opcode;
+        code[codeSize++] = count;
+        for (int i = 0; i < count; i++) {
+            code[codeSize++] = encode(operation.getOperand(i));
+        }
+        if (count > maxOperandCount) {
+            maxOperandCount = count;
+        }
+        operationCount++;
+    }
+
+    protected COSObject decode(int ref) {
+        switch (ref & TAG_MASK) {
+            case TAG_INTEGER:
+                return COSInteger.create(ref >> TAG_BITS);
+            case TAG_FIXED:
+                return COSFixed.create(numbers[ref >>> (TAG_BITS + PRECISION_BITS)],
+                                       (ref >>> TAG_BITS) & PRECISION_MASK);
+            default:
+                return (COSObject) objects[ref >>> TAG_BITS];
+        }
+    }
+
+    protected int encode(COSObject operand) {
+        if (operand instanceof COSInteger) {
+            int value = ((COSInteger) operand).intValue();
+            if (value >= INTEGER_MIN && value <= INTEGER_MAX) {
+                return (value << TAG_BITS) | TAG_INTEGER;
+            }
+        } else if (operand instanceof COSFixed) {
+            if (numbersSize == numbers.length) {
+                float[] newNumbers = new float[numbersSize << 1];
+                System.arraycopy(numbers, 0, newNumbers, 0, numbersSize);
+                numbers = newNumbers;
+            }
+            int precision = Math.min(((COSFixed) operand).getPrecision(), PRECISION_MASK);
+            numbers[numbersSize] = ((COSFixed) operand).floatValue();
+            return (numbersSize++ << (TAG_BITS + PRECISION_BITS)) | (precision << TAG_BITS) | TAG_FIXED;
+        }
+        if (objectsSize == objects.length) {
+            Object[] newObjects = new Object[objectsSize << 1];
+            System.arraycopy(objects, 0, newObjects, 0, objectsSize);
+            objects = newObjects;
+        }
+        objects[objectsSize] = operand;
+        return (objectsSize++ << TAG_BITS) | TAG_OBJECT;
+    }
+
+    protected void ensureCode(int count) {
+        if (codeSize + count > code.length) {
+            int newLength = Math.max(code.length << 1, codeSize + count);
+            int[] newCode = new int[newLength];
+            System.arraycopy(code, 0, newCode, 0, codeSize);
+            code = newCode;
+        }
+    }
+
+    /**
+     * An estimate of the memory used by this, in bytes.
+     *
+     * @return An estimate of the memory used by this.
+     */
+    public int getWeight() {
+        return (code.length * 4) + (numbers.length * 4) + (objects.length * 4) + (objectsSize * 32);
+    }
+
+    /**
+     * Call {@code handler} for each operation in this, in order.
+     * <p>
+     * A single {@link CSOperation} is reused for all operations, so the
+     * operation is valid only while the handler is called. Numeric operands
+     * are passed as primitive values and created only when requested via
+     * {@link CSOperation#getOperand(int)}, all other operands are shared
+     * between replays and must not be modified. The cache of an operation
+     * (for example a decoded inline image) is kept for the next replay.
+     *
+     * @param handler The handler receiving the operations.
+     */
+    public void replay(final ICSOperationHandler handler) {
+        replay(new IOperatorCodeHandler() {
+            @Override
+            public boolean handleOperation(int operatorCode, CSOperation operation) {
+                return handler.handleOperation(operation);
+            }
+        });
+    }
+
+    void replay(IOperatorCodeHandler handler) {
+        CSOperation operation = new CSOperation(EMPTY_TOKEN, EMPTY_OPERANDS);
+        COSObject[] operands = new COSObject[maxOperandCount];
+        float[] values = new float[maxOperandCount];
+        int index = 0;
+        int i = 0;
+        while (i < codeSize) {
+            int opcode = code[i++];
+            int count = code[i++];
+            for (int j = 0; j < count; j++) {
+                int ref = code[i++];
+                switch (ref & TAG_MASK) {
+                    case TAG_INTEGER:
+                        int value = ref >> TAG_BITS;
+                        if (value >= -FLOAT_EXACT && value <= FLOAT_EXACT) {
+                            operands[j] = null;
+                            values[j] = value;
+                        } else {
+                            operands[j] = COSInteger.create(value);
+                        }
+                        break;
+                    case TAG_FIXED:
+                        operands[j] = null;
+                        values[j] = numbers[ref >>> (TAG_BITS + PRECISION_BITS)];
+                        break;
+                    default:
+                        operands[j] = (COSObject) objects[ref >>> TAG_BITS];
+                        break;
+                }
+            }
+            operation.basicReset(operators[opcode], operands, values, count);
+            Object cache = caches.get(index);
+            operation.setCache(cache);
+            boolean proceed = handler.handleOperation(operatorCodes[opcode], operation);
+            Object newCache = operation.getCache();
+            if (newCache != cache) {
+                caches.compareAndSet(index, cache, newCache);
+            }
+            index++;
+            if (!proceed) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * The number of operations in this.
+     *
+     * @return The number of operations in this.
+     */
+    public int size() {
+        return operationCount;
+    }
+
+    /**
+     * Create a new {@link CSContent} with the operations in this.
+     *
+     * @return A new {@link CSContent} with the operations in this.
+     */
+    public CSContent toContent() {
+        CSContent content = CSContent.createNew();
+        int i = 0;
+        while (i < codeSize) {
+            byte[] token = operators[code[i++]];
+            COSObject[] operands = new COSObject[code[i++]];
+            for (int j = 0; j < operands.length; j++) {
+                operands[j] = decode(code[i++]).copyShallow();
+            }
+            content.addOperation(new CSOperation(token, operands));
+        }
+        return content;
+    }
+}
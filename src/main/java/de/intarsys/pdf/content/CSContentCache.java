@@ -0,0 +1,491 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.content;
+
+import de.intarsys.pdf.cos.COSArray;
+import de.intarsys.pdf.cos.COSDocument;
+import de.intarsys.pdf.cos.COSObject;
+import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.pdf.cos.ICOSObjectListener;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.SoftReference;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A cache for compiled content streams.
+ * <p>
+ * The cache is keyed by the identity of the content object, either a single
+ * {@link COSStream} or a {@link COSArray} of streams as found in a page
+ * /Contents entry. Content objects are referenced weakly and the compiled
+ * content softly, so the cache never keeps a document or its content alive.
+ * Each entry is weighted by the memory estimate of its compiled content.
+ * When the total weight exceeds {@link #getMaxWeight()}, the least recently
+ * used entries are evicted.
+ * <p>
+ * An entry is invalidated when its content object or one of its streams
+ * reports a change.
+ * <p>
+ * For the read paths the cache also keeps a shared {@link CSContent} per
+ * entry, created on first request and referenced softly, see
+ * {@link #getContent(COSObject)}.
+ * <p>
+ * Each document has its own cache, created on demand, see
+ * {@link #get(COSObject)}. Content not yet added to a document uses the
+ * global cache.
+ */
+public class CSContentCache implements ICOSObjectListener {
+
+    /**
+     * A cache entry.
+     */
+    protected static class Entry {
+
+        private final Key[] sources;
+
+        private final Reference<CSCompiledContent> compiledContent;
+
+        private Reference<CSContent> content;
+
+        private final long weight;
+
+        protected Entry(Key[] sources, CSCompiledContent compiledContent) {
+            this.sources = sources;
+            this.compiledContent = new SoftReference<>(compiledContent);
+            this.weight = compiledContent.getWeight();
+        }
+
+        protected CSCompiledContent getCompiledContent() {
+            return compiledContent.get();
+        }
+
+        protected CSContent getContent() {
+            return content == null ? null : content.get();
+        }
+
+        protected long getWeight() {
+            return weight;
+        }
+
+        protected void setContent(CSContent content) {
+            this.content = new SoftReference<>(content);
+        }
+    }
+
+    /**
+     * A weak key comparing the content object by identity.
+     */
+    protected static class Key extends WeakReference<COSObject> {
+
+        private final int hash;
+
+        protected Key(COSObject object) {
+            super(object);
+            this.hash = System.identityHashCode(object);
+        }
+
+        protected Key(COSObject object, ReferenceQueue<COSObject> queue) {
+            super(object, queue);
+            this.hash = System.identityHashCode(object);
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#equals(java.lang.Object)
+         */
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Object object = get();
+            return object != null && object == ((Key) obj).get();
+        }
+
+        /*
+         * (non-Javadoc)
+         *
+         * @see java.lang.Object#hashCode()
+         */
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    public static final long DEFAULT_MAX_WEIGHT = 32 * 1024 * 1024;
+
+    private static final Object LOCK = new Object();
+
+    private static CSContentCache ACTIVE = new CSContentCache(DEFAULT_MAX_WEIGHT);
+
+    /**
+     * The global {@link CSContentCache}, used for content without a
+     * document.
+     *
+     * @return The global {@link CSContentCache}.
+     */
+    public static CSContentCache get() {
+        return ACTIVE;
+    }
+
+    /**
+     * The {@link CSContentCache} to be used for {@code object}. This is the
+     * cache of its document, created on demand, or the global cache if
+     * {@code object} is not part of a document.
+     *
+     * @param object The content object.
+     * @return The {@link CSContentCache} to be used for {@code object}.
+     */
+    public static CSContentCache get(COSObject object) {
+        COSDocument doc = object.getDoc();
+        if (doc == null) {
+            return ACTIVE;
+        }
+        synchronized (LOCK) {
+            CSContentCache cache = (CSContentCache) doc.getAttribute(CSContentCache.class);
+            if (cache == null) {
+                cache = new CSContentCache(DEFAULT_MAX_WEIGHT);
+                doc.setAttribute(CSContentCache.class, cache);
+            }
+            return cache;
+        }
+    }
+
+    /**
+     * Assign the global {@link CSContentCache}.
+     *
+     * @param cache The new global cache.
+     */
+    public static void set(CSContentCache cache) {
+        ACTIVE = cache;
+    }
+
+    /**
+     * Assign the {@link CSContentCache} to be used for content in
+     * {@code doc}. A {@code null} cache discards the current one, a new
+     * default cache is created on the next request.
+     *
+     * @param doc   The document.
+     * @param cache The cache for {@code doc}.
+     */
+    public static void set(COSDocument doc, CSContentCache cache) {
+        synchronized (LOCK) {
+            CSContentCache oldCache = (CSContentCache) doc.getAttribute(CSContentCache.class);
+            if (oldCache != null && oldCache != cache) {
+                oldCache.clear();
+            }
+            if (cache == null) {
+                doc.removeAttribute(CSContentCache.class);
+            } else {
+                doc.setAttribute(CSContentCache.class, cache);
+            }
+        }
+    }
+
+    /**
+     * The entries, keyed by content object, in least recently used order.
+     */
+    private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+
+    /**
+     * The entries depending on a content object or stream.
+     */
+    private final Map<Key, List<Entry>> dependents = new HashMap<>();
+
+    private final ReferenceQueue<COSObject> queue = new ReferenceQueue<>();
+
+    private long maxWeight;
+
+    private long weight;
+
+    public CSContentCache(long maxWeight) {
+        super();
+        this.maxWeight = maxWeight;
+    }
+
+    protected void addEntry(Entry entry) {
+        entries.put(entry.sources[0], entry);
+        weight += entry.getWeight();
+        for (Key source : entry.sources) {
+            List<Entry> sourceEntries = dependents.get(source);
+            if (sourceEntries == null) {
+                COSObject object = source.get();
+                if (object == null) {
+                    continue;
+                }
+                sourceEntries = new ArrayList<>(1);
+                dependents.put(source, sourceEntries);
+                object.addObjectListener(this);
+            }
+            sourceEntries.add(entry);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.cos.ICOSObjectListener#changed(de.intarsys.pdf.cos.COSObject,
+     * java.lang.Object, java.lang.Object, java.lang.Object)
+     */
+    @Override
+    public void changed(COSObject object, Object slot, Object oldValue, Object newValue) {
+        if (slot != COSObject.SLOT_CONTAINER) {
+            invalidate(object);
+        }
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public synchronized void clear() {
+        for (Iterator<Key> it = dependents.keySet().iterator(); it.hasNext(); ) {
+            COSObject object = it.next().get();
+            if (object != null) {
+                object.removeObjectListener(this);
+            }
+        }
+        dependents.clear();
+        entries.clear();
+        weight = 0;
+        expunge();
+    }
+
+    /**
+     * A new {@link CSContent} for {@code contents}, created from the cached
+     * compiled content, that the caller may modify.
+     *
+     * @param contents A {@link COSStream} or {@link COSArray} of streams.
+     * @return A new {@link CSContent} for {@code contents}.
+     */
+    public CSContent createContent(COSObject contents) {
+        return getCompiledContent(contents).toContent();
+    }
+
+    protected Entry createEntry(COSObject contents, CSCompiledContent compiledContent) {
+        List<Key> sources = new ArrayList<>();
+        sources.add(new Key(contents, queue));
+        COSArray array = contents.asArray();
+        if (array != null) {
+            for (Iterator it = array.iterator(); it.hasNext(); ) {
+                COSStream chunk = ((COSObject) it.next()).asStream();
+                if (chunk != null) {
+                    sources.add(new Key(chunk, queue));
+                }
+            }
+        }
+        return new Entry(sources.toArray(new Key[sources.size()]), compiledContent);
+    }
+
+    protected void evict() {
+        for (Iterator<Entry> it = entries.values().iterator(); weight > maxWeight && it.hasNext(); ) {
+            Entry entry = it.next();
+            it.remove();
+            weight -= entry.getWeight();
+            unregister(entry);
+        }
+    }
+
+    /**
+     * Remove the entries whose content objects were garbage collected.
+     */
+    protected void expunge() {
+        Reference<? extends COSObject> reference;
+        while ((reference = queue.poll()) != null) {
+            // a cleared key only equals itself
+            Entry entry = entries.remove(reference);
+            if (entry != null) {
+                weight -= entry.getWeight();
+                unregister(entry);
+            }
+            List<Entry> sourceEntries = dependents.remove(reference);
+            if (sourceEntries != null) {
+                for (Entry sourceEntry : sourceEntries) {
+                    removeEntry(sourceEntry);
+                }
+            }
+        }
+    }
+
+    /**
+     * The compiled content for {@code contents}, either from the cache or
+     * newly created.
+     * <p>
+     * The result is shared and must not be modified.
+     *
+     * @param contents A {@link COSStream} or {@link COSArray} of streams.
+     * @return The compiled content for {@code contents}.
+     */
+    public CSCompiledContent getCompiledContent(COSObject contents) {
+        Key key = new Key(contents);
+        synchronized (this) {
+            expunge();
+            CSCompiledContent compiledContent = lookupCompiledContent(key);
+            if (compiledContent != null) {
+                return compiledContent;
+            }
+        }
+        CSCompiledContent compiledContent;
+        COSStream stream = contents.asStream();
+        if (stream != null) {
+            compiledContent = CSCompiledContent.createFromCos(stream);
+        } else {
+            compiledContent = CSCompiledContent.createFromCos(contents.asArray());
+        }
+        synchronized (this) {
+            CSCompiledContent cachedContent = lookupCompiledContent(key);
+            if (cachedContent != null) {
+                // created concurrently
+                return cachedContent;
+            }
+            addEntry(createEntry(contents, compiledContent));
+            evict();
+        }
+        return compiledContent;
+    }
+
+    /**
+     * The parsed content for {@code contents}.
+     * <p>
+     * The result is created once from the cached compiled content and shared
+     * until the entry is invalidated. It must not be modified, use
+     * {@link #createContent(COSObject)} for a copy that may be changed.
+     *
+     * @param contents A {@link COSStream} or {@link COSArray} of streams.
+     * @return The parsed content for {@code contents}.
+     */
+    public CSContent getContent(COSObject contents) {
+        Key key = new Key(contents);
+        CSCompiledContent compiledContent = getCompiledContent(contents);
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.getCompiledContent() != compiledContent) {
+                // already evicted or invalidated
+                return compiledContent.toContent();
+            }
+            CSContent content = entry.getContent();
+            if (content != null) {
+                return content;
+            }
+        }
+        CSContent content = compiledContent.toContent();
+        synchronized (this) {
+            Entry entry = entries.get(key);
+            if (entry == null || entry.getCompiledContent() != compiledContent) {
+                return content;
+            }
+            CSContent cachedContent = entry.getContent();
+            if (cachedContent != null) {
+                // created concurrently
+                return cachedContent;
+            }
+            entry.setContent(content);
+        }
+        return content;
+    }
+
+    public synchronized long getMaxWeight() {
+        return maxWeight;
+    }
+
+    /**
+     * The current total weight of the cached entries.
+     *
+     * @return The current total weight of the cached entries.
+     */
+    public synchronized long getWeight() {
+        return weight;
+    }
+
+    /**
+     * Remove all entries depending on {@code object}.
+     *
+     * @param object The changed object.
+     */
+    public synchronized void invalidate(COSObject object) {
+        List<Entry> sourceEntries = dependents.get(new Key(object));
+        if (sourceEntries == null) {
+            return;
+        }
+        for (Entry entry : sourceEntries.toArray(new Entry[sourceEntries.size()])) {
+            removeEntry(entry);
+        }
+    }
+
+    protected CSCompiledContent lookupCompiledContent(Key key) {
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        CSCompiledContent compiledContent = entry.getCompiledContent();
+        if (compiledContent == null) {
+            // cleared by the garbage collector
+            removeEntry(entry);
+        }
+        return compiledContent;
+    }
+
+    protected void removeEntry(Entry entry) {
+        if (entries.get(entry.sources[0]) == entry) {
+            entries.remove(entry.sources[0]);
+            weight -= entry.getWeight();
+        }
+        unregister(entry);
+    }
+
+    public synchronized void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+        evict();
+    }
+
+    protected void unregister(Entry entry) {
+        for (Key source : entry.sources) {
+            List<Entry> sourceEntries = dependents.get(source);
+            if (sourceEntries != null && sourceEntries.remove(entry) && sourceEntries.isEmpty()) {
+                dependents.remove(source);
+                COSObject object = source.get();
+                if (object != null) {
+                    object.removeObjectListener(this);
+                }
+            }
+        }
+    }
+}
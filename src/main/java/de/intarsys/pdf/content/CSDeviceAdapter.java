@@ -875,6 +875,11 @@ public abstract class CSDeviceAdapter implements ICSDevice, ICSDeviceFeatures {
         return true;
     }
 
+    @Override
+    public boolean supportsGraphics() {
+        return true;
+    }
+
     @Override
     public boolean supportsInlineImage() {
         return true;
@@ -41,7 +41,9 @@ import de.intarsys.pdf.font.PDFont;
 import de.intarsys.pdf.font.PDFontTools;
 import de.intarsys.pdf.pd.PDColorSpace;
 import de.intarsys.pdf.pd.PDExtGState;
+import de.intarsys.pdf.pd.PDForm;
 import de.intarsys.pdf.pd.PDImage;
+import de.intarsys.pdf.pd.PDObject;
 import de.intarsys.pdf.pd.PDPattern;
 import de.intarsys.pdf.pd.PDResources;
 import de.intarsys.pdf.pd.PDShading;
@@ -53,6 +55,13 @@ import java.util.Map;
 /**
  * A content stream interpreter for PDF graphics primitives that delegates
  * execution to an {@link ICSDevice} object.
+ * <p>
+ * When the device answers {@code false} in
+ * {@link ICSDeviceFeatures#supportsGraphics()}, path, painting, clipping,
+ * color, shading and image operations are not reported to the device. This
+ * applies to the text extractors based on
+ * {@link de.intarsys.pdf.content.text.CSCharacterParser}; other devices,
+ * including {@link CSTextDevice}, receive all callbacks as before.
  */
 public class CSDeviceBasedInterpreter extends CSInterpreter {
 
@@ -72,6 +81,8 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     private boolean supportsFont = true;
 
+    private boolean supportsGraphics = true;
+
     private boolean supportsInlineImage = true;
 
     private boolean supportsPattern = true;
@@ -89,6 +100,7 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
             supportsColorSpace = ((ICSDeviceFeatures) device).supportsColorSpace();
             supportsExtendedState = ((ICSDeviceFeatures) device).supportsExtendedState();
             supportsFont = ((ICSDeviceFeatures) device).supportsFont();
+            supportsGraphics = ((ICSDeviceFeatures) device).supportsGraphics();
             supportsInlineImage = ((ICSDeviceFeatures) device).supportsInlineImage();
             supportsPattern = ((ICSDeviceFeatures) device).supportsPattern();
             supportsProperties = ((ICSDeviceFeatures) device).supportsProperties();
@@ -97,6 +109,55 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
         }
     }
 
+    /**
+     * true if <code>operatorCode</code> is a path construction, painting,
+     * clipping, color, shading or inline image operator.
+     *
+     * @param operatorCode The operator code
+     * @return true if <code>operatorCode</code> is not needed by a "text
+     * only" device.
+     */
+    protected static boolean isGraphicsOperator(int operatorCode) {
+        switch (operatorCode) {
+            case OP_m:
+            case OP_l:
+            case OP_c:
+            case OP_v:
+            case OP_y:
+            case OP_h:
+            case OP_re:
+            case OP_n:
+            case OP_S:
+            case OP_s:
+            case OP_f:
+            case OP_F:
+            case OP_fstar:
+            case OP_B:
+            case OP_Bstar:
+            case OP_b:
+            case OP_bstar:
+            case OP_W:
+            case OP_Wstar:
+            case OP_g:
+            case OP_G:
+            case OP_rg:
+            case OP_RG:
+            case OP_k:
+            case OP_K:
+            case OP_cs:
+            case OP_CS:
+            case OP_sc:
+            case OP_SC:
+            case OP_scn:
+            case OP_SCN:
+            case OP_sh:
+            case OP_EI:
+                return true;
+            default:
+                return false;
+        }
+    }
+
     /**
      * The {@link ICSDevice} currently associated with the interpreter.
      *
@@ -193,6 +254,38 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
         }
     }
 
+    @Override
+    public void process(CSCompiledContent pContent, PDResources resourceDict) {
+        try {
+            if (nesting == 0) {
+                device.open(this);
+            }
+            nesting++;
+            super.process(pContent, resourceDict);
+        } finally {
+            nesting--;
+            if (nesting == 0) {
+                device.close();
+            }
+        }
+    }
+
+    @Override
+    public void processStream(COSObject contents, PDResources resourceDict) {
+        try {
+            if (nesting == 0) {
+                device.open(this);
+            }
+            nesting++;
+            super.processStream(contents, resourceDict);
+        } finally {
+            nesting--;
+            if (nesting == 0) {
+                device.close();
+            }
+        }
+    }
+
     @Override
     protected void render_b(CSOperation operation) {
         try {
@@ -259,12 +352,12 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_c(CSOperation operation) {
-        float x1 = ((COSNumber) operation.getOperand(0)).floatValue();
-        float y1 = ((COSNumber) operation.getOperand(1)).floatValue();
-        float x2 = ((COSNumber) operation.getOperand(2)).floatValue();
-        float y2 = ((COSNumber) operation.getOperand(3)).floatValue();
-        float x3 = ((COSNumber) operation.getOperand(4)).floatValue();
-        float y3 = ((COSNumber) operation.getOperand(5)).floatValue();
+        float x1 = operation.getOperandFloat(0);
+        float y1 = operation.getOperandFloat(1);
+        float x2 = operation.getOperandFloat(2);
+        float y2 = operation.getOperandFloat(3);
+        float x3 = operation.getOperandFloat(4);
+        float y3 = operation.getOperandFloat(5);
         device.penCurveToC(x1, y1, x2, y2, x3, y3);
     }
 
@@ -278,12 +371,12 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
             // Other viewers are rendering this, too...
             throw new CSWarning("'cm' not allowed");
         }
-        float a = ((COSNumber) operation.getOperand(0)).floatValue();
-        float b = ((COSNumber) operation.getOperand(1)).floatValue();
-        float c = ((COSNumber) operation.getOperand(2)).floatValue();
-        float d = ((COSNumber) operation.getOperand(3)).floatValue();
-        float e = ((COSNumber) operation.getOperand(4)).floatValue();
-        float f = ((COSNumber) operation.getOperand(5)).floatValue();
+        float a = operation.getOperandFloat(0);
+        float b = operation.getOperandFloat(1);
+        float c = operation.getOperandFloat(2);
+        float d = operation.getOperandFloat(3);
+        float e = operation.getOperandFloat(4);
+        float f = operation.getOperandFloat(5);
         device.transform(a, b, c, d, e, f);
     }
 
@@ -313,22 +406,42 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
                 i++;
             }
         }
-        float phase = ((COSNumber) operation.getOperand(1)).floatValue();
+        float phase = operation.getOperandFloat(1);
         device.setLineDash(pattern, phase);
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.CSInterpreter#process(int, de.intarsys.pdf.content.CSOperation)
+     */
+    @Override
+    protected void process(int operatorCode, CSOperation operation) {
+        if (!supportsGraphics && isGraphicsOperator(operatorCode)) {
+            return;
+        }
+        super.process(operatorCode, operation);
+    }
+
     @Override
     protected void render_Do(CSOperation operation) {
         COSName name = (COSName) operation.getOperand(0);
+        if (!supportsGraphics && getResources() != null) {
+            // resolve only forms, a "text only" device can't use the rest
+            COSDictionary dict = getResources().cosGetResource(PDResources.CN_RT_XObject, name).asDictionary();
+            if (dict == null || !PDForm.CN_Subtype_Form.equals(dict.get(PDObject.DK_Subtype))) {
+                return;
+            }
+        }
         PDXObject xobject = lookupXObject(name);
         device.doXObject(name, xobject);
     }
 
     @Override
     protected void render_DoubleQuote(CSOperation operation) {
-        float ws = ((COSNumber) operation.getOperand(0)).floatValue();
+        float ws = operation.getOperandFloat(0);
         device.textSetWordSpacing(ws);
-        float cs = ((COSNumber) operation.getOperand(1)).floatValue();
+        float cs = operation.getOperandFloat(1);
         device.textSetCharSpacing(cs);
         device.textLineNew();
         byte[] value = ((COSString) operation.getOperand(2)).byteValue();
@@ -425,10 +538,10 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_g(CSOperation operation) {
         if (frame.defaultGray != null) {
             device.setNonStrokeColorSpace(PDColorSpace.CN_CS_DefaultGray, frame.defaultGray);
-            float[] values = {((COSNumber) operation.getOperand(0)).floatValue()};
+            float[] values = {operation.getOperandFloat(0)};
             device.setNonStrokeColorValues(values);
         } else {
-            device.setNonStrokeColorGray(((COSNumber) operation.getOperand(0)).floatValue());
+            device.setNonStrokeColorGray(operation.getOperandFloat(0));
         }
     }
 
@@ -436,10 +549,10 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_G(CSOperation operation) {
         if (frame.defaultGray != null) {
             device.setStrokeColorSpace(PDColorSpace.CN_CS_DefaultGray, frame.defaultGray);
-            float[] values = {((COSNumber) operation.getOperand(0)).floatValue()};
+            float[] values = {operation.getOperandFloat(0)};
             device.setStrokeColorValues(values);
         } else {
-            device.setStrokeColorGray(((COSNumber) operation.getOperand(0)).floatValue());
+            device.setStrokeColorGray(operation.getOperandFloat(0));
         }
     }
 
@@ -457,19 +570,19 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_i(CSOperation operation) {
-        float flatness = ((COSNumber) operation.getOperand(0)).floatValue();
+        float flatness = operation.getOperandFloat(0);
         device.setFlatnessTolerance(flatness);
     }
 
     @Override
     protected void render_j(CSOperation operation) {
-        int joinStyle = ((COSNumber) operation.getOperand(0)).intValue();
+        int joinStyle = operation.getOperandInt(0);
         device.setLineJoin(joinStyle);
     }
 
     @Override
     protected void render_J(CSOperation operation) {
-        int cap = ((COSNumber) operation.getOperand(0)).intValue();
+        int cap = operation.getOperandInt(0);
         device.setLineCap(cap);
     }
 
@@ -477,16 +590,16 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_k(CSOperation operation) {
         if (frame.defaultCMYK != null) {
             device.setNonStrokeColorSpace(PDColorSpace.CN_CS_DefaultCMYK, frame.defaultCMYK);
-            float[] values = {((COSNumber) operation.getOperand(0)).floatValue(),
-                              ((COSNumber) operation.getOperand(1)).floatValue(),
-                              ((COSNumber) operation.getOperand(2)).floatValue(),
-                              ((COSNumber) operation.getOperand(3)).floatValue()};
+            float[] values = {operation.getOperandFloat(0),
+                              operation.getOperandFloat(1),
+                              operation.getOperandFloat(2),
+                              operation.getOperandFloat(3)};
             device.setNonStrokeColorValues(values);
         } else {
-            device.setNonStrokeColorCMYK(((COSNumber) operation.getOperand(0)).floatValue(),
-                                         ((COSNumber) operation.getOperand(1)).floatValue(),
-                                         ((COSNumber) operation.getOperand(2)).floatValue(),
-                                         ((COSNumber) operation.getOperand(3)).floatValue());
+            device.setNonStrokeColorCMYK(operation.getOperandFloat(0),
+                                         operation.getOperandFloat(1),
+                                         operation.getOperandFloat(2),
+                                         operation.getOperandFloat(3));
         }
     }
 
@@ -494,35 +607,35 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_K(CSOperation operation) {
         if (frame.defaultCMYK != null) {
             device.setStrokeColorSpace(PDColorSpace.CN_CS_DefaultCMYK, frame.defaultCMYK);
-            float[] values = {((COSNumber) operation.getOperand(0)).floatValue(),
-                              ((COSNumber) operation.getOperand(1)).floatValue(),
-                              ((COSNumber) operation.getOperand(2)).floatValue(),
-                              ((COSNumber) operation.getOperand(3)).floatValue()};
+            float[] values = {operation.getOperandFloat(0),
+                              operation.getOperandFloat(1),
+                              operation.getOperandFloat(2),
+                              operation.getOperandFloat(3)};
             device.setStrokeColorValues(values);
         } else {
-            device.setStrokeColorCMYK(((COSNumber) operation.getOperand(0)).floatValue(),
-                                      ((COSNumber) operation.getOperand(1)).floatValue(),
-                                      ((COSNumber) operation.getOperand(2)).floatValue(),
-                                      ((COSNumber) operation.getOperand(3)).floatValue());
+            device.setStrokeColorCMYK(operation.getOperandFloat(0),
+                                      operation.getOperandFloat(1),
+                                      operation.getOperandFloat(2),
+                                      operation.getOperandFloat(3));
         }
     }
 
     @Override
     protected void render_l(CSOperation operation) {
-        device.penLineTo(((COSNumber) operation.getOperand(0)).floatValue(),
-                         ((COSNumber) operation.getOperand(1)).floatValue());
+        device.penLineTo(operation.getOperandFloat(0),
+                         operation.getOperandFloat(1));
     }
 
     @Override
     protected void render_m(CSOperation operation) {
         frame.graphicsObjectState = PathObject;
-        device.penMoveTo(((COSNumber) operation.getOperand(0)).floatValue(),
-                         ((COSNumber) operation.getOperand(1)).floatValue());
+        device.penMoveTo(operation.getOperandFloat(0),
+                         operation.getOperandFloat(1));
     }
 
     @Override
     protected void render_M(CSOperation operation) {
-        float value = ((COSNumber) operation.getOperand(0)).floatValue();
+        float value = operation.getOperandFloat(0);
         device.setMiterLimit(value);
     }
 
@@ -568,10 +681,10 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_re(CSOperation operation) {
-        float x = ((COSNumber) operation.getOperand(0)).floatValue();
-        float y = ((COSNumber) operation.getOperand(1)).floatValue();
-        float width = ((COSNumber) operation.getOperand(2)).floatValue();
-        float height = ((COSNumber) operation.getOperand(3)).floatValue();
+        float x = operation.getOperandFloat(0);
+        float y = operation.getOperandFloat(1);
+        float width = operation.getOperandFloat(2);
+        float height = operation.getOperandFloat(3);
         device.penRectangle(x, y, width, height);
     }
 
@@ -579,14 +692,14 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_rg(CSOperation operation) {
         if (frame.defaultRGB != null) {
             device.setNonStrokeColorSpace(PDColorSpace.CN_CS_DefaultRGB, frame.defaultRGB);
-            float[] values = {((COSNumber) operation.getOperand(0)).floatValue(),
-                              ((COSNumber) operation.getOperand(1)).floatValue(),
-                              ((COSNumber) operation.getOperand(2)).floatValue()};
+            float[] values = {operation.getOperandFloat(0),
+                              operation.getOperandFloat(1),
+                              operation.getOperandFloat(2)};
             device.setNonStrokeColorValues(values);
         } else {
-            device.setNonStrokeColorRGB(((COSNumber) operation.getOperand(0)).floatValue(),
-                                        ((COSNumber) operation.getOperand(1)).floatValue(),
-                                        ((COSNumber) operation.getOperand(2)).floatValue());
+            device.setNonStrokeColorRGB(operation.getOperandFloat(0),
+                                        operation.getOperandFloat(1),
+                                        operation.getOperandFloat(2));
         }
     }
 
@@ -594,14 +707,14 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_RG(CSOperation operation) {
         if (frame.defaultRGB != null) {
             device.setStrokeColorSpace(PDColorSpace.CN_CS_DefaultRGB, frame.defaultRGB);
-            float[] values = {((COSNumber) operation.getOperand(0)).floatValue(),
-                              ((COSNumber) operation.getOperand(1)).floatValue(),
-                              ((COSNumber) operation.getOperand(2)).floatValue()};
+            float[] values = {operation.getOperandFloat(0),
+                              operation.getOperandFloat(1),
+                              operation.getOperandFloat(2)};
             device.setStrokeColorValues(values);
         } else {
-            device.setStrokeColorRGB(((COSNumber) operation.getOperand(0)).floatValue(),
-                                     ((COSNumber) operation.getOperand(1)).floatValue(),
-                                     ((COSNumber) operation.getOperand(2)).floatValue());
+            device.setStrokeColorRGB(operation.getOperandFloat(0),
+                                     operation.getOperandFloat(1),
+                                     operation.getOperandFloat(2));
         }
     }
 
@@ -635,7 +748,7 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
         int totalSize = operation.operandSize();
         float[] values = new float[totalSize];
         for (int i = 0; i < totalSize; i++) {
-            values[i] = ((COSNumber) operation.getOperand(i)).floatValue();
+            values[i] = operation.getOperandFloat(i);
         }
         device.setNonStrokeColorValues(values);
     }
@@ -646,7 +759,7 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
         int totalSize = operation.operandSize();
         float[] values = new float[totalSize];
         for (int i = 0; i < totalSize; i++) {
-            values[i] = ((COSNumber) operation.getOperand(i)).floatValue();
+            values[i] = operation.getOperandFloat(i);
         }
         device.setStrokeColorValues(values);
     }
@@ -663,7 +776,7 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
         }
         float[] values = new float[numberSize];
         for (int i = 0; i < numberSize; i++) {
-            values[i] = ((COSNumber) operation.getOperand(i)).floatValue();
+            values[i] = operation.getOperandFloat(i);
         }
         if (patternName == null) {
             device.setNonStrokeColorValues(values);
@@ -684,7 +797,7 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
         }
         float[] values = new float[numberSize];
         for (int i = 0; i < numberSize; i++) {
-            values[i] = ((COSNumber) operation.getOperand(i)).floatValue();
+            values[i] = operation.getOperandFloat(i);
         }
         if (patternName == null) {
             device.setStrokeColorValues(values);
@@ -703,21 +816,21 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_Tc(CSOperation operation) {
-        float value = ((COSNumber) operation.getOperand(0)).floatValue();
+        float value = operation.getOperandFloat(0);
         device.textSetCharSpacing(value);
     }
 
     @Override
     protected void render_Td(CSOperation operation) {
-        float x = ((COSNumber) operation.getOperand(0)).floatValue();
-        float y = ((COSNumber) operation.getOperand(1)).floatValue();
+        float x = operation.getOperandFloat(0);
+        float y = operation.getOperandFloat(1);
         device.textLineMove(x, y);
     }
 
     @Override
     protected void render_TD(CSOperation operation) {
-        float x = ((COSNumber) operation.getOperand(0)).floatValue();
-        float y = ((COSNumber) operation.getOperand(1)).floatValue();
+        float x = operation.getOperandFloat(0);
+        float y = operation.getOperandFloat(1);
         device.textSetLeading(y);
         device.textLineMove(x, y);
     }
@@ -726,7 +839,7 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
     protected void render_Tf(CSOperation operation) {
         COSName fontname = operation.getOperand(0).asName();
         PDFont pdFont = lookupFont(fontname);
-        fontSize = operation.getOperand(1).asNumber().floatValue();
+        fontSize = operation.getOperandFloat(1);
         advanceFactor = -1f * horizontalScalingFactor * fontSize / 1000;
         device.textSetFont(fontname, pdFont, fontSize);
     }
@@ -759,30 +872,30 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_TL(CSOperation operation) {
-        float value = ((COSNumber) operation.getOperand(0)).floatValue();
+        float value = operation.getOperandFloat(0);
         device.textSetLeading(-value);
     }
 
     @Override
     protected void render_Tm(CSOperation operation) {
-        float a = ((COSNumber) operation.getOperand(0)).floatValue();
-        float b = ((COSNumber) operation.getOperand(1)).floatValue();
-        float c = ((COSNumber) operation.getOperand(2)).floatValue();
-        float d = ((COSNumber) operation.getOperand(3)).floatValue();
-        float e = ((COSNumber) operation.getOperand(4)).floatValue();
-        float f = ((COSNumber) operation.getOperand(5)).floatValue();
+        float a = operation.getOperandFloat(0);
+        float b = operation.getOperandFloat(1);
+        float c = operation.getOperandFloat(2);
+        float d = operation.getOperandFloat(3);
+        float e = operation.getOperandFloat(4);
+        float f = operation.getOperandFloat(5);
         device.textSetTransform(a, b, c, d, e, f);
     }
 
     @Override
     protected void render_Tr(CSOperation operation) {
-        int value = ((COSNumber) operation.getOperand(0)).intValue();
+        int value = operation.getOperandInt(0);
         device.textSetRenderingMode(value);
     }
 
     @Override
     protected void render_Ts(CSOperation operation) {
-        float value = ((COSNumber) operation.getOperand(0)).floatValue();
+        float value = operation.getOperandFloat(0);
         device.textSetRise(value);
     }
 
@@ -793,13 +906,13 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_Tw(CSOperation operation) {
-        float value = ((COSNumber) operation.getOperand(0)).floatValue();
+        float value = operation.getOperandFloat(0);
         device.textSetWordSpacing(value);
     }
 
     @Override
     protected void render_Tz(CSOperation operation) {
-        float value = ((COSNumber) operation.getOperand(0)).floatValue();
+        float value = operation.getOperandFloat(0);
         horizontalScalingFactor = value / 100;
         advanceFactor = -1f * horizontalScalingFactor * fontSize / 1000;
         device.textSetHorizontalScaling(value);
@@ -807,16 +920,16 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_v(CSOperation operation) {
-        float x2 = ((COSNumber) operation.getOperand(0)).floatValue();
-        float y2 = ((COSNumber) operation.getOperand(1)).floatValue();
-        float x3 = ((COSNumber) operation.getOperand(2)).floatValue();
-        float y3 = ((COSNumber) operation.getOperand(3)).floatValue();
+        float x2 = operation.getOperandFloat(0);
+        float y2 = operation.getOperandFloat(1);
+        float x3 = operation.getOperandFloat(2);
+        float y3 = operation.getOperandFloat(3);
         device.penCurveToV(x2, y2, x3, y3);
     }
 
     @Override
     protected void render_w(CSOperation operation) {
-        device.setLineWidth(((COSNumber) operation.getOperand(0)).floatValue());
+        device.setLineWidth(operation.getOperandFloat(0));
     }
 
     @Override
@@ -833,10 +946,10 @@ public class CSDeviceBasedInterpreter extends CSInterpreter {
 
     @Override
     protected void render_y(CSOperation operation) {
-        float x1 = ((COSNumber) operation.getOperand(0)).floatValue();
-        float y1 = ((COSNumber) operation.getOperand(1)).floatValue();
-        float x2 = ((COSNumber) operation.getOperand(2)).floatValue();
-        float y2 = ((COSNumber) operation.getOperand(3)).floatValue();
+        float x1 = operation.getOperandFloat(0);
+        float y1 = operation.getOperandFloat(1);
+        float x2 = operation.getOperandFloat(2);
+        float y2 = operation.getOperandFloat(3);
         device.penCurveToY(x1, y1, x2, y2);
     }
 
@@ -58,6 +58,8 @@ public abstract class CSDeviceFilter implements ICSDevice, ICSDeviceFeatures {
 
     private boolean supportsFont = true;
 
+    private boolean supportsGraphics = true;
+
     private boolean supportsInlineImage = true;
 
     private boolean supportsPattern = true;
@@ -74,6 +76,7 @@ public abstract class CSDeviceFilter implements ICSDevice, ICSDeviceFeatures {
             supportsColorSpace = ((ICSDeviceFeatures) device).supportsColorSpace();
             supportsExtendedState = ((ICSDeviceFeatures) device).supportsExtendedState();
             supportsFont = ((ICSDeviceFeatures) device).supportsFont();
+            supportsGraphics = ((ICSDeviceFeatures) device).supportsGraphics();
             supportsInlineImage = ((ICSDeviceFeatures) device).supportsInlineImage();
             supportsPattern = ((ICSDeviceFeatures) device).supportsPattern();
             supportsProperties = ((ICSDeviceFeatures) device).supportsProperties();
@@ -427,6 +430,11 @@ public abstract class CSDeviceFilter implements ICSDevice, ICSDeviceFeatures {
         return supportsFont;
     }
 
+    @Override
+    public boolean supportsGraphics() {
+        return supportsGraphics;
+    }
+
     @Override
     public boolean supportsInlineImage() {
         return supportsInlineImage;
@@ -0,0 +1,401 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.content;
+
+import de.intarsys.pdf.cos.COSDictionary;
+import de.intarsys.pdf.cos.COSName;
+import de.intarsys.pdf.font.PDGlyphs;
+import de.intarsys.pdf.pd.PDImage;
+import de.intarsys.pdf.pd.PDPattern;
+import de.intarsys.pdf.pd.PDPostScript;
+import de.intarsys.pdf.pd.PDShading;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A {@link ICSDevice} feeding a single interpretation pass to several
+ * {@link CSBasicDevice} instances, for example a text extractor and a
+ * bounding box collector.
+ * <p>
+ * The multiplexer maintains the one and only {@link GraphicsState} and
+ * {@link TextState}, builds the paths and decodes the glyphs. The child
+ * devices share these state objects and receive only the rendering
+ * callbacks ({@link CSBasicDevice#basicDraw(Shape)},
+ * {@link CSBasicDevice#basicTextShowGlyphs(PDGlyphs, float)}, images,
+ * marked content and so on). Form XObjects are interpreted once by the
+ * multiplexer.
+ * <p>
+ * This means a child device must not rely on being called for graphics state
+ * changes (transform, colors, text state, save/restore); it reads the state
+ * when a rendering callback arrives. The text devices derived from
+ * {@link de.intarsys.pdf.content.text.CSCharacterParser} follow this rule.
+ */
+public class CSDeviceMultiplexer extends CSBasicDevice {
+
+    private final List<CSBasicDevice> devices = new ArrayList<>();
+
+    private final AffineTransform savedTextTransform = new AffineTransform();
+
+    private final AffineTransform savedTextGlobalTransform = new AffineTransform();
+
+    public CSDeviceMultiplexer() {
+        super();
+    }
+
+    public CSDeviceMultiplexer(CSBasicDevice... devices) {
+        super();
+        for (CSBasicDevice device : devices) {
+            addDevice(device);
+        }
+    }
+
+    /**
+     * Add a child device. This must be done before the multiplexer is opened.
+     *
+     * @param device The new child device.
+     */
+    public void addDevice(CSBasicDevice device) {
+        devices.add(device);
+    }
+
+    @Override
+    protected void basicClip(Shape shape) {
+        for (CSBasicDevice device : devices) {
+            device.basicClip(shape);
+        }
+    }
+
+    @Override
+    protected void basicDraw(Shape shape) {
+        for (CSBasicDevice device : devices) {
+            device.basicDraw(shape);
+        }
+    }
+
+    @Override
+    protected void basicFill(Shape shape) {
+        for (CSBasicDevice device : devices) {
+            device.basicFill(shape);
+        }
+    }
+
+    @Override
+    protected void basicFillDegenerated(Shape shape) {
+        for (CSBasicDevice device : devices) {
+            device.basicFillDegenerated(shape);
+        }
+    }
+
+    @Override
+    protected void basicTextShowBegin() {
+        for (CSBasicDevice device : devices) {
+            device.basicTextShowBegin();
+        }
+    }
+
+    @Override
+    protected void basicTextShowEnd() {
+        for (CSBasicDevice device : devices) {
+            device.basicTextShowEnd();
+        }
+    }
+
+    @Override
+    protected void basicTextShowGlyphs(PDGlyphs glyphs, float advance) {
+        // the children advance the shared text state themselves, start each
+        // one from the same position
+        savedTextTransform.setTransform(textState.transform);
+        savedTextGlobalTransform.setTransform(textState.globalTransform);
+        for (CSBasicDevice device : devices) {
+            device.basicTextShowGlyphs(glyphs, advance);
+            textState.transform.setTransform(savedTextTransform);
+            textState.globalTransform.setTransform(savedTextGlobalTransform);
+        }
+        super.basicTextShowGlyphs(glyphs, advance);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.ICSDevice#close()
+     */
+    @Override
+    public void close() {
+        for (CSBasicDevice device : devices) {
+            device.close();
+        }
+        super.close();
+    }
+
+    @Override
+    public void compatibilityBegin() {
+        for (CSBasicDevice device : devices) {
+            device.compatibilityBegin();
+        }
+    }
+
+    @Override
+    public void compatibilityEnd() {
+        for (CSBasicDevice device : devices) {
+            device.compatibilityEnd();
+        }
+    }
+
+    @Override
+    protected void doImage(COSName name, PDImage image) {
+        for (CSBasicDevice device : devices) {
+            device.doImage(name, image);
+        }
+    }
+
+    @Override
+    protected void doPostScript(COSName name, PDPostScript postscript) {
+        for (CSBasicDevice device : devices) {
+            device.doPostScript(name, postscript);
+        }
+    }
+
+    @Override
+    public void doShading(COSName resourceName, PDShading shading) {
+        for (CSBasicDevice device : devices) {
+            device.doShading(resourceName, shading);
+        }
+    }
+
+    /**
+     * The child devices.
+     *
+     * @return The child devices.
+     */
+    public List<CSBasicDevice> getDevices() {
+        return devices;
+    }
+
+    @Override
+    public void inlineImage(PDImage img) {
+        for (CSBasicDevice device : devices) {
+            device.inlineImage(img);
+        }
+    }
+
+    @Override
+    public void markedContentBegin(COSName tag) {
+        for (CSBasicDevice device : devices) {
+            device.markedContentBegin(tag);
+        }
+    }
+
+    @Override
+    public void markedContentBeginProperties(COSName tag, COSName resourceName, COSDictionary properties) {
+        for (CSBasicDevice device : devices) {
+            device.markedContentBeginProperties(tag, resourceName, properties);
+        }
+    }
+
+    @Override
+    public void markedContentEnd() {
+        for (CSBasicDevice device : devices) {
+            device.markedContentEnd();
+        }
+    }
+
+    @Override
+    public void markedContentPoint(COSName tag) {
+        for (CSBasicDevice device : devices) {
+            device.markedContentPoint(tag);
+        }
+    }
+
+    @Override
+    public void markedContentPointProperties(COSName tag, COSName resourceName, COSDictionary properties) {
+        for (CSBasicDevice device : devices) {
+            device.markedContentPointProperties(tag, resourceName, properties);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.intarsys.pdf.content.ICSDevice#open(de.intarsys.pdf.content.ICSInterpreter
+     * )
+     */
+    @Override
+    public void open(ICSInterpreter interpreter) {
+        super.open(interpreter);
+        for (CSBasicDevice device : devices) {
+            device.open(interpreter);
+        }
+        shareState();
+    }
+
+    @Override
+    public void restoreState() {
+        super.restoreState();
+        shareState();
+    }
+
+    @Override
+    public void saveState() {
+        super.saveState();
+        shareState();
+    }
+
+    @Override
+    public void setNonStrokeColorValues(float[] values, COSName name, PDPattern pattern) {
+        for (CSBasicDevice device : devices) {
+            device.setNonStrokeColorValues(values, name, pattern);
+        }
+    }
+
+    @Override
+    public void setStrokeColorValues(float[] values, COSName name, PDPattern pattern) {
+        for (CSBasicDevice device : devices) {
+            device.setStrokeColorValues(values, name, pattern);
+        }
+    }
+
+    /**
+     * Make the children use the current state of this.
+     */
+    protected void shareState() {
+        for (CSBasicDevice device : devices) {
+            device.graphicsState = graphicsState;
+            device.textState = textState;
+        }
+    }
+
+    @Override
+    public boolean supportsColorSpace() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsColorSpace()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsExtendedState() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsExtendedState()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsFont() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsFont()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsGraphics() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsGraphics()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsInlineImage() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsInlineImage()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsPattern() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsPattern()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsProperties() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsProperties()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsShading() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsShading()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public boolean supportsXObject() {
+        for (CSBasicDevice device : devices) {
+            if (device.supportsXObject()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void textT3SetGlyphWidth(float x, float y) {
+        for (CSBasicDevice device : devices) {
+            device.textT3SetGlyphWidth(x, y);
+        }
+    }
+
+    @Override
+    public void textT3SetGlyphWidthBB(float x, float y, float llx, float lly, float urx, float ury) {
+        for (CSBasicDevice device : devices) {
+            device.textT3SetGlyphWidthBB(x, y, llx, lly, urx, ury);
+        }
+    }
+}
@@ -0,0 +1,329 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.content;
+
+import de.intarsys.pdf.pd.PDColorSpace;
+import de.intarsys.pdf.pd.PDImage;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+import java.awt.geom.Path2D;
+import java.awt.geom.PathIterator;
+
+/**
+ * A recorded sequence of fully resolved rendering operations of a content
+ * stream, see {@link CSDisplayListRecorder}.
+ * <p>
+ * Operations and path segment types are stored in an {@code int[]},
+ * coordinates and color values in a {@code float[]}. Images and color spaces
+ * are kept in a side table. Replaying a display list with
+ * {@link #replay(ICSDisplayListHandler)} does not need the content stream,
+ * its resources or the fonts.
+ */
+public class CSDisplayList {
+
+    protected static final int OP_CLIP = 1;
+
+    protected static final int OP_FILL = 2;
+
+    protected static final int OP_STROKE = 3;
+
+    protected static final int OP_GLYPH = 4;
+
+    protected static final int OP_IMAGE = 5;
+
+    protected static final int OP_FILL_COLOR = 6;
+
+    protected static final int OP_STROKE_COLOR = 7;
+
+    private static final int[] SEGMENT_COORDS = {2, 2, 4, 6, 0};
+
+    private int[] ops = new int[256];
+
+    private int opsSize;
+
+    private float[] data = new float[1024];
+
+    private int dataSize;
+
+    private Object[] objects = new Object[8];
+
+    private int objectsSize;
+
+    public CSDisplayList() {
+        super();
+    }
+
+    protected void addClip(Shape shape) {
+        if (shape == null) {
+            addOp(OP_CLIP);
+            addOp(-1);
+        } else {
+            addOp(OP_CLIP);
+            addPath(shape.getPathIterator(null));
+        }
+    }
+
+    protected void addColor(int op, PDColorSpace colorSpace, float[] values) {
+        addOp(op);
+        addOp(addObject(colorSpace));
+        if (values == null) {
+            addOp(-1);
+        } else {
+            addOp(values.length);
+            for (float value : values) {
+                addData(value);
+            }
+        }
+    }
+
+    protected void addData(float value) {
+        if (dataSize == data.length) {
+            float[] newData = new float[Math.max(64, dataSize << 1)];
+            System.arraycopy(data, 0, newData, 0, dataSize);
+            data = newData;
+        }
+        data[dataSize++] = value;
+    }
+
+    protected void addFill(Shape shape, AffineTransform transform) {
+        addOp(OP_FILL);
+        addPath(shape.getPathIterator(transform));
+    }
+
+    protected void addGlyph(int codepoint, int unicode, float x, float y, float width, float height) {
+        addOp(OP_GLYPH);
+        addOp(codepoint);
+        addOp(unicode);
+        addData(x);
+        addData(y);
+        addData(width);
+        addData(height);
+    }
+
+    protected void addImage(PDImage image, AffineTransform transform) {
+        addOp(OP_IMAGE);
+        addOp(addObject(image));
+        addData((float) transform.getScaleX());
+        addData((float) transform.getShearY());
+        addData((float) transform.getShearX());
+        addData((float) transform.getScaleY());
+        addData((float) transform.getTranslateX());
+        addData((float) transform.getTranslateY());
+    }
+
+    protected int addObject(Object object) {
+        if (objectsSize > 0 && objects[objectsSize - 1] == object) {
+            return objectsSize - 1;
+        }
+        if (objectsSize == objects.length) {
+            Object[] newObjects = new Object[Math.max(8, objectsSize << 1)];
+            System.arraycopy(objects, 0, newObjects, 0, objectsSize);
+            objects = newObjects;
+        }
+        objects[objectsSize] = object;
+        return objectsSize++;
+    }
+
+    protected void addOp(int value) {
+        if (opsSize == ops.length) {
+            int[] newOps = new int[Math.max(64, opsSize << 1)];
+            System.arraycopy(ops, 0, newOps, 0, opsSize);
+            ops = newOps;
+        }
+        ops[opsSize++] = value;
+    }
+
+    /**
+     * Add the path as winding rule, segment count and segment types to the
+     * ops and the coordinates to the data.
+     *
+     * @param path The path.
+     */
+    protected void addPath(PathIterator path) {
+        addOp(path.getWindingRule());
+        int countIndex = opsSize;
+        addOp(0);
+        float[] coords = new float[6];
+        int count = 0;
+        while (!path.isDone()) {
+            int type = path.currentSegment(coords);
+            addOp(type);
+            for (int i = 0; i < SEGMENT_COORDS[type]; i++) {
+                addData(coords[i]);
+            }
+            count++;
+            path.next();
+        }
+        ops[countIndex] = count;
+    }
+
+    protected void addStroke(Shape shape, AffineTransform transform, float lineWidth) {
+        addOp(OP_STROKE);
+        addData(lineWidth);
+        addPath(shape.getPathIterator(transform));
+    }
+
+    /**
+     * An estimate of the memory used by this, in bytes.
+     *
+     * @return An estimate of the memory used by this.
+     */
+    public int getWeight() {
+        return (ops.length * 4) + (data.length * 4) + (objects.length * 4);
+    }
+
+    /**
+     * Call {@code handler} for each recorded operation, in order.
+     *
+     * @param handler The handler receiving the operations.
+     */
+    public void replay(ICSDisplayListHandler handler) {
+        Path2D.Float path = new Path2D.Float();
+        AffineTransform transform = new AffineTransform();
+        int o = 0;
+        int d = 0;
+        while (o < opsSize) {
+            int op = ops[o++];
+            switch (op) {
+                case OP_CLIP:
+                    if (ops[o] == -1) {
+                        o++;
+                        handler.clip(null);
+                    } else {
+                        path.reset();
+                        path.setWindingRule(ops[o++]);
+                        int count = ops[o++];
+                        d = readPath(path, count, o, d);
+                        o += count;
+                        handler.clip(path);
+                    }
+                    break;
+                case OP_FILL: {
+                    path.reset();
+                    path.setWindingRule(ops[o++]);
+                    int count = ops[o++];
+                    d = readPath(path, count, o, d);
+                    o += count;
+                    handler.fill(path);
+                    break;
+                }
+                case OP_STROKE: {
+                    float lineWidth = data[d++];
+                    path.reset();
+                    path.setWindingRule(ops[o++]);
+                    int count = ops[o++];
+                    d = readPath(path, count, o, d);
+                    o += count;
+                    handler.stroke(path, lineWidth);
+                    break;
+                }
+                case OP_GLYPH:
+                    handler.glyph(ops[o], ops[o + 1], data[d], data[d + 1], data[d + 2], data[d + 3]);
+                    o += 2;
+                    d += 4;
+                    break;
+                case OP_IMAGE:
+                    transform.setTransform(data[d], data[d + 1], data[d + 2], data[d + 3], data[d + 4], data[d + 5]);
+                    handler.image((PDImage) objects[ops[o++]], transform);
+                    d += 6;
+                    break;
+                case OP_FILL_COLOR:
+                case OP_STROKE_COLOR: {
+                    PDColorSpace colorSpace = (PDColorSpace) objects[ops[o++]];
+                    int count = ops[o++];
+                    float[] values = null;
+                    if (count >= 0) {
+                        values = new float[count];
+                        System.arraycopy(data, d, values, 0, count);
+                        d += count;
+                    }
+                    if (op == OP_FILL_COLOR) {
+                        handler.setFillColor(colorSpace, values);
+                    } else {
+                        handler.setStrokeColor(colorSpace, values);
+                    }
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("corrupt display list"); //$NON-NLS-1$
+            }
+        }
+    }
+
+    protected int readPath(Path2D.Float path, int count, int typeIndex, int dataIndex) {
+        int d = dataIndex;
+        for (int i = 0; i < count; i++) {
+            switch (ops[typeIndex + i]) {
+                case PathIterator.SEG_MOVETO:
+                    path.moveTo(data[d], data[d + 1]);
+                    d += 2;
+                    break;
+                case PathIterator.SEG_LINETO:
+                    path.lineTo(data[d], data[d + 1]);
+                    d += 2;
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    path.quadTo(data[d], data[d + 1], data[d + 2], data[d + 3]);
+                    d += 4;
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    path.curveTo(data[d], data[d + 1], data[d + 2], data[d + 3], data[d + 4], data[d + 5]);
+                    d += 6;
+                    break;
+                default:
+                    path.closePath();
+                    break;
+            }
+        }
+        return d;
+    }
+
+    /**
+     * Release unused capacity.
+     */
+    public void trim() {
+        if (ops.length > opsSize) {
+            int[] newOps = new int[opsSize];
+            System.arraycopy(ops, 0, newOps, 0, opsSize);
+            ops = newOps;
+        }
+        if (data.length > dataSize) {
+            float[] newData = new float[dataSize];
+            System.arraycopy(data, 0, newData, 0, dataSize);
+            data = newData;
+        }
+        if (objects.length > objectsSize) {
+            Object[] newObjects = new Object[objectsSize];
+            System.arraycopy(objects, 0, newObjects, 0, objectsSize);
+            objects = newObjects;
+        }
+    }
+}
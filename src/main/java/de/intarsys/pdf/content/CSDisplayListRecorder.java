@@ -0,0 +1,171 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.content;
+
+import de.intarsys.pdf.cos.COSName;
+import de.intarsys.pdf.font.PDGlyphs;
+import de.intarsys.pdf.pd.PDImage;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+
+/**
+ * A {@link ICSDevice} recording the resolved rendering operations of a
+ * content stream into a {@link CSDisplayList}.
+ * <p>
+ * Paths are recorded in default user space, glyphs with their bounds and
+ * images with their transformation. Clip and color changes are recorded
+ * only when they affect a following operation.
+ */
+public class CSDisplayListRecorder extends CSBasicDevice {
+
+    private final CSDisplayList displayList;
+
+    private Shape recordedClip;
+
+    private Object recordedFillColorSpace;
+
+    private float[] recordedFillColorValues;
+
+    private Object recordedStrokeColorSpace;
+
+    private float[] recordedStrokeColorValues;
+
+    public CSDisplayListRecorder() {
+        this(new CSDisplayList());
+    }
+
+    public CSDisplayListRecorder(CSDisplayList displayList) {
+        super();
+        this.displayList = displayList;
+    }
+
+    @Override
+    protected void basicDraw(Shape shape) {
+        recordClip();
+        recordStrokeColor();
+        AffineTransform tx = graphicsState.transform;
+        float scale = (float) Math.sqrt(Math.abs(tx.getDeterminant()));
+        displayList.addStroke(shape, tx, graphicsState.lineWidth * scale);
+    }
+
+    @Override
+    protected void basicFill(Shape shape) {
+        recordClip();
+        recordFillColor();
+        displayList.addFill(shape, graphicsState.transform);
+    }
+
+    @Override
+    protected void basicTextShowGlyphs(PDGlyphs glyphs, float advance) {
+        double factor = textState.fontSize / THOUSAND;
+        double descent = glyphs.getDescent() * factor;
+        if (descent > 0) {
+            descent = -descent;
+        }
+        double[] pts = {0, descent, advance, descent, advance, glyphs.getAscent() * factor, 0,
+                        glyphs.getAscent() * factor};
+        textState.globalTransform.transform(pts, 0, pts, 0, 4);
+        double minX = Math.min(Math.min(pts[0], pts[2]), Math.min(pts[4], pts[6]));
+        double maxX = Math.max(Math.max(pts[0], pts[2]), Math.max(pts[4], pts[6]));
+        double minY = Math.min(Math.min(pts[1], pts[3]), Math.min(pts[5], pts[7]));
+        double maxY = Math.max(Math.max(pts[1], pts[3]), Math.max(pts[5], pts[7]));
+        recordClip();
+        recordFillColor();
+        displayList.addGlyph(glyphs.getCodepoint(),
+                             glyphs.getUnicode(),
+                             (float) minX,
+                             (float) minY,
+                             (float) (maxX - minX),
+                             (float) (maxY - minY));
+        super.basicTextShowGlyphs(glyphs, advance);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.ICSDevice#close()
+     */
+    @Override
+    public void close() {
+        super.close();
+        displayList.trim();
+    }
+
+    @Override
+    protected void doImage(COSName name, PDImage image) {
+        recordClip();
+        displayList.addImage(image, graphicsState.transform);
+    }
+
+    /**
+     * The {@link CSDisplayList} recorded.
+     *
+     * @return The {@link CSDisplayList} recorded.
+     */
+    public CSDisplayList getDisplayList() {
+        return displayList;
+    }
+
+    @Override
+    public void inlineImage(PDImage img) {
+        recordClip();
+        displayList.addImage(img, graphicsState.transform);
+    }
+
+    protected void recordClip() {
+        if (graphicsState.clip != recordedClip) {
+            recordedClip = graphicsState.clip;
+            displayList.addClip(recordedClip);
+        }
+    }
+
+    protected void recordFillColor() {
+        if (graphicsState.nonStrokeColorSpace != recordedFillColorSpace
+            || graphicsState.nonStrokeColorValues != recordedFillColorValues) {
+            recordedFillColorSpace = graphicsState.nonStrokeColorSpace;
+            recordedFillColorValues = graphicsState.nonStrokeColorValues;
+            displayList.addColor(CSDisplayList.OP_FILL_COLOR,
+                                 graphicsState.nonStrokeColorSpace,
+                                 graphicsState.nonStrokeColorValues);
+        }
+    }
+
+    protected void recordStrokeColor() {
+        if (graphicsState.strokeColorSpace != recordedStrokeColorSpace
+            || graphicsState.strokeColorValues != recordedStrokeColorValues) {
+            recordedStrokeColorSpace = graphicsState.strokeColorSpace;
+            recordedStrokeColorValues = graphicsState.strokeColorValues;
+            displayList.addColor(CSDisplayList.OP_STROKE_COLOR,
+                                 graphicsState.strokeColorSpace,
+                                 graphicsState.strokeColorValues);
+        }
+    }
+}
@@ -29,11 +29,22 @@
  */
 package de.intarsys.pdf.content;
 
+import de.intarsys.pdf.cos.COSArray;
+import de.intarsys.pdf.cos.COSObject;
+import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.pdf.parser.COSLoadException;
+import de.intarsys.pdf.parser.CSContentParser;
+import de.intarsys.pdf.parser.ChunkedRandomAccess;
 import de.intarsys.pdf.pd.PDColorSpace;
 import de.intarsys.pdf.pd.PDDocument;
 import de.intarsys.pdf.pd.PDResources;
+import de.intarsys.tools.randomaccess.IRandomAccess;
 import de.intarsys.tools.string.StringTools;
 
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -56,6 +67,158 @@ public abstract class CSInterpreter implements ICSInterpreter {
 
     protected static final int PathObject = 6;
 
+    /**
+     * The operator code of an operator that is ignored.
+     */
+    protected static final int OP_IGNORED = 0;
+
+    /**
+     * The operator code of an operator that is not supported.
+     */
+    protected static final int OP_UNKNOWN = 1;
+
+    protected static final int OP_B = 2;
+
+    protected static final int OP_b = 3;
+
+    protected static final int OP_BDC = 4;
+
+    protected static final int OP_BMC = 5;
+
+    protected static final int OP_Bstar = 6;
+
+    protected static final int OP_bstar = 7;
+
+    protected static final int OP_BT = 8;
+
+    protected static final int OP_BX = 9;
+
+    protected static final int OP_c = 10;
+
+    protected static final int OP_cm = 11;
+
+    protected static final int OP_CS = 12;
+
+    protected static final int OP_cs = 13;
+
+    protected static final int OP_d = 14;
+
+    protected static final int OP_d0 = 15;
+
+    protected static final int OP_d1 = 16;
+
+    protected static final int OP_Do = 17;
+
+    protected static final int OP_DoubleQuote = 18;
+
+    protected static final int OP_DP = 19;
+
+    protected static final int OP_EI = 20;
+
+    protected static final int OP_EMC = 21;
+
+    protected static final int OP_ET = 22;
+
+    protected static final int OP_EX = 23;
+
+    protected static final int OP_F = 24;
+
+    protected static final int OP_f = 25;
+
+    protected static final int OP_fstar = 26;
+
+    protected static final int OP_G = 27;
+
+    protected static final int OP_g = 28;
+
+    protected static final int OP_gs = 29;
+
+    protected static final int OP_h = 30;
+
+    protected static final int OP_i = 31;
+
+    protected static final int OP_J = 32;
+
+    protected static final int OP_j = 33;
+
+    protected static final int OP_K = 34;
+
+    protected static final int OP_k = 35;
+
+    protected static final int OP_l = 36;
+
+    protected static final int OP_M = 37;
+
+    protected static final int OP_m = 38;
+
+    protected static final int OP_MP = 39;
+
+    protected static final int OP_n = 40;
+
+    protected static final int OP_Q = 41;
+
+    protected static final int OP_q = 42;
+
+    protected static final int OP_Quote = 43;
+
+    protected static final int OP_re = 44;
+
+    protected static final int OP_RG = 45;
+
+    protected static final int OP_rg = 46;
+
+    protected static final int OP_ri = 47;
+
+    protected static final int OP_S = 48;
+
+    protected static final int OP_s = 49;
+
+    protected static final int OP_SC = 50;
+
+    protected static final int OP_sc = 51;
+
+    protected static final int OP_SCN = 52;
+
+    protected static final int OP_scn = 53;
+
+    protected static final int OP_sh = 54;
+
+    protected static final int OP_Tc = 55;
+
+    protected static final int OP_TD = 56;
+
+    protected static final int OP_Td = 57;
+
+    protected static final int OP_Tf = 58;
+
+    protected static final int OP_TJ = 59;
+
+    protected static final int OP_Tj = 60;
+
+    protected static final int OP_TL = 61;
+
+    protected static final int OP_Tm = 62;
+
+    protected static final int OP_Tr = 63;
+
+    protected static final int OP_Ts = 64;
+
+    protected static final int OP_Tstar = 65;
+
+    protected static final int OP_Tw = 66;
+
+    protected static final int OP_Tz = 67;
+
+    protected static final int OP_v = 68;
+
+    protected static final int OP_W = 69;
+
+    protected static final int OP_w = 70;
+
+    protected static final int OP_Wstar = 71;
+
+    protected static final int OP_y = 72;
+
     /**
      * The options for the rendering process
      */
@@ -80,6 +243,40 @@ public abstract class CSInterpreter implements ICSInterpreter {
         return new CSInterpreterFrame();
     }
 
+    private CSInterpreterFrame createFrame(PDResources pResources, CSInterpreterFrame oldFrame) {
+        CSInterpreterFrame newFrame = createFrame();
+        newFrame.resources = pResources;
+        if (newFrame.resources == null && oldFrame != null) {
+            // this is not exactly what the spec said..
+            // currently we need this for use with Type3 fonts without
+            // resources.
+            newFrame.resources = oldFrame.resources;
+        }
+        // cache default colorspaces now
+        if (newFrame.resources != null) {
+            try {
+                newFrame.defaultCMYK = newFrame.resources.getColorSpaceResource(PDColorSpace.CN_CS_DefaultCMYK);
+            } catch (Exception ex) {
+                getExceptionHandler().warning(new CSWarning(ex));
+            }
+            try {
+                newFrame.defaultRGB = newFrame.resources.getColorSpaceResource(PDColorSpace.CN_CS_DefaultRGB);
+            } catch (Exception ex) {
+                getExceptionHandler().warning(new CSWarning(ex));
+            }
+            try {
+                newFrame.defaultGray = newFrame.resources.getColorSpaceResource(PDColorSpace.CN_CS_DefaultGray);
+            } catch (Exception ex) {
+                getExceptionHandler().warning(new CSWarning(ex));
+            }
+        } else {
+            newFrame.defaultCMYK = null;
+            newFrame.defaultRGB = null;
+            newFrame.defaultGray = null;
+        }
+        return newFrame;
+    }
+
     protected void decCompatibilitySectionDepth() {
         frame.compatibilitySectionDepth--;
     }
@@ -133,364 +330,625 @@ public abstract class CSInterpreter implements ICSInterpreter {
         }
     }
 
-    protected void incCompatibilitySectionDepth() {
-        frame.compatibilitySectionDepth++;
-    }
-
-    protected boolean isCompatibilitySection() {
-        return frame.compatibilitySectionDepth > 0;
-    }
-
-    public boolean isInterruptible() {
-        return interruptible;
-    }
-
-    protected void notSupported(CSOperation operation) {
-        if (isCompatibilitySection()) {
-            return;
-        }
-        handleWarning(new CSNotSupported("operation " //$NON-NLS-1$
-                                         + StringTools.safeString(operation) + " not supported")); //$NON-NLS-1$
-    }
-
-    /*
-     * (non-Javadoc)
+    /**
+     * The operator code for the operator {@code token}, one of the
+     * {@code OP_} constants.
+     * <p>
+     * The code is independent of the operation, so it can be computed once
+     * per distinct operator, for example by {@link CSCompiledContent}.
      *
-     * @see
-     * de.intarsys.pdf.content.ICSInterpreter#process(de.intarsys.pdf.content
-     * .CSContent, de.intarsys.pdf.pd.PDResources)
+     * @param token The operator token
+     * @return The operator code for {@code token}
      */
-    @Override
-    public void process(CSContent pContent, PDResources pResources) {
-        if (pContent == null) {
-            return;
+    protected static int getOperatorCode(byte[] token) {
+        if (token.length == 0) {
+            return OP_UNKNOWN;
         }
-        CSInterpreterFrame oldFrame = frame;
-        try {
-            frame = createFrame();
-            frame.resources = pResources;
-            if (frame.resources == null && oldFrame != null) {
-                // this is not exactly what the spec said..
-                // currently we need this for use with Type3 fonts without
-                // resources.
-                frame.resources = oldFrame.resources;
-            }
-            // cache default colorspaces now
-            if (frame.resources != null) {
-                try {
-                    frame.defaultCMYK = frame.resources.getColorSpaceResource(PDColorSpace.CN_CS_DefaultCMYK);
-                } catch (Exception ex) {
-                    getExceptionHandler().warning(new CSWarning(ex));
-                }
-                try {
-                    frame.defaultRGB = frame.resources.getColorSpaceResource(PDColorSpace.CN_CS_DefaultRGB);
-                } catch (Exception ex) {
-                    getExceptionHandler().warning(new CSWarning(ex));
-                }
-                try {
-                    frame.defaultGray = frame.resources.getColorSpaceResource(PDColorSpace.CN_CS_DefaultGray);
-                } catch (Exception ex) {
-                    getExceptionHandler().warning(new CSWarning(ex));
-                }
-            } else {
-                frame.defaultCMYK = null;
-                frame.defaultRGB = null;
-                frame.defaultGray = null;
-            }
-            int len = pContent.size();
-            for (int i = 0; i < len; i++) {
-                if (checkInterrupt()) {
-                    break;
-                }
-                CSOperation operation = pContent.getOperation(i);
-                try {
-                    process(operation);
-                } catch (CSError e) {
-                    handleError(e);
-                } catch (CSWarning w) {
-                    handleWarning(w);
-                } catch (RuntimeException e) {
-                    handleError(new CSError("unexpected exception", e)); //$NON-NLS-1$
-                }
-            }
-        } finally {
-            frame = oldFrame;
-        }
-    }
-
-    protected void process(CSOperation operation) {
-        byte[] token = operation.getOperatorToken();
+        byte second = token.length > 1 ? token[1] : 0;
         switch (token[0]) {
             case 'q':
-                render_q(operation);
-                break;
+                return OP_q;
             case 'Q':
-                render_Q(operation);
-                break;
+                return OP_Q;
             case 'T':
-                switch (token[1]) {
+                switch (second) {
                     case 'j':
-                        render_Tj(operation);
-                        break;
+                        return OP_Tj;
                     case 'J':
-                        render_TJ(operation);
-                        break;
+                        return OP_TJ;
                     case 'f':
-                        render_Tf(operation);
-                        break;
+                        return OP_Tf;
                     case 'd':
-                        render_Td(operation);
-                        break;
+                        return OP_Td;
                     case 'L':
-                        render_TL(operation);
-                        break;
+                        return OP_TL;
                     case 'D':
-                        render_TD(operation);
-                        break;
+                        return OP_TD;
                     case 'c':
-                        render_Tc(operation);
-                        break;
+                        return OP_Tc;
                     case 'm':
-                        render_Tm(operation);
-                        break;
+                        return OP_Tm;
                     case 'r':
-                        render_Tr(operation);
-                        break;
+                        return OP_Tr;
                     case 's':
-                        render_Ts(operation);
-                        break;
+                        return OP_Ts;
                     case 'w':
-                        render_Tw(operation);
-                        break;
+                        return OP_Tw;
                     case 'z':
-                        render_Tz(operation);
-                        break;
+                        return OP_Tz;
                     case '*':
-                        render_Tstar(operation);
-                        break;
+                        return OP_Tstar;
                 }
                 break;
             case 'n':
-                render_n(operation);
-                break;
+                return OP_n;
             case 's':
                 if (token.length == 1) {
-                    render_s(operation);
+                    return OP_s;
                 } else {
-                    switch (token[1]) {
+                    switch (second) {
                         case 'c':
                             if (token.length == 2) {
-                                render_sc(operation);
-                            } else {
-                                render_scn(operation);
+                                return OP_sc;
                             }
-                            break;
+                            return OP_scn;
                         case 'h':
-                            render_sh(operation);
-                            break;
+                            return OP_sh;
                     }
                 }
                 break;
             case 'g':
                 if (token.length == 1) {
-                    render_g(operation);
-                } else {
-                    render_gs(operation);
+                    return OP_g;
                 }
-                break;
+                return OP_gs;
             case 'r':
-                switch (token[1]) {
+                switch (second) {
                     case 'e':
-                        render_re(operation);
-                        break;
+                        return OP_re;
                     case 'g':
-                        render_rg(operation);
-                        break;
+                        return OP_rg;
                     case 'i':
-                        render_ri(operation);
-                        break;
+                        return OP_ri;
                 }
                 break;
             case 'R':
-                render_RG(operation);
-                break;
+                return OP_RG;
             case 'm':
-                render_m(operation);
-                break;
+                return OP_m;
             case 'l':
-                render_l(operation);
-                break;
+                return OP_l;
             case 'f':
                 if (token.length == 1) {
-                    render_f(operation);
-                } else {
-                    render_fstar(operation);
+                    return OP_f;
                 }
-                break;
+                return OP_fstar;
             case 'B':
                 if (token.length == 1) {
-                    render_B(operation);
+                    return OP_B;
                 } else {
-                    switch (token[1]) {
+                    switch (second) {
                         case '*':
-                            render_Bstar(operation);
-                            break;
+                            return OP_Bstar;
                         case 'T':
-                            render_BT(operation);
-                            break;
+                            return OP_BT;
                         case 'M':
-                            render_BMC(operation);
-                            break;
+                            return OP_BMC;
                         case 'D':
-                            render_BDC(operation);
-                            break;
+                            return OP_BDC;
                         case 'X':
-                            render_BX(operation);
-                            break;
+                            return OP_BX;
                     }
                 }
                 break;
             case 'b':
                 if (token.length == 1) {
-                    render_b(operation);
-                } else {
-                    render_bstar(operation);
+                    return OP_b;
                 }
-                break;
+                return OP_bstar;
             case 'S':
                 if (token.length == 1) {
-                    render_S(operation);
-                } else {
-                    if (token.length == 2) {
-                        render_SC(operation);
-                    } else {
-                        render_SCN(operation);
-                    }
+                    return OP_S;
                 }
-                break;
+                if (token.length == 2) {
+                    return OP_SC;
+                }
+                return OP_SCN;
             case 'h':
-                render_h(operation);
-                break;
+                return OP_h;
             case 'W':
                 if (token.length == 1) {
-                    render_W(operation);
-                } else {
-                    render_Wstar(operation);
+                    return OP_W;
                 }
-                break;
+                return OP_Wstar;
             case 'c':
                 if (token.length == 1) {
-                    render_c(operation);
+                    return OP_c;
                 } else {
-                    switch (token[1]) {
+                    switch (second) {
                         case 'm':
-                            render_cm(operation);
-                            break;
+                            return OP_cm;
                         case 's':
-                            render_cs(operation);
-                            break;
+                            return OP_cs;
                     }
                 }
                 break;
             case 'E':
-                switch (token[1]) {
+                switch (second) {
                     case 'T':
-                        render_ET(operation);
-                        break;
+                        return OP_ET;
                     case 'M':
-                        render_EMC(operation);
-                        break;
+                        return OP_EMC;
                     case 'I':
-                        render_EI(operation);
-                        break;
+                        return OP_EI;
                     case 'X':
-                        render_EX(operation);
-                        break;
+                        return OP_EX;
                 }
                 break;
             case 'x':
-                switch (token[1]) {
+                switch (second) {
                     case 'j':
-                        render_Tj(operation);
-                        break;
+                        return OP_Tj;
                     case 'J':
-                        render_TJ(operation);
-                        break;
+                        return OP_TJ;
                 }
                 break;
             case 'G':
-                render_G(operation);
-                break;
+                return OP_G;
             case '\'':
-                render_Quote(operation);
-                break;
+                return OP_Quote;
             case '"':
-                render_DoubleQuote(operation);
-                break;
+                return OP_DoubleQuote;
             case 'C':
-                render_CS(operation);
-                break;
+                return OP_CS;
             case 'd':
                 if (token.length == 1) {
-                    render_d(operation);
+                    return OP_d;
                 } else {
-                    switch (token[1]) {
+                    switch (second) {
                         case '0':
-                            render_d0(operation);
-                            break;
+                            return OP_d0;
                         case '1':
-                            render_d1(operation);
-                            break;
+                            return OP_d1;
                     }
                 }
                 break;
             case 'D':
-                switch (token[1]) {
+                switch (second) {
                     case 'o':
-                        render_Do(operation);
-                        break;
+                        return OP_Do;
                     case 'P':
-                        render_DP(operation);
-                        break;
+                        return OP_DP;
                 }
                 break;
             case 'F':
+                return OP_F;
+            case 'i':
+                return OP_i;
+            case 'j':
+                return OP_j;
+            case 'J':
+                return OP_J;
+            case 'K':
+                return OP_K;
+            case 'k':
+                return OP_k;
+            case 'M':
+                if (token.length == 1) {
+                    return OP_M;
+                }
+                return OP_MP;
+            case 'v':
+                return OP_v;
+            case 'w':
+                return OP_w;
+            case 'y':
+                return OP_y;
+            default:
+                return OP_UNKNOWN;
+        }
+        return OP_IGNORED;
+    }
+
+    protected void incCompatibilitySectionDepth() {
+        frame.compatibilitySectionDepth++;
+    }
+
+    protected boolean isCompatibilitySection() {
+        return frame.compatibilitySectionDepth > 0;
+    }
+
+    public boolean isInterruptible() {
+        return interruptible;
+    }
+
+    protected void notSupported(CSOperation operation) {
+        if (isCompatibilitySection()) {
+            return;
+        }
+        handleWarning(new CSNotSupported("operation " //$NON-NLS-1$
+                                         + StringTools.safeString(operation) + " not supported")); //$NON-NLS-1$
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.intarsys.pdf.content.ICSInterpreter#process(de.intarsys.pdf.content
+     * .CSContent, de.intarsys.pdf.pd.PDResources)
+     */
+    @Override
+    public void process(CSContent pContent, PDResources pResources) {
+        if (pContent == null) {
+            return;
+        }
+        CSInterpreterFrame oldFrame = frame;
+        try {
+            frame = createFrame(pResources, oldFrame);
+            int len = pContent.size();
+            for (int i = 0; i < len; i++) {
+                if (checkInterrupt()) {
+                    break;
+                }
+                processSafe(pContent.getOperation(i));
+            }
+        } finally {
+            frame = oldFrame;
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see
+     * de.intarsys.pdf.content.ICSInterpreter#process(de.intarsys.pdf.content
+     * .CSCompiledContent, de.intarsys.pdf.pd.PDResources)
+     */
+    @Override
+    public void process(CSCompiledContent pContent, PDResources pResources) {
+        if (pContent == null) {
+            return;
+        }
+        CSInterpreterFrame oldFrame = frame;
+        try {
+            frame = createFrame(pResources, oldFrame);
+            pContent.replay(new CSCompiledContent.IOperatorCodeHandler() {
+                @Override
+                public boolean handleOperation(int operatorCode, CSOperation operation) {
+                    if (checkInterrupt()) {
+                        return false;
+                    }
+                    processSafe(operatorCode, operation);
+                    return true;
+                }
+            });
+        } finally {
+            frame = oldFrame;
+        }
+    }
+
+    /**
+     * Process the content stream defined by {@code contents} without
+     * building a {@link CSContent} first. Each operation is interpreted as
+     * soon as it is parsed.
+     * <p>
+     * {@code contents} may be a single {@link COSStream} or a
+     * {@link COSArray} of {@link COSStream} objects, as found in a page
+     * /Contents entry. The streams are decoded one after another, their
+     * decoded bytes are not cached.
+     *
+     * @param contents   The content stream(s)
+     * @param pResources The resources for the content
+     */
+    public void processStream(COSObject contents, PDResources pResources) {
+        if (contents == null || contents.isNull()) {
+            return;
+        }
+        IRandomAccess input;
+        COSStream stream = contents.asStream();
+        if (stream != null) {
+            input = ChunkedRandomAccess.createFromStreams(new COSStream[]{stream}, -1);
+        } else {
+            COSArray array = contents.asArray();
+            if (array == null) {
+                return;
+            }
+            List<COSStream> chunks = new ArrayList<>(array.size());
+            for (Iterator it = array.iterator(); it.hasNext(); ) {
+                COSStream chunk = ((COSObject) it.next()).asStream();
+                if (chunk != null) {
+                    chunks.add(chunk);
+                }
+            }
+            // force at least a single space between streams
+            input = ChunkedRandomAccess.createFromStreams(chunks.toArray(new COSStream[chunks.size()]), ' ');
+        }
+        CSInterpreterFrame oldFrame = frame;
+        try {
+            frame = createFrame(pResources, oldFrame);
+            CSContentParser parser = new CSContentParser();
+            parser.parseStream(input, new ICSOperationHandler() {
+                @Override
+                public boolean handleOperation(CSOperation operation) {
+                    if (checkInterrupt()) {
+                        return false;
+                    }
+                    processSafe(operation);
+                    return true;
+                }
+            });
+        } catch (IOException | COSLoadException e) {
+            handleError(new CSError("error parsing content", e)); //$NON-NLS-1$
+        } finally {
+            frame = oldFrame;
+        }
+    }
+
+    private void processSafe(CSOperation operation) {
+        try {
+            process(operation);
+        } catch (CSError e) {
+            handleError(e);
+        } catch (CSWarning w) {
+            handleWarning(w);
+        } catch (RuntimeException e) {
+            handleError(new CSError("unexpected exception", e)); //$NON-NLS-1$
+        }
+    }
+
+    private void processSafe(int operatorCode, CSOperation operation) {
+        try {
+            process(operatorCode, operation);
+        } catch (CSError e) {
+            handleError(e);
+        } catch (CSWarning w) {
+            handleWarning(w);
+        } catch (RuntimeException e) {
+            handleError(new CSError("unexpected exception", e)); //$NON-NLS-1$
+        }
+    }
+
+    /**
+     * Process {@code operation}.
+     * <p>
+     * This resolves the operator code and calls
+     * {@link #process(int, CSOperation)}, which is the method to redefine
+     * when hooking into the dispatch. {@link CSCompiledContent} is dispatched
+     * with precomputed operator codes and does not pass through here.
+     *
+     * @param operation The operation to process
+     */
+    protected void process(CSOperation operation) {
+        process(getOperatorCode(operation.getOperatorToken()), operation);
+    }
+
+    /**
+     * Process {@code operation} with the operator code {@code operatorCode}
+     * as returned by {@link #getOperatorCode(byte[])}.
+     *
+     * @param operatorCode The operator code of the operation
+     * @param operation    The operation to process
+     */
+    protected void process(int operatorCode, CSOperation operation) {
+        switch (operatorCode) {
+            case OP_B:
+                render_B(operation);
+                break;
+            case OP_b:
+                render_b(operation);
+                break;
+            case OP_BDC:
+                render_BDC(operation);
+                break;
+            case OP_BMC:
+                render_BMC(operation);
+                break;
+            case OP_Bstar:
+                render_Bstar(operation);
+                break;
+            case OP_bstar:
+                render_bstar(operation);
+                break;
+            case OP_BT:
+                render_BT(operation);
+                break;
+            case OP_BX:
+                render_BX(operation);
+                break;
+            case OP_c:
+                render_c(operation);
+                break;
+            case OP_cm:
+                render_cm(operation);
+                break;
+            case OP_CS:
+                render_CS(operation);
+                break;
+            case OP_cs:
+                render_cs(operation);
+                break;
+            case OP_d:
+                render_d(operation);
+                break;
+            case OP_d0:
+                render_d0(operation);
+                break;
+            case OP_d1:
+                render_d1(operation);
+                break;
+            case OP_Do:
+                render_Do(operation);
+                break;
+            case OP_DoubleQuote:
+                render_DoubleQuote(operation);
+                break;
+            case OP_DP:
+                render_DP(operation);
+                break;
+            case OP_EI:
+                render_EI(operation);
+                break;
+            case OP_EMC:
+                render_EMC(operation);
+                break;
+            case OP_ET:
+                render_ET(operation);
+                break;
+            case OP_EX:
+                render_EX(operation);
+                break;
+            case OP_F:
                 render_F(operation);
                 break;
-            case 'i':
-                render_i(operation);
+            case OP_f:
+                render_f(operation);
                 break;
-            case 'j':
-                render_j(operation);
+            case OP_fstar:
+                render_fstar(operation);
                 break;
-            case 'J':
+            case OP_G:
+                render_G(operation);
+                break;
+            case OP_g:
+                render_g(operation);
+                break;
+            case OP_gs:
+                render_gs(operation);
+                break;
+            case OP_h:
+                render_h(operation);
+                break;
+            case OP_i:
+                render_i(operation);
+                break;
+            case OP_J:
                 render_J(operation);
                 break;
-            case 'K':
+            case OP_j:
+                render_j(operation);
+                break;
+            case OP_K:
                 render_K(operation);
                 break;
-            case 'k':
+            case OP_k:
                 render_k(operation);
                 break;
-            case 'M':
-                if (token.length == 1) {
-                    render_M(operation);
-                } else {
-                    render_MP(operation);
-                }
+            case OP_l:
+                render_l(operation);
                 break;
-            case 'v':
+            case OP_M:
+                render_M(operation);
+                break;
+            case OP_m:
+                render_m(operation);
+                break;
+            case OP_MP:
+                render_MP(operation);
+                break;
+            case OP_n:
+                render_n(operation);
+                break;
+            case OP_Q:
+                render_Q(operation);
+                break;
+            case OP_q:
+                render_q(operation);
+                break;
+            case OP_Quote:
+                render_Quote(operation);
+                break;
+            case OP_re:
+                render_re(operation);
+                break;
+            case OP_RG:
+                render_RG(operation);
+                break;
+            case OP_rg:
+                render_rg(operation);
+                break;
+            case OP_ri:
+                render_ri(operation);
+                break;
+            case OP_S:
+                render_S(operation);
+                break;
+            case OP_s:
+                render_s(operation);
+                break;
+            case OP_SC:
+                render_SC(operation);
+                break;
+            case OP_sc:
+                render_sc(operation);
+                break;
+            case OP_SCN:
+                render_SCN(operation);
+                break;
+            case OP_scn:
+                render_scn(operation);
+                break;
+            case OP_sh:
+                render_sh(operation);
+                break;
+            case OP_Tc:
+                render_Tc(operation);
+                break;
+            case OP_TD:
+                render_TD(operation);
+                break;
+            case OP_Td:
+                render_Td(operation);
+                break;
+            case OP_Tf:
+                render_Tf(operation);
+                break;
+            case OP_TJ:
+                render_TJ(operation);
+                break;
+            case OP_Tj:
+                render_Tj(operation);
+                break;
+            case OP_TL:
+                render_TL(operation);
+                break;
+            case OP_Tm:
+                render_Tm(operation);
+                break;
+            case OP_Tr:
+                render_Tr(operation);
+                break;
+            case OP_Ts:
+                render_Ts(operation);
+                break;
+            case OP_Tstar:
+                render_Tstar(operation);
+                break;
+            case OP_Tw:
+                render_Tw(operation);
+                break;
+            case OP_Tz:
+                render_Tz(operation);
+                break;
+            case OP_v:
                 render_v(operation);
                 break;
-            case 'w':
+            case OP_W:
+                render_W(operation);
+                break;
+            case OP_w:
                 render_w(operation);
                 break;
-            case 'y':
+            case OP_Wstar:
+                render_Wstar(operation);
+                break;
+            case OP_y:
                 render_y(operation);
                 break;
-            default:
+            case OP_UNKNOWN:
                 notSupported(operation);
                 break;
+            default:
+                break;
         }
     }
 
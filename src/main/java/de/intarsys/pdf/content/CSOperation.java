@@ -29,7 +29,10 @@
  */
 package de.intarsys.pdf.content;
 
+import de.intarsys.pdf.cos.COSFixed;
+import de.intarsys.pdf.cos.COSInteger;
 import de.intarsys.pdf.cos.COSName;
+import de.intarsys.pdf.cos.COSNumber;
 import de.intarsys.pdf.cos.COSObject;
 
 import java.util.Arrays;
@@ -56,12 +59,24 @@ public class CSOperation {
      */
     private COSObject[] operands;
 
+    /**
+     * The number of valid entries in {@code operands}
+     */
+    private int operandCount;
+
+    /**
+     * The values of the numeric operands that are not yet created, where
+     * {@code operands} is null, or null.
+     */
+    private float[] numbers;
+
     private Object cache;
 
     public CSOperation(byte[] operatorToken, COSObject[] operands) {
         super();
         this.operatorToken = operatorToken;
         this.operands = operands;
+        this.operandCount = operands.length;
     }
 
     public CSOperation(CSOperator operator) {
@@ -72,6 +87,7 @@ public class CSOperation {
         super();
         this.operatorToken = operator.getToken();
         this.operands = operands;
+        this.operandCount = operands.length;
     }
 
     /**
@@ -80,10 +96,60 @@ public class CSOperation {
      * @param object The new operand to add.
      */
     public void addOperand(COSObject object) {
-        COSObject[] newOperands = new COSObject[operands.length + 1];
-        System.arraycopy(operands, 0, newOperands, 0, operands.length);
-        newOperands[newOperands.length - 1] = object;
+        createOperands();
+        COSObject[] newOperands = new COSObject[operandCount + 1];
+        System.arraycopy(operands, 0, newOperands, 0, operandCount);
+        newOperands[operandCount] = object;
         operands = newOperands;
+        operandCount = newOperands.length;
+    }
+
+    /**
+     * Reinitialize this with a new operator and the first {@code count}
+     * elements of {@code newOperands}, which are not copied.
+     * <p>
+     * This allows a streaming parser to reuse a single operation and operand
+     * buffer. Such an operation is valid only while it is processed.
+     *
+     * @param newOperatorToken The new operator token.
+     * @param newOperands      The operand buffer.
+     * @param count            The number of valid operands in the buffer.
+     */
+    public void basicReset(byte[] newOperatorToken, COSObject[] newOperands, int count) {
+        basicReset(newOperatorToken, newOperands, null, count);
+    }
+
+    /**
+     * Reinitialize this like {@link #basicReset(byte[], COSObject[], int)},
+     * with numeric operands given as primitive values.
+     * <p>
+     * Where {@code newOperands} holds null, the operand is the number at the
+     * same index in {@code newNumbers}. It is read with
+     * {@link #getOperandFloat(int)} or {@link #getOperandInt(int)} without
+     * creating a {@link COSNumber}, {@link #getOperand(int)} creates it on
+     * demand.
+     *
+     * @param newOperatorToken The new operator token.
+     * @param newOperands      The operand buffer.
+     * @param newNumbers       The numeric operand buffer.
+     * @param count            The number of valid operands in the buffer.
+     */
+    public void basicReset(byte[] newOperatorToken, COSObject[] newOperands, float[] newNumbers, int count) {
+        this.operatorToken = newOperatorToken;
+        this.operands = newOperands;
+        this.numbers = newNumbers;
+        this.operandCount = count;
+        this.cache = null;
+    }
+
+    protected void createOperands() {
+        if (numbers == null) {
+            return;
+        }
+        for (int i = 0; i < operandCount; i++) {
+            getOperand(i);
+        }
+        numbers = null;
     }
 
     public Object getCache() {
@@ -92,12 +158,61 @@ public class CSOperation {
 
     /**
      * The operand at index {@code i}.
+     * <p>
+     * A numeric operand given as a primitive value is created as a
+     * {@link COSInteger} if its value is integral, as a {@link COSFixed}
+     * otherwise.
      *
      * @param i The index of the perand in the operand's list.
      * @return The operand at index {@code i}.
      */
     public COSObject getOperand(int i) {
-        return operands[i];
+        if (i >= operandCount) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        COSObject operand = operands[i];
+        if (operand == null && numbers != null) {
+            float value = numbers[i];
+            if (value == (int) value) {
+                operand = COSInteger.create((int) value);
+            } else {
+                operand = COSFixed.create(value);
+            }
+            operands[i] = operand;
+        }
+        return operand;
+    }
+
+    /**
+     * The numeric operand at index {@code i} as a float.
+     *
+     * @param i The index of the operand in the operand's list.
+     * @return The numeric operand at index {@code i} as a float.
+     */
+    public float getOperandFloat(int i) {
+        if (i >= operandCount) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        if (operands[i] == null && numbers != null) {
+            return numbers[i];
+        }
+        return ((COSNumber) operands[i]).floatValue();
+    }
+
+    /**
+     * The numeric operand at index {@code i} as an int.
+     *
+     * @param i The index of the operand in the operand's list.
+     * @return The numeric operand at index {@code i} as an int.
+     */
+    public int getOperandInt(int i) {
+        if (i >= operandCount) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        if (operands[i] == null && numbers != null) {
+            return (int) numbers[i];
+        }
+        return ((COSNumber) operands[i]).intValue();
     }
 
     /**
@@ -107,7 +222,8 @@ public class CSOperation {
      */
     public Iterator getOperands() {
         // todo speed up this operation
-        return Arrays.asList(operands).iterator();
+        createOperands();
+        return Arrays.asList(operands).subList(0, operandCount).iterator();
     }
 
     /**
@@ -180,7 +296,7 @@ public class CSOperation {
      * @return the number of operands.
      */
     public int operandSize() {
-        return operands.length;
+        return operandCount;
     }
 
     public void setCache(Object cache) {
@@ -195,7 +311,10 @@ public class CSOperation {
      * @return The previous operand at index {@code i}.
      */
     public COSObject setOperand(int i, COSObject object) {
-        COSObject old = operands[i];
+        if (i >= operandCount) {
+            throw new ArrayIndexOutOfBoundsException(i);
+        }
+        COSObject old = getOperand(i);
         operands[i] = object;
         return old;
     }
@@ -31,6 +31,11 @@ package de.intarsys.pdf.content;
 
 /**
  * A common superclass for "text only" devices.
+ * <p>
+ * The graphics callbacks are ignored, but still delivered. A subclass that
+ * does not need them may answer {@code false} in
+ * {@link ICSDeviceFeatures#supportsGraphics()} to let the interpreter skip
+ * the graphics operators altogether.
  */
 public abstract class CSTextDevice extends CSBasicDevice {
 
@@ -53,6 +53,23 @@ public interface ICSDeviceFeatures {
      */
     boolean supportsFont();
 
+    /**
+     * {@code true} if this device supports (needs) path construction,
+     * painting, clipping, color, shading and image callbacks.
+     * <p>
+     * A device returning {@code false} (a "text only" device) allows the
+     * interpreter to skip these operators without resolving their resources.
+     * Form XObjects are still processed.
+     * <p>
+     * Devices that do not override this receive all callbacks.
+     *
+     * @return {@code true} if this device supports (needs) graphics
+     * callbacks.
+     */
+    default boolean supportsGraphics() {
+        return true;
+    }
+
     /**
      * {@code true} if this device supports (needs) {@link PDImage} objects
      * to be reported in its "inlineImage" callbacks.
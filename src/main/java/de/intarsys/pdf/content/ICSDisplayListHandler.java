@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.content;
+
+import de.intarsys.pdf.pd.PDColorSpace;
+import de.intarsys.pdf.pd.PDImage;
+
+import java.awt.Shape;
+import java.awt.geom.AffineTransform;
+
+/**
+ * The callback interface for replaying a {@link CSDisplayList}.
+ * <p>
+ * All coordinates are in default user space of the recorded content. Shape
+ * and transform objects handed to the handler are reused by the replay and
+ * must be copied if needed beyond the call.
+ */
+public interface ICSDisplayListHandler {
+    /**
+     * The clip for the following operations has changed.
+     *
+     * @param clip The new clip or {@code null} if not clipped.
+     */
+    void clip(Shape clip);
+
+    /**
+     * Fill {@code shape} with the current non stroking color.
+     *
+     * @param shape The shape to fill.
+     */
+    void fill(Shape shape);
+
+    /**
+     * Show a glyph with the current non stroking color.
+     *
+     * @param codepoint The codepoint of the glyph in its font.
+     * @param unicode   The unicode value of the glyph or -1.
+     * @param x         The x coordinate of the glyph bounds.
+     * @param y         The y coordinate of the glyph bounds.
+     * @param width     The width of the glyph bounds.
+     * @param height    The height of the glyph bounds.
+     */
+    void glyph(int codepoint, int unicode, float x, float y, float width, float height);
+
+    /**
+     * Draw {@code image}, mapping the unit square with {@code transform}.
+     *
+     * @param image     The image.
+     * @param transform The image transformation.
+     */
+    void image(PDImage image, AffineTransform transform);
+
+    /**
+     * The non stroking color for the following operations has changed.
+     *
+     * @param colorSpace The color space.
+     * @param values     The color values.
+     */
+    void setFillColor(PDColorSpace colorSpace, float[] values);
+
+    /**
+     * The stroking color for the following operations has changed.
+     *
+     * @param colorSpace The color space.
+     * @param values     The color values.
+     */
+    void setStrokeColor(PDColorSpace colorSpace, float[] values);
+
+    /**
+     * Stroke {@code shape} with the current stroking color.
+     *
+     * @param shape     The shape to stroke.
+     * @param lineWidth The line width in default user space.
+     */
+    void stroke(Shape shape, float lineWidth);
+}
@@ -49,6 +49,17 @@ public interface ICSInterpreter {
      */
     void process(CSContent content, PDResources resources);
 
+    /**
+     * Process the compiled {@code content} using {@code resources} if
+     * needed.
+     * <p>
+     * This method may be called reentrant when a form XObject is encountered.
+     *
+     * @param content   The compiled PDF content stream to be interpreted.
+     * @param resources The {@link PDResources} repository for the content stream
+     */
+    void process(CSCompiledContent content, PDResources resources);
+
     /**
      * Transparent options used by the interpreter implementation. The method
      * may return {@code null}.
@@ -43,6 +43,21 @@ public interface IContentStreamProvider extends IResourcesProvider {
      */
     CSContent getContentStream();
 
+    /**
+     * A new {@link CSContent} with the operations contained in this, which
+     * the caller may modify. The result of {@link #getContentStream()} may be
+     * shared.
+     *
+     * @return A new {@link CSContent} with the operations contained in this.
+     */
+    default CSContent copyContentStream() {
+        CSContent content = getContentStream();
+        if (content == null) {
+            return null;
+        }
+        return CSContent.createFromBytes(content.toByteArray());
+    }
+
     /**
      * Assign the new {@link CSContent} to this.
      *
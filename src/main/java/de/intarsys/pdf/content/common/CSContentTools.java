@@ -48,8 +48,7 @@ public class CSContentTools {
         CSBoundingBoxCollector bbCollector = new CSBoundingBoxCollector();
         CSDeviceBasedInterpreter interpreter = new CSDeviceBasedInterpreter(null, bbCollector);
         interpreter.setExceptionHandler(ignoreExceptionHandler);
-        CSContent content = page.getContentStream();
-        interpreter.process(content, page.getResources());
+        interpreter.processStream(page.cosGetContents(), page.getResources());
         if (bbCollector.getBoundingBox() != null) {
             return bbCollector.getBoundingBox();
         } else {
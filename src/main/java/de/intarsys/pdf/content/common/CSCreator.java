@@ -31,6 +31,7 @@ package de.intarsys.pdf.content.common;
 
 import de.intarsys.pdf.cds.CDSRectangle;
 import de.intarsys.pdf.content.CSContent;
+import de.intarsys.pdf.content.CSError;
 import de.intarsys.pdf.content.CSOperation;
 import de.intarsys.pdf.content.CSOperator;
 import de.intarsys.pdf.content.CSOperators;
@@ -44,6 +45,7 @@ import de.intarsys.pdf.cos.COSFixed;
 import de.intarsys.pdf.cos.COSInteger;
 import de.intarsys.pdf.cos.COSName;
 import de.intarsys.pdf.cos.COSObject;
+import de.intarsys.pdf.cos.COSStream;
 import de.intarsys.pdf.cos.COSString;
 import de.intarsys.pdf.font.PDFont;
 import de.intarsys.pdf.font.PDFontTools;
@@ -57,11 +59,16 @@ import de.intarsys.pdf.pd.PDPattern;
 import de.intarsys.pdf.pd.PDResources;
 import de.intarsys.pdf.pd.PDShading;
 import de.intarsys.pdf.pd.PDXObject;
+import de.intarsys.pdf.writer.COSWriter;
+import de.intarsys.pdf.writer.SerializationBuffer;
 import de.intarsys.tools.string.StringTools;
 
 import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -81,6 +88,10 @@ import java.util.List;
  * {@link CSContent}. The resources of the provider are not accessed until a
  * resource relevant operation is created.
  * <p>
+ * When created with "createNewDirect", the operations are serialized
+ * directly to bytes instead of building a {@link CSContent}. This saves the
+ * intermediate object model when creating large content streams.
+ * <p>
  * <p>
  * This implementation is (nearly, see AffineTransform) independent of AWT or
  * any other window toolkit.
@@ -96,6 +107,12 @@ public class CSCreator extends CSVirtualDevice {
      */
     private static final float THOUSAND = 1000f;
 
+    /**
+     * The amount of buffered data that is written to the destination stream
+     * in direct mode.
+     */
+    private static final int FLUSH_THRESHOLD = 8192;
+
     public static final int VALUE_COLOR_PRECISION = 3;
 
     public static final int VALUE_COORDINATE_PRECISION = 3;
@@ -141,7 +158,7 @@ public class CSCreator extends CSVirtualDevice {
      * @return The new {@link CSCreator}
      */
     public static CSCreator createFromProvider(IContentStreamProvider provider) {
-        return new CSCreator(provider.getContentStream(), provider, provider);
+        return new CSCreator(provider.copyContentStream(), provider, provider);
     }
 
     /**
@@ -172,11 +189,66 @@ public class CSCreator extends CSVirtualDevice {
         return new CSCreator(content, null, provider);
     }
 
+    /**
+     * Create a {@link CSCreator} that serializes the operations directly to
+     * bytes, without creating a {@link CSContent}. The graphics state is
+     * tracked just like in the other modes. The resulting content can be
+     * accessed using "getBytes" or "createStream" after "flush".
+     *
+     * @param provider The provider for resources within the new content.
+     * @return The new {@link CSCreator}
+     */
+    public static CSCreator createNewDirect(IResourcesProvider provider) {
+        return new CSCreator(null, null, provider, new SerializationBuffer(4096), null);
+    }
+
+    /**
+     * Create a {@link CSCreator} that serializes the operations directly to
+     * {@code outputStream}. The data is written in chunks, "flush" writes
+     * all pending data. The stream is not closed.
+     *
+     * @param provider     The provider for resources within the new content.
+     * @param outputStream The destination for the content stream data.
+     * @return The new {@link CSCreator}
+     */
+    public static CSCreator createNewDirect(IResourcesProvider provider, OutputStream outputStream) {
+        return new CSCreator(null, null, provider, new SerializationBuffer(FLUSH_THRESHOLD * 2), outputStream);
+    }
+
     /**
      * A flag if state change results in an operation
      */
     private boolean applyOperation = false;
 
+    /**
+     * The buffer for the serialized operations in direct mode, {@code null}
+     * otherwise.
+     */
+    private final SerializationBuffer buffer;
+
+    /**
+     * The destination in direct mode, if any.
+     */
+    private final OutputStream outputStream;
+
+    /**
+     * The operands collected for the next operation.
+     */
+    private final List<COSObject> operands = new ArrayList<COSObject>();
+
+    /**
+     * The buffer position where the current operation started or -1.
+     */
+    private int operationStart = -1;
+
+    /**
+     * The buffer position where the last operation started or -1 if no longer
+     * available.
+     */
+    private int lastOperationStart = -1;
+
+    private byte[] lastOperationToken;
+
     /**
      * The underlying content stream represenation.
      */
@@ -235,8 +307,18 @@ public class CSCreator extends CSVirtualDevice {
     protected CSCreator(CSContent content,
                         IContentStreamProvider contentStreamProvider,
                         IResourcesProvider resourcesProvider) {
+        this(content, contentStreamProvider, resourcesProvider, null, null);
+    }
+
+    protected CSCreator(CSContent content,
+                        IContentStreamProvider contentStreamProvider,
+                        IResourcesProvider resourcesProvider,
+                        SerializationBuffer buffer,
+                        OutputStream outputStream) {
         super();
         this.content = content;
+        this.buffer = buffer;
+        this.outputStream = outputStream;
         this.contentStreamProvider = contentStreamProvider;
         this.resourcesProvider = resourcesProvider;
         // open automagically...
@@ -268,9 +350,8 @@ public class CSCreator extends CSVirtualDevice {
     }
 
     protected void basicTextShow(byte[] text) {
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tj);
-        operation.addOperand(COSString.create(text));
-        getContent().addOperation(operation);
+        operandString(text);
+        operate(CSOperators.CSO_Tj);
     }
 
     protected COSName checkResource(COSName resourceType,
@@ -319,8 +400,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void compatibilityBegin() {
         super.compatibilityBegin();
-        CSOperation operation = new CSOperation(CSOperators.CSO_BX);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_BX);
     }
 
     /*
@@ -331,8 +411,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void compatibilityEnd() {
         super.compatibilityEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_EX);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_EX);
     }
 
     /**
@@ -361,9 +440,8 @@ public class CSCreator extends CSVirtualDevice {
     public void doShading(COSName name, PDShading shading) {
         textEnd();
         name = checkResource(PDResources.CN_RT_Shading, PDShading.META, name, shading);
-        CSOperation operation = new CSOperation(CSOperators.CSO_sh);
-        operation.addOperand(name);
-        getContent().addOperation(operation);
+        operand(name);
+        operate(CSOperators.CSO_sh);
     }
 
     /*
@@ -378,9 +456,8 @@ public class CSCreator extends CSVirtualDevice {
         textEnd();
         name = checkResource(PDResources.CN_RT_XObject, PDXObject.META, name, xObject);
         // do not call super - this would "expand" the XObject
-        CSOperation operation = new CSOperation(CSOperators.CSO_Do);
-        operation.addOperand(name);
-        getContent().addOperation(operation);
+        operand(name);
+        operate(CSOperators.CSO_Do);
     }
 
     /**
@@ -391,15 +468,65 @@ public class CSCreator extends CSVirtualDevice {
      */
     public void flush() {
         textEnd();
+        if (outputStream != null) {
+            flushBuffer();
+            try {
+                outputStream.flush();
+            } catch (IOException e) {
+                throw new CSError("error writing content", e); //$NON-NLS-1$
+            }
+        }
         if (getContentStreamProvider() != null) {
             getContentStreamProvider().setContentStream(getContent());
         }
     }
 
+    /**
+     * Write the buffered data to the destination stream in direct mode.
+     */
+    protected void flushBuffer() {
+        try {
+            buffer.flushTo(outputStream);
+        } catch (IOException e) {
+            throw new CSError("error writing content", e); //$NON-NLS-1$
+        }
+        // no longer available for removal
+        lastOperationStart = -1;
+    }
+
+    /**
+     * The serialized content in direct mode. After calling {@code flush}
+     * this contains all operations stemming from calls to this. When writing
+     * to a destination stream, this is the data not yet written.
+     *
+     * @return The serialized content.
+     */
+    public byte[] getBytes() {
+        if (!isDirect()) {
+            return getContent().toByteArray();
+        }
+        return buffer.toByteArray();
+    }
+
+    /**
+     * Create a new {@link COSStream} with the content created so far.
+     *
+     * @return A new {@link COSStream} with the content created so far.
+     */
+    public COSStream createStream() {
+        if (!isDirect()) {
+            return getContent().createStream();
+        }
+        COSStream result = COSStream.create(null);
+        result.setDecodedBytes(getBytes());
+        return result;
+    }
+
     /**
      * The {@link CSContent} we are working on. After calling {@code flush}
      * the {@link CSContent} contains all operations stemming from calls to
-     * this.
+     * this. In direct mode there is no {@link CSContent} and this is
+     * {@code null}.
      *
      * @return The {@link CSContent} we are working on.
      */
@@ -457,24 +584,37 @@ public class CSCreator extends CSVirtualDevice {
         return textMode;
     }
 
+    /**
+     * {@code true} if the operations are serialized directly to bytes.
+     *
+     * @return {@code true} if the operations are serialized directly to
+     * bytes.
+     */
+    public boolean isDirect() {
+        return buffer != null;
+    }
+
+    protected void markOperationStart() {
+        if (operationStart == -1) {
+            operationStart = buffer.size();
+        }
+    }
+
     @Override
     public void markedContentBegin(COSName tag) {
-        CSOperation operation = new CSOperation(CSOperators.CSO_BMC);
-        operation.addOperand(tag.copyOptional());
-        getContent().addOperation(operation);
+        operand(tag.copyOptional());
+        operate(CSOperators.CSO_BMC);
     }
 
     @Override
     public void markedContentEnd() {
-        CSOperation operation = new CSOperation(CSOperators.CSO_EMC);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_EMC);
     }
 
     @Override
     public void markedContentPoint(COSName tag) {
-        CSOperation operation = new CSOperation(CSOperators.CSO_MP);
-        operation.addOperand(tag.copyOptional());
-        getContent().addOperation(operation);
+        operand(tag.copyOptional());
+        operate(CSOperators.CSO_MP);
     }
 
     /*
@@ -490,8 +630,141 @@ public class CSCreator extends CSVirtualDevice {
         resetStrings();
     }
 
+    /**
+     * Add a serialized operator with the operands collected so far.
+     *
+     * @param token The operator token.
+     */
+    protected void operate(byte[] token) {
+        if (isDirect()) {
+            markOperationStart();
+            buffer.append(token).append(' ');
+            operationEnd(token);
+        } else {
+            COSObject[] tempOperands = operands.toArray(new COSObject[operands.size()]);
+            operands.clear();
+            getContent().addOperation(new CSOperation(token, tempOperands));
+        }
+    }
+
+    /**
+     * Add {@code operator} with the operands collected so far.
+     *
+     * @param operator The operator.
+     */
+    protected void operate(CSOperator operator) {
+        operate(operator.getToken());
+    }
+
+    /**
+     * Add {@code object} as the next operand.
+     *
+     * @param object The operand.
+     */
+    protected void operand(COSObject object) {
+        if (isDirect()) {
+            markOperationStart();
+            if (object instanceof COSName) {
+                buffer.appendName(((COSName) object).byteValue());
+            } else if (object instanceof COSString && !((COSString) object).isHexMode()) {
+                buffer.appendLiteralString(((COSString) object).byteValue());
+            } else {
+                buffer.append(COSWriter.toByteArray(object));
+            }
+            buffer.append(' ');
+        } else {
+            operands.add(object);
+        }
+    }
+
+    /**
+     * Add a fixed point number as the next operand.
+     *
+     * @param value     The operand value.
+     * @param precision The number of fraction digits.
+     */
+    protected void operandFixed(float value, int precision) {
+        if (isDirect()) {
+            markOperationStart();
+            buffer.appendFixed(value, precision).append(' ');
+        } else {
+            operands.add(COSFixed.create(value, precision));
+        }
+    }
+
+    /**
+     * Add an array of fixed point numbers as the next operand.
+     *
+     * @param values The operand values.
+     */
+    protected void operandFixedArray(float[] values) {
+        if (isDirect()) {
+            markOperationStart();
+            buffer.append('[');
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    buffer.append(' ');
+                }
+                buffer.appendFixed(values[i], COSFixed.DEFAULT_PRECISION);
+            }
+            buffer.append(']').append(' ');
+        } else {
+            operands.add(COSConverter.toCos(values));
+        }
+    }
+
+    /**
+     * Add an integer as the next operand.
+     *
+     * @param value The operand value.
+     */
+    protected void operandInteger(int value) {
+        if (isDirect()) {
+            markOperationStart();
+            buffer.appendInteger(value).append(' ');
+        } else {
+            operands.add(COSInteger.create(value));
+        }
+    }
+
+    /**
+     * Add a string as the next operand.
+     *
+     * @param value The operand value.
+     */
+    protected void operandString(byte[] value) {
+        if (isDirect()) {
+            markOperationStart();
+            buffer.appendLiteralString(value).append(' ');
+        } else {
+            operands.add(COSString.create(value));
+        }
+    }
+
     protected void operationAdd(CSOperation operation) {
-        getContent().addOperation(operation);
+        if (isDirect()) {
+            CSContent temp = CSContent.createNew();
+            temp.addOperation(operation);
+            markOperationStart();
+            buffer.append(temp.toByteArray());
+            operationEnd(operation.getOperatorToken());
+        } else {
+            getContent().addOperation(operation);
+        }
+    }
+
+    /**
+     * Bookkeeping after an operation is serialized in direct mode.
+     *
+     * @param token The operator token of the operation.
+     */
+    protected void operationEnd(byte[] token) {
+        lastOperationStart = operationStart;
+        lastOperationToken = token;
+        operationStart = -1;
+        if (outputStream != null && buffer.size() >= FLUSH_THRESHOLD) {
+            flushBuffer();
+        }
     }
 
     /*
@@ -502,8 +775,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathClipEvenOdd() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_Wstar);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_Wstar);
     }
 
     /*
@@ -514,8 +786,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathClipNonZero() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_W);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_W);
     }
 
     /*
@@ -526,8 +797,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathClose() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_h);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_h);
     }
 
     /*
@@ -538,8 +808,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathCloseFillStrokeEvenOdd() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_bstar);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_bstar);
     }
 
     /*
@@ -550,8 +819,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathCloseFillStrokeNonZero() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_b);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_b);
     }
 
     /*
@@ -562,8 +830,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathCloseStroke() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_s);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_s);
     }
 
     /*
@@ -574,8 +841,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathEnd() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_n);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_n);
     }
 
     /*
@@ -586,8 +852,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathFillEvenOdd() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_fstar);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_fstar);
     }
 
     /*
@@ -598,8 +863,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathFillNonZero() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_f);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_f);
     }
 
     /*
@@ -610,8 +874,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathFillStrokeEvenOdd() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_Bstar);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_Bstar);
     }
 
     /*
@@ -622,8 +885,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathFillStrokeNonZero() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_B);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_B);
     }
 
     /*
@@ -634,8 +896,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void pathStroke() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_S);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_S);
     }
 
     /**
@@ -659,14 +920,13 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void penCurveToC(float x1, float y1, float x2, float y2, float x3, float y3) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_c);
-        operation.addOperand(COSFixed.create(x1));
-        operation.addOperand(COSFixed.create(y1));
-        operation.addOperand(COSFixed.create(x2));
-        operation.addOperand(COSFixed.create(y2));
-        operation.addOperand(COSFixed.create(x3));
-        operation.addOperand(COSFixed.create(y3));
-        getContent().addOperation(operation);
+        operandFixed(x1, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y1, COSFixed.DEFAULT_PRECISION);
+        operandFixed(x2, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y2, COSFixed.DEFAULT_PRECISION);
+        operandFixed(x3, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y3, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_c);
     }
 
     /*
@@ -678,12 +938,11 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void penCurveToV(float x2, float y2, float x3, float y3) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_v);
-        operation.addOperand(COSFixed.create(x2));
-        operation.addOperand(COSFixed.create(y2));
-        operation.addOperand(COSFixed.create(x3));
-        operation.addOperand(COSFixed.create(y3));
-        getContent().addOperation(operation);
+        operandFixed(x2, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y2, COSFixed.DEFAULT_PRECISION);
+        operandFixed(x3, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y3, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_v);
     }
 
     /*
@@ -695,12 +954,11 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void penCurveToY(float x1, float y1, float x3, float y3) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_y);
-        operation.addOperand(COSFixed.create(x1));
-        operation.addOperand(COSFixed.create(y1));
-        operation.addOperand(COSFixed.create(x3));
-        operation.addOperand(COSFixed.create(y3));
-        getContent().addOperation(operation);
+        operandFixed(x1, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y1, COSFixed.DEFAULT_PRECISION);
+        operandFixed(x3, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y3, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_y);
     }
 
     /**
@@ -732,10 +990,9 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void penLineTo(float x, float y) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_l);
-        operation.addOperand(COSFixed.create(x, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(y, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(x, VALUE_COORDINATE_PRECISION);
+        operandFixed(y, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_l);
     }
 
     /*
@@ -746,56 +1003,76 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void penMoveTo(float x, float y) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_m);
-        operation.addOperand(COSFixed.create(x, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(y, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(x, VALUE_COORDINATE_PRECISION);
+        operandFixed(y, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_m);
     }
 
     public void penRectangle(CDSRectangle rect) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_re);
-        operation.addOperand(COSFixed.create(rect.getLowerLeftX(), VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(rect.getLowerLeftY(), VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(rect.getWidth(), VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(rect.getHeight(), VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(rect.getLowerLeftX(), VALUE_COORDINATE_PRECISION);
+        operandFixed(rect.getLowerLeftY(), VALUE_COORDINATE_PRECISION);
+        operandFixed(rect.getWidth(), VALUE_COORDINATE_PRECISION);
+        operandFixed(rect.getHeight(), VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_re);
     }
 
     @Override
     public void penRectangle(float x, float y, float w, float h) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_re);
-        operation.addOperand(COSFixed.create(x, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(y, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(w, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(h, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(x, VALUE_COORDINATE_PRECISION);
+        operandFixed(y, VALUE_COORDINATE_PRECISION);
+        operandFixed(w, VALUE_COORDINATE_PRECISION);
+        operandFixed(h, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_re);
     }
 
     public void penRectangle(Rectangle2D rect) {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_re);
-        operation.addOperand(COSFixed.create(rect.getX(), VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(rect.getY(), VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(rect.getWidth(), VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(rect.getHeight(), VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed((float) rect.getX(), VALUE_COORDINATE_PRECISION);
+        operandFixed((float) rect.getY(), VALUE_COORDINATE_PRECISION);
+        operandFixed((float) rect.getWidth(), VALUE_COORDINATE_PRECISION);
+        operandFixed((float) rect.getHeight(), VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_re);
     }
 
     public void perform(byte[] bytes, COSObject... operand) {
         CSOperation literal = new CSOperation(bytes, operand);
-        getContent().addOperation(literal);
+        operationAdd(literal);
     }
 
     public void perform(CSOperator operator, COSObject... operand) {
         CSOperation literal = new CSOperation(operator, operand);
-        getContent().addOperation(literal);
+        operationAdd(literal);
     }
 
     public void perform(String string, COSObject... operand) {
         CSOperation literal = new CSOperation(StringTools.toByteArray(string), operand);
-        getContent().addOperation(literal);
+        operationAdd(literal);
+    }
+
+    /**
+     * Remove the last operation if it is {@code operator}.
+     *
+     * @param operator The operator expected.
+     * @return {@code true} if the last operation was removed.
+     */
+    protected boolean removeLastOperation(CSOperator operator) {
+        if (isDirect()) {
+            if (lastOperationStart != -1 && Arrays.equals(lastOperationToken, operator.getToken())) {
+                buffer.setSize(lastOperationStart);
+                lastOperationStart = -1;
+                lastOperationToken = null;
+                return true;
+            }
+            return false;
+        }
+        CSOperation lastOper = getContent().getLastOperation();
+        if ((lastOper != null) && lastOper.matchesOperator(operator)) {
+            getContent().removeLastOperation();
+            return true;
+        }
+        return false;
     }
 
     protected void resetStrings() {
@@ -815,8 +1092,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void restoreState() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_Q);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_Q);
         super.restoreState();
     }
 
@@ -828,8 +1104,7 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void saveState() {
         textEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_q);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_q);
         super.saveState();
     }
 
@@ -845,9 +1120,8 @@ public class CSCreator extends CSVirtualDevice {
         streamEnd();
         name = checkResource(PDResources.CN_RT_ExtGState, PDExtGState.META, name, gstate);
         super.setExtendedState(name, gstate);
-        CSOperation operation = new CSOperation(CSOperators.CSO_gs);
-        operation.addOperand(name);
-        getContent().addOperation(operation);
+        operand(name);
+        operate(CSOperators.CSO_gs);
     }
 
     /*
@@ -859,9 +1133,8 @@ public class CSCreator extends CSVirtualDevice {
     public void setFlatnessTolerance(float flatness) {
         streamEnd();
         super.setFlatnessTolerance(flatness);
-        CSOperation operation = new CSOperation(CSOperators.CSO_i);
-        operation.addOperand(COSFixed.create(flatness, VALUE_FLATNESS_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(flatness, VALUE_FLATNESS_PRECISION);
+        operate(CSOperators.CSO_i);
     }
 
     /*
@@ -873,9 +1146,8 @@ public class CSCreator extends CSVirtualDevice {
     public void setLineCap(int style) {
         streamEnd();
         super.setLineCap(style);
-        CSOperation operation = new CSOperation(CSOperators.CSO_J);
-        operation.addOperand(COSInteger.create(style));
-        getContent().addOperation(operation);
+        operandInteger(style);
+        operate(CSOperators.CSO_J);
     }
 
     /**
@@ -898,10 +1170,9 @@ public class CSCreator extends CSVirtualDevice {
     public void setLineDash(float[] pattern, float phase) {
         streamEnd();
         super.setLineDash(pattern, phase);
-        CSOperation operation = new CSOperation(CSOperators.CSO_d);
-        operation.addOperand(COSConverter.toCos(pattern));
-        operation.addOperand(COSFixed.create(phase, VALUE_DASH_PRECISION));
-        getContent().addOperation(operation);
+        operandFixedArray(pattern);
+        operandFixed(phase, VALUE_DASH_PRECISION);
+        operate(CSOperators.CSO_d);
     }
 
     /*
@@ -913,9 +1184,8 @@ public class CSCreator extends CSVirtualDevice {
     public void setLineJoin(int style) {
         streamEnd();
         super.setLineJoin(style);
-        CSOperation operation = new CSOperation(CSOperators.CSO_j);
-        operation.addOperand(COSInteger.create(style));
-        getContent().addOperation(operation);
+        operandInteger(style);
+        operate(CSOperators.CSO_j);
     }
 
     /*
@@ -930,9 +1200,8 @@ public class CSCreator extends CSVirtualDevice {
         }
         streamEnd();
         super.setLineWidth(w);
-        CSOperation operation = new CSOperation(CSOperators.CSO_w);
-        operation.addOperand(COSFixed.create(w, VALUE_WIDTH_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(w, VALUE_WIDTH_PRECISION);
+        operate(CSOperators.CSO_w);
     }
 
     /*
@@ -944,9 +1213,8 @@ public class CSCreator extends CSVirtualDevice {
     public void setMiterLimit(float miterLimit) {
         streamEnd();
         super.setMiterLimit(miterLimit);
-        CSOperation operation = new CSOperation(CSOperators.CSO_M);
-        operation.addOperand(COSFixed.create(miterLimit));
-        getContent().addOperation(operation);
+        operandFixed(miterLimit, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_M);
     }
 
     /*
@@ -967,12 +1235,11 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_k);
-        operation.addOperand(COSFixed.create(c, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(m, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(y, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(k, VALUE_COLOR_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(c, VALUE_COLOR_PRECISION);
+        operandFixed(m, VALUE_COLOR_PRECISION);
+        operandFixed(y, VALUE_COLOR_PRECISION);
+        operandFixed(k, VALUE_COLOR_PRECISION);
+        operate(CSOperators.CSO_k);
     }
 
     /*
@@ -988,9 +1255,8 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_g);
-        operation.addOperand(COSFixed.create(gray, VALUE_GRAY_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(gray, VALUE_GRAY_PRECISION);
+        operate(CSOperators.CSO_g);
     }
 
     /*
@@ -1010,11 +1276,10 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_rg);
-        operation.addOperand(COSFixed.create(r, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(g, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(b, VALUE_COLOR_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(r, VALUE_COLOR_PRECISION);
+        operandFixed(g, VALUE_COLOR_PRECISION);
+        operandFixed(b, VALUE_COLOR_PRECISION);
+        operate(CSOperators.CSO_rg);
     }
 
     /*
@@ -1033,9 +1298,8 @@ public class CSCreator extends CSVirtualDevice {
         applyOperation = false;
         streamEnd();
         name = checkResource(PDResources.CN_RT_ColorSpace, PDColorSpace.META, name, colorSpace);
-        CSOperation operation = new CSOperation(CSOperators.CSO_cs);
-        operation.addOperand(name.copyOptional());
-        getContent().addOperation(operation);
+        operand(name.copyOptional());
+        operate(CSOperators.CSO_cs);
     }
 
     /*
@@ -1052,11 +1316,10 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_sc);
         for (int i = 0; i < values.length; i++) {
-            operation.addOperand(COSFixed.create(values[i], VALUE_COLOR_PRECISION));
+            operandFixed(values[i], VALUE_COLOR_PRECISION);
         }
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_sc);
     }
 
     /*
@@ -1071,14 +1334,13 @@ public class CSCreator extends CSVirtualDevice {
         streamEnd();
         name = checkResource(PDResources.CN_RT_Pattern, PDPattern.META, name, pattern);
         graphicsState.nonStrokeColorValues = values;
-        CSOperation operation = new CSOperation(CSOperators.CSO_scn);
         for (int i = 0; i < values.length; i++) {
-            operation.addOperand(COSFixed.create(values[i], VALUE_COLOR_PRECISION));
+            operandFixed(values[i], VALUE_COLOR_PRECISION);
         }
         if (name != null) {
-            operation.addOperand(name.copyShallow());
+            operand(name.copyShallow());
         }
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_scn);
     }
 
     /*
@@ -1091,9 +1353,8 @@ public class CSCreator extends CSVirtualDevice {
     @Override
     public void setRenderingIntent(COSName intent) {
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_ri);
-        operation.addOperand(intent.copyOptional());
-        getContent().addOperation(operation);
+        operand(intent.copyOptional());
+        operate(CSOperators.CSO_ri);
     }
 
     /*
@@ -1114,12 +1375,11 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_K);
-        operation.addOperand(COSFixed.create(c, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(m, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(y, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(k, VALUE_COLOR_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(c, VALUE_COLOR_PRECISION);
+        operandFixed(m, VALUE_COLOR_PRECISION);
+        operandFixed(y, VALUE_COLOR_PRECISION);
+        operandFixed(k, VALUE_COLOR_PRECISION);
+        operate(CSOperators.CSO_K);
     }
 
     /*
@@ -1135,9 +1395,8 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_G);
-        operation.addOperand(COSFixed.create(gray, VALUE_GRAY_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(gray, VALUE_GRAY_PRECISION);
+        operate(CSOperators.CSO_G);
     }
 
     /*
@@ -1157,11 +1416,10 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_RG);
-        operation.addOperand(COSFixed.create(r, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(g, VALUE_COLOR_PRECISION));
-        operation.addOperand(COSFixed.create(b, VALUE_COLOR_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(r, VALUE_COLOR_PRECISION);
+        operandFixed(g, VALUE_COLOR_PRECISION);
+        operandFixed(b, VALUE_COLOR_PRECISION);
+        operate(CSOperators.CSO_RG);
     }
 
     /*
@@ -1180,9 +1438,8 @@ public class CSCreator extends CSVirtualDevice {
         applyOperation = false;
         streamEnd();
         name = checkResource(PDResources.CN_RT_ColorSpace, PDColorSpace.META, name, colorSpace);
-        CSOperation operation = new CSOperation(CSOperators.CSO_CS);
-        operation.addOperand(name);
-        getContent().addOperation(operation);
+        operand(name);
+        operate(CSOperators.CSO_CS);
     }
 
     /*
@@ -1199,11 +1456,10 @@ public class CSCreator extends CSVirtualDevice {
         }
         applyOperation = false;
         streamEnd();
-        CSOperation operation = new CSOperation(CSOperators.CSO_SC);
         for (int i = 0; i < values.length; i++) {
-            operation.addOperand(COSFixed.create(values[i], VALUE_COLOR_PRECISION));
+            operandFixed(values[i], VALUE_COLOR_PRECISION);
         }
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_SC);
     }
 
     /*
@@ -1218,14 +1474,13 @@ public class CSCreator extends CSVirtualDevice {
         streamEnd();
         name = checkResource(PDResources.CN_RT_Pattern, PDPattern.META, name, pattern);
         graphicsState.strokeColorValues = values;
-        CSOperation operation = new CSOperation(CSOperators.CSO_SCN);
         for (int i = 0; i < values.length; i++) {
-            operation.addOperand(COSFixed.create(values[i], VALUE_COLOR_PRECISION));
+            operandFixed(values[i], VALUE_COLOR_PRECISION);
         }
         if (name != null) {
-            operation.addOperand(name.copyShallow());
+            operand(name.copyShallow());
         }
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_SCN);
     }
 
     protected void setTextMode(boolean b) {
@@ -1245,7 +1500,20 @@ public class CSCreator extends CSVirtualDevice {
                 basicTextShow(bytes);
             }
         } else {
-            if (size > 1) {
+            if (size > 1 && isDirect()) {
+                markOperationStart();
+                buffer.append('[');
+                for (Iterator i = getStrings().iterator(); i.hasNext(); ) {
+                    Object element = i.next();
+                    if (element instanceof byte[]) {
+                        buffer.appendLiteralString((byte[]) element);
+                    } else {
+                        buffer.appendInteger(((Integer) element).intValue()).append(' ');
+                    }
+                }
+                buffer.append(']').append(' ');
+                operate(CSOperators.CSO_TJ);
+            } else if (size > 1) {
                 COSArray cosStrings = COSArray.create(size);
                 for (Iterator i = getStrings().iterator(); i.hasNext(); ) {
                     Object element = i.next();
@@ -1276,9 +1544,8 @@ public class CSCreator extends CSVirtualDevice {
     }
 
     protected void streamEndShow(COSArray theStrings) {
-        CSOperation operation = new CSOperation(CSOperators.CSO_TJ);
-        operation.addOperand(theStrings);
-        getContent().addOperation(operation);
+        operand(theStrings);
+        operate(CSOperators.CSO_TJ);
     }
 
     /*
@@ -1294,8 +1561,7 @@ public class CSCreator extends CSVirtualDevice {
         }
         super.textBegin();
         setTextMode(true);
-        CSOperation operation = new CSOperation(CSOperators.CSO_BT);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_BT);
     }
 
     /*
@@ -1312,13 +1578,10 @@ public class CSCreator extends CSVirtualDevice {
         streamEnd();
         super.textEnd();
         setTextMode(false);
-        CSOperation lastOper = getContent().getLastOperation();
-        if ((lastOper != null) && lastOper.matchesOperator(CSOperators.CSO_BT)) {
-            getContent().removeLastOperation();
+        if (removeLastOperation(CSOperators.CSO_BT)) {
             return;
         }
-        CSOperation operation = new CSOperation(CSOperators.CSO_ET);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_ET);
     }
 
     /*
@@ -1331,10 +1594,9 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textLineMove(dx, dy);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Td);
-        operation.addOperand(COSFixed.create(dx, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(dy, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(dx, VALUE_COORDINATE_PRECISION);
+        operandFixed(dy, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_Td);
     }
 
     /**
@@ -1354,10 +1616,9 @@ public class CSCreator extends CSVirtualDevice {
         super.textLineMove(dx, dy);
         super.textSetLeading(dy);
         //
-        CSOperation operation = new CSOperation(CSOperators.CSO_TD);
-        operation.addOperand(COSFixed.create(dx, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(dy, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(dx, VALUE_COORDINATE_PRECISION);
+        operandFixed(dy, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_TD);
     }
 
     public void textLineMoveTo(float x, float y) {
@@ -1380,8 +1641,7 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textLineNew();
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tstar);
-        getContent().addOperation(operation);
+        operate(CSOperators.CSO_Tstar);
     }
 
     @Override
@@ -1475,9 +1735,8 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetCharSpacing(charSpace);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tc);
-        operation.addOperand(COSFixed.create(charSpace));
-        getContent().addOperation(operation);
+        operandFixed(charSpace, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_Tc);
     }
 
     /*
@@ -1496,10 +1755,9 @@ public class CSCreator extends CSVirtualDevice {
         streamEnd();
         name = checkResource(PDResources.CN_RT_Font, PDFont.META, name, font);
         super.textSetFont(name, font, size);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tf);
-        operation.addOperand(name);
-        operation.addOperand(COSFixed.create(size, VALUE_FONT_PRECISION));
-        getContent().addOperation(operation);
+        operand(name);
+        operandFixed(size, VALUE_FONT_PRECISION);
+        operate(CSOperators.CSO_Tf);
     }
 
     /*
@@ -1513,9 +1771,8 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetHorizontalScaling(scale);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tz);
-        operation.addOperand(COSFixed.create(scale));
-        getContent().addOperation(operation);
+        operandFixed(scale, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_Tz);
     }
 
     /*
@@ -1528,9 +1785,8 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetLeading(leading);
-        CSOperation operation = new CSOperation(CSOperators.CSO_TL);
-        operation.addOperand(COSFixed.create(leading));
-        getContent().addOperation(operation);
+        operandFixed(leading, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_TL);
     }
 
     /*
@@ -1543,9 +1799,8 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetRenderingMode(rendering);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tr);
-        operation.addOperand(COSInteger.create(rendering));
-        getContent().addOperation(operation);
+        operandInteger(rendering);
+        operate(CSOperators.CSO_Tr);
     }
 
     /*
@@ -1558,9 +1813,8 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetRise(rise);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Ts);
-        operation.addOperand(COSFixed.create(rise));
-        getContent().addOperation(operation);
+        operandFixed(rise, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_Ts);
     }
 
     /*
@@ -1574,14 +1828,13 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetTransform(a, b, c, d, e, f);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tm);
-        operation.addOperand(COSFixed.create(a, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(b, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(c, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(d, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(e, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(f, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(a, VALUE_FACTOR_PRECISION);
+        operandFixed(b, VALUE_FACTOR_PRECISION);
+        operandFixed(c, VALUE_FACTOR_PRECISION);
+        operandFixed(d, VALUE_FACTOR_PRECISION);
+        operandFixed(e, VALUE_COORDINATE_PRECISION);
+        operandFixed(f, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_Tm);
     }
 
     /*
@@ -1594,9 +1847,8 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textSetWordSpacing(wordSpace);
-        CSOperation operation = new CSOperation(CSOperators.CSO_Tw);
-        operation.addOperand(COSFixed.create(wordSpace));
-        getContent().addOperation(operation);
+        operandFixed(wordSpace, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_Tw);
     }
 
     @Override
@@ -1622,10 +1874,9 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textT3SetGlyphWidth(x, y);
-        CSOperation operation = new CSOperation(CSOperators.CSO_d0);
-        operation.addOperand(COSFixed.create(x));
-        operation.addOperand(COSFixed.create(y));
-        getContent().addOperation(operation);
+        operandFixed(x, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_d0);
     }
 
     /*
@@ -1639,14 +1890,13 @@ public class CSCreator extends CSVirtualDevice {
         textBegin();
         streamEnd();
         super.textT3SetGlyphWidthBB(x, y, llx, lly, urx, ury);
-        CSOperation operation = new CSOperation(CSOperators.CSO_d1);
-        operation.addOperand(COSFixed.create(x));
-        operation.addOperand(COSFixed.create(y));
-        operation.addOperand(COSFixed.create(llx));
-        operation.addOperand(COSFixed.create(lly));
-        operation.addOperand(COSFixed.create(urx));
-        operation.addOperand(COSFixed.create(ury));
-        getContent().addOperation(operation);
+        operandFixed(x, COSFixed.DEFAULT_PRECISION);
+        operandFixed(y, COSFixed.DEFAULT_PRECISION);
+        operandFixed(llx, COSFixed.DEFAULT_PRECISION);
+        operandFixed(lly, COSFixed.DEFAULT_PRECISION);
+        operandFixed(urx, COSFixed.DEFAULT_PRECISION);
+        operandFixed(ury, COSFixed.DEFAULT_PRECISION);
+        operate(CSOperators.CSO_d1);
     }
 
     /*
@@ -1659,13 +1909,12 @@ public class CSCreator extends CSVirtualDevice {
     public void transform(float a, float b, float c, float d, float e, float f) {
         textEnd();
         super.transform(a, b, c, d, e, f);
-        CSOperation operation = new CSOperation(CSOperators.CSO_cm);
-        operation.addOperand(COSFixed.create(a, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(b, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(c, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(d, VALUE_FACTOR_PRECISION));
-        operation.addOperand(COSFixed.create(e, VALUE_COORDINATE_PRECISION));
-        operation.addOperand(COSFixed.create(f, VALUE_COORDINATE_PRECISION));
-        getContent().addOperation(operation);
+        operandFixed(a, VALUE_FACTOR_PRECISION);
+        operandFixed(b, VALUE_FACTOR_PRECISION);
+        operandFixed(c, VALUE_FACTOR_PRECISION);
+        operandFixed(d, VALUE_FACTOR_PRECISION);
+        operandFixed(e, VALUE_COORDINATE_PRECISION);
+        operandFixed(f, VALUE_COORDINATE_PRECISION);
+        operate(CSOperators.CSO_cm);
     }
 }
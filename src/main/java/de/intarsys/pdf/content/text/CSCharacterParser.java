@@ -14,9 +14,19 @@ import java.awt.geom.Rectangle2D;
 
 /**
  * Collect the character objects in a content stream.
+ * <p>
+ * A character parser answers {@code false} in {@link #supportsGraphics()},
+ * so the interpreter does not report path, painting, clipping, color,
+ * shading and image operations. A subclass relying on these callbacks must
+ * answer {@code true} again.
  */
 public abstract class CSCharacterParser extends CSTextDevice {
 
+    /**
+     * The chars reported for a glyph without unicode mapping.
+     */
+    protected static final char[] CHARS_SPACE = new char[]{' '};
+
     protected double lastStopX;
 
     protected double lastStopY;
@@ -25,34 +35,78 @@ public abstract class CSCharacterParser extends CSTextDevice {
 
     protected double lastStartY;
 
+    /**
+     * The horizontal distance between two glyphs in device space that is
+     * considered a gap, derived from the font size of the current glyph.
+     */
+    protected double maxDX = 5;
+
+    /**
+     * The vertical distance between two glyphs in device space that is
+     * considered a gap, derived from the font size of the current glyph.
+     */
+    protected double maxDY = 5;
+
     private Shape bounds;
 
+    /**
+     * The glyph box, reused for each glyph.
+     */
+    private final Rectangle2D.Float charRect = new Rectangle2D.Float();
+
     protected CSCharacterParser() {
         super();
     }
 
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.CSDeviceAdapter#supportsGraphics()
+     */
+    @Override
+    public boolean supportsGraphics() {
+        return false;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.CSBasicDevice#basicTextShowGlyphs(de.intarsys.pdf.font.PDGlyphs, float)
+     */
     @Override
     protected void basicTextShowGlyphs(PDGlyphs glyphs, float advance) {
-        AffineTransform tx;
-        tx = (AffineTransform) getDeviceTransform().clone();
-        tx.concatenate(textState.globalTransform);
-        lastStartX = tx.getTranslateX();
-        lastStartY = tx.getTranslateY();
+        // the text rendering matrix in device space is device x global,
+        // evaluated in place to avoid allocations per glyph
+        AffineTransform device = getDeviceTransform();
+        AffineTransform global = textState.globalTransform;
+        double d00 = device.getScaleX();
+        double d01 = device.getShearX();
+        double d10 = device.getShearY();
+        double d11 = device.getScaleY();
+        double m00 = d00 * global.getScaleX() + d01 * global.getShearY();
+        double m01 = d00 * global.getShearX() + d01 * global.getScaleY();
+        double m10 = d10 * global.getScaleX() + d11 * global.getShearY();
+        double m11 = d10 * global.getShearX() + d11 * global.getScaleY();
+        lastStartX = d00 * global.getTranslateX() + d01 * global.getTranslateY() + device.getTranslateX();
+        lastStartY = d10 * global.getTranslateX() + d11 * global.getTranslateY() + device.getTranslateY();
+        // evaluated per glyph, a device sharing its state (for example in a
+        // multiplexer) is not called for the text state changes
+        maxDX = textState.fontSize * 0.2 * m00;
+        maxDY = textState.fontSize * 0.6 * m11;
         // get the transformed character bounding box
-        double glyphAscent = glyphs.getAscent();
-        double glyphDescent = glyphs.getDescent();
-        double ascent = (textState.fontSize * glyphAscent) / THOUSAND;
-        double descent = (textState.fontSize * glyphDescent) / THOUSAND;
+        double ascent = (textState.fontSize * glyphs.getAscent()) / THOUSAND;
+        double descent = (textState.fontSize * glyphs.getDescent()) / THOUSAND;
         if (descent > 0) {
             descent = -descent;
         }
-        double[] pts = {0, descent, advance, ascent};
-        tx.deltaTransform(pts, 0, pts, 0, 2);
-        //
+        // delta transform of (0, descent) and (advance, ascent)
+        double descentY = m11 * descent;
+        double advanceX = m00 * advance + m01 * ascent;
+        double ascentY = m10 * advance + m11 * ascent;
         float x = (float) lastStartX;
-        float y = (float) (lastStartY + pts[1]);
-        float width = (float) pts[2];
-        float height = (float) (pts[3] - pts[1]);
+        float y = (float) (lastStartY + descentY);
+        float width = (float) advanceX;
+        float height = (float) (ascentY - descentY);
         if (width < 0) {
             x += width;
             width = -width;
@@ -61,18 +115,82 @@ public abstract class CSCharacterParser extends CSTextDevice {
             y += height;
             height = -height;
         }
-        Rectangle2D charRect = new Rectangle2D.Float(x, y, width, height);
-        if (getBounds() == null || getBounds().intersects(charRect)) {
+        if (getBounds() == null || getBounds().intersects(x, y, width, height)) {
+            charRect.setRect(x, y, width, height);
             onCharacterFound(glyphs, charRect);
         }
         // advance text matrix and store position for reference
         super.basicTextShowGlyphs(glyphs, advance);
-        tx = (AffineTransform) getDeviceTransform().clone();
-        tx.concatenate(textState.globalTransform);
-        lastStopX = tx.getTranslateX();
-        lastStopY = tx.getTranslateY();
+        global = textState.globalTransform;
+        lastStopX = d00 * global.getTranslateX() + d01 * global.getTranslateY() + device.getTranslateX();
+        lastStopY = d10 * global.getTranslateX() + d11 * global.getTranslateY() + device.getTranslateY();
+    }
+
+    /**
+     * The horizontal scale of the current text space in device space.
+     *
+     * @return The horizontal scale of the current text space in device space.
+     */
+    protected double getTextScaleX() {
+        AffineTransform device = getDeviceTransform();
+        AffineTransform global = textState.globalTransform;
+        return device.getScaleX() * global.getScaleX() + device.getShearX() * global.getShearY();
+    }
+
+    /**
+     * The x component of the current text space y axis in device space.
+     *
+     * @return The x component of the current text space y axis in device
+     * space.
+     */
+    protected double getTextShearX() {
+        AffineTransform device = getDeviceTransform();
+        AffineTransform global = textState.globalTransform;
+        return device.getScaleX() * global.getShearX() + device.getShearX() * global.getScaleY();
+    }
+
+    /**
+     * The y component of the current text space x axis in device space.
+     *
+     * @return The y component of the current text space x axis in device
+     * space.
+     */
+    protected double getTextShearY() {
+        AffineTransform device = getDeviceTransform();
+        AffineTransform global = textState.globalTransform;
+        return device.getShearY() * global.getScaleX() + device.getScaleY() * global.getShearY();
+    }
+
+    /**
+     * The vertical scale of the current text space in device space.
+     *
+     * @return The vertical scale of the current text space in device space.
+     */
+    protected double getTextScaleY() {
+        AffineTransform device = getDeviceTransform();
+        AffineTransform global = textState.globalTransform;
+        return device.getShearY() * global.getShearX() + device.getScaleY() * global.getScaleY();
+    }
+
+    /**
+     * true if there is a gap between the previous glyph and the current one,
+     * horizontally or vertically. Text devices report such a gap as a space.
+     *
+     * @return true if there is a gap before the current glyph.
+     */
+    protected boolean isGap() {
+        return Math.abs(lastStopX - lastStartX) >= maxDX || Math.abs(lastStopY - lastStartY) >= maxDY;
     }
 
+    /**
+     * Called for each glyph within the bounds.
+     * <p>
+     * <code>rect</code> is reused for the next glyph, copy it if it should be
+     * kept.
+     *
+     * @param glyphs The glyphs shown
+     * @param rect   The glyph box in device space
+     */
     protected void onCharacterFound(PDGlyphs glyphs, Rectangle2D rect) {
         // redefine
     }
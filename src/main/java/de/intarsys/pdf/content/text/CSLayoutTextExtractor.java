@@ -0,0 +1,618 @@
+/*
+ * intarsys consulting gmbh
+ * all rights reserved
+ *
+ */
+package de.intarsys.pdf.content.text;
+
+import de.intarsys.pdf.content.ICSInterpreter;
+import de.intarsys.pdf.font.PDGlyphs;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A text extraction utility that reconstructs the page layout.
+ * <p>
+ * Unlike {@link CSTextExtractor}, which appends characters in content stream
+ * order, all glyph boxes are collected first. When the result is requested
+ * they are grouped into lines, words and blocks, independent of the order in
+ * which they were painted. Blocks are put into reading order by recursive
+ * cuts along the largest gap, so columns are read one after the other.
+ * <p>
+ * Text running in different directions (rotated text) is laid out
+ * separately, each direction in its own reading frame.
+ */
+public class CSLayoutTextExtractor extends CSCharacterParser {
+
+    /**
+     * A line of text, split at column gaps.
+     */
+    private static class Segment {
+
+        private final int line;
+
+        private final int orientation;
+
+        private float u0 = Float.POSITIVE_INFINITY;
+
+        private float u1 = Float.NEGATIVE_INFINITY;
+
+        private float v0 = Float.POSITIVE_INFINITY;
+
+        private float v1 = Float.NEGATIVE_INFINITY;
+
+        private final List<Word> words = new ArrayList<Word>();
+
+        protected Segment(int orientation, int line) {
+            this.orientation = orientation;
+            this.line = line;
+        }
+
+        protected float getHeight() {
+            return v1 - v0;
+        }
+    }
+
+    /**
+     * A group of vertically adjacent segments.
+     */
+    private static class Block {
+
+        private Segment last;
+
+        private final int orientation;
+
+        private final List<Segment> segments = new ArrayList<Segment>();
+
+        private float u0 = Float.POSITIVE_INFINITY;
+
+        private float u1 = Float.NEGATIVE_INFINITY;
+
+        private float v0 = Float.POSITIVE_INFINITY;
+
+        private float v1 = Float.NEGATIVE_INFINITY;
+
+        protected Block(int orientation) {
+            this.orientation = orientation;
+        }
+
+        protected void add(Segment segment) {
+            segments.add(segment);
+            last = segment;
+            u0 = Math.min(u0, segment.u0);
+            u1 = Math.max(u1, segment.u1);
+            v0 = Math.min(v0, segment.v0);
+            v1 = Math.max(v1, segment.v1);
+        }
+
+        protected float getLow(boolean vertical) {
+            return vertical ? v0 : u0;
+        }
+
+        protected float getHigh(boolean vertical) {
+            return vertical ? v1 : u1;
+        }
+    }
+
+    /**
+     * A word under construction.
+     */
+    private static class Word {
+
+        private final StringBuilder text = new StringBuilder();
+
+        private float x0 = Float.POSITIVE_INFINITY;
+
+        private float x1 = Float.NEGATIVE_INFINITY;
+
+        private float y0 = Float.POSITIVE_INFINITY;
+
+        private float y1 = Float.NEGATIVE_INFINITY;
+    }
+
+    /**
+     * A glyph joins a line if its center is within this fraction of the line
+     * height.
+     */
+    private static final float LINE_TOLERANCE = 0.5f;
+
+    /**
+     * A gap wider than this fraction of the line height separates words.
+     */
+    private static final float WORD_GAP = 0.2f;
+
+    /**
+     * A gap wider than this fraction of the line height separates columns.
+     */
+    private static final float COLUMN_GAP = 1.5f;
+
+    /**
+     * Lines with a gap up to this fraction of the line height form a block.
+     */
+    private static final float BLOCK_GAP = 1.0f;
+
+    /**
+     * The width of a grid cell for finding adjacent lines, relative to the
+     * average glyph height.
+     */
+    private static final float CELL_SIZE = 8f;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    /**
+     * The number of bits used for the glyph index in a sort key.
+     */
+    private static final int INDEX_BITS = 29;
+
+    private static final int MAX_GLYPHS = 1 << INDEX_BITS;
+
+    private static final String LINE_SEPARATOR = System.getProperty("line.separator"); //$NON-NLS-1$
+
+    /**
+     * The axis index for a direction, 0 = +x, 1 = +y, 2 = -x, 3 = -y.
+     */
+    protected static int getAxis(double dx, double dy) {
+        if (Math.abs(dx) >= Math.abs(dy)) {
+            return dx >= 0 ? 0 : 2;
+        }
+        return dy >= 0 ? 1 : 3;
+    }
+
+    /**
+     * A long whose signed order is the order of <code>value</code>.
+     */
+    protected static long sortable(float value) {
+        int bits = Float.floatToIntBits(value);
+        return (bits ^ ((bits >> 31) | Integer.MIN_VALUE)) & 0xffffffffL;
+    }
+
+    private char[] chars = new char[INITIAL_CAPACITY];
+
+    private String content;
+
+    private int count;
+
+    /**
+     * The text direction of each glyph, axis * 2 + (0 if "up" is the axis
+     * rotated counterclockwise, 1 otherwise)
+     */
+    private byte[] orientations = new byte[INITIAL_CAPACITY];
+
+    private List<CSTextWord> words;
+
+    private float[] x0 = new float[INITIAL_CAPACITY];
+
+    private float[] x1 = new float[INITIAL_CAPACITY];
+
+    private float[] y0 = new float[INITIAL_CAPACITY];
+
+    private float[] y1 = new float[INITIAL_CAPACITY];
+
+    public CSLayoutTextExtractor() {
+        super();
+    }
+
+    protected void addGlyph(char c, int orientation, float gx0, float gy0, float gx1, float gy1) {
+        if (count >= MAX_GLYPHS) {
+            return;
+        }
+        if (count == chars.length) {
+            int capacity = chars.length * 2;
+            chars = Arrays.copyOf(chars, capacity);
+            orientations = Arrays.copyOf(orientations, capacity);
+            x0 = Arrays.copyOf(x0, capacity);
+            x1 = Arrays.copyOf(x1, capacity);
+            y0 = Arrays.copyOf(y0, capacity);
+            y1 = Arrays.copyOf(y1, capacity);
+        }
+        chars[count] = c;
+        orientations[count] = (byte) orientation;
+        x0[count] = gx0;
+        y0[count] = gy0;
+        x1[count] = gx1;
+        y1[count] = gy1;
+        count++;
+    }
+
+    private void buildBlocks(List<Segment> segments, float cell, List<Block> blocks) {
+        Map<Long, Block> grid = new HashMap<Long, Block>();
+        for (Segment segment : segments) {
+            long c0 = (long) Math.floor(segment.u0 / cell);
+            long c1 = (long) Math.floor(segment.u1 / cell);
+            Block best = null;
+            float bestGap = Float.POSITIVE_INFINITY;
+            for (long c = c0; c <= c1; c++) {
+                Block block = grid.get(c * 8 + segment.orientation);
+                if (block == null || block == best) {
+                    continue;
+                }
+                Segment last = block.last;
+                if (last.line == segment.line || last.u1 < segment.u0 || last.u0 > segment.u1) {
+                    continue;
+                }
+                float gap = segment.v0 - last.v1;
+                if (gap > BLOCK_GAP * Math.max(last.getHeight(), segment.getHeight())) {
+                    continue;
+                }
+                if (gap < bestGap) {
+                    best = block;
+                    bestGap = gap;
+                }
+            }
+            if (best == null) {
+                best = new Block(segment.orientation);
+                blocks.add(best);
+            }
+            best.add(segment);
+            for (long c = c0; c <= c1; c++) {
+                grid.put(c * 8 + segment.orientation, best);
+            }
+        }
+    }
+
+    private void buildSegments(int[] line, int n, float height, int orientation, int lineIndex, long[] keys,
+                               List<Segment> segments) {
+        int axis = orientation / 2;
+        int down = getDownAxis(orientation);
+        for (int k = 0; k < n; k++) {
+            keys[k] = ((sortable(getLow(axis, line[k])) << 32) | k) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys, 0, n);
+        Segment segment = null;
+        Word word = null;
+        float end = Float.NEGATIVE_INFINITY;
+        for (int k = 0; k < n; k++) {
+            int i = line[(int) (keys[k] & 0xffffffffL)];
+            float u0 = getLow(axis, i);
+            float gap = u0 - end;
+            if (gap > COLUMN_GAP * height) {
+                segment = null;
+                word = null;
+            } else if (gap > WORD_GAP * height) {
+                word = null;
+            }
+            char c = chars[i];
+            if (c == 0 || Character.isWhitespace(c)) {
+                word = null;
+                continue;
+            }
+            if (segment == null) {
+                segment = new Segment(orientation, lineIndex);
+                segments.add(segment);
+            }
+            if (word == null) {
+                word = new Word();
+                segment.words.add(word);
+            }
+            word.text.append(c);
+            word.x0 = Math.min(word.x0, x0[i]);
+            word.y0 = Math.min(word.y0, y0[i]);
+            word.x1 = Math.max(word.x1, x1[i]);
+            word.y1 = Math.max(word.y1, y1[i]);
+            segment.u0 = Math.min(segment.u0, u0);
+            segment.u1 = Math.max(segment.u1, getHigh(axis, i));
+            segment.v0 = Math.min(segment.v0, getLow(down, i));
+            segment.v1 = Math.max(segment.v1, getHigh(down, i));
+            end = Math.max(end, getHigh(axis, i));
+        }
+    }
+
+    /**
+     * The extracted text in reading order.
+     * <p>
+     * Words are separated by a space, lines by a line separator and blocks by
+     * an empty line.
+     *
+     * @return The extracted text in reading order.
+     */
+    public String getContent() {
+        if (content == null) {
+            layout();
+        }
+        return content;
+    }
+
+    protected int getDownAxis(int orientation) {
+        int axis = orientation / 2;
+        int up = (orientation % 2) == 0 ? (axis + 1) % 4 : (axis + 3) % 4;
+        return (up + 2) % 4;
+    }
+
+    protected float getHigh(int axis, int i) {
+        switch (axis) {
+            case 0:
+                return x1[i];
+            case 1:
+                return y1[i];
+            case 2:
+                return -x0[i];
+            default:
+                return -y0[i];
+        }
+    }
+
+    protected float getLow(int axis, int i) {
+        switch (axis) {
+            case 0:
+                return x0[i];
+            case 1:
+                return y0[i];
+            case 2:
+                return -x1[i];
+            default:
+                return -y1[i];
+        }
+    }
+
+    /**
+     * The words in reading order.
+     *
+     * @return The words in reading order.
+     */
+    public List<CSTextWord> getWords() {
+        if (words == null) {
+            layout();
+        }
+        return words;
+    }
+
+    protected void layout() {
+        List<CSTextWord> tempWords = new ArrayList<CSTextWord>();
+        StringBuilder sb = new StringBuilder();
+        if (count > 0) {
+            List<Segment> segments = buildLines();
+            float heights = 0;
+            for (int i = 0; i < count; i++) {
+                int down = getDownAxis(orientations[i]);
+                heights += getHigh(down, i) - getLow(down, i);
+            }
+            float cell = CELL_SIZE * heights / count;
+            if (!(cell > 0)) {
+                cell = 1;
+            }
+            List<Block> blocks = new ArrayList<Block>();
+            buildBlocks(segments, cell, blocks);
+            // each text direction is ordered on its own
+            Map<Integer, List<Block>> byOrientation = new HashMap<Integer, List<Block>>();
+            List<Integer> orientationOrder = new ArrayList<Integer>();
+            for (Block block : blocks) {
+                List<Block> group = byOrientation.get(block.orientation);
+                if (group == null) {
+                    group = new ArrayList<Block>();
+                    byOrientation.put(block.orientation, group);
+                    orientationOrder.add(block.orientation);
+                }
+                group.add(block);
+            }
+            int blockIndex = 0;
+            int lineIndex = 0;
+            for (Integer orientation : orientationOrder) {
+                List<Block> ordered = new ArrayList<Block>();
+                order(byOrientation.get(orientation), ordered);
+                for (Block block : ordered) {
+                    if (sb.length() > 0) {
+                        sb.append(LINE_SEPARATOR);
+                        sb.append(LINE_SEPARATOR);
+                    }
+                    boolean firstLine = true;
+                    for (Segment segment : block.segments) {
+                        if (!firstLine) {
+                            sb.append(LINE_SEPARATOR);
+                        }
+                        firstLine = false;
+                        boolean firstWord = true;
+                        for (Word word : segment.words) {
+                            if (!firstWord) {
+                                sb.append(' ');
+                            }
+                            firstWord = false;
+                            String text = word.text.toString();
+                            sb.append(text);
+                            tempWords.add(new CSTextWord(text,
+                                                         new Rectangle2D.Float(word.x0,
+                                                                               word.y0,
+                                                                               word.x1 - word.x0,
+                                                                               word.y1 - word.y0),
+                                                         blockIndex,
+                                                         lineIndex));
+                        }
+                        lineIndex++;
+                    }
+                    blockIndex++;
+                }
+            }
+        }
+        content = sb.toString();
+        words = tempWords;
+    }
+
+    /**
+     * Group the glyphs into lines, split at column gaps.
+     *
+     * @return The segments, by orientation and top to bottom.
+     */
+    private List<Segment> buildLines() {
+        List<Segment> segments = new ArrayList<Segment>();
+        // sort by orientation and center across the text direction
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int down = getDownAxis(orientations[i]);
+            float center = (getLow(down, i) + getHigh(down, i)) / 2;
+            keys[i] = (((long) orientations[i] << 61) | (sortable(center) << INDEX_BITS) | i) ^ Long.MIN_VALUE;
+        }
+        Arrays.sort(keys);
+        int[] line = new int[count];
+        long[] lineKeys = new long[count];
+        int lineIndex = 0;
+        int pos = 0;
+        while (pos < count) {
+            int first = (int) (keys[pos] & (MAX_GLYPHS - 1));
+            int orientation = orientations[first];
+            int down = getDownAxis(orientation);
+            float lineCenter = (getLow(down, first) + getHigh(down, first)) / 2;
+            float lineHeight = getHigh(down, first) - getLow(down, first);
+            float heights = lineHeight;
+            int n = 0;
+            line[n++] = first;
+            pos++;
+            while (pos < count) {
+                int i = (int) (keys[pos] & (MAX_GLYPHS - 1));
+                if (orientations[i] != orientation) {
+                    break;
+                }
+                float center = (getLow(down, i) + getHigh(down, i)) / 2;
+                float height = getHigh(down, i) - getLow(down, i);
+                if (center - lineCenter > LINE_TOLERANCE * Math.max(lineHeight, height)) {
+                    break;
+                }
+                line[n++] = i;
+                lineCenter += (center - lineCenter) / n;
+                lineHeight = Math.max(lineHeight, height);
+                heights += height;
+                pos++;
+            }
+            buildSegments(line, n, heights / n, orientation, lineIndex++, lineKeys, segments);
+        }
+        return segments;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.text.CSCharacterParser#onCharacterFound(de.intarsys.pdf.font.PDGlyphs,
+     * java.awt.geom.Rectangle2D)
+     */
+    @Override
+    protected void onCharacterFound(PDGlyphs glyphs, Rectangle2D rect) {
+        float rx0 = (float) rect.getMinX();
+        float ry0 = (float) rect.getMinY();
+        float rx1 = (float) rect.getMaxX();
+        float ry1 = (float) rect.getMaxY();
+        if (Float.isNaN(rx0 + ry0 + rx1 + ry1) || Float.isInfinite(rx0 + ry0 + rx1 + ry1)) {
+            return;
+        }
+        char[] glyphChars = glyphs.getChars();
+        if (glyphChars == null) {
+            glyphChars = CHARS_SPACE;
+        }
+        int axis = getAxis(getTextScaleX(), getTextShearY());
+        int up = getAxis(getTextShearX(), getTextScaleY());
+        int orientation = axis * 2 + (up == (axis + 3) % 4 ? 1 : 0);
+        int n = glyphChars.length;
+        if (n == 1) {
+            addGlyph(glyphChars[0], orientation, rx0, ry0, rx1, ry1);
+        } else {
+            // distribute the box of a ligature along the text direction
+            float w = rx1 - rx0;
+            float h = ry1 - ry0;
+            for (int k = 0; k < n; k++) {
+                float f0 = (float) k / n;
+                float f1 = (float) (k + 1) / n;
+                switch (axis) {
+                    case 0:
+                        addGlyph(glyphChars[k], orientation, rx0 + w * f0, ry0, rx0 + w * f1, ry1);
+                        break;
+                    case 1:
+                        addGlyph(glyphChars[k], orientation, rx0, ry0 + h * f0, rx1, ry0 + h * f1);
+                        break;
+                    case 2:
+                        addGlyph(glyphChars[k], orientation, rx1 - w * f1, ry0, rx1 - w * f0, ry1);
+                        break;
+                    default:
+                        addGlyph(glyphChars[k], orientation, rx0, ry1 - h * f1, rx1, ry1 - h * f0);
+                        break;
+                }
+            }
+        }
+        content = null;
+        words = null;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.CSDeviceAdapter#open(de.intarsys.pdf.content.ICSInterpreter)
+     */
+    @Override
+    public void open(ICSInterpreter pInterpreter) {
+        super.open(pInterpreter);
+        count = 0;
+        content = null;
+        words = null;
+    }
+
+    /**
+     * Put <code>blocks</code> into reading order.
+     * <p>
+     * The blocks are split recursively at the widest gap in their vertical
+     * or horizontal projection (XY cut).
+     */
+    private void order(List<Block> blocks, List<Block> result) {
+        if (blocks.size() <= 1) {
+            result.addAll(blocks);
+            return;
+        }
+        float[] vCut = findCut(blocks, true);
+        float[] uCut = findCut(blocks, false);
+        if (vCut == null && uCut == null) {
+            List<Block> sorted = new ArrayList<Block>(blocks);
+            Collections.sort(sorted, new Comparator<Block>() {
+                @Override
+                public int compare(Block o1, Block o2) {
+                    int result = Float.compare(o1.v0, o2.v0);
+                    if (result == 0) {
+                        result = Float.compare(o1.u0, o2.u0);
+                    }
+                    return result;
+                }
+            });
+            result.addAll(sorted);
+            return;
+        }
+        boolean vertical = uCut == null || (vCut != null && vCut[0] >= uCut[0]);
+        float cut = vertical ? vCut[1] : uCut[1];
+        List<Block> before = new ArrayList<Block>();
+        List<Block> after = new ArrayList<Block>();
+        for (Block block : blocks) {
+            if (block.getLow(vertical) < cut) {
+                before.add(block);
+            } else {
+                after.add(block);
+            }
+        }
+        order(before, result);
+        order(after, result);
+    }
+
+    /**
+     * The widest gap in the projection of <code>blocks</code> as {gap,
+     * position} or null.
+     */
+    private float[] findCut(List<Block> blocks, final boolean vertical) {
+        Block[] sorted = blocks.toArray(new Block[blocks.size()]);
+        Arrays.sort(sorted, new Comparator<Block>() {
+            @Override
+            public int compare(Block o1, Block o2) {
+                return Float.compare(o1.getLow(vertical), o2.getLow(vertical));
+            }
+        });
+        float[] result = null;
+        float high = sorted[0].getHigh(vertical);
+        for (int i = 1; i < sorted.length; i++) {
+            float low = sorted[i].getLow(vertical);
+            float gap = low - high;
+            if (gap > 0 && (result == null || gap > result[0])) {
+                result = new float[]{gap, low};
+            }
+            high = Math.max(high, sorted[i].getHigh(vertical));
+        }
+        return result;
+    }
+}
@@ -0,0 +1,459 @@
+/*
+ * intarsys consulting gmbh
+ * all rights reserved
+ *
+ */
+package de.intarsys.pdf.content.text;
+
+import de.intarsys.pdf.content.ICSInterpreter;
+import de.intarsys.pdf.font.PDGlyphs;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A text search utility for many search strings at once.
+ * <p>
+ * All search strings are compiled into an Aho-Corasick automaton, so the
+ * glyph stream is scanned once, independent of the number of search
+ * strings. Case is folded if requested and any run of whitespace (including
+ * the gaps detected between glyphs) matches a single space.
+ * <p>
+ * Each occurrence of each search string is reported as a
+ * {@link CSTextSearchHit}, overlapping occurrences included.
+ */
+public class CSMultiTextSearcher extends CSCharacterParser {
+
+    private static final int ROOT = 0;
+
+    private static final long NO_EDGE = -1;
+
+    private static final int INITIAL_STATES = 64;
+
+    /**
+     * The transition keys, (state << 16) | char, open addressing
+     */
+    private long[] edgeKeys;
+
+    private int edgeCount;
+
+    private int[] edgeTargets;
+
+    /**
+     * The failure transition for each state
+     */
+    private int[] fail;
+
+    /**
+     * The history of the characters scanned, for hit geometry and context
+     */
+    private char[] historyChars;
+
+    private int historyMask;
+
+    private float[] historyRects;
+
+    private final List<CSTextSearchHit> hits = new ArrayList<CSTextSearchHit>();
+
+    private boolean ignoreCase = true;
+
+    private boolean lastWasSpace;
+
+    /**
+     * The next pattern ending in the same state
+     */
+    private int[] nextPattern;
+
+    /**
+     * The first pattern ending in each state or -1
+     */
+    private int[] output;
+
+    /**
+     * The next state on the failure chain with an output or -1
+     */
+    private int[] outputLink;
+
+    private int[] patternLengths;
+
+    private final List<CSTextSearchHit> pending = new ArrayList<CSTextSearchHit>();
+
+    private final List<StringBuilder> pendingSuffixes = new ArrayList<StringBuilder>();
+
+    private long position;
+
+    private final Rectangle2D.Float rect = new Rectangle2D.Float();
+
+    private final List<String> searchStrings = new ArrayList<String>();
+
+    private int state;
+
+    private int stateCount;
+
+    private int[] stateDepth;
+
+    private char[] stateLabel;
+
+    private int[] stateParent;
+
+    public CSMultiTextSearcher() {
+        super();
+    }
+
+    /**
+     * Add a string to search for.
+     * <p>
+     * Changes take effect when the device is opened the next time.
+     *
+     * @param searchString The string to search for
+     */
+    public void addSearchString(String searchString) {
+        searchStrings.add(searchString);
+        edgeKeys = null;
+    }
+
+    protected void addTransition(int from, char c, int to) {
+        if ((edgeCount + 1) * 2 > edgeKeys.length) {
+            long[] oldKeys = edgeKeys;
+            int[] oldTargets = edgeTargets;
+            edgeKeys = new long[oldKeys.length * 2];
+            Arrays.fill(edgeKeys, NO_EDGE);
+            edgeTargets = new int[oldKeys.length * 2];
+            edgeCount = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != NO_EDGE) {
+                    addTransition((int) (oldKeys[i] >>> 16), (char) oldKeys[i], oldTargets[i]);
+                }
+            }
+        }
+        long key = ((long) from << 16) | c;
+        int mask = edgeKeys.length - 1;
+        int index = hash(key) & mask;
+        while (edgeKeys[index] != NO_EDGE) {
+            index = (index + 1) & mask;
+        }
+        edgeKeys[index] = key;
+        edgeTargets[index] = to;
+        edgeCount++;
+    }
+
+    protected void check(char c, float x, float y, float w, float h) {
+        if (c == 0 || Character.isWhitespace(c)) {
+            if (lastWasSpace) {
+                return;
+            }
+            c = ' ';
+            lastWasSpace = true;
+        } else {
+            lastWasSpace = false;
+        }
+        for (int i = pending.size() - 1; i >= 0; i--) {
+            StringBuilder suffix = pendingSuffixes.get(i);
+            suffix.append(c);
+            if (suffix.length() >= CSTextSearcher.FLOATING_CONTEXT_LENGTH) {
+                CSTextSearchHit hit = pending.remove(i);
+                pendingSuffixes.remove(i);
+                hit.setSuffix(suffix.toString());
+            }
+        }
+        int index = (int) (position & historyMask);
+        historyChars[index] = c;
+        historyRects[index * 4] = x;
+        historyRects[index * 4 + 1] = y;
+        historyRects[index * 4 + 2] = w;
+        historyRects[index * 4 + 3] = h;
+        position++;
+        char folded = fold(c);
+        int current = state;
+        while (true) {
+            int next = getTransition(current, folded);
+            if (next >= 0) {
+                current = next;
+                break;
+            }
+            if (current == ROOT) {
+                break;
+            }
+            current = fail[current];
+        }
+        state = current;
+        int match = output[current] >= 0 ? current : outputLink[current];
+        while (match >= 0) {
+            for (int pattern = output[match]; pattern >= 0; pattern = nextPattern[pattern]) {
+                report(pattern);
+            }
+            match = outputLink[match];
+        }
+    }
+
+    /**
+     * Build the automaton from the search strings.
+     */
+    protected void compile() {
+        List<String> patterns = new ArrayList<String>();
+        int total = 1;
+        int maxLength = 0;
+        for (String searchString : searchStrings) {
+            String pattern = normalize(searchString);
+            patterns.add(pattern);
+            total += pattern.length();
+            maxLength = Math.max(maxLength, pattern.length());
+        }
+        int capacity = Math.max(INITIAL_STATES, total);
+        fail = new int[capacity];
+        output = new int[capacity];
+        outputLink = new int[capacity];
+        stateDepth = new int[capacity];
+        stateLabel = new char[capacity];
+        stateParent = new int[capacity];
+        Arrays.fill(output, -1);
+        Arrays.fill(outputLink, -1);
+        int edgeCapacity = 16;
+        while (edgeCapacity < total * 2) {
+            edgeCapacity <<= 1;
+        }
+        edgeKeys = new long[edgeCapacity];
+        Arrays.fill(edgeKeys, NO_EDGE);
+        edgeTargets = new int[edgeCapacity];
+        edgeCount = 0;
+        stateCount = 1;
+        patternLengths = new int[patterns.size()];
+        nextPattern = new int[patterns.size()];
+        // the trie
+        for (int p = 0; p < patterns.size(); p++) {
+            String pattern = patterns.get(p);
+            patternLengths[p] = pattern.length();
+            nextPattern[p] = -1;
+            if (pattern.length() == 0) {
+                continue;
+            }
+            int current = ROOT;
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = pattern.charAt(i);
+                int next = getTransition(current, c);
+                if (next < 0) {
+                    next = stateCount++;
+                    stateDepth[next] = i + 1;
+                    stateLabel[next] = c;
+                    stateParent[next] = current;
+                    addTransition(current, c, next);
+                }
+                current = next;
+            }
+            nextPattern[p] = output[current];
+            output[current] = p;
+        }
+        // failure and output links, in breadth first order
+        int[] byDepth = new int[stateCount];
+        int[] depthStart = new int[maxLength + 2];
+        for (int s = 1; s < stateCount; s++) {
+            depthStart[stateDepth[s] + 1]++;
+        }
+        for (int d = 1; d < depthStart.length; d++) {
+            depthStart[d] += depthStart[d - 1];
+        }
+        for (int s = 1; s < stateCount; s++) {
+            byDepth[depthStart[stateDepth[s]]++] = s;
+        }
+        fail[ROOT] = ROOT;
+        for (int i = 0; i < stateCount - 1; i++) {
+            int s = byDepth[i];
+            int parent = stateParent[s];
+            int target = ROOT;
+            if (parent != ROOT) {
+                int current = fail[parent];
+                while (true) {
+                    int next = getTransition(current, stateLabel[s]);
+                    if (next >= 0) {
+                        target = next;
+                        break;
+                    }
+                    if (current == ROOT) {
+                        break;
+                    }
+                    current = fail[current];
+                }
+            }
+            fail[s] = target;
+            outputLink[s] = output[target] >= 0 ? target : outputLink[target];
+        }
+        int historySize = 1;
+        while (historySize < CSTextSearcher.FLOATING_CONTEXT_LENGTH + maxLength) {
+            historySize <<= 1;
+        }
+        historyChars = new char[historySize];
+        historyRects = new float[historySize * 4];
+        historyMask = historySize - 1;
+    }
+
+    protected char fold(char c) {
+        if (ignoreCase) {
+            return Character.toLowerCase(c);
+        }
+        return c;
+    }
+
+    /**
+     * All hits found since the device was opened.
+     *
+     * @return All hits found since the device was opened.
+     */
+    public List<CSTextSearchHit> getHits() {
+        for (int i = 0; i < pending.size(); i++) {
+            pending.get(i).setSuffix(pendingSuffixes.get(i).toString());
+        }
+        pending.clear();
+        pendingSuffixes.clear();
+        return hits;
+    }
+
+    public List<String> getSearchStrings() {
+        return Collections.unmodifiableList(searchStrings);
+    }
+
+    protected int getTransition(int from, char c) {
+        long key = ((long) from << 16) | c;
+        int mask = edgeKeys.length - 1;
+        int index = hash(key) & mask;
+        while (true) {
+            long current = edgeKeys[index];
+            if (current == key) {
+                return edgeTargets[index];
+            }
+            if (current == NO_EDGE) {
+                return -1;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    protected int hash(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
+    public boolean isIgnoreCase() {
+        return ignoreCase;
+    }
+
+    /**
+     * The search form of <code>value</code>: whitespace runs collapsed to a
+     * single space, trimmed and case folded if requested.
+     */
+    protected String normalize(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        boolean space = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 0 || Character.isWhitespace(c)) {
+                if (!space) {
+                    sb.append(' ');
+                    space = true;
+                }
+            } else {
+                sb.append(fold(c));
+                space = false;
+            }
+        }
+        if (space && sb.length() > 0) {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.text.CSCharacterParser#onCharacterFound(de.intarsys.pdf.font.PDGlyphs,
+     * java.awt.geom.Rectangle2D)
+     */
+    @Override
+    protected void onCharacterFound(PDGlyphs glyphs, Rectangle2D charRect) {
+        char[] chars = glyphs.getChars();
+        if (chars == null) {
+            chars = CHARS_SPACE;
+        }
+        if (isGap()) {
+            check(' ', (int) lastStartX, (int) lastStartY, 0, 0);
+        }
+        float x = (float) charRect.getX();
+        float y = (float) charRect.getY();
+        float w = (float) charRect.getWidth();
+        float h = (float) charRect.getHeight();
+        for (int i = 0; i < chars.length; i++) {
+            check(chars[i], x, y, w, h);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.CSDeviceAdapter#open(de.intarsys.pdf.content.ICSInterpreter)
+     */
+    @Override
+    public void open(ICSInterpreter pInterpreter) {
+        super.open(pInterpreter);
+        if (edgeKeys == null) {
+            compile();
+        }
+        hits.clear();
+        pending.clear();
+        pendingSuffixes.clear();
+        state = ROOT;
+        position = 0;
+        lastWasSpace = true;
+    }
+
+    protected void report(int pattern) {
+        int length = patternLengths[pattern];
+        long start = position - length;
+        long prefixStart = Math.max(0, Math.max(start - CSTextSearcher.FLOATING_CONTEXT_LENGTH,
+                                                position - historyChars.length));
+        CSTextSearchHit hit = new CSTextSearchHit();
+        hit.setSearchString(searchStrings.get(pattern));
+        StringBuilder prefix = new StringBuilder((int) (start - prefixStart));
+        for (long i = prefixStart; i < start; i++) {
+            prefix.append(historyChars[(int) (i & historyMask)]);
+        }
+        hit.setPrefix(prefix.toString());
+        for (long i = start; i < position; i++) {
+            int index = (int) (i & historyMask);
+            rect.setRect(historyRects[index * 4],
+                         historyRects[index * 4 + 1],
+                         historyRects[index * 4 + 2],
+                         historyRects[index * 4 + 3]);
+            hit.add(historyChars[index], rect);
+        }
+        hits.add(hit);
+        pending.add(hit);
+        pendingSuffixes.add(new StringBuilder());
+    }
+
+    /**
+     * Set case folding.
+     * <p>
+     * Changes take effect when the device is opened the next time.
+     *
+     * @param ignoreCase true to ignore case
+     */
+    public void setIgnoreCase(boolean ignoreCase) {
+        this.ignoreCase = ignoreCase;
+        edgeKeys = null;
+    }
+
+    /**
+     * Replace the strings to search for.
+     * <p>
+     * Changes take effect when the device is opened the next time.
+     *
+     * @param searchStrings The strings to search for
+     */
+    public void setSearchStrings(List<String> searchStrings) {
+        this.searchStrings.clear();
+        this.searchStrings.addAll(searchStrings);
+        edgeKeys = null;
+    }
+}
@@ -6,11 +6,8 @@
 package de.intarsys.pdf.content.text;
 
 import de.intarsys.pdf.content.ICSInterpreter;
-import de.intarsys.pdf.cos.COSName;
-import de.intarsys.pdf.font.PDFont;
 import de.intarsys.pdf.font.PDGlyphs;
 
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 
 /**
@@ -20,10 +17,6 @@ public class CSTextExtractor extends CSCharacterParser {
 
     private StringBuilder content;
 
-    private double maxDX = 5;
-
-    private double maxDY = 5;
-
     private void append(char c) {
         if (c > 0) {
             content.append(c);
@@ -48,7 +41,7 @@ public class CSTextExtractor extends CSCharacterParser {
     protected void onCharacterFound(PDGlyphs glyphs, Rectangle2D rect) {
         char[] chars = glyphs.getChars();
         if (chars == null) {
-            chars = new char[]{' '};
+            chars = CHARS_SPACE;
         }
 
         double dX = lastStopX - lastStartX;
@@ -74,24 +67,4 @@ public class CSTextExtractor extends CSCharacterParser {
         super.open(pInterpreter);
         content = new StringBuilder();
     }
-
-    @Override
-    public void textSetFont(COSName name, PDFont font, float size) {
-        super.textSetFont(name, font, size);
-        AffineTransform tx;
-        tx = (AffineTransform) getDeviceTransform().clone();
-        tx.concatenate(textState.globalTransform);
-        maxDX = textState.fontSize * 0.2 * tx.getScaleX();
-        maxDY = textState.fontSize * 0.6 * tx.getScaleY();
-    }
-
-    @Override
-    public void textSetTransform(float a, float b, float c, float d, float e, float f) {
-        super.textSetTransform(a, b, c, d, e, f);
-        AffineTransform tx;
-        tx = (AffineTransform) getDeviceTransform().clone();
-        tx.concatenate(textState.globalTransform);
-        maxDX = textState.fontSize * 0.2 * tx.getScaleX();
-        maxDY = textState.fontSize * 0.6 * tx.getScaleY();
-    }
 }
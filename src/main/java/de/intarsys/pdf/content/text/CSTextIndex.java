@@ -0,0 +1,291 @@
+/*
+ * intarsys consulting gmbh
+ * all rights reserved
+ *
+ */
+package de.intarsys.pdf.content.text;
+
+import de.intarsys.pdf.content.CSDeviceBasedInterpreter;
+import de.intarsys.pdf.content.CSError;
+import de.intarsys.pdf.content.CSWarning;
+import de.intarsys.pdf.content.ICSExceptionHandler;
+import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.pdf.pd.IPageProcessor;
+import de.intarsys.pdf.pd.PDApplicationData;
+import de.intarsys.pdf.pd.PDDocument;
+import de.intarsys.pdf.pd.PDPage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+/**
+ * A text and position index for a document.
+ * <p>
+ * The text of all pages is extracted once. Searches and hit highlighting are
+ * answered from the index without evaluating the content streams again.
+ * <p>
+ * The index can be written to a sidecar file or stored with the document
+ * as {@link PDApplicationData}. It does not track changes to the document,
+ * the caller must rebuild it when the page content changes.
+ */
+public class CSTextIndex {
+
+    /**
+     * The name of the {@link PDApplicationData} holding the index.
+     */
+    public static final String APPLICATION_DATA_NAME = "de.intarsys.pdf.TextIndex"; //$NON-NLS-1$
+
+    private static final int MAGIC = 0x43535449; // "CSTI"
+
+    /**
+     * The maximum number of characters per page, so that the box count does
+     * not overflow.
+     */
+    private static final int MAX_PAGE_LENGTH = Integer.MAX_VALUE / 4;
+
+    private static final int VERSION = 1;
+
+    private static final ICSExceptionHandler ignoreExceptionHandler = new ICSExceptionHandler() {
+
+        @Override
+        public void error(CSError error) {
+            // ignore
+        }
+
+        @Override
+        public void warning(CSWarning warning) {
+            // ignore
+        }
+    };
+
+    /**
+     * Build the index for all pages of <code>doc</code>.
+     *
+     * @param doc The document to index
+     * @return The new index
+     */
+    public static CSTextIndex create(PDDocument doc) {
+        List<CSTextIndexPage> pages = new ArrayList<CSTextIndexPage>();
+        CSTextIndexBuilder builder = new CSTextIndexBuilder();
+        CSDeviceBasedInterpreter interpreter = new CSDeviceBasedInterpreter(null, builder);
+        interpreter.setExceptionHandler(ignoreExceptionHandler);
+        for (PDPage page = doc.getPageTree().getFirstPage(); page != null; page = page.getNextPage()) {
+            interpreter.processStream(page.cosGetContents(), page.getResources());
+            pages.add(builder.createPage());
+        }
+        return new CSTextIndex(pages);
+    }
+
+    /**
+     * Build the index for all pages of <code>doc</code>, extracting the pages
+     * in parallel.
+     *
+     * @param doc      The document to index
+     * @param executor The executor to run the page extraction
+     * @return The new index
+     * @throws IOException
+     */
+    public static CSTextIndex create(PDDocument doc, ExecutorService executor) throws IOException {
+        List<CSTextIndexPage> pages = doc.processPages(executor, new IPageProcessor<CSTextIndexPage>() {
+            @Override
+            public CSTextIndexPage process(PDPage page) throws Exception {
+                return createPage(page);
+            }
+        });
+        return new CSTextIndex(pages);
+    }
+
+    /**
+     * Read the index stored with <code>doc</code> or null.
+     *
+     * @param doc The document
+     * @return The index stored with <code>doc</code> or null.
+     * @throws IOException
+     */
+    public static CSTextIndex createFromDocument(PDDocument doc) throws IOException {
+        PDApplicationData data = doc.getApplicationData(APPLICATION_DATA_NAME);
+        if (data == null) {
+            return null;
+        }
+        COSStream stream = data.cosGetData().asStream();
+        if (stream == null) {
+            return null;
+        }
+        CSTextIndex result = createFromStream(new ByteArrayInputStream(stream.getDecodedBytes()));
+        if (result.getPageCount() != doc.getPageTree().getCount()) {
+            // stale
+            return null;
+        }
+        return result;
+    }
+
+    /**
+     * Read an index written by {@link #write(OutputStream)}.
+     *
+     * @param is The stream to read from
+     * @return The index read
+     * @throws IOException
+     */
+    public static CSTextIndex createFromStream(InputStream is) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(is));
+        if (in.readInt() != MAGIC) {
+            throw new IOException("not a text index"); //$NON-NLS-1$
+        }
+        int version = in.readInt();
+        if (version != VERSION) {
+            throw new IOException("unsupported text index version " + version); //$NON-NLS-1$
+        }
+        int pageCount = readLength(in, Integer.MAX_VALUE);
+        // sizes are checked against the data actually present before large
+        // arrays are allocated, a corrupt index must not exhaust memory
+        List<CSTextIndexPage> pages = new ArrayList<CSTextIndexPage>(Math.min(pageCount, 1024));
+        for (int p = 0; p < pageCount; p++) {
+            int length = readLength(in, MAX_PAGE_LENGTH);
+            StringBuilder chars = new StringBuilder(Math.min(length, 4096));
+            for (int i = 0; i < length; i++) {
+                chars.append(in.readChar());
+            }
+            float[] boxes = new float[length * 4];
+            for (int i = 0; i < boxes.length; i++) {
+                boxes[i] = in.readFloat();
+            }
+            int[] trigrams = new int[readLength(in, Math.max(0, length - 2))];
+            for (int i = 0; i < trigrams.length; i++) {
+                trigrams[i] = in.readInt();
+            }
+            pages.add(new CSTextIndexPage(chars.toString(), boxes, trigrams));
+        }
+        return new CSTextIndex(pages);
+    }
+
+    /**
+     * Extract the index data for a single page.
+     *
+     * @param page The page
+     * @return The index data for <code>page</code>
+     */
+    public static CSTextIndexPage createPage(PDPage page) {
+        CSTextIndexBuilder builder = new CSTextIndexBuilder();
+        CSDeviceBasedInterpreter interpreter = new CSDeviceBasedInterpreter(null, builder);
+        interpreter.setExceptionHandler(ignoreExceptionHandler);
+        interpreter.processStream(page.cosGetContents(), page.getResources());
+        return builder.createPage();
+    }
+
+    protected static int readLength(DataInputStream in, int max) throws IOException {
+        int length = in.readInt();
+        if (length < 0 || length > max) {
+            throw new IOException("corrupt text index, invalid length " + length); //$NON-NLS-1$
+        }
+        return length;
+    }
+
+    private final List<CSTextIndexPage> pages;
+
+    protected CSTextIndex(List<CSTextIndexPage> pages) {
+        super();
+        this.pages = pages;
+    }
+
+    /**
+     * The indexes of the pages that contain <code>query</code>.
+     *
+     * @param query      The string to search for
+     * @param ignoreCase true to ignore case
+     * @return The indexes of the pages that contain <code>query</code>.
+     */
+    public int[] findPages(String query, boolean ignoreCase) {
+        int[] result = new int[pages.size()];
+        int size = 0;
+        for (int i = 0; i < pages.size(); i++) {
+            if (pages.get(i).contains(query, ignoreCase)) {
+                result[size++] = i;
+            }
+        }
+        int[] trimmed = new int[size];
+        System.arraycopy(result, 0, trimmed, 0, size);
+        return trimmed;
+    }
+
+    public CSTextIndexPage getPage(int index) {
+        return pages.get(index);
+    }
+
+    public int getPageCount() {
+        return pages.size();
+    }
+
+    public List<CSTextIndexPage> getPages() {
+        return Collections.unmodifiableList(pages);
+    }
+
+    /**
+     * All occurrences of <code>query</code> on the page with
+     * <code>index</code>.
+     *
+     * @param index      The page index
+     * @param query      The string to search for
+     * @param ignoreCase true to ignore case
+     * @return All occurrences of <code>query</code> on the page.
+     */
+    public List<CSTextSearchHit> search(int index, String query, boolean ignoreCase) {
+        return pages.get(index).search(query, ignoreCase);
+    }
+
+    /**
+     * Store the index with <code>doc</code>.
+     * <p>
+     * The index becomes part of the document when it is saved.
+     *
+     * @param doc The document
+     * @throws IOException
+     */
+    public void storeIn(PDDocument doc) throws IOException {
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        write(os);
+        COSStream stream = COSStream.create(null);
+        stream.setDecodedBytes(os.toByteArray());
+        PDApplicationData data = (PDApplicationData) PDApplicationData.META.createNew();
+        data.cosSetData(stream);
+        doc.setApplicationData(APPLICATION_DATA_NAME, data);
+    }
+
+    /**
+     * Write the index, for example to a sidecar file.
+     *
+     * @param os The stream to write to
+     * @throws IOException
+     */
+    public void write(OutputStream os) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(pages.size());
+        for (CSTextIndexPage page : pages) {
+            String text = page.getText();
+            out.writeInt(text.length());
+            out.writeChars(text);
+            float[] boxes = page.getBoxes();
+            for (int i = 0; i < boxes.length; i++) {
+                out.writeFloat(boxes[i]);
+            }
+            int[] trigrams = page.getTrigrams();
+            out.writeInt(trigrams.length);
+            for (int i = 0; i < trigrams.length; i++) {
+                out.writeInt(trigrams[i]);
+            }
+        }
+        out.flush();
+    }
+}
@@ -0,0 +1,103 @@
+/*
+ * intarsys consulting gmbh
+ * all rights reserved
+ *
+ */
+package de.intarsys.pdf.content.text;
+
+import de.intarsys.pdf.content.ICSInterpreter;
+import de.intarsys.pdf.font.PDGlyphs;
+
+import java.awt.geom.Rectangle2D;
+import java.util.Arrays;
+
+/**
+ * Collect the text of a page for a {@link CSTextIndexPage}.
+ * <p>
+ * Whitespace is normalized as it is done for searching, a gap between glyphs
+ * is recorded as a single space.
+ */
+public class CSTextIndexBuilder extends CSCharacterParser {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private float[] boxes = new float[INITIAL_CAPACITY * 4];
+
+    private boolean lastWasSpace = true;
+
+    private final StringBuilder text = new StringBuilder(INITIAL_CAPACITY);
+
+    public CSTextIndexBuilder() {
+        super();
+    }
+
+    protected void append(char c, float x, float y, float w, float h) {
+        if (c == 0 || Character.isWhitespace(c)) {
+            if (lastWasSpace) {
+                return;
+            }
+            c = ' ';
+            lastWasSpace = true;
+        } else {
+            lastWasSpace = false;
+        }
+        int index = text.length();
+        if ((index + 1) * 4 > boxes.length) {
+            boxes = Arrays.copyOf(boxes, boxes.length * 2);
+        }
+        text.append(c);
+        boxes[index * 4] = x;
+        boxes[index * 4 + 1] = y;
+        boxes[index * 4 + 2] = w;
+        boxes[index * 4 + 3] = h;
+    }
+
+    /**
+     * The index data for the text collected since the device was opened.
+     *
+     * @return The index data for the text collected.
+     */
+    public CSTextIndexPage createPage() {
+        int length = text.length();
+        if (length > 0 && text.charAt(length - 1) == ' ') {
+            length--;
+        }
+        return new CSTextIndexPage(text.substring(0, length), Arrays.copyOf(boxes, length * 4));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.text.CSCharacterParser#onCharacterFound(de.intarsys.pdf.font.PDGlyphs,
+     * java.awt.geom.Rectangle2D)
+     */
+    @Override
+    protected void onCharacterFound(PDGlyphs glyphs, Rectangle2D rect) {
+        char[] chars = glyphs.getChars();
+        if (chars == null) {
+            chars = CHARS_SPACE;
+        }
+        if (isGap()) {
+            append(' ', (int) lastStartX, (int) lastStartY, 0, 0);
+        }
+        float x = (float) rect.getX();
+        float y = (float) rect.getY();
+        float w = (float) rect.getWidth();
+        float h = (float) rect.getHeight();
+        for (int i = 0; i < chars.length; i++) {
+            append(chars[i], x, y, w, h);
+        }
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.CSDeviceAdapter#open(de.intarsys.pdf.content.ICSInterpreter)
+     */
+    @Override
+    public void open(ICSInterpreter pInterpreter) {
+        super.open(pInterpreter);
+        text.setLength(0);
+        lastWasSpace = true;
+    }
+}
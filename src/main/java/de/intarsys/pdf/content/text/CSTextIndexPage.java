@@ -0,0 +1,232 @@
+/*
+ * intarsys consulting gmbh
+ * all rights reserved
+ *
+ */
+package de.intarsys.pdf.content.text;
+
+import java.awt.geom.Rectangle2D;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The indexed text of a single page.
+ * <p>
+ * The text is held normalized (whitespace runs collapsed to a single space)
+ * together with the box of each character and the sorted trigrams of the
+ * case folded text. Searches are answered from this data alone, the page
+ * content is not evaluated again.
+ */
+public class CSTextIndexPage {
+
+    /**
+     * Collapse whitespace runs to a single space, trim and optionally fold
+     * case.
+     *
+     * @param value      The string to normalize
+     * @param ignoreCase true to fold case
+     * @return The normalized string
+     */
+    public static String normalize(String value, boolean ignoreCase) {
+        StringBuilder sb = new StringBuilder(value.length());
+        boolean space = true;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == 0 || Character.isWhitespace(c)) {
+                if (!space) {
+                    sb.append(' ');
+                    space = true;
+                }
+            } else {
+                sb.append(ignoreCase ? Character.toLowerCase(c) : c);
+                space = false;
+            }
+        }
+        if (space && sb.length() > 0) {
+            sb.setLength(sb.length() - 1);
+        }
+        return sb.toString();
+    }
+
+    protected static int trigram(CharSequence text, int index) {
+        return (text.charAt(index) * 31 + text.charAt(index + 1)) * 31 + text.charAt(index + 2);
+    }
+
+    /**
+     * The sorted, distinct trigrams of <code>folded</code>.
+     *
+     * @param folded The case folded text
+     * @return The sorted, distinct trigrams of <code>folded</code>.
+     */
+    protected static int[] trigrams(CharSequence folded) {
+        if (folded.length() < 3) {
+            return new int[0];
+        }
+        int[] result = new int[folded.length() - 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = trigram(folded, i);
+        }
+        Arrays.sort(result);
+        int size = 0;
+        for (int i = 0; i < result.length; i++) {
+            if (size == 0 || result[size - 1] != result[i]) {
+                result[size++] = result[i];
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /**
+     * x, y, width, height for each character of text
+     */
+    private final float[] boxes;
+
+    /**
+     * The case folded text, created on demand
+     */
+    private volatile String folded;
+
+    private final String text;
+
+    private final int[] trigrams;
+
+    public CSTextIndexPage(String text, float[] boxes) {
+        this(text, boxes, null);
+    }
+
+    protected CSTextIndexPage(String text, float[] boxes, int[] trigrams) {
+        super();
+        if (boxes.length != text.length() * 4) {
+            throw new IllegalArgumentException("box count does not match text length"); //$NON-NLS-1$
+        }
+        this.text = text;
+        this.boxes = boxes;
+        this.trigrams = trigrams == null ? trigrams(getFolded()) : trigrams;
+    }
+
+    /**
+     * true if the page contains <code>query</code>.
+     *
+     * @param query      The string to search for
+     * @param ignoreCase true to ignore case
+     * @return true if the page contains <code>query</code>.
+     */
+    public boolean contains(String query, boolean ignoreCase) {
+        String foldedQuery = normalize(query, true);
+        if (foldedQuery.length() == 0 || !mayContain(foldedQuery)) {
+            return false;
+        }
+        if (ignoreCase) {
+            return getFolded().contains(foldedQuery);
+        }
+        return text.contains(normalize(query, false));
+    }
+
+    protected CSTextSearchHit createHit(String query, int start, int end) {
+        CSTextSearchHit hit = new CSTextSearchHit();
+        hit.setSearchString(query);
+        int prefixStart = Math.max(0, start - CSTextSearcher.FLOATING_CONTEXT_LENGTH);
+        hit.setPrefix(text.substring(prefixStart, start));
+        Rectangle2D.Float rect = new Rectangle2D.Float();
+        for (int i = start; i < end; i++) {
+            rect.setRect(boxes[i * 4], boxes[i * 4 + 1], boxes[i * 4 + 2], boxes[i * 4 + 3]);
+            hit.add(text.charAt(i), rect);
+        }
+        int suffixEnd = Math.min(text.length(), end + CSTextSearcher.FLOATING_CONTEXT_LENGTH);
+        hit.setSuffix(text.substring(end, suffixEnd));
+        return hit;
+    }
+
+    /**
+     * The box of the character at <code>index</code> in page device space.
+     *
+     * @param index The character index
+     * @return The box of the character at <code>index</code>
+     */
+    public Rectangle2D getBox(int index) {
+        return new Rectangle2D.Float(boxes[index * 4], boxes[index * 4 + 1], boxes[index * 4 + 2],
+                                     boxes[index * 4 + 3]);
+    }
+
+    protected float[] getBoxes() {
+        return boxes;
+    }
+
+    protected String getFolded() {
+        String result = folded;
+        if (result == null) {
+            // char by char, so indexes stay aligned with the text
+            char[] chars = text.toCharArray();
+            for (int i = 0; i < chars.length; i++) {
+                chars[i] = Character.toLowerCase(chars[i]);
+            }
+            result = new String(chars);
+            folded = result;
+        }
+        return result;
+    }
+
+    /**
+     * The normalized text of the page.
+     *
+     * @return The normalized text of the page.
+     */
+    public String getText() {
+        return text;
+    }
+
+    protected int[] getTrigrams() {
+        return trigrams;
+    }
+
+    /**
+     * true if the page may contain <code>foldedQuery</code>, false if it
+     * certainly does not.
+     *
+     * @param foldedQuery The normalized and case folded query
+     * @return true if the page may contain <code>foldedQuery</code>
+     */
+    public boolean mayContain(String foldedQuery) {
+        if (foldedQuery.length() > text.length()) {
+            return false;
+        }
+        for (int i = 0; i + 3 <= foldedQuery.length(); i++) {
+            if (Arrays.binarySearch(trigrams, trigram(foldedQuery, i)) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * All occurrences of <code>query</code> on the page.
+     *
+     * @param query      The string to search for
+     * @param ignoreCase true to ignore case
+     * @return All occurrences of <code>query</code> on the page.
+     */
+    public List<CSTextSearchHit> search(String query, boolean ignoreCase) {
+        String foldedQuery = normalize(query, true);
+        if (foldedQuery.length() == 0 || !mayContain(foldedQuery)) {
+            return Collections.emptyList();
+        }
+        String target;
+        String pattern;
+        if (ignoreCase) {
+            target = getFolded();
+            pattern = foldedQuery;
+        } else {
+            target = text;
+            pattern = normalize(query, false);
+        }
+        List<CSTextSearchHit> result = new ArrayList<CSTextSearchHit>();
+        int index = target.indexOf(pattern);
+        while (index >= 0) {
+            result.add(createHit(query, index, index + pattern.length()));
+            index = target.indexOf(pattern, index + 1);
+        }
+        return result;
+    }
+}
@@ -20,6 +20,8 @@ public class CSTextSearchHit {
 
     private String suffix;
 
+    private String searchString;
+
     public CSTextSearchHit() {
         super();
         buffer = new StringBuilder();
@@ -42,6 +44,15 @@ public class CSTextSearchHit {
         return rect;
     }
 
+    /**
+     * The search string that produced this hit, if known.
+     *
+     * @return The search string that produced this hit or null.
+     */
+    public String getSearchString() {
+        return searchString;
+    }
+
     public String getSuffix() {
         return suffix;
     }
@@ -68,13 +79,17 @@ public class CSTextSearchHit {
             }
             i--;
         }
-        return prefix.substring(i);
+        return prefix.substring(Math.max(i, 0));
     }
 
     public void setPrefix(String prefix) {
         this.prefix = prefix;
     }
 
+    public void setSearchString(String searchString) {
+        this.searchString = searchString;
+    }
+
     public void setSuffix(String suffix) {
         this.suffix = suffix;
     }
@@ -6,11 +6,8 @@
 package de.intarsys.pdf.content.text;
 
 import de.intarsys.pdf.content.ICSInterpreter;
-import de.intarsys.pdf.cos.COSName;
-import de.intarsys.pdf.font.PDFont;
 import de.intarsys.pdf.font.PDGlyphs;
 
-import java.awt.geom.AffineTransform;
 import java.awt.geom.Rectangle2D;
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -35,16 +32,17 @@ public class CSTextSearcher extends CSCharacterParser {
 
     private boolean ignoreCase = true;
 
-    private double maxDX = 5;
-
-    private double maxDY = 5;
-
     private CSTextSearchCandidate nextCandidate;
 
     private ArrayList qualified = new ArrayList();
 
     private String searchString;
 
+    /**
+     * The box for a synthetic space, reused for each space.
+     */
+    private final Rectangle2D.Float spaceRect = new Rectangle2D.Float();
+
     protected String basicGetSearchString() {
         return basicSearchString;
     }
@@ -70,6 +68,7 @@ public class CSTextSearcher extends CSCharacterParser {
         }
         if (nextCandidate == null) {
             nextCandidate = new CSTextSearchCandidate(this);
+            nextCandidate.getHit().setSearchString(getSearchString());
         }
         if (nextCandidate.accept(foundChar, charRect)) {
             nextCandidate.setPrefix(getFloatingContextString());
@@ -116,18 +115,11 @@ public class CSTextSearcher extends CSCharacterParser {
     protected void onCharacterFound(PDGlyphs glyphs, Rectangle2D rect) {
         char[] chars = glyphs.getChars();
         if (chars == null) {
-            chars = new char[]{' '};
+            chars = CHARS_SPACE;
         }
 
-        double dX = lastStopX - lastStartX;
-        double dY = lastStopY - lastStartY;
-        if (Math.abs(dX) < maxDX) {
-            if (Math.abs(dY) >= maxDY) {
-                Rectangle2D spaceRect = new Rectangle2D.Float((int) lastStartX, (int) lastStartY, 0, 0);
-                check(' ', spaceRect);
-            }
-        } else {
-            Rectangle2D spaceRect = new Rectangle2D.Float((int) lastStartX, (int) lastStartY, 0, 0);
+        if (isGap()) {
+            spaceRect.setRect((int) lastStartX, (int) lastStartY, 0, 0);
             check(' ', spaceRect);
         }
         for (int i = 0; i < chars.length; i++) {
@@ -160,24 +152,4 @@ public class CSTextSearcher extends CSCharacterParser {
             basicSearchString = searchString;
         }
     }
-
-    @Override
-    public void textSetFont(COSName name, PDFont font, float size) {
-        super.textSetFont(name, font, size);
-        AffineTransform tx;
-        tx = (AffineTransform) getDeviceTransform().clone();
-        tx.concatenate(textState.globalTransform);
-        maxDX = textState.fontSize * 0.2 * tx.getScaleX();
-        maxDY = textState.fontSize * 0.6 * tx.getScaleY();
-    }
-
-    @Override
-    public void textSetTransform(float a, float b, float c, float d, float e, float f) {
-        super.textSetTransform(a, b, c, d, e, f);
-        AffineTransform tx;
-        tx = (AffineTransform) getDeviceTransform().clone();
-        tx.concatenate(textState.globalTransform);
-        maxDX = textState.fontSize * 0.2 * tx.getScaleX();
-        maxDY = textState.fontSize * 0.6 * tx.getScaleY();
-    }
 }
@@ -0,0 +1,65 @@
+/*
+ * intarsys consulting gmbh
+ * all rights reserved
+ *
+ */
+package de.intarsys.pdf.content.text;
+
+import java.awt.geom.Rectangle2D;
+
+/**
+ * A word found by the {@link CSLayoutTextExtractor}.
+ * <p>
+ * The bounds are given in device space. Words are numbered by block and line
+ * in reading order.
+ */
+public class CSTextWord {
+
+    private final int blockIndex;
+
+    private final Rectangle2D bounds;
+
+    private final int lineIndex;
+
+    private final String text;
+
+    public CSTextWord(String text, Rectangle2D bounds, int blockIndex, int lineIndex) {
+        super();
+        this.text = text;
+        this.bounds = bounds;
+        this.blockIndex = blockIndex;
+        this.lineIndex = lineIndex;
+    }
+
+    /**
+     * The index of the block containing the word in reading order.
+     *
+     * @return The index of the block containing the word in reading order.
+     */
+    public int getBlockIndex() {
+        return blockIndex;
+    }
+
+    public Rectangle2D getBounds() {
+        return bounds;
+    }
+
+    /**
+     * The index of the line containing the word in reading order, counted
+     * over all blocks.
+     *
+     * @return The index of the line containing the word in reading order.
+     */
+    public int getLineIndex() {
+        return lineIndex;
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
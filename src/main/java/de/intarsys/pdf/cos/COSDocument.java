@@ -47,6 +47,8 @@ import de.intarsys.tools.locator.ILocator;
 import de.intarsys.tools.locator.ILocatorSupport;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -668,6 +670,31 @@ public class COSDocument implements ICOSContainer, ICOSExceptionHandler, IAttrib
         triggerChangedLocator(oldValue, locator);
     }
 
+    /**
+     * Write the document to {@code outputStream} without changing its
+     * {@link ILocator}. The data is written sequentially, no random access to
+     * the destination is needed.
+     *
+     * @param outputStream The destination, not closed by this method.
+     * @param options      The write options
+     * @throws IOException
+     */
+    public void saveTo(OutputStream outputStream, Map options) throws IOException {
+        stDoc.saveTo(outputStream, options);
+    }
+
+    /**
+     * Write the document to {@code channel} without changing its
+     * {@link ILocator}.
+     *
+     * @param channel The destination, not closed by this method.
+     * @param options The write options
+     * @throws IOException
+     */
+    public void saveTo(WritableByteChannel channel, Map options) throws IOException {
+        stDoc.saveTo(channel, options);
+    }
+
     /**
      * This method should not be used by the application programmer. This is
      * called in the {@link COSObject} lifecycle to ensure internal consistency.
@@ -29,13 +29,20 @@
  */
 package de.intarsys.pdf.cos;
 
+import de.intarsys.pdf.filter.Filter;
 import de.intarsys.pdf.filter.FilterFactory;
+import de.intarsys.pdf.filter.ICompressionPolicy;
 import de.intarsys.pdf.filter.IFilter;
+import de.intarsys.pdf.st.STStreamRange;
 import de.intarsys.tools.collection.SingleObjectIterator;
 import de.intarsys.tools.file.FileTools;
+import de.intarsys.tools.stream.StreamTools;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.Map;
@@ -192,6 +199,12 @@ public class COSStream extends COSCompositeObject {
      */
     private byte[] encodedBytes;
 
+    /**
+     * The location of the physical byte stream in the document storage, as
+     * long as it is unchanged.
+     */
+    private STStreamRange encodedRange;
+
     protected COSStream() {
         super();
     }
@@ -263,9 +276,10 @@ public class COSStream extends COSCompositeObject {
      * @param dictionary The corresponding decode parameters
      */
     public void addFilter(int index, COSName name, COSDictionary dictionary) {
-        // be sure decoded stream is available
-        getDecodedBytes();
+        // be sure decoded stream is available, even if not cached
+        decodedBytes = getDecodedBytes();
         encodedBytes = null;
+        encodedRange = null;
         COSObject filters = getFilters();
         if (filters.isNull()) {
             getDict().put(DK_Filter, name);
@@ -361,6 +375,7 @@ public class COSStream extends COSCompositeObject {
     public void basicSetDecodedBytes(byte[] newBytes) {
         decodedBytes = newBytes;
         encodedBytes = null;
+        encodedRange = null;
     }
 
     /**
@@ -371,11 +386,26 @@ public class COSStream extends COSCompositeObject {
     public void basicSetEncodedBytes(byte[] newBytes) {
         encodedBytes = newBytes;
         decodedBytes = null;
+        encodedRange = null;
         int length = (encodedBytes == null) ? 0 : encodedBytes.length;
         // no update propagation, please!!
         getDict().basicPutSilent(DK_Length, COSInteger.create(length));
     }
 
+    /**
+     * Set the location of the streams physical content in the document
+     * storage. The content itself is read only when needed.
+     *
+     * @param range the location of the physical content for the stream
+     */
+    public void basicSetEncodedRange(STStreamRange range) {
+        encodedRange = range;
+        encodedBytes = null;
+        decodedBytes = null;
+        // no update propagation, please!!
+        getDict().basicPutSilent(DK_Length, COSInteger.create(range.getLength()));
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -405,6 +435,27 @@ public class COSStream extends COSCompositeObject {
         return result;
     }
 
+    /**
+     * Transfer the content of this to a freshly copied {@code result}.
+     *
+     * @param result The copy of this.
+     */
+    private void copyContentTo(COSStream result) {
+        if (encodedRange != null) {
+            // the copy may outlive our storage
+            try {
+                loadEncodedRange();
+            } catch (IOException e) {
+                handleException(new COSRuntimeException("error reading stream", e)); //$NON-NLS-1$
+            }
+        }
+        if (encodedBytes != null) {
+            result.setEncodedBytes(encodedBytes);
+        } else {
+            result.setDecodedBytes(decodedBytes);
+        }
+    }
+
     /**
      * A copy of this, bytes decoded.
      *
@@ -462,11 +513,7 @@ public class COSStream extends COSCompositeObject {
     public COSObject copyDeep(Map copied) {
         COSStream result = (COSStream) super.copyDeep(copied);
         result.setDict((COSDictionary) getDict().copyDeep(copied));
-        if (encodedBytes != null) {
-            result.setEncodedBytes(encodedBytes);
-        } else {
-            result.setDecodedBytes(decodedBytes);
-        }
+        copyContentTo(result);
         return result;
     }
 
@@ -479,11 +526,7 @@ public class COSStream extends COSCompositeObject {
     public COSObject copyShallow() {
         COSStream result = (COSStream) super.copyShallow();
         result.setDict((COSDictionary) getDict().copyShallow());
-        if (encodedBytes != null) {
-            result.setEncodedBytes(encodedBytes);
-        } else {
-            result.setDecodedBytes(decodedBytes);
-        }
+        copyContentTo(result);
         return result;
     }
 
@@ -496,11 +539,7 @@ public class COSStream extends COSCompositeObject {
     protected COSObject copySubGraph(Map copied) {
         COSStream result = (COSStream) super.copySubGraph(copied);
         result.setDict((COSDictionary) getDict().copySubGraph(copied));
-        if (encodedBytes != null) {
-            result.setEncodedBytes(encodedBytes);
-        } else {
-            result.setDecodedBytes(decodedBytes);
-        }
+        copyContentTo(result);
         return result;
     }
 
@@ -514,6 +553,7 @@ public class COSStream extends COSCompositeObject {
     protected byte[] doDecode() throws IOException {
         byte[] newBytes;
 
+        loadEncodedRange();
         if (isExternal() && isBytesArrayEmpty(encodedBytes)) {
             // reset the encodedbytes because of later null checks
             encodedBytes = null;
@@ -589,6 +629,17 @@ public class COSStream extends COSCompositeObject {
      * @throws IOException
      */
     protected void doEncode() throws IOException {
+        doEncode(null);
+    }
+
+    /**
+     * encode the filtered stream content using the filters defined in the
+     * /Filter entry in the stream dictionary in reverse order
+     *
+     * @param policy The compression policy or null for the default
+     * @throws IOException
+     */
+    protected void doEncode(ICompressionPolicy policy) throws IOException {
         if (decodedBytes == null) {
             return;
         }
@@ -605,7 +656,8 @@ public class COSStream extends COSCompositeObject {
 
         // encode
         if (filters instanceof COSName) {
-            encodedBytes = doEncode((COSName) filters, options.asDictionary(), decodedBytes, 0, decodedBytes.length);
+            encodedBytes =
+                    doEncode((COSName) filters, options.asDictionary(), decodedBytes, 0, decodedBytes.length, policy);
         } else {
             byte[] temp = decodedBytes;
             int length = decodedBytes.length;
@@ -616,7 +668,7 @@ public class COSStream extends COSCompositeObject {
                 }
 
                 COSName filter = ((COSArray) filters).get(i).asName();
-                temp = doEncode(filter, option, temp, 0, length);
+                temp = doEncode(filter, option, temp, 0, length, policy);
                 length = temp.length;
             }
             encodedBytes = temp;
@@ -636,10 +688,27 @@ public class COSStream extends COSCompositeObject {
      */
     protected byte[] doEncode(COSName filterName, COSDictionary options, byte[] bytes, int offset, int length)
             throws IOException {
+        return doEncode(filterName, options, bytes, offset, length, null);
+    }
+
+    /**
+     * Perform the encoding process of the underlying byte stream.
+     *
+     * @param filterName The name of a filter to use for this step.
+     * @param options    The options to use for the filter.
+     * @param bytes      The bytes to encode.
+     * @param offset     The offset to start.
+     * @param length     The length to be encoded.
+     * @param policy     The compression policy or null for the default
+     * @return The encoded bytes.
+     * @throws IOException
+     */
+    protected byte[] doEncode(COSName filterName, COSDictionary options, byte[] bytes, int offset, int length,
+                              ICompressionPolicy policy) throws IOException {
         if (bytes == null) {
             return new byte[0];
         }
-        IFilter filter = FilterFactory.get().createFilter(filterName, options);
+        IFilter filter = FilterFactory.get().createFilter(filterName, options, policy);
         filter.setStream(this);
         return filter.encode(bytes, offset, length);
     }
@@ -698,6 +767,9 @@ public class COSStream extends COSCompositeObject {
     public int getAnyLength() {
         int result = getLength();
         if (result == -1) {
+            if (encodedRange != null) {
+                return encodedRange.getLength();
+            }
             return encodedBytes.length;
         }
         return result;
@@ -706,19 +778,105 @@ public class COSStream extends COSCompositeObject {
     /**
      * The unfiltered (logical) stream content. It is not intended to manipulate
      * the byte array directly.
+     * <p>
+     * The content is cached, except for DCTDecode streams. A decoded JPEG
+     * image is many times the size of its data and decoding it is expensive,
+     * so each call decodes again. Use
+     * {@link de.intarsys.pdf.pd.PDImage#createJPEGDecoder()} to decode an
+     * image once, possibly at reduced resolution.
      *
      * @return The unfiltered (logical) stream content
      * @throws IOException
      */
     public byte[] getDecodedBytes() {
-        if (decodedBytes == null) {
-            try {
-                decodedBytes = doDecode();
-            } catch (IOException e) {
-                handleException(new COSRuntimeException("error decoding stream", e)); //$NON-NLS-1$
+        if (decodedBytes != null) {
+            return decodedBytes;
+        }
+        byte[] result = null;
+        try {
+            result = doDecode();
+        } catch (IOException e) {
+            handleException(new COSRuntimeException("error decoding stream", e)); //$NON-NLS-1$
+        }
+        if (!hasFilter(Filter.CN_Filter_DCTDecode) && !hasFilter(Filter.CN_Filter_DCT)) {
+            decodedBytes = result;
+        }
+        return result;
+    }
+
+    /**
+     * The unfiltered (logical) stream content as an {@link InputStream}.
+     * <p>
+     * Filters supporting it decode on the fly, so the decoded content is not
+     * held in memory as a whole. The decoded content is not cached, use
+     * {@link #getDecodedBytes()} if it is needed more than once. The caller
+     * must close the stream.
+     *
+     * @return The unfiltered (logical) stream content
+     * @throws IOException
+     */
+    public InputStream getDecodedStream() throws IOException {
+        if (decodedBytes != null) {
+            return new ByteArrayInputStream(decodedBytes);
+        }
+        loadEncodedRange();
+        if (isExternal() && isBytesArrayEmpty(encodedBytes)) {
+            // reset the encodedbytes because of later null checks
+            encodedBytes = null;
+            parseFKeyedFile();
+        }
+        if (encodedBytes == null) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        int length = Math.min(getAnyLength(), encodedBytes.length);
+        COSObject filters = getFilters();
+        if (filters.isNull()) {
+            return new ByteArrayInputStream(encodedBytes, 0, length);
+        }
+        if (length == 0) {
+            return new ByteArrayInputStream(new byte[0]);
+        }
+        COSObject options = getDecodeParams();
+        InputStream result = new ByteArrayInputStream(encodedBytes, 0, length);
+        if (filters instanceof COSName) {
+            return createDecodeStream((COSName) filters, options.asDictionary(), result);
+        }
+        for (int i = 0; i < ((COSArray) filters).size(); i++) {
+            COSObject option = COSNull.NULL;
+            if (!options.isNull()) {
+                option = ((COSArray) options).get(i);
             }
+            COSName filter = ((COSArray) filters).get(i).asName();
+            result = createDecodeStream(filter, option.asDictionary(), result);
+        }
+        return result;
+    }
+
+    /**
+     * Create a stream decoding <code>is</code> with a single filter.
+     * <p>
+     * Filters that can't decode on the fly read <code>is</code> completely and
+     * decode the bytes as in {@link #doDecode(COSName, COSDictionary, byte[],
+     * int, int)}.
+     *
+     * @param filterName The name of a filter to use for this step.
+     * @param options    The options to use for the filter.
+     * @param is         The stream to decode.
+     * @return The decoding stream.
+     * @throws IOException
+     */
+    protected InputStream createDecodeStream(COSName filterName, COSDictionary options, InputStream is)
+            throws IOException {
+        IFilter filter = FilterFactory.get().createFilter(filterName, options);
+        filter.setStream(this);
+        InputStream decoded = filter.createDecodeStream(is);
+        if (decoded != null) {
+            return decoded;
         }
-        return decodedBytes;
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        StreamTools.copyStream(is, true, os, true);
+        byte[] bytes = os.toByteArray();
+        return new ByteArrayInputStream(filter.decode(bytes, 0, bytes.length));
     }
 
     /**
@@ -783,9 +941,28 @@ public class COSStream extends COSCompositeObject {
      * @return The filtered (physical) stream content
      */
     public byte[] getEncodedBytes() {
+        return getEncodedBytes(null);
+    }
+
+    /**
+     * The filtered (physical) stream content as in {@link #getEncodedBytes()}.
+     * If it must be generated first, <code>policy</code> chooses the
+     * compression settings.
+     *
+     * @param policy The compression policy or null for the default
+     * @return The filtered (physical) stream content
+     */
+    public byte[] getEncodedBytes(ICompressionPolicy policy) {
+        if (encodedBytes == null && encodedRange != null) {
+            try {
+                loadEncodedRange();
+            } catch (IOException e) {
+                handleException(new COSRuntimeException("error reading stream", e)); //$NON-NLS-1$
+            }
+        }
         if (encodedBytes == null) {
             try {
-                doEncode();
+                doEncode(policy);
             } catch (IOException e) {
                 handleException(new COSRuntimeException("error encoding stream", e)); //$NON-NLS-1$
             }
@@ -795,6 +972,17 @@ public class COSStream extends COSCompositeObject {
         return encodedBytes;
     }
 
+    /**
+     * The location of the unchanged physical stream content in the document
+     * storage or {@code null}.
+     *
+     * @return The location of the unchanged physical stream content or
+     * {@code null}.
+     */
+    public STStreamRange getEncodedRange() {
+        return encodedRange;
+    }
+
     /**
      * Return the filter or the collection of filters for the stream.
      *
@@ -883,6 +1071,24 @@ public class COSStream extends COSCompositeObject {
         return -1;
     }
 
+    /**
+     * Make sure the physical content is held in memory and no longer depends
+     * on the storage it was read from.
+     */
+    public void harden() {
+        if (encodedRange == null) {
+            return;
+        }
+        if (encodedBytes == null) {
+            try {
+                loadEncodedRange();
+            } catch (IOException e) {
+                handleException(new COSRuntimeException("error reading stream", e)); //$NON-NLS-1$
+            }
+        }
+        encodedRange = null;
+    }
+
     /**
      * {@code true} if this stream has declared a filter {@code name}.
      *
@@ -926,6 +1132,18 @@ public class COSStream extends COSCompositeObject {
         return new SingleObjectIterator(getDict());
     }
 
+    /**
+     * Read the physical content from the document storage if not yet
+     * available.
+     *
+     * @throws IOException
+     */
+    protected void loadEncodedRange() throws IOException {
+        if (encodedBytes == null && encodedRange != null) {
+            encodedBytes = encodedRange.load(getDict());
+        }
+    }
+
     /**
      * Parse the file referenced by the F key in this stream and set as the
      * filtered content.
@@ -958,9 +1176,10 @@ public class COSStream extends COSCompositeObject {
      * Remove all filters from this.
      */
     public void removeFilters() {
-        // be sure decoded stream is available
-        getDecodedBytes();
+        // be sure decoded stream is available, even if not cached
+        decodedBytes = getDecodedBytes();
         encodedBytes = null;
+        encodedRange = null;
         getDict().remove(DK_Filter);
     }
 
@@ -990,6 +1209,7 @@ public class COSStream extends COSCompositeObject {
         COSStream stream = (COSStream) object;
         encodedBytes = stream.encodedBytes;
         decodedBytes = stream.decodedBytes;
+        encodedRange = stream.encodedRange;
         triggerChanged(null, null, null);
     }
 
@@ -1004,6 +1224,7 @@ public class COSStream extends COSCompositeObject {
         // aggregated dictionary takes care of itself
         result.encodedBytes = this.encodedBytes;
         result.decodedBytes = this.decodedBytes;
+        result.encodedRange = this.encodedRange;
         result.container = this.container.saveStateContainer();
         return result;
     }
@@ -33,6 +33,7 @@ import de.intarsys.tools.logging.LogTools;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.logging.Level;
@@ -43,44 +44,57 @@ import java.util.logging.Logger;
  * <p>
  * For a specification see
  * http://www.adobe.com/devnet/opentype/archives/glyph.html
+ * <p>
+ * The glyph list is read in one go and held in primitive structures, a
+ * {@link NameCodeMap} for the names and paged arrays for the Unicode code
+ * points.
  */
 public class GlyphNameMap {
     /**
-     * The number of 1:1 mappings from unicode to code points.
-     * <p>
-     * <p>
-     * This is done for the first 256 bytes to cache the most often used chars.
-     * </p>
+     * The number of entries expected in the Adobe glyph list.
      */
-    private static final int ARRAY_MAPPING_SIZE = 256;
+    private static final int EXPECTED_SIZE = 4400;
 
-    public static final GlyphNameMap Standard = new GlyphNameMap();
+    /**
+     * The number of code points covered by a page in the unicode to glyph
+     * name table.
+     */
+    private static final int PAGE_SIZE = 256;
 
-    public static final String GLYPH_NOTDEF = ".notdef"; //$NON-NLS-1$
+    /**
+     * The number of pages in the unicode to glyph name table, covering the
+     * basic multilingual plane.
+     */
+    private static final int PAGE_COUNT = 256;
 
     private static Logger Log = LogTools.getLogger(GlyphNameMap.class);
 
+    public static final GlyphNameMap Standard = new GlyphNameMap();
+
+    public static final String GLYPH_NOTDEF = ".notdef"; //$NON-NLS-1$
+
     private static final String AdobeGlyphList = "AdobeGlyphList.txt";
 
     private static final String PREFIX_UNI = "uni";
 
-    private Map glyphNameToUnicode = new HashMap();
+    private final NameCodeMap glyphNameToUnicode = new NameCodeMap(EXPECTED_SIZE);
 
-    private Map unicodeToGlyphName = new HashMap();
+    /**
+     * unicode to glyph name, paged by the high byte of the code point
+     */
+    private final String[][] unicodeToGlyphName = new String[PAGE_COUNT][];
 
     /**
-     * unicode to glyph name optimization: most chars will be in the ascii range
+     * unicode to glyph name beyond the basic multilingual plane, created on
+     * demand
      */
-    private String[] asciiToGlyphName = new String[ARRAY_MAPPING_SIZE];
+    private Map<Integer, String> supplementaryToGlyphName;
 
     /**
      * Create a GlyphNameMap.
      */
     protected GlyphNameMap() {
         super();
-        for (int i = 0; i < asciiToGlyphName.length; i++) {
-            asciiToGlyphName[i] = GLYPH_NOTDEF;
-        }
         load();
     }
 
@@ -91,10 +105,22 @@ public class GlyphNameMap {
      * @param unicode   The unicode code point.
      */
     protected void addEntry(String glyphName, int unicode) {
-        glyphNameToUnicode.put(glyphName, Integer.valueOf(unicode));
-        unicodeToGlyphName.put(Integer.valueOf(unicode), glyphName);
-        if ((unicode >= 0) && (unicode < ARRAY_MAPPING_SIZE)) {
-            asciiToGlyphName[unicode] = glyphName;
+        glyphNameToUnicode.put(glyphName, unicode);
+        if (unicode < 0) {
+            return;
+        }
+        if (unicode < PAGE_SIZE * PAGE_COUNT) {
+            String[] page = unicodeToGlyphName[unicode / PAGE_SIZE];
+            if (page == null) {
+                page = new String[PAGE_SIZE];
+                unicodeToGlyphName[unicode / PAGE_SIZE] = page;
+            }
+            page[unicode % PAGE_SIZE] = glyphName;
+        } else {
+            if (supplementaryToGlyphName == null) {
+                supplementaryToGlyphName = new HashMap<Integer, String>();
+            }
+            supplementaryToGlyphName.put(unicode, glyphName);
         }
     }
 
@@ -106,16 +132,30 @@ public class GlyphNameMap {
      * @return The adobe glyph name or ".notdef".
      */
     public String getGlyphName(int unicode) {
-        if ((unicode >= 0) && (unicode < ARRAY_MAPPING_SIZE)) {
-            return asciiToGlyphName[unicode];
-        } else {
-            String glyphName = (String) unicodeToGlyphName.get(Integer.valueOf(unicode));
-            if (glyphName == null) {
-                return GLYPH_NOTDEF;
-            } else {
-                return glyphName;
+        String glyphName = null;
+        if (unicode >= 0 && unicode < PAGE_SIZE * PAGE_COUNT) {
+            String[] page = unicodeToGlyphName[unicode / PAGE_SIZE];
+            if (page != null) {
+                glyphName = page[unicode % PAGE_SIZE];
             }
+        } else if (supplementaryToGlyphName != null) {
+            glyphName = supplementaryToGlyphName.get(unicode);
+        }
+        if (glyphName == null) {
+            return GLYPH_NOTDEF;
         }
+        return glyphName;
+    }
+
+    /**
+     * A {@link Map} view of the map from glyph names to unicode.
+     *
+     * @return A {@link Map} view of the map from glyph names to unicode.
+     * @deprecated Use {@link #getGlyphNameToUnicodeTable()}
+     */
+    @Deprecated
+    protected Map getGlyphNameToUnicode() {
+        return glyphNameToUnicode.asMap();
     }
 
     /**
@@ -124,7 +164,7 @@ public class GlyphNameMap {
      * @return The internal representation of the map from glyph names to
      * unicode.
      */
-    protected Map getGlyphNameToUnicode() {
+    protected NameCodeMap getGlyphNameToUnicodeTable() {
         return glyphNameToUnicode;
     }
 
@@ -139,78 +179,119 @@ public class GlyphNameMap {
      * @return The unicode code point for an Adobe glyph name or -1.
      */
     public int getUnicode(String glyphName) {
-        Integer result = (Integer) glyphNameToUnicode.get(glyphName);
-        if (result == null) {
+        int result = glyphNameToUnicode.get(glyphName);
+        if (result == -1) {
             // Allow direct access to unicode characters when prefixed by 'uni'.
             if (glyphName != null && glyphName.startsWith(PREFIX_UNI)) {
                 try {
-                    result = Integer.parseInt(glyphName.substring(3), 16);
-                    addEntry(glyphName, result);
+                    // do not add to the maps, this may be a shared instance
+                    return Integer.parseInt(glyphName.substring(3), 16);
                 } catch (NumberFormatException e) {
                     // this starts only by hazard with "uni.."
                 }
             }
         }
-        if (result == null) {
-            return -1;
-        }
-        return result.intValue();
+        return result;
     }
 
     /**
-     * The internal representation of the map from unicode to glyph names .
+     * A copy of the map from unicode to glyph names. Changes to the copy are
+     * not reflected in this.
      *
-     * @return The internal representation of the map from unicode to glyph
-     * names .
+     * @return A copy of the map from unicode to glyph names.
+     * @deprecated Use {@link #getGlyphName(int)}
      */
+    @Deprecated
     protected Map getUnicodeToGlyphName() {
-        return unicodeToGlyphName;
+        Map<Integer, String> result = new HashMap<Integer, String>(EXPECTED_SIZE * 2);
+        for (int p = 0; p < unicodeToGlyphName.length; p++) {
+            String[] page = unicodeToGlyphName[p];
+            if (page == null) {
+                continue;
+            }
+            for (int i = 0; i < page.length; i++) {
+                if (page[i] != null) {
+                    result.put(p * PAGE_SIZE + i, page[i]);
+                }
+            }
+        }
+        if (supplementaryToGlyphName != null) {
+            result.putAll(supplementaryToGlyphName);
+        }
+        return result;
     }
 
     protected void load() {
         InputStream is = getClass().getResourceAsStream(AdobeGlyphList);
+        if (is == null) {
+            Log.log(Level.WARNING, "Adobe glyph list not found");
+            return;
+        }
         try {
-            load(is);
+            try {
+                load(is);
+            } finally {
+                is.close();
+            }
         } catch (IOException ignored) {
             Log.log(Level.WARNING, "error loading Adobe glyph list");
         }
     }
 
     protected void load(InputStream is) throws IOException {
-        StringBuilder sb = new StringBuilder();
-        String name = null;
-        String value = null;
-        int i = is.read();
-        while (i != -1) {
-            if (i == '\r' || i == '\n' || i == ' ') {
-                //
-            } else if (i == '#') {
-                i = is.read();
-                while (i != -1 && i != '\n') {
-                    // skip rest of line
-                    i = is.read();
+        // read in one go, the list is parsed in memory
+        byte[] bytes = new byte[65536];
+        int length = 0;
+        int count;
+        while ((count = is.read(bytes, length, bytes.length - length)) != -1) {
+            length += count;
+            if (length == bytes.length) {
+                byte[] tempBytes = new byte[bytes.length * 2];
+                System.arraycopy(bytes, 0, tempBytes, 0, length);
+                bytes = tempBytes;
+            }
+        }
+        int pos = 0;
+        while (pos < length) {
+            int b = bytes[pos];
+            if (b == '\r' || b == '\n' || b == ' ') {
+                pos++;
+                continue;
+            }
+            if (b == '#') {
+                // skip rest of line
+                while (pos < length && bytes[pos] != '\n') {
+                    pos++;
                 }
-            } else {
-                while (i != -1) {
-                    if (i == ';') {
-                        name = sb.toString();
-                        sb.setLength(0);
-                    } else if (i == ' ' | i == '\r' || i == '\n') {
-                        value = sb.toString();
-                        sb.setLength(0);
-                        while (i != -1 && i != '\n') {
-                            // skip rest of line
-                            i = is.read();
-                        }
-                        break;
-                    } else {
-                        sb.append((char) i);
-                    }
-                    i = is.read();
+                continue;
+            }
+            int nameStart = pos;
+            while (pos < length && bytes[pos] != ';' && bytes[pos] != '\n') {
+                pos++;
+            }
+            if (pos >= length || bytes[pos] != ';') {
+                continue;
+            }
+            String name = new String(bytes, nameStart, pos - nameStart, StandardCharsets.ISO_8859_1);
+            pos++;
+            int value = 0;
+            int digits = 0;
+            while (pos < length) {
+                int digit = Character.digit(bytes[pos], 16);
+                if (digit < 0) {
+                    break;
                 }
-                addEntry(name, Integer.parseInt(value, 16));
+                value = (value << 4) | digit;
+                digits++;
+                pos++;
+            }
+            // skip rest of line
+            while (pos < length && bytes[pos] != '\n') {
+                pos++;
+            }
+            if (digits > 0) {
+                addEntry(name, value);
             }
-            i = is.read();
         }
     }
 }
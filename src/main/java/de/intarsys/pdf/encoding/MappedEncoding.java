@@ -62,7 +62,7 @@ public class MappedEncoding extends Encoding {
     /**
      * encode character names
      */
-    private Map namedEncoding = new HashMap();
+    private NameCodeMap namedEncoding = new NameCodeMap(ARRAY_MAPPING_SIZE);
 
     /**
      * encode characters performance optimization
@@ -134,11 +134,10 @@ public class MappedEncoding extends Encoding {
     protected void defineEntry(int codepoint, int character, String name) {
         // byte/name association
         nameDecoding[codepoint] = name;
-        Integer codePointInteger = Integer.valueOf(codepoint);
-        namedEncoding.put(name, codePointInteger);
+        namedEncoding.put(name, codepoint);
         // byte character association
         indexDecoding[codepoint] = character;
-        indexedEncoding.put(Integer.valueOf(character), codePointInteger);
+        indexedEncoding.put(Integer.valueOf(character), Integer.valueOf(codepoint));
         //
         if ((character >= 0) && (character < ARRAY_MAPPING_SIZE)) {
             fastEncoding[character] = codepoint;
@@ -165,12 +164,7 @@ public class MappedEncoding extends Encoding {
 
     @Override
     public int getEncoded(String name) {
-        Integer codePoint = (Integer) namedEncoding.get(name);
-        if (codePoint == null) {
-            return -1;
-        } else {
-            return codePoint.intValue();
-        }
+        return namedEncoding.get(name);
     }
 
     @Override
@@ -219,6 +213,19 @@ public class MappedEncoding extends Encoding {
         return nameDecoding;
     }
 
+    /**
+     * A {@link Map} view of the encoding map from characters names to
+     * codepoint.
+     *
+     * @return A {@link Map} view of the encoding map from characters names to
+     * codepoint.
+     * @deprecated Use {@link #getNamedEncodingTable()}
+     */
+    @Deprecated
+    protected Map getNamedEncoding() {
+        return namedEncoding.asMap();
+    }
+
     /**
      * The internal representation of the encoding map from characters names to
      * codepoint.
@@ -226,7 +233,7 @@ public class MappedEncoding extends Encoding {
      * @return The internal representation of the encoding map from characters
      * names to codepoint.
      */
-    protected Map getNamedEncoding() {
+    protected NameCodeMap getNamedEncodingTable() {
         return namedEncoding;
     }
 }
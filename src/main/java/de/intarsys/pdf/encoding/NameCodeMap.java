@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.encoding;
+
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A compact map from names to int values.
+ * <p>
+ * Keys and values are held in plain arrays using open addressing with
+ * linear probing, so neither lookups nor insertions box values or create
+ * entry objects. Missing keys are reported as -1.
+ */
+public class NameCodeMap {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    private String[] keys;
+
+    private int size;
+
+    private int[] values;
+
+    public NameCodeMap() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create a map able to hold <code>expected</code> entries without
+     * rehashing.
+     *
+     * @param expected The expected number of entries
+     */
+    public NameCodeMap(int expected) {
+        int capacity = DEFAULT_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        keys = new String[capacity];
+        values = new int[capacity];
+    }
+
+    /**
+     * A live {@link Map} view of this, for code written against the former
+     * map based API. Entries can be added or replaced, but not removed.
+     *
+     * @return A {@link Map} view of this.
+     */
+    public Map<String, Integer> asMap() {
+        return new AbstractMap<String, Integer>() {
+            @Override
+            public boolean containsKey(Object key) {
+                return key instanceof String && NameCodeMap.this.get((String) key) != -1;
+            }
+
+            @Override
+            public Set<Map.Entry<String, Integer>> entrySet() {
+                return new AbstractSet<Map.Entry<String, Integer>>() {
+                    @Override
+                    public Iterator<Map.Entry<String, Integer>> iterator() {
+                        return new Iterator<Map.Entry<String, Integer>>() {
+                            private int index = advance(0);
+
+                            private int advance(int from) {
+                                while (from < keys.length && keys[from] == null) {
+                                    from++;
+                                }
+                                return from;
+                            }
+
+                            @Override
+                            public boolean hasNext() {
+                                return index < keys.length;
+                            }
+
+                            @Override
+                            public Map.Entry<String, Integer> next() {
+                                if (index >= keys.length) {
+                                    throw new NoSuchElementException();
+                                }
+                                Map.Entry<String, Integer> entry = new SimpleImmutableEntry<String, Integer>(
+                                        keys[index], values[index]);
+                                index = advance(index + 1);
+                                return entry;
+                            }
+
+                            @Override
+                            public void remove() {
+                                throw new UnsupportedOperationException();
+                            }
+                        };
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+
+            @Override
+            public Integer get(Object key) {
+                if (!(key instanceof String)) {
+                    return null;
+                }
+                int value = NameCodeMap.this.get((String) key);
+                return value == -1 ? null : Integer.valueOf(value);
+            }
+
+            @Override
+            public Integer put(String key, Integer value) {
+                Integer old = get(key);
+                NameCodeMap.this.put(key, value.intValue());
+                return old;
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    /**
+     * The value for <code>name</code> or -1 if not defined.
+     *
+     * @param name The name to look up
+     * @return The value for <code>name</code> or -1 if not defined.
+     */
+    public int get(String name) {
+        if (name == null) {
+            return -1;
+        }
+        int mask = keys.length - 1;
+        int index = hash(name) & mask;
+        while (true) {
+            String key = keys[index];
+            if (key == null) {
+                return -1;
+            }
+            if (key.equals(name)) {
+                return values[index];
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    protected int hash(String name) {
+        int h = name.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Associate <code>name</code> with <code>value</code>, replacing a previous
+     * association.
+     *
+     * @param name  The name
+     * @param value The value
+     */
+    public void put(String name, int value) {
+        if (name == null) {
+            return;
+        }
+        if ((size + 1) * 2 > keys.length) {
+            rehash(keys.length * 2);
+        }
+        int mask = keys.length - 1;
+        int index = hash(name) & mask;
+        while (true) {
+            String key = keys[index];
+            if (key == null) {
+                keys[index] = name;
+                values[index] = value;
+                size++;
+                return;
+            }
+            if (key.equals(name)) {
+                values[index] = value;
+                return;
+            }
+            index = (index + 1) & mask;
+        }
+    }
+
+    protected void rehash(int capacity) {
+        String[] oldKeys = keys;
+        int[] oldValues = values;
+        keys = new String[capacity];
+        values = new int[capacity];
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != null) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * The number of entries in the map.
+     *
+     * @return The number of entries in the map.
+     */
+    public int size() {
+        return size;
+    }
+}
@@ -0,0 +1,537 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import java.io.IOException;
+
+/**
+ * A decoder for CCITT Group 3 (1D and 2D) and Group 4 encoded bilevel data.
+ * <p>
+ * Runs and modes are decoded with lookup tables indexed by the next 12 (13)
+ * bits. The image is decoded row by row, so the caller needs to hold only
+ * the rows it currently processes.
+ */
+public class CCITTFaxDecoder {
+
+    private static final int BLACK = 1;
+
+    /**
+     * The black run codes, terminating codes 0..63 followed by the makeup
+     * codes 64..1728.
+     */
+    private static final String[] BLACK_CODES = {"0000110111", "010", "11", "10", "011", "0011", "0010", "00011",
+                                                 "000101", "000100", "0000100", "0000101", "0000111", "00000100",
+                                                 "00000111", "000011000", "0000010111", "0000011000", "0000001000",
+                                                 "00001100111", "00001101000", "00001101100", "00000110111",
+                                                 "00000101000", "00000010111", "00000011000", "000011001010",
+                                                 "000011001011", "000011001100", "000011001101", "000001101000",
+                                                 "000001101001", "000001101010", "000001101011", "000011010010",
+                                                 "000011010011", "000011010100", "000011010101", "000011010110",
+                                                 "000011010111", "000001101100", "000001101101", "000011011010",
+                                                 "000011011011", "000001010100", "000001010101", "000001010110",
+                                                 "000001010111", "000001100100", "000001100101", "000001010010",
+                                                 "000001010011", "000000100100", "000000110111", "000000111000",
+                                                 "000000100111", "000000101000", "000001011000", "000001011001",
+                                                 "000000101011", "000000101100", "000001011010", "000001100110",
+                                                 "000001100111",
+                                                 // makeup
+                                                 "0000001111", "000011001000", "000011001001", "000001011011",
+                                                 "000000110011", "000000110100", "000000110101", "0000001101100",
+                                                 "0000001101101", "0000001001010", "0000001001011", "0000001001100",
+                                                 "0000001001101", "0000001110010", "0000001110011", "0000001110100",
+                                                 "0000001110101", "0000001110110", "0000001110111", "0000001010010",
+                                                 "0000001010011", "0000001010100", "0000001010101", "0000001011010",
+                                                 "0000001011011", "0000001100100", "0000001100101"};
+
+    private static final int BLACK_LOOKAHEAD = 13;
+
+    private static final int[] BLACK_TABLE;
+
+    private static final String EOL = "000000000001";
+
+    /**
+     * The extended makeup codes 1792..2560, common to both colors.
+     */
+    private static final String[] EXTENDED_CODES = {"00000001000", "00000001100", "00000001101", "000000010010",
+                                                    "000000010011", "000000010100", "000000010101", "000000010110",
+                                                    "000000010111", "000000011100", "000000011101", "000000011110",
+                                                    "000000011111"};
+
+    private static final int MODE_EOL = 10;
+
+    private static final int MODE_EXTENSION = 11;
+
+    private static final int MODE_HORIZONTAL = 1;
+
+    private static final int MODE_LOOKAHEAD = 7;
+
+    private static final int MODE_PASS = 0;
+
+    private static final int[] MODE_TABLE;
+
+    /**
+     * The vertical modes VL3..VR3 are MODE_V0 + a1 - b1
+     */
+    private static final int MODE_V0 = 5;
+
+    private static final int RUN_EOL = 0xffff;
+
+    private static final int WHITE = 0;
+
+    /**
+     * The white run codes, terminating codes 0..63 followed by the makeup
+     * codes 64..1728.
+     */
+    private static final String[] WHITE_CODES = {"00110101", "000111", "0111", "1000", "1011", "1100", "1110", "1111",
+                                                 "10011", "10100", "00111", "01000", "001000", "000011", "110100",
+                                                 "110101", "101010", "101011", "0100111", "0001100", "0001000",
+                                                 "0010111", "0000011", "0000100", "0101000", "0101011", "0010011",
+                                                 "0100100", "0011000", "00000010", "00000011", "00011010",
+                                                 "00011011", "00010010", "00010011", "00010100", "00010101",
+                                                 "00010110", "00010111", "00101000", "00101001", "00101010",
+                                                 "00101011", "00101100", "00101101", "00000100", "00000101",
+                                                 "00001010", "00001011", "01010010", "01010011", "01010100",
+                                                 "01010101", "00100100", "00100101", "01011000", "01011001",
+                                                 "01011010", "01011011", "01001010", "01001011", "00110010",
+                                                 "00110011", "00110100",
+                                                 // makeup
+                                                 "11011", "10010", "010111", "0110111", "00110110", "00110111",
+                                                 "01100100", "01100101", "01101000", "01100111", "011001100",
+                                                 "011001101", "011010010", "011010011", "011010100", "011010101",
+                                                 "011010110", "011010111", "011011000", "011011001", "011011010",
+                                                 "011011011", "010011000", "010011001", "010011010", "011000",
+                                                 "010011011"};
+
+    private static final int WHITE_LOOKAHEAD = 12;
+
+    private static final int[] WHITE_TABLE;
+
+    static {
+        WHITE_TABLE = createRunTable(WHITE_CODES, WHITE_LOOKAHEAD);
+        BLACK_TABLE = createRunTable(BLACK_CODES, BLACK_LOOKAHEAD);
+        MODE_TABLE = new int[1 << MODE_LOOKAHEAD];
+        String[] modes = {"0001", "001", "0000010", "000010", "010", "1", "011", "000011", "0000011"};
+        for (int i = 0; i < modes.length; i++) {
+            addCode(MODE_TABLE, MODE_LOOKAHEAD, modes[i], i);
+        }
+        addCode(MODE_TABLE, MODE_LOOKAHEAD, "0000001", MODE_EXTENSION);
+    }
+
+    protected static void addCode(int[] table, int lookahead, String code, int value) {
+        int length = code.length();
+        int shift = lookahead - length;
+        int start = Integer.parseInt(code, 2) << shift;
+        int entry = (length << 16) | value;
+        for (int i = 0; i < (1 << shift); i++) {
+            if (table[start + i] != 0) {
+                throw new IllegalStateException("ambiguous code " + code); //$NON-NLS-1$
+            }
+            table[start + i] = entry;
+        }
+    }
+
+    protected static int[] createRunTable(String[] codes, int lookahead) {
+        int[] table = new int[1 << lookahead];
+        for (int i = 0; i < codes.length; i++) {
+            int run = i < 64 ? i : (i - 63) * 64;
+            addCode(table, lookahead, codes[i], run);
+        }
+        for (int i = 0; i < EXTENDED_CODES.length; i++) {
+            addCode(table, lookahead, EXTENDED_CODES[i], 1792 + i * 64);
+        }
+        addCode(table, lookahead, EOL, RUN_EOL);
+        return table;
+    }
+
+    /**
+     * Set the bits <code>from</code> (inclusive) to <code>to</code>
+     * (exclusive) in the row starting at <code>offset</code>.
+     */
+    protected static void setBits(byte[] row, int offset, int from, int to) {
+        if (from >= to) {
+            return;
+        }
+        int first = offset + (from >> 3);
+        int last = offset + ((to - 1) >> 3);
+        int firstMask = 0xff >> (from & 7);
+        int lastMask = 0xff << (7 - ((to - 1) & 7));
+        if (first == last) {
+            row[first] |= (byte) (firstMask & lastMask);
+            return;
+        }
+        row[first] |= (byte) firstMask;
+        for (int i = first + 1; i < last; i++) {
+            row[i] = (byte) 0xff;
+        }
+        row[last] |= (byte) lastMask;
+    }
+
+    private boolean align;
+
+    private boolean blackIs1;
+
+    /**
+     * The changing elements of the row being decoded
+     */
+    private int[] codingLine;
+
+    private final int columns;
+
+    private int damagedRows;
+
+    private int damagedRowsBeforeError;
+
+    private final byte[] data;
+
+    private boolean endOfBlock = true;
+
+    private boolean endOfLine;
+
+    private boolean finished;
+
+    private final int k;
+
+    /**
+     * The current position in bits
+     */
+    private long position;
+
+    /**
+     * The changing elements of the previous row, terminated by columns
+     */
+    private int[] refLine;
+
+    private int refSize;
+
+    private int row;
+
+    private final long limit;
+
+    /**
+     * @param data    The encoded data
+     * @param offset  The offset of the encoded data
+     * @param length  The length of the encoded data
+     * @param columns The number of pixels per row
+     * @param k       The encoding scheme, &lt; 0 for Group 4, 0 for Group 3
+     *                1D and &gt; 0 for Group 3 2D.
+     */
+    public CCITTFaxDecoder(byte[] data, int offset, int length, int columns, int k) {
+        super();
+        this.data = data;
+        this.position = (long) offset * 8;
+        this.limit = (long) Math.min(data.length, offset + length) * 8;
+        this.columns = columns;
+        this.k = k;
+        this.codingLine = new int[columns + 2];
+        this.refLine = new int[columns + 3];
+        // an imaginary white row
+        refLine[0] = columns;
+        refLine[1] = columns;
+        refSize = 0;
+    }
+
+    protected void addChange(int[] line, int index, int value) throws IOException {
+        if (index >= columns + 1) {
+            throw new IOException("too many changes in row " + row); //$NON-NLS-1$
+        }
+        line[index] = value;
+    }
+
+    protected void alignToByte() {
+        position = (position + 7) & ~7L;
+    }
+
+    protected void consume(int count) {
+        position += count;
+    }
+
+    /**
+     * Decode the next row to <code>row</code> at <code>offset</code>, (columns
+     * + 7) / 8 bytes.
+     * <p>
+     * Depending on BlackIs1 either the black or the white pixels are 1 bits.
+     *
+     * @param rowBytes The buffer to receive the row
+     * @param offset   The offset of the row in <code>rowBytes</code>
+     * @return false if the data is exhausted, the row is white.
+     * @throws IOException If the data is damaged beyond the number of rows
+     *                     allowed.
+     */
+    public boolean decodeRow(byte[] rowBytes, int offset) throws IOException {
+        int rowSize = (columns + 7) >> 3;
+        for (int i = 0; i < rowSize; i++) {
+            rowBytes[offset + i] = 0;
+        }
+        if (!finished && !startRow()) {
+            finished = true;
+        }
+        if (finished) {
+            if (!blackIs1) {
+                setBits(rowBytes, offset, 0, columns);
+            }
+            return false;
+        }
+        boolean twoDimensional = k < 0;
+        if (k > 0) {
+            twoDimensional = readBits(1) == 0;
+        }
+        int size;
+        try {
+            size = twoDimensional ? decodeRow2D() : decodeRow1D();
+        } catch (IOException e) {
+            damagedRows++;
+            if (k < 0 || damagedRows > damagedRowsBeforeError) {
+                throw e;
+            }
+            // resynchronize at the next EOL, keep the previous row
+            size = refSize;
+            System.arraycopy(refLine, 0, codingLine, 0, size);
+            skipToEOL();
+        }
+        // the coding line becomes the reference line
+        int[] temp = refLine;
+        refLine = codingLine;
+        codingLine = temp;
+        refSize = size;
+        refLine[size] = columns;
+        refLine[size + 1] = columns;
+        refLine[size + 2] = columns;
+        // render
+        int color = WHITE;
+        int start = 0;
+        int oneColor = blackIs1 ? BLACK : WHITE;
+        for (int i = 0; i <= size; i++) {
+            int end = i < size ? refLine[i] : columns;
+            if (color == oneColor) {
+                setBits(rowBytes, offset, start, end);
+            }
+            start = end;
+            color = 1 - color;
+        }
+        row++;
+        return true;
+    }
+
+    protected int decodeRow1D() throws IOException {
+        int size = 0;
+        int a0 = 0;
+        int color = WHITE;
+        while (a0 < columns) {
+            int run = decodeRun(color);
+            a0 = Math.min(columns, a0 + run);
+            addChange(codingLine, size++, a0);
+            color = 1 - color;
+        }
+        return size;
+    }
+
+    protected int decodeRow2D() throws IOException {
+        int[] ref = refLine;
+        int size = 0;
+        int a0 = -1;
+        int color = WHITE;
+        int r = 0;
+        while (a0 < columns) {
+            // b1, the first changing element on the reference line right of
+            // a0 with the color opposite to a0
+            while (r > 0 && ref[r - 1] > a0) {
+                r--;
+            }
+            while (ref[r] <= a0 && ref[r] < columns) {
+                r++;
+            }
+            if ((r & 1) != color) {
+                r++;
+            }
+            int b1 = ref[r];
+            int mode = decodeMode();
+            if (mode == MODE_PASS) {
+                a0 = ref[r + 1];
+                if (a0 >= columns) {
+                    break;
+                }
+            } else if (mode == MODE_HORIZONTAL) {
+                int start = a0 < 0 ? 0 : a0;
+                int a1 = Math.min(columns, start + decodeRun(color));
+                int a2 = Math.min(columns, a1 + decodeRun(1 - color));
+                addChange(codingLine, size++, a1);
+                addChange(codingLine, size++, a2);
+                a0 = a2;
+            } else {
+                int a1 = b1 + mode - MODE_V0;
+                if (a1 < 0 || a1 > columns || a1 < a0) {
+                    throw new IOException("invalid vertical mode in row " + row); //$NON-NLS-1$
+                }
+                addChange(codingLine, size++, a1);
+                a0 = a1;
+                color = 1 - color;
+            }
+        }
+        return size;
+    }
+
+    protected int decodeMode() throws IOException {
+        int entry = MODE_TABLE[peekBits(MODE_LOOKAHEAD)];
+        if (entry == 0) {
+            if (peekBits(12) == 1) {
+                throw new IOException("unexpected EOL in row " + row); //$NON-NLS-1$
+            }
+            throw new IOException("invalid mode code in row " + row); //$NON-NLS-1$
+        }
+        int mode = entry & 0xffff;
+        if (mode == MODE_EXTENSION) {
+            throw new IOException("unsupported extension in row " + row); //$NON-NLS-1$
+        }
+        consume(entry >> 16);
+        return mode;
+    }
+
+    /**
+     * Decode a complete run including its makeup codes.
+     */
+    protected int decodeRun(int color) throws IOException {
+        int[] table = color == WHITE ? WHITE_TABLE : BLACK_TABLE;
+        int lookahead = color == WHITE ? WHITE_LOOKAHEAD : BLACK_LOOKAHEAD;
+        int result = 0;
+        while (true) {
+            int entry = table[peekBits(lookahead)];
+            int run = entry & 0xffff;
+            if (entry == 0 || run == RUN_EOL) {
+                throw new IOException("invalid run code in row " + row); //$NON-NLS-1$
+            }
+            consume(entry >> 16);
+            result += run;
+            if (run < 64) {
+                return result;
+            }
+        }
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * The number of rows decoded so far.
+     *
+     * @return The number of rows decoded so far.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    protected boolean isEOL() {
+        return peekBits(12) == 1;
+    }
+
+    protected int peekBits(int count) {
+        int index = (int) (position >> 3);
+        int value = (readByte(index) << 16) | (readByte(index + 1) << 8) | readByte(index + 2);
+        value = (value << (int) (position & 7)) & 0xffffff;
+        return value >>> (24 - count);
+    }
+
+    protected int readBits(int count) {
+        int result = peekBits(count);
+        consume(count);
+        return result;
+    }
+
+    protected int readByte(int index) {
+        if (((long) index << 3) >= limit) {
+            return 0;
+        }
+        return data[index] & 0xff;
+    }
+
+    public void setAlign(boolean align) {
+        this.align = align;
+    }
+
+    public void setBlackIs1(boolean blackIs1) {
+        this.blackIs1 = blackIs1;
+    }
+
+    public void setDamagedRowsBeforeError(int damagedRowsBeforeError) {
+        this.damagedRowsBeforeError = damagedRowsBeforeError;
+    }
+
+    public void setEndOfBlock(boolean endOfBlock) {
+        this.endOfBlock = endOfBlock;
+    }
+
+    public void setEndOfLine(boolean endOfLine) {
+        this.endOfLine = endOfLine;
+    }
+
+    protected void skipToEOL() {
+        while (position < limit && !isEOL()) {
+            position++;
+        }
+    }
+
+    /**
+     * Skip fill bits and EOL codes before a row.
+     *
+     * @return false at the end of the data
+     */
+    protected boolean startRow() {
+        if (align && (k < 0 || !endOfLine)) {
+            alignToByte();
+        }
+        boolean eol = false;
+        // an EOL is at least 11 zeros and a 1, extra zeros are fill bits
+        while (position < limit && peekBits(11) == 0) {
+            while (readBits(1) == 0) {
+                if (position >= limit) {
+                    return false;
+                }
+            }
+            if (eol && endOfBlock) {
+                // consecutive EOL codes, EOFB or RTC
+                return false;
+            }
+            eol = true;
+            if (k > 0) {
+                // look behind the 1D/2D tag bit
+                consume(1);
+                boolean next = peekBits(11) == 0;
+                if (!next || endOfBlock) {
+                    position--;
+                    if (next) {
+                        return false;
+                    }
+                    break;
+                }
+            }
+        }
+        return position < limit;
+    }
+}
@@ -32,9 +32,18 @@ package de.intarsys.pdf.filter;
 import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.pdf.cos.COSInteger;
 import de.intarsys.pdf.cos.COSName;
+import de.intarsys.tools.stream.StreamTools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 
 /**
- *
+ * The CCITTFaxDecode filter.
+ * <p>
+ * Decoding is done by {@link CCITTFaxDecoder}, use
+ * {@link #createDecodeStream(InputStream)} to process the rows as they are
+ * decoded. Encoding is not supported.
  */
 public class CCITTFaxFilter extends Filter {
     public static final COSName DK_BlackIs1 = COSName.constant("BlackIs1"); //$NON-NLS-1$
@@ -61,6 +70,12 @@ public class CCITTFaxFilter extends Filter {
 
     public static final COSName DK_Width = COSName.constant("Width"); //$NON-NLS-1$
 
+    /**
+     * The upper bound for the initial output buffer when the number of rows
+     * is not known.
+     */
+    private static final int MAX_INITIAL_SIZE = 4 * 1024 * 1024;
+
     /**
      *
      */
@@ -68,55 +83,116 @@ public class CCITTFaxFilter extends Filter {
         super(options);
     }
 
+    /**
+     * The number of columns, from the options or the image width.
+     *
+     * @return The number of columns
+     */
+    protected int getColumns() {
+        int width = 1728;
+        if (getStream() != null) {
+            COSInteger widthDef = getStream().getDict().get(DK_Width).asInteger();
+            if (widthDef == null) {
+                widthDef = getStream().getDict().get(DK_W).asInteger();
+            }
+            if (widthDef != null) {
+                width = widthDef.intValue();
+            }
+        }
+        return getOption(DK_Columns).getValueInteger(width);
+    }
+
+    /**
+     * The number of rows, from the options or the image height, 0 if unknown.
+     *
+     * @return The number of rows
+     */
+    protected int getRows() {
+        int height = 0;
+        if (getStream() != null) {
+            COSInteger heightDef = getStream().getDict().get(DK_Height).asInteger();
+            if (heightDef == null) {
+                heightDef = getStream().getDict().get(DK_H).asInteger();
+            }
+            if (heightDef != null) {
+                height = heightDef.intValue();
+            }
+        }
+        return getOption(DK_Rows).getValueInteger(height);
+    }
+
+    /**
+     * A decoder for <code>source</code> configured with the filter options.
+     *
+     * @param source The encoded data
+     * @param offset The offset of the encoded data
+     * @param length The length of the encoded data
+     * @return A new {@link CCITTFaxDecoder}
+     */
+    public CCITTFaxDecoder createDecoder(byte[] source, int offset, int length) {
+        CCITTFaxDecoder decoder = new CCITTFaxDecoder(source, offset, length, getColumns(),
+                                                      getOption(DK_K).getValueInteger(0));
+        decoder.setAlign(getOption(DK_EncodedByteAlign).getValueBoolean(false));
+        decoder.setBlackIs1(getOption(DK_BlackIs1).getValueBoolean(false));
+        decoder.setEndOfBlock(getOption(DK_EndOfBlock).getValueBoolean(true));
+        decoder.setEndOfLine(getOption(DK_EndOfLine).getValueBoolean(false));
+        decoder.setDamagedRowsBeforeError(getOption(DK_DamagedRowsBeforeError).getValueInteger(0));
+        return decoder;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.IFilter#createDecodeStream(java.io.InputStream)
+     */
+    @Override
+    public InputStream createDecodeStream(InputStream is) throws IOException {
+        // the encoded data is small, the rows are decoded on demand
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        StreamTools.copyStream(is, true, os, true);
+        return createDecodeStream(os.toByteArray());
+    }
+
+    /**
+     * A stream of the decoded rows of <code>source</code>.
+     *
+     * @param source The encoded data
+     * @return A stream of the decoded rows
+     */
+    public InputStream createDecodeStream(byte[] source) {
+        return new CCITTFaxInputStream(createDecoder(source, 0, source.length), getRows());
+    }
+
     /*
      * (non-Javadoc)
      *
      * @see de.intarsys.pdf.filter.IFilter#decode(byte[])
      */
     @Override
-    protected byte[] decode(byte[] source) {
-        int width = 1728;
-        COSInteger widthDef = getStream().getDict().get(DK_Width).asInteger();
-        if (widthDef == null) {
-            widthDef = getStream().getDict().get(DK_W).asInteger();
-        }
-        if (widthDef != null) {
-            width = widthDef.intValue();
+    protected byte[] decode(byte[] source) throws IOException {
+        CCITTFaxDecoder decoder = createDecoder(source, 0, source.length);
+        int rows = getRows();
+        int rowSize = (decoder.getColumns() + 7) >> 3;
+        if (rows > 0) {
+            byte[] destination = new byte[rows * rowSize];
+            for (int i = 0; i < rows; i++) {
+                if (!decoder.decodeRow(destination, i * rowSize)) {
+                    // premature end of data, the missing rows are blank
+                    for (int j = i + 1; j < rows; j++) {
+                        System.arraycopy(destination, i * rowSize, destination, j * rowSize, rowSize);
+                    }
+                    break;
+                }
+            }
+            return destination;
         }
-        int height = 0;
-        COSInteger heightDef = getStream().getDict().get(DK_Height).asInteger();
-        if (heightDef == null) {
-            heightDef = getStream().getDict().get(DK_H).asInteger();
+        // no row count, decode up to the end of the data
+        ByteArrayOutputStream os = new ByteArrayOutputStream(Math.min(source.length, MAX_INITIAL_SIZE / 8) * 8);
+        byte[] row = new byte[rowSize];
+        while (decoder.decodeRow(row, 0)) {
+            os.write(row, 0, rowSize);
         }
-        if (heightDef != null) {
-            height = heightDef.intValue();
-        }
-
-        //
-        int columns = getOption(DK_Columns).getValueInteger(width);
-        int rows = getOption(DK_Rows).getValueInteger(height);
-        int k = getOption(DK_K).getValueInteger(0);
-        int size = rows * ((columns + 7) >> 3);
-        byte[] destination = new byte[size];
-
-//        boolean align = getOption(DK_EncodedByteAlign).getValueBoolean(false);
-//
-//        CCITTFaxDecoder decoder = new CCITTFaxDecoder(1, columns, rows);
-//        decoder.setAlign(align);
-//        if (k == 0) {
-//            decoder.decodeT41D(destination, source, 0, rows);
-//        } else if (k > 0) {
-//            decoder.decodeT42D(destination, source, 0, rows);
-//        } else if (k < 0) {
-//            decoder.decodeT6(destination, source, 0, rows);
-//        }
-//        if (!getOption(DK_BlackIs1).getValueBoolean(false)) {
-//            for (int i = 0; i < destination.length; i++) {
-//                // bitwise not
-//                destination[i] = (byte) ~destination[i];
-//            }
-//        }
-        return destination;
+        return os.toByteArray();
     }
 
     /*
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} delivering the rows of a {@link CCITTFaxDecoder} as
+ * they are decoded.
+ */
+public class CCITTFaxInputStream extends InputStream {
+
+    private final CCITTFaxDecoder decoder;
+
+    private boolean finished;
+
+    private int pos;
+
+    private final byte[] row;
+
+    private int rowCount;
+
+    private final int rows;
+
+    /**
+     * @param decoder The decoder
+     * @param rows    The number of rows to deliver, 0 to read up to the end
+     *                of the data
+     */
+    public CCITTFaxInputStream(CCITTFaxDecoder decoder, int rows) {
+        super();
+        this.decoder = decoder;
+        this.rows = rows;
+        this.row = new byte[(decoder.getColumns() + 7) >> 3];
+        this.pos = row.length;
+    }
+
+    protected boolean fill() throws IOException {
+        if (finished) {
+            return false;
+        }
+        if (rows > 0) {
+            if (rowCount >= rows) {
+                finished = true;
+                return false;
+            }
+            // missing rows are delivered blank
+            decoder.decodeRow(row, 0);
+        } else if (!decoder.decodeRow(row, 0)) {
+            finished = true;
+            return false;
+        }
+        rowCount++;
+        pos = 0;
+        return true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.InputStream#read()
+     */
+    @Override
+    public int read() throws IOException {
+        if (pos >= row.length && !fill()) {
+            return -1;
+        }
+        return row[pos++] & 0xff;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see java.io.InputStream#read(byte[], int, int)
+     */
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (pos >= row.length && !fill()) {
+            return -1;
+        }
+        int count = Math.min(len, row.length - pos);
+        System.arraycopy(row, pos, b, off, count);
+        pos += count;
+        return count;
+    }
+}
@@ -30,13 +30,21 @@
 package de.intarsys.pdf.filter;
 
 import de.intarsys.pdf.cos.COSDictionary;
+import de.intarsys.pdf.cos.COSName;
 
 import java.io.IOException;
 
 /**
- *
+ * The DCTDecode filter.
+ * <p>
+ * Decoding is done by {@link JPEGDecoder}. Use {@link #decode(byte[], int)}
+ * to get a reduced image, for example for thumbnails. Encoding is not
+ * supported.
  */
 public class DCTFilter extends Filter {
+
+    public static final COSName DK_ColorTransform = COSName.constant("ColorTransform"); //$NON-NLS-1$
+
     /**
      *
      */
@@ -61,6 +69,36 @@ public class DCTFilter extends Filter {
      */
     @Override
     protected byte[] decode(byte[] source) throws IOException {
-        return null;
+        return decode(source, 1);
+    }
+
+    /**
+     * Decode <code>source</code> at 1/<code>scale</code> of its size.
+     * <p>
+     * The result holds (width + scale - 1) / scale samples per row, the row
+     * count is reduced accordingly.
+     *
+     * @param source The JPEG data
+     * @param scale  The scale denominator, 1, 2, 4 or 8
+     * @return The interleaved 8 bit samples of the reduced image
+     * @throws IOException
+     */
+    public byte[] decode(byte[] source, int scale) throws IOException {
+        JPEGDecoder decoder = createDecoder(source);
+        decoder.setScale(scale);
+        return decoder.decode();
+    }
+
+    /**
+     * A {@link JPEGDecoder} for <code>source</code> configured with the
+     * filter options.
+     *
+     * @param source The JPEG data
+     * @return A new {@link JPEGDecoder}
+     */
+    public JPEGDecoder createDecoder(byte[] source) {
+        JPEGDecoder decoder = new JPEGDecoder(source, 0, source.length);
+        decoder.setColorTransform(getOption(DK_ColorTransform).getValueInteger(-1));
+        return decoder;
     }
 }
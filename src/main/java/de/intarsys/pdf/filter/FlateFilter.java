@@ -33,7 +33,10 @@ import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.tools.pool.GenericPool;
 import de.intarsys.tools.pool.IPool;
 import de.intarsys.tools.pool.IPoolObjectFactory;
+import de.intarsys.tools.stream.StreamTools;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -83,6 +86,9 @@ public class FlateFilter extends StreamBasedFilter {
         @Override
         public void deactivateObject(Object obj) throws Exception {
             ((Deflater) obj).reset();
+            // may have been changed by the compression policy
+            ((Deflater) obj).setLevel(Deflater.DEFAULT_COMPRESSION);
+            ((Deflater) obj).setStrategy(Deflater.DEFAULT_STRATEGY);
         }
 
         @Override
@@ -129,6 +135,14 @@ public class FlateFilter extends StreamBasedFilter {
      */
     private static IPool InflaterPool = new GenericPool(inflaterFactory);
 
+    private ICompressionPolicy compressionPolicy;
+
+    private boolean configured = false;
+
+    private int level = Deflater.DEFAULT_COMPRESSION;
+
+    private int strategy = Deflater.DEFAULT_STRATEGY;
+
     /**
      *
      */
@@ -136,6 +150,66 @@ public class FlateFilter extends StreamBasedFilter {
         super(options);
     }
 
+    /**
+     * Choose level and strategy for the next encoding.
+     *
+     * @param source The data to be compressed or null
+     * @param offset The offset of the data
+     * @param length The length of the data
+     */
+    protected void configure(byte[] source, int offset, int length) {
+        ICompressionPolicy policy = getCompressionPolicy();
+        level = policy.getLevel(getStream(), source, offset, length);
+        strategy = policy.getStrategy(getStream());
+        configured = true;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.StreamBasedFilter#createDecodeStream(java.io.InputStream)
+     */
+    @Override
+    public InputStream createDecodeStream(InputStream is) throws IOException {
+        InputStream decoded = super.createDecodeStream(is);
+        IPrediction prediction = createPrediction();
+        if (prediction == null) {
+            return decoded;
+        }
+        if (prediction instanceof Prediction) {
+            return new PredictionInputStream(decoded, (Prediction) prediction);
+        }
+        // unknown implementation, no streaming
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        StreamTools.copyStream(decoded, true, os, true);
+        return new ByteArrayInputStream(prediction.decode(os.toByteArray()));
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.StreamBasedFilter#createEncodeStream(java.io.OutputStream)
+     */
+    @Override
+    public OutputStream createEncodeStream(OutputStream os) throws IOException {
+        final OutputStream encoded = super.createEncodeStream(os);
+        final IPrediction prediction = createPrediction();
+        if (prediction == null) {
+            return encoded;
+        }
+        if (prediction instanceof Prediction) {
+            return new PredictionOutputStream(encoded, (Prediction) prediction);
+        }
+        // unknown implementation, no streaming
+        return new ByteArrayOutputStream() {
+            @Override
+            public void close() throws IOException {
+                encoded.write(prediction.encode(toByteArray()));
+                encoded.close();
+            }
+        };
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -154,10 +228,61 @@ public class FlateFilter extends StreamBasedFilter {
      */
     @Override
     protected OutputStream createOutputFilterStream(OutputStream os) throws IOException {
+        if (!configured) {
+            configure(null, 0, 0);
+        }
+        configured = false;
         final Deflater deflater = borrowDeflater();
+        deflater.setLevel(level);
+        deflater.setStrategy(strategy);
         return new PDFDeflaterOutputStream(os, deflater, 1024);
     }
 
+    /**
+     * The prediction declared in the options or null.
+     *
+     * @return The prediction declared in the options or null.
+     * @throws IOException
+     */
+    protected IPrediction createPrediction() throws IOException {
+        if (getOptions() == null) {
+            return null;
+        }
+        IPrediction prediction = PredictionFactory.get().createPrediction(getOptions());
+        if (prediction instanceof NoPrediction) {
+            return null;
+        }
+        return prediction;
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.StreamBasedFilter#encode(byte[])
+     */
+    @Override
+    protected byte[] encode(byte[] source) throws IOException {
+        configure(source, 0, source.length);
+        return super.encode(source);
+    }
+
+    /**
+     * The policy for choosing the compression settings, by default the VM
+     * wide {@link CompressionPolicy}.
+     *
+     * @return The policy for choosing the compression settings
+     */
+    public ICompressionPolicy getCompressionPolicy() {
+        if (compressionPolicy == null) {
+            return CompressionPolicy.get();
+        }
+        return compressionPolicy;
+    }
+
+    public void setCompressionPolicy(ICompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
     protected static Deflater borrowDeflater() throws IOException {
         try {
             return (Deflater) DeflaterPool.checkout(-1);
@@ -196,18 +321,10 @@ public class FlateFilter extends StreamBasedFilter {
 
     @Override
     protected byte[] decode(byte[] source) throws IOException {
-        byte[] decoded;
-        IPrediction prediction;
-
         if ((source == null) || (source.length == 0)) {
             return new byte[0];
         }
-        decoded = super.decode(source);
-        if (getOptions() == null) {
-            return decoded;
-        }
-
-        prediction = PredictionFactory.get().createPrediction(getOptions());
-        return prediction.decode(decoded);
+        // prediction is fused in createDecodeStream
+        return super.decode(source);
     }
 }
@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import de.intarsys.pdf.cos.COSStream;
+
+/**
+ * A policy for the compression settings used when encoding a stream with the
+ * {@link FlateFilter}.
+ */
+public interface ICompressionPolicy {
+
+    /**
+     * The {@link java.util.zip.Deflater} level to use for <code>stream</code>.
+     * <p>
+     * <code>source</code> is the data to be compressed, it is null when the
+     * data is not known in advance. Returning
+     * {@link java.util.zip.Deflater#NO_COMPRESSION} stores the data without
+     * spending time on compression.
+     *
+     * @param stream The stream to be encoded, may be null
+     * @param source The data to be compressed or null
+     * @param offset The offset of the data
+     * @param length The length of the data
+     * @return The {@link java.util.zip.Deflater} level
+     */
+    int getLevel(COSStream stream, byte[] source, int offset, int length);
+
+    /**
+     * The {@link java.util.zip.Deflater} strategy to use for
+     * <code>stream</code>.
+     *
+     * @param stream The stream to be encoded, may be null
+     * @return The {@link java.util.zip.Deflater} strategy
+     */
+    int getStrategy(COSStream stream);
+}
@@ -32,6 +32,7 @@ package de.intarsys.pdf.filter;
 import de.intarsys.pdf.cos.COSStream;
 
 import java.io.IOException;
+import java.io.InputStream;
 
 /**
  *
@@ -44,4 +45,19 @@ public interface IFilter {
     void setStream(COSStream stream);
 
     COSStream getStream();
+
+    /**
+     * An {@link InputStream} decoding <code>is</code> on the fly, or
+     * <code>null</code> if this filter can only decode the complete data.
+     * <p>
+     * When <code>null</code> is returned, <code>is</code> is not touched.
+     *
+     * @param is The encoded input
+     * @return An {@link InputStream} decoding <code>is</code> or
+     * <code>null</code>
+     * @throws IOException
+     */
+    default InputStream createDecodeStream(InputStream is) throws IOException {
+        return null;
+    }
 }
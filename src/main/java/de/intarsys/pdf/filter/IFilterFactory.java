@@ -51,4 +51,21 @@ public interface IFilterFactory {
      * @throws IOException
      */
     IFilter createFilter(COSName filterName, COSDictionary options) throws IOException;
+
+    /**
+     * Create an implementation for the filter denoted by {@code filterName},
+     * encoding with the settings chosen by {@code policy}.
+     * <p>
+     * Filters without compression settings ignore {@code policy}.
+     *
+     * @param filterName
+     * @param options
+     * @param policy     The compression policy or null for the default
+     * @return The filter implementation.
+     * @throws IOException
+     */
+    default IFilter createFilter(COSName filterName, COSDictionary options, ICompressionPolicy policy)
+            throws IOException {
+        return createFilter(filterName, options);
+    }
 }
@@ -36,4 +36,6 @@ import java.io.IOException;
  */
 public interface IPrediction {
     byte[] decode(byte[] source) throws IOException;
+
+    byte[] encode(byte[] source) throws IOException;
 }
@@ -0,0 +1,929 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * A decoder for baseline and progressive (Huffman coded) JPEG data.
+ * <p>
+ * The image can be decoded at 1/2, 1/4 or 1/8 of its size. The reduction is
+ * done by an inverse DCT of the low frequency coefficients only, so a
+ * reduced decode costs much less than a full decode. Subsampled components
+ * are transformed directly to the output resolution where possible instead
+ * of being upsampled.
+ * <p>
+ * The result is the interleaved 8 bit samples of the image, with YCbCr
+ * converted to RGB and YCCK converted to CMYK as requested by the Adobe
+ * marker or the ColorTransform option.
+ * <p>
+ * <pre>
+ * JPEGDecoder decoder = new JPEGDecoder(bytes, 0, bytes.length);
+ * decoder.readHeader();
+ * decoder.setScale(decoder.computeScale(200, 200));
+ * byte[] samples = decoder.decode();
+ * </pre>
+ */
+public class JPEGDecoder {
+
+    protected static class Component {
+        protected int blocksPerColumn;
+
+        protected int blocksPerLine;
+
+        /**
+         * The coefficients of all blocks in zigzag order (progressive only)
+         */
+        protected short[] coefficients;
+
+        protected int dcTable;
+
+        protected int acTable;
+
+        protected int h;
+
+        protected int id;
+
+        /**
+         * The block size after the inverse DCT
+         */
+        protected int nx;
+
+        protected int ny;
+
+        protected byte[] plane;
+
+        protected int planeWidth;
+
+        protected int pred;
+
+        protected int quantizationTable;
+
+        protected int usedBlocksPerColumn;
+
+        protected int usedBlocksPerLine;
+
+        protected int v;
+    }
+
+    protected static class HuffmanTable {
+        private static final int LOOKAHEAD = 9;
+
+        protected final int[] lookup = new int[1 << LOOKAHEAD];
+
+        protected final int[] maxcode = new int[18];
+
+        protected final int[] mincode = new int[17];
+
+        protected final int[] valptr = new int[17];
+
+        protected final int[] values;
+
+        protected HuffmanTable(int[] counts, int[] values) {
+            this.values = values;
+            int code = 0;
+            int k = 0;
+            for (int l = 1; l <= 16; l++) {
+                valptr[l] = k;
+                mincode[l] = code;
+                for (int i = 0; i < counts[l]; i++) {
+                    if (l <= LOOKAHEAD) {
+                        int shift = LOOKAHEAD - l;
+                        int entry = (l << 8) | values[k];
+                        for (int j = 0; j < (1 << shift); j++) {
+                            lookup[(code << shift) + j] = entry;
+                        }
+                    }
+                    code++;
+                    k++;
+                }
+                maxcode[l] = counts[l] > 0 ? code - 1 : -1;
+                code <<= 1;
+            }
+            maxcode[17] = Integer.MAX_VALUE;
+        }
+    }
+
+    private static final int[] CB_B = new int[256];
+
+    private static final int[] CB_G = new int[256];
+
+    private static final int[] CR_G = new int[256];
+
+    private static final int[] CR_R = new int[256];
+
+    /**
+     * The inverse DCT weights for N output samples, [N][y * 8 + u]
+     */
+    private static final float[][] IDCT = new float[9][];
+
+    private static final int[] ZIGZAG = {0, 1, 8, 16, 9, 2, 3, 10, 17, 24, 32, 25, 18, 11, 4, 5, 12, 19, 26, 33, 40,
+                                         48, 41, 34, 27, 20, 13, 6, 7, 14, 21, 28, 35, 42, 49, 56, 57, 50, 43, 36, 29,
+                                         22, 15, 23, 30, 37, 44, 51, 58, 59, 52, 45, 38, 31, 39, 46, 53, 60, 61, 54,
+                                         47, 55, 62, 63};
+
+    static {
+        for (int n = 1; n <= 8; n++) {
+            float[] table = new float[64];
+            for (int y = 0; y < n; y++) {
+                for (int u = 0; u < n; u++) {
+                    double c = u == 0 ? Math.sqrt(0.5) : 1;
+                    table[y * 8 + u] = (float) (c / 2 * Math.cos((2 * y + 1) * u * Math.PI / (2 * n)));
+                }
+            }
+            IDCT[n] = table;
+        }
+        for (int i = 0; i < 256; i++) {
+            int x = i - 128;
+            CR_R[i] = (int) Math.round(1.402 * x * 65536);
+            CB_B[i] = (int) Math.round(1.772 * x * 65536);
+            CR_G[i] = (int) Math.round(-0.714136 * x * 65536);
+            CB_G[i] = (int) Math.round(-0.344136 * x * 65536) + 32768;
+        }
+    }
+
+    protected static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    protected static int extend(int value, int bits) {
+        return value < (1 << (bits - 1)) ? value - (1 << bits) + 1 : value;
+    }
+
+    private final HuffmanTable[] acTables = new HuffmanTable[4];
+
+    private int adobeTransform = -1;
+
+    private int bitBuffer;
+
+    private int bitCount;
+
+    private final int[] block = new int[64];
+
+    private int colorTransform = -1;
+
+    private Component[] components;
+
+    private final byte[] data;
+
+    private final HuffmanTable[] dcTables = new HuffmanTable[4];
+
+    private final int end;
+
+    private int eobrun;
+
+    private boolean headerRead;
+
+    private int height;
+
+    private int hMax;
+
+    private boolean markerHit;
+
+    private int mcusPerColumn;
+
+    private int mcusPerLine;
+
+    private int pos;
+
+    private boolean progressive;
+
+    private final int[][] quantizationTables = new int[4][];
+
+    private int restartInterval;
+
+    private int scale = 1;
+
+    private final float[] temp = new float[64];
+
+    private int vMax;
+
+    private int width;
+
+    public JPEGDecoder(byte[] data, int offset, int length) {
+        super();
+        this.data = data;
+        this.pos = offset;
+        this.end = Math.min(data.length, offset + length);
+    }
+
+    protected void buildComponents() {
+        int n = 8 / scale;
+        for (int i = 0; i < components.length; i++) {
+            Component c = components[i];
+            c.blocksPerLine = mcusPerLine * c.h;
+            c.blocksPerColumn = mcusPerColumn * c.v;
+            c.usedBlocksPerLine = (((width * c.h + hMax - 1) / hMax) + 7) / 8;
+            c.usedBlocksPerColumn = (((height * c.v + vMax - 1) / vMax) + 7) / 8;
+            // transform subsampled components to the output resolution,
+            // at most to their full resolution
+            c.nx = Math.max(1, Math.min(8, n * hMax / c.h));
+            c.ny = Math.max(1, Math.min(8, n * vMax / c.v));
+            c.planeWidth = c.blocksPerLine * c.nx;
+            c.plane = new byte[c.planeWidth * c.blocksPerColumn * c.ny];
+            if (progressive) {
+                c.coefficients = new short[c.blocksPerLine * c.blocksPerColumn * 64];
+            }
+        }
+    }
+
+    /**
+     * The largest reduction that yields an image of at least
+     * <code>minWidth</code> x <code>minHeight</code> samples.
+     * <p>
+     * The header must be read before.
+     *
+     * @param minWidth  The minimum width
+     * @param minHeight The minimum height
+     * @return The scale denominator, 1, 2, 4 or 8
+     */
+    public int computeScale(int minWidth, int minHeight) {
+        int result = 8;
+        while (result > 1 && ((width + result - 1) / result < minWidth
+                              || (height + result - 1) / result < minHeight)) {
+            result /= 2;
+        }
+        return result;
+    }
+
+    protected void convertColors(byte[] out, int count, int numComponents) {
+        boolean transform;
+        if (adobeTransform != -1) {
+            transform = adobeTransform != 0;
+        } else if (colorTransform != -1) {
+            transform = colorTransform != 0;
+        } else {
+            transform = numComponents == 3;
+        }
+        if (!transform || (numComponents != 3 && numComponents != 4)) {
+            return;
+        }
+        for (int i = 0; i < count; i += numComponents) {
+            int y = (out[i] & 0xff) << 16;
+            int cb = out[i + 1] & 0xff;
+            int cr = out[i + 2] & 0xff;
+            int r = clamp((y + CR_R[cr] + 32768) >> 16);
+            int g = clamp((y + CB_G[cb] + CR_G[cr]) >> 16);
+            int b = clamp((y + CB_B[cb] + 32768) >> 16);
+            if (numComponents == 3) {
+                out[i] = (byte) r;
+                out[i + 1] = (byte) g;
+                out[i + 2] = (byte) b;
+            } else {
+                // YCCK
+                out[i] = (byte) (255 - r);
+                out[i + 1] = (byte) (255 - g);
+                out[i + 2] = (byte) (255 - b);
+            }
+        }
+    }
+
+    /**
+     * Decode the image.
+     *
+     * @return The interleaved 8 bit samples, {@link #getScaledWidth()} x
+     * {@link #getScaledHeight()} x {@link #getComponents()}
+     * @throws IOException
+     */
+    public byte[] decode() throws IOException {
+        readHeader();
+        buildComponents();
+        while (true) {
+            int marker = nextMarker();
+            if (marker == -1 || marker == 0xD9) {
+                break;
+            }
+            if (marker == 0xDA) {
+                decodeScan();
+            } else {
+                readMarkerSegment(marker);
+            }
+        }
+        if (progressive) {
+            for (int i = 0; i < components.length; i++) {
+                transformCoefficients(components[i]);
+            }
+        }
+        return output();
+    }
+
+    protected void decodeACFirst(short[] coefficients, int offset, int ss, int se, int al, HuffmanTable table) {
+        if (eobrun > 0) {
+            eobrun--;
+            return;
+        }
+        for (int k = ss; k <= se; k++) {
+            int rs = decodeHuffman(table);
+            int r = rs >> 4;
+            int s = rs & 15;
+            if (s == 0) {
+                if (r < 15) {
+                    eobrun = (1 << r) - 1;
+                    if (r > 0) {
+                        eobrun += receive(r);
+                    }
+                    break;
+                }
+                k += 15;
+                continue;
+            }
+            k += r;
+            if (k > 63) {
+                break;
+            }
+            coefficients[offset + k] = (short) (extend(receive(s), s) * (1 << al));
+        }
+    }
+
+    protected void decodeACRefine(short[] coefficients, int offset, int ss, int se, int al, HuffmanTable table) {
+        int p1 = 1 << al;
+        int m1 = -1 << al;
+        int k = ss;
+        if (eobrun == 0) {
+            for (; k <= se; k++) {
+                int rs = decodeHuffman(table);
+                int r = rs >> 4;
+                int s = rs & 15;
+                if (s != 0) {
+                    s = readBit() != 0 ? p1 : m1;
+                } else if (r != 15) {
+                    eobrun = 1 << r;
+                    if (r > 0) {
+                        eobrun += receive(r);
+                    }
+                    break;
+                }
+                while (k <= se) {
+                    int index = offset + k;
+                    if (coefficients[index] != 0) {
+                        refine(coefficients, index, p1, m1);
+                    } else {
+                        if (--r < 0) {
+                            break;
+                        }
+                    }
+                    k++;
+                }
+                if (s != 0 && k <= se) {
+                    coefficients[offset + k] = (short) s;
+                }
+            }
+        }
+        if (eobrun > 0) {
+            for (; k <= se; k++) {
+                int index = offset + k;
+                if (coefficients[index] != 0) {
+                    refine(coefficients, index, p1, m1);
+                }
+            }
+            eobrun--;
+        }
+    }
+
+    protected void decodeBaseline(Component c, int blockRow, int blockColumn) {
+        Arrays.fill(block, 0);
+        int[] q = quantizationTables[c.quantizationTable];
+        int t = decodeHuffman(dcTables[c.dcTable]);
+        int diff = t == 0 ? 0 : extend(receive(t), t);
+        c.pred += diff;
+        block[0] = c.pred * q[0];
+        HuffmanTable ac = acTables[c.acTable];
+        for (int k = 1; k < 64; k++) {
+            int rs = decodeHuffman(ac);
+            int r = rs >> 4;
+            int s = rs & 15;
+            if (s == 0) {
+                if (r < 15) {
+                    break;
+                }
+                k += 15;
+                continue;
+            }
+            k += r;
+            if (k > 63) {
+                break;
+            }
+            block[ZIGZAG[k]] = extend(receive(s), s) * q[k];
+        }
+        transformBlock(c, blockRow, blockColumn);
+    }
+
+    protected void decodeBlock(Component c, int blockRow, int blockColumn, int ss, int se, int ah, int al) {
+        if (!progressive) {
+            decodeBaseline(c, blockRow, blockColumn);
+            return;
+        }
+        int offset = (blockRow * c.blocksPerLine + blockColumn) * 64;
+        short[] coefficients = c.coefficients;
+        if (ss == 0) {
+            if (ah == 0) {
+                int t = decodeHuffman(dcTables[c.dcTable]);
+                int diff = t == 0 ? 0 : extend(receive(t), t);
+                c.pred += diff;
+                coefficients[offset] = (short) (c.pred * (1 << al));
+            } else if (readBit() != 0) {
+                coefficients[offset] |= (short) (1 << al);
+            }
+        } else if (ah == 0) {
+            decodeACFirst(coefficients, offset, ss, se, al, acTables[c.acTable]);
+        } else {
+            decodeACRefine(coefficients, offset, ss, se, al, acTables[c.acTable]);
+        }
+    }
+
+    protected int decodeHuffman(HuffmanTable table) {
+        if (table == null) {
+            return 0;
+        }
+        fillBits();
+        int entry = table.lookup[bitBuffer >>> (32 - HuffmanTable.LOOKAHEAD)];
+        if (entry != 0) {
+            consumeBits(entry >> 8);
+            return entry & 0xff;
+        }
+        for (int l = HuffmanTable.LOOKAHEAD + 1; l <= 16; l++) {
+            int code = bitBuffer >>> (32 - l);
+            if (code <= table.maxcode[l]) {
+                consumeBits(l);
+                return table.values[table.valptr[l] + code - table.mincode[l]];
+            }
+        }
+        // corrupt data
+        consumeBits(16);
+        return 0;
+    }
+
+    protected void decodeScan() throws IOException {
+        int length = readUnsignedShort();
+        int count = data[pos++] & 0xff;
+        Component[] scanComponents = new Component[count];
+        for (int i = 0; i < count; i++) {
+            int id = data[pos++] & 0xff;
+            int tables = data[pos++] & 0xff;
+            Component c = findComponent(id);
+            c.dcTable = tables >> 4;
+            c.acTable = tables & 15;
+            scanComponents[i] = c;
+        }
+        int ss = data[pos++] & 0xff;
+        int se = data[pos++] & 0xff;
+        int a = data[pos++] & 0xff;
+        int ah = a >> 4;
+        int al = a & 15;
+        if (length != 6 + 2 * count) {
+            throw new IOException("invalid scan header"); //$NON-NLS-1$
+        }
+        resetDecoder(scanComponents);
+        int mcu = 0;
+        if (count == 1) {
+            Component c = scanComponents[0];
+            int total = c.usedBlocksPerLine * c.usedBlocksPerColumn;
+            for (int row = 0; row < c.usedBlocksPerColumn; row++) {
+                for (int column = 0; column < c.usedBlocksPerLine; column++) {
+                    decodeBlock(c, row, column, ss, se, ah, al);
+                    mcu++;
+                    if (restartInterval > 0 && mcu % restartInterval == 0 && mcu < total) {
+                        restart(scanComponents);
+                    }
+                }
+            }
+        } else {
+            int total = mcusPerLine * mcusPerColumn;
+            for (int mcuRow = 0; mcuRow < mcusPerColumn; mcuRow++) {
+                for (int mcuColumn = 0; mcuColumn < mcusPerLine; mcuColumn++) {
+                    for (int i = 0; i < count; i++) {
+                        Component c = scanComponents[i];
+                        for (int v = 0; v < c.v; v++) {
+                            for (int h = 0; h < c.h; h++) {
+                                decodeBlock(c, mcuRow * c.v + v, mcuColumn * c.h + h, ss, se, ah, al);
+                            }
+                        }
+                    }
+                    mcu++;
+                    if (restartInterval > 0 && mcu % restartInterval == 0 && mcu < total) {
+                        restart(scanComponents);
+                    }
+                }
+            }
+        }
+        // continue with the marker after the entropy coded data
+        bitBuffer = 0;
+        bitCount = 0;
+        markerHit = false;
+    }
+
+    protected void consumeBits(int count) {
+        bitBuffer <<= count;
+        bitCount -= count;
+    }
+
+    protected void fillBits() {
+        while (bitCount <= 24) {
+            int b = 0;
+            if (!markerHit && pos < end) {
+                b = data[pos] & 0xff;
+                if (b == 0xff) {
+                    int next = pos + 1 < end ? data[pos + 1] & 0xff : 0xD9;
+                    if (next == 0) {
+                        pos += 2;
+                    } else {
+                        // leave the marker for the caller
+                        markerHit = true;
+                        b = 0;
+                    }
+                } else {
+                    pos++;
+                }
+            }
+            bitBuffer |= b << (24 - bitCount);
+            bitCount += 8;
+        }
+    }
+
+    protected Component findComponent(int id) throws IOException {
+        for (int i = 0; i < components.length; i++) {
+            if (components[i].id == id) {
+                return components[i];
+            }
+        }
+        throw new IOException("unknown component " + id); //$NON-NLS-1$
+    }
+
+    /**
+     * The number of components in the decoded samples.
+     *
+     * @return The number of components in the decoded samples.
+     */
+    public int getComponents() {
+        return components == null ? 0 : components.length;
+    }
+
+    /**
+     * The height of the image as declared in the frame header.
+     *
+     * @return The height of the image.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The scale denominator, 1, 2, 4 or 8.
+     *
+     * @return The scale denominator.
+     */
+    public int getScale() {
+        return scale;
+    }
+
+    public int getScaledHeight() {
+        return (height + scale - 1) / scale;
+    }
+
+    public int getScaledWidth() {
+        return (width + scale - 1) / scale;
+    }
+
+    /**
+     * The width of the image as declared in the frame header.
+     *
+     * @return The width of the image.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    protected int nextMarker() {
+        // skip to the next marker, fill bytes are allowed
+        while (pos + 1 < end) {
+            if ((data[pos] & 0xff) == 0xff) {
+                int marker = data[pos + 1] & 0xff;
+                if (marker != 0 && marker != 0xff) {
+                    pos += 2;
+                    return marker;
+                }
+            }
+            pos++;
+        }
+        return -1;
+    }
+
+    protected byte[] output() {
+        int outWidth = getScaledWidth();
+        int outHeight = getScaledHeight();
+        int numComponents = components.length;
+        int n = 8 / scale;
+        byte[] out = new byte[outWidth * outHeight * numComponents];
+        int[] columns = new int[outWidth];
+        for (int i = 0; i < numComponents; i++) {
+            Component c = components[i];
+            // map output to plane samples, one plane sample may cover
+            // several output samples for subsampled components
+            for (int x = 0; x < outWidth; x++) {
+                columns[x] = x * c.nx * c.h / (n * hMax);
+            }
+            for (int y = 0; y < outHeight; y++) {
+                int row = (y * c.ny * c.v / (n * vMax)) * c.planeWidth;
+                int index = y * outWidth * numComponents + i;
+                for (int x = 0; x < outWidth; x++) {
+                    out[index] = c.plane[row + columns[x]];
+                    index += numComponents;
+                }
+            }
+            // release early
+            c.plane = null;
+        }
+        convertColors(out, out.length, numComponents);
+        return out;
+    }
+
+    protected int readBit() {
+        fillBits();
+        int result = bitBuffer >>> 31;
+        consumeBits(1);
+        return result;
+    }
+
+    protected void readFrame(int marker) throws IOException {
+        readUnsignedShort();
+        int precision = data[pos++] & 0xff;
+        if (precision != 8) {
+            throw new IOException("unsupported JPEG precision " + precision); //$NON-NLS-1$
+        }
+        height = readUnsignedShort();
+        width = readUnsignedShort();
+        if (height == 0 || width == 0) {
+            throw new IOException("unsupported JPEG size " + width + "x" + height); //$NON-NLS-1$ //$NON-NLS-2$
+        }
+        progressive = marker == 0xC2;
+        int count = data[pos++] & 0xff;
+        components = new Component[count];
+        hMax = 1;
+        vMax = 1;
+        for (int i = 0; i < count; i++) {
+            Component c = new Component();
+            c.id = data[pos++] & 0xff;
+            int sampling = data[pos++] & 0xff;
+            c.h = Math.max(1, sampling >> 4);
+            c.v = Math.max(1, sampling & 15);
+            c.quantizationTable = (data[pos++] & 0xff) & 3;
+            hMax = Math.max(hMax, c.h);
+            vMax = Math.max(vMax, c.v);
+            components[i] = c;
+        }
+        mcusPerLine = (width + 8 * hMax - 1) / (8 * hMax);
+        mcusPerColumn = (height + 8 * vMax - 1) / (8 * vMax);
+    }
+
+    /**
+     * Read the markers up to the frame header, so that size and number of
+     * components are known.
+     *
+     * @throws IOException
+     */
+    public void readHeader() throws IOException {
+        if (headerRead) {
+            return;
+        }
+        if (nextMarker() != 0xD8) {
+            throw new IOException("not a JPEG stream"); //$NON-NLS-1$
+        }
+        while (true) {
+            int marker = nextMarker();
+            if (marker == -1) {
+                throw new IOException("JPEG frame header missing"); //$NON-NLS-1$
+            }
+            if (marker == 0xC0 || marker == 0xC1 || marker == 0xC2) {
+                readFrame(marker);
+                break;
+            }
+            if (marker >= 0xC3 && marker <= 0xCF && marker != 0xC4 && marker != 0xC8 && marker != 0xCC) {
+                throw new IOException("unsupported JPEG process " + Integer.toHexString(marker)); //$NON-NLS-1$
+            }
+            readMarkerSegment(marker);
+        }
+        headerRead = true;
+    }
+
+    protected void readMarkerSegment(int marker) throws IOException {
+        if (marker == 0xD8 || marker == 0x01 || (marker >= 0xD0 && marker <= 0xD7)) {
+            // no segment
+            return;
+        }
+        int start = pos;
+        int length = readUnsignedShort();
+        int segmentEnd = Math.min(end, start + length);
+        switch (marker) {
+            case 0xDB:
+                while (pos < segmentEnd) {
+                    int pq = data[pos++] & 0xff;
+                    int[] table = new int[64];
+                    for (int k = 0; k < 64; k++) {
+                        if ((pq >> 4) == 0) {
+                            table[k] = data[pos++] & 0xff;
+                        } else {
+                            table[k] = readUnsignedShort();
+                        }
+                    }
+                    quantizationTables[pq & 3] = table;
+                }
+                break;
+            case 0xC4:
+                while (pos < segmentEnd) {
+                    int tc = data[pos++] & 0xff;
+                    int[] counts = new int[17];
+                    int total = 0;
+                    for (int l = 1; l <= 16; l++) {
+                        counts[l] = data[pos++] & 0xff;
+                        total += counts[l];
+                    }
+                    int[] values = new int[total];
+                    for (int i = 0; i < total; i++) {
+                        values[i] = data[pos++] & 0xff;
+                    }
+                    HuffmanTable table = new HuffmanTable(counts, values);
+                    if ((tc >> 4) == 0) {
+                        dcTables[tc & 3] = table;
+                    } else {
+                        acTables[tc & 3] = table;
+                    }
+                }
+                break;
+            case 0xDD:
+                restartInterval = readUnsignedShort();
+                break;
+            case 0xEE:
+                // Adobe
+                if (length >= 12 && data[pos] == 'A' && data[pos + 1] == 'd' && data[pos + 2] == 'o'
+                    && data[pos + 3] == 'b' && data[pos + 4] == 'e') {
+                    adobeTransform = data[pos + 11] & 0xff;
+                }
+                break;
+            case 0xC0:
+            case 0xC1:
+            case 0xC2:
+                throw new IOException("unexpected JPEG frame header"); //$NON-NLS-1$
+            default:
+                // APPn, COM, DNL, ...
+                break;
+        }
+        pos = start + length;
+    }
+
+    protected int readUnsignedShort() {
+        int result = ((data[pos] & 0xff) << 8) | (data[pos + 1] & 0xff);
+        pos += 2;
+        return result;
+    }
+
+    protected int receive(int count) {
+        if (count == 0) {
+            return 0;
+        }
+        fillBits();
+        int result = bitBuffer >>> (32 - count);
+        consumeBits(count);
+        return result;
+    }
+
+    protected void refine(short[] coefficients, int index, int p1, int m1) {
+        if (readBit() != 0 && (coefficients[index] & p1) == 0) {
+            coefficients[index] += (short) (coefficients[index] >= 0 ? p1 : m1);
+        }
+    }
+
+    protected void resetDecoder(Component[] scanComponents) {
+        bitBuffer = 0;
+        bitCount = 0;
+        markerHit = false;
+        eobrun = 0;
+        for (int i = 0; i < scanComponents.length; i++) {
+            scanComponents[i].pred = 0;
+        }
+    }
+
+    protected void restart(Component[] scanComponents) {
+        resetDecoder(scanComponents);
+        int marker = nextMarker();
+        if (marker != -1 && (marker < 0xD0 || marker > 0xD7)) {
+            // not a restart marker, leave it for the caller
+            pos -= 2;
+        }
+    }
+
+    /**
+     * Set the ColorTransform option as defined for the DCTDecode filter, -1
+     * for the default. An Adobe marker in the data takes precedence.
+     *
+     * @param colorTransform The ColorTransform option
+     */
+    public void setColorTransform(int colorTransform) {
+        this.colorTransform = colorTransform;
+    }
+
+    /**
+     * Set the scale denominator, 1 (full size), 2, 4 or 8.
+     *
+     * @param scale The scale denominator
+     */
+    public void setScale(int scale) {
+        if (scale != 1 && scale != 2 && scale != 4 && scale != 8) {
+            throw new IllegalArgumentException("scale must be 1, 2, 4 or 8"); //$NON-NLS-1$
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Inverse DCT of {@link #block} (natural order, dequantized) to
+     * c.nx x c.ny samples at the block position in the component plane.
+     */
+    protected void transformBlock(Component c, int blockRow, int blockColumn) {
+        int nx = c.nx;
+        int ny = c.ny;
+        int stride = c.planeWidth;
+        int offset = blockRow * ny * stride + blockColumn * nx;
+        byte[] plane = c.plane;
+        boolean dcOnly = true;
+        for (int v = 0; v < ny && dcOnly; v++) {
+            for (int u = 0; u < nx; u++) {
+                if (block[v * 8 + u] != 0 && (u | v) != 0) {
+                    dcOnly = false;
+                    break;
+                }
+            }
+        }
+        if (dcOnly) {
+            byte value = (byte) clamp(Math.round(block[0] / 8f + 128));
+            for (int y = 0; y < ny; y++) {
+                Arrays.fill(plane, offset + y * stride, offset + y * stride + nx, value);
+            }
+            return;
+        }
+        float[] tx = IDCT[nx];
+        float[] ty = IDCT[ny];
+        // columns, only the nx lowest horizontal frequencies are needed
+        for (int u = 0; u < nx; u++) {
+            for (int y = 0; y < ny; y++) {
+                float sum = 0;
+                for (int v = 0; v < ny; v++) {
+                    sum += ty[y * 8 + v] * block[v * 8 + u];
+                }
+                temp[y * 8 + u] = sum;
+            }
+        }
+        // rows
+        for (int y = 0; y < ny; y++) {
+            int index = offset + y * stride;
+            for (int x = 0; x < nx; x++) {
+                float sum = 128.5f;
+                for (int u = 0; u < nx; u++) {
+                    sum += tx[x * 8 + u] * temp[y * 8 + u];
+                }
+                plane[index + x] = (byte) clamp((int) Math.floor(sum));
+            }
+        }
+    }
+
+    protected void transformCoefficients(Component c) {
+        int[] q = quantizationTables[c.quantizationTable];
+        short[] coefficients = c.coefficients;
+        for (int row = 0; row < c.blocksPerColumn; row++) {
+            for (int column = 0; column < c.blocksPerLine; column++) {
+                int offset = (row * c.blocksPerLine + column) * 64;
+                for (int k = 0; k < 64; k++) {
+                    block[ZIGZAG[k]] = coefficients[offset + k] * q[k];
+                }
+                transformBlock(c, row, column);
+            }
+        }
+        c.coefficients = null;
+    }
+}
@@ -46,6 +46,16 @@ public class NoPrediction extends Prediction {
         throw new InternalError("Program execution should not reach this point.");
     }
 
+    @Override
+    public byte[] encode(byte[] source) {
+        return source;
+    }
+
+    @Override
+    protected void encodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) {
+        throw new InternalError("Program execution should not reach this point.");
+    }
+
     public int getRowSize() {
         throw new InternalError("Program execution should not reach this point.");
     }
@@ -37,7 +37,7 @@ public class PNGNonePrediction extends PNGPrediction {
     }
 
     @Override
-    protected void decodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) {
-        System.arraycopy(source, sourceOffset + 1, result, resultOffset, getResultRowSize());
+    protected int selectType(byte[] source, int sourceOffset) {
+        return TYPE_NONE;
     }
 }
@@ -31,51 +31,42 @@ package de.intarsys.pdf.filter;
 
 import de.intarsys.pdf.cos.COSDictionary;
 
-import java.io.IOException;
-
+/**
+ * The PNG prediction selecting the filter type per row.
+ * <p>
+ * When encoding, rows with at least 8 bits per component use the filter type
+ * giving the minimum sum of absolute differences, as recommended by the PNG
+ * specification. Rows with smaller components are not filtered.
+ */
 public class PNGOptimumPrediction extends PNGPrediction {
-    private PNGPrediction average;
-
-    private PNGPrediction none;
-
-    private PNGPrediction paeth;
 
-    private PNGPrediction sub;
-
-    private PNGPrediction up;
+    private byte[] buffer;
 
     public PNGOptimumPrediction(COSDictionary options) {
         super(options);
-        // cache instances to reduce garbage
-        none = new PNGNonePrediction(options);
-        sub = new PNGSubPrediction(options);
-        up = new PNGUpPrediction(options);
-        average = new PNGAveragePrediction(options);
-        paeth = new PNGPaethPrediction(options);
     }
 
     @Override
-    public void decodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) throws IOException {
-        PNGPrediction prediction;
-        switch (source[sourceOffset] + 10) {
-            case PNGNone:
-                prediction = none;
-                break;
-            case PNGSub:
-                prediction = sub;
-                break;
-            case PNGUp:
-                prediction = up;
-                break;
-            case PNGAverage:
-                prediction = average;
-                break;
-            case PNGPaeth:
-                prediction = paeth;
-                break;
-            default:
-                throw new IOException("Unknown predictor function.");
+    protected int selectType(byte[] source, int sourceOffset) {
+        if (getBitsPerComponent() < 8) {
+            return TYPE_NONE;
+        }
+        if (buffer == null) {
+            buffer = new byte[getResultRowSize()];
+        }
+        int bestType = TYPE_NONE;
+        long bestSum = Long.MAX_VALUE;
+        for (int type = TYPE_NONE; type <= TYPE_PAETH; type++) {
+            filterRow(type, source, sourceOffset, buffer, 0);
+            long sum = 0;
+            for (int i = 0; i < buffer.length && sum < bestSum; i++) {
+                sum += Math.abs(buffer[i]);
+            }
+            if (sum < bestSum) {
+                bestSum = sum;
+                bestType = type;
+            }
         }
-        prediction.decodeRow(source, sourceOffset, result, resultOffset);
+        return bestType;
     }
 }
@@ -31,7 +31,46 @@ package de.intarsys.pdf.filter;
 
 import de.intarsys.pdf.cos.COSDictionary;
 
+import java.io.IOException;
+
+/**
+ * The abstract superclass for the PNG predictions.
+ * <p>
+ * Each predicted row is tagged with the PNG filter type used. Decoding always
+ * follows the tag, the subclasses differ in the filter type they select when
+ * encoding.
+ * <p>
+ * PNG filters work on bytes, so all bit depths are supported.
+ */
 public abstract class PNGPrediction extends Prediction {
+
+    public static final int TYPE_AVERAGE = 3;
+
+    public static final int TYPE_NONE = 0;
+
+    public static final int TYPE_PAETH = 4;
+
+    public static final int TYPE_SUB = 1;
+
+    public static final int TYPE_UP = 2;
+
+    protected static int paethPredictor(int left, int above, int upperLeft) {
+        int p = (left + above) - upperLeft; // initial estimate
+        int pa = Math.abs(p - left); // distances to left, above, upper left
+        int pb = Math.abs(p - above);
+        int pc = Math.abs(p - upperLeft);
+
+        // return nearest of a,b,c, breaking ties in order left, above, upper
+        // left.
+        if ((pa <= pb) && (pa <= pc)) {
+            return left;
+        }
+        if (pb <= pc) {
+            return above;
+        }
+        return upperLeft;
+    }
+
     protected PNGPrediction(COSDictionary options) {
         super(options);
     }
@@ -40,4 +79,120 @@ public abstract class PNGPrediction extends Prediction {
     public int computeSourceRowSize() {
         return super.computeSourceRowSize() + 1;
     }
+
+    @Override
+    protected void decodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) throws IOException {
+        int type = source[sourceOffset] & 0xff;
+        int rowSize = getResultRowSize();
+        int bpp = getBytesPerPixel();
+        int prior = resultOffset == 0 ? -1 : resultOffset - rowSize;
+        int s = sourceOffset + 1;
+        int r = resultOffset;
+        switch (type) {
+            case TYPE_NONE:
+                System.arraycopy(source, s, result, r, rowSize);
+                break;
+            case TYPE_SUB:
+                for (int i = 0; i < rowSize; i++) {
+                    int left = i < bpp ? 0 : result[r + i - bpp];
+                    result[r + i] = (byte) (source[s + i] + left);
+                }
+                break;
+            case TYPE_UP:
+                if (prior < 0) {
+                    System.arraycopy(source, s, result, r, rowSize);
+                    break;
+                }
+                for (int i = 0; i < rowSize; i++) {
+                    result[r + i] = (byte) (source[s + i] + result[prior + i]);
+                }
+                break;
+            case TYPE_AVERAGE:
+                for (int i = 0; i < rowSize; i++) {
+                    int left = i < bpp ? 0 : result[r + i - bpp] & 0xff;
+                    int above = prior < 0 ? 0 : result[prior + i] & 0xff;
+                    result[r + i] = (byte) (source[s + i] + ((left + above) >> 1));
+                }
+                break;
+            case TYPE_PAETH:
+                for (int i = 0; i < rowSize; i++) {
+                    int left = i < bpp ? 0 : result[r + i - bpp] & 0xff;
+                    int above = prior < 0 ? 0 : result[prior + i] & 0xff;
+                    int upperLeft = (prior < 0 || i < bpp) ? 0 : result[prior + i - bpp] & 0xff;
+                    result[r + i] = (byte) (source[s + i] + paethPredictor(left, above, upperLeft));
+                }
+                break;
+            default:
+                throw new IOException("Unknown predictor function.");
+        }
+    }
+
+    @Override
+    protected void encodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) {
+        int type = selectType(source, sourceOffset);
+        result[resultOffset] = (byte) type;
+        filterRow(type, source, sourceOffset, result, resultOffset + 1);
+    }
+
+    /**
+     * Apply the PNG filter <code>type</code> to the raw row at
+     * <code>sourceOffset</code>, without the tag byte.
+     *
+     * @param type         The PNG filter type
+     * @param source       The raw rows
+     * @param sourceOffset The offset of the row to filter
+     * @param result       The buffer for the filtered row
+     * @param resultOffset The offset for the filtered row
+     */
+    protected void filterRow(int type, byte[] source, int sourceOffset, byte[] result, int resultOffset) {
+        int rowSize = getResultRowSize();
+        int bpp = getBytesPerPixel();
+        int prior = sourceOffset == 0 ? -1 : sourceOffset - rowSize;
+        int s = sourceOffset;
+        int r = resultOffset;
+        switch (type) {
+            case TYPE_SUB:
+                for (int i = 0; i < rowSize; i++) {
+                    int left = i < bpp ? 0 : source[s + i - bpp];
+                    result[r + i] = (byte) (source[s + i] - left);
+                }
+                break;
+            case TYPE_UP:
+                if (prior < 0) {
+                    System.arraycopy(source, s, result, r, rowSize);
+                    break;
+                }
+                for (int i = 0; i < rowSize; i++) {
+                    result[r + i] = (byte) (source[s + i] - source[prior + i]);
+                }
+                break;
+            case TYPE_AVERAGE:
+                for (int i = 0; i < rowSize; i++) {
+                    int left = i < bpp ? 0 : source[s + i - bpp] & 0xff;
+                    int above = prior < 0 ? 0 : source[prior + i] & 0xff;
+                    result[r + i] = (byte) (source[s + i] - ((left + above) >> 1));
+                }
+                break;
+            case TYPE_PAETH:
+                for (int i = 0; i < rowSize; i++) {
+                    int left = i < bpp ? 0 : source[s + i - bpp] & 0xff;
+                    int above = prior < 0 ? 0 : source[prior + i] & 0xff;
+                    int upperLeft = (prior < 0 || i < bpp) ? 0 : source[prior + i - bpp] & 0xff;
+                    result[r + i] = (byte) (source[s + i] - paethPredictor(left, above, upperLeft));
+                }
+                break;
+            default:
+                System.arraycopy(source, s, result, r, rowSize);
+        }
+    }
+
+    /**
+     * The PNG filter type to use for encoding the raw row at
+     * <code>sourceOffset</code>.
+     *
+     * @param source       The raw rows
+     * @param sourceOffset The offset of the row to encode
+     * @return The PNG filter type
+     */
+    protected abstract int selectType(byte[] source, int sourceOffset);
 }
@@ -40,18 +40,7 @@ public class PNGUpPrediction extends PNGPrediction {
     }
 
     @Override
-    public void decodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) {
-        int actualSourceOffset;
-
-        actualSourceOffset = sourceOffset + 1;
-
-        if (sourceOffset == 0) {
-            System.arraycopy(source, actualSourceOffset, result, 0, getResultRowSize());
-            return;
-        }
-        for (int index = 0; index < getResultRowSize(); index++) {
-            result[resultOffset + index] =
-                    (byte) (result[resultOffset - getResultRowSize() + index] + source[actualSourceOffset + index]);
-        }
+    protected int selectType(byte[] source, int sourceOffset) {
+        return TYPE_UP;
     }
 }
@@ -36,7 +36,12 @@ import de.intarsys.pdf.cos.COSName;
 import java.io.IOException;
 
 /**
- *
+ * The abstract superclass for predictor implementations.
+ * <p>
+ * Predictions work row by row. The "source" rows are the predicted (encoded)
+ * rows, the "result" rows are the raw sample rows. A row at offset 0 is the
+ * first row, any other row is immediately preceded by its previous row in
+ * the same buffer.
  */
 public abstract class Prediction implements IPrediction {
     public static final COSName DK_BitsPerComponent = COSName.constant("BitsPerComponent"); //$NON-NLS-1$
@@ -65,6 +70,8 @@ public abstract class Prediction implements IPrediction {
 
     private int bitsPerComponent;
 
+    private int bytesPerPixel;
+
     private int colors;
 
     private int columns;
@@ -97,13 +104,13 @@ public abstract class Prediction implements IPrediction {
             columns = value.intValue();
         }
 
+        bytesPerPixel = Math.max(1, (colors * bitsPerComponent + 7) / 8);
         resultRowSize = computeResultRowSize();
         sourceRowSize = computeSourceRowSize();
     }
 
     public int computeResultRowSize() {
-        // assume that bitsPerComponent is 8, 4, 2 or 1
-        return (int) Math.ceil(((double) colors * columns) / (8 / bitsPerComponent));
+        return (colors * bitsPerComponent * columns + 7) / 8;
     }
 
     public int computeSourceRowSize() {
@@ -123,13 +130,65 @@ public abstract class Prediction implements IPrediction {
         return result;
     }
 
+    /**
+     * Decode the predicted row at <code>sourceOffset</code> to
+     * <code>result</code>.
+     *
+     * @param source       The predicted rows
+     * @param sourceOffset The offset of the row to decode
+     * @param result       The raw rows
+     * @param resultOffset The offset of the row to write, the previous raw row
+     *                     precedes it unless resultOffset is 0
+     * @throws IOException
+     */
     protected abstract void decodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset)
             throws IOException;
 
+    @Override
+    public byte[] encode(byte[] source) throws IOException {
+        int rows;
+        byte[] result;
+
+        rows = (source.length + resultRowSize - 1) / resultRowSize;
+        if (source.length != rows * resultRowSize) {
+            // pad incomplete row
+            byte[] temp = new byte[rows * resultRowSize];
+            System.arraycopy(source, 0, temp, 0, source.length);
+            source = temp;
+        }
+        result = new byte[rows * sourceRowSize];
+        for (int index = 0; index < rows; index++) {
+            encodeRow(source, resultRowSize * index, result, sourceRowSize * index);
+        }
+        return result;
+    }
+
+    /**
+     * Encode the raw row at <code>sourceOffset</code> to <code>result</code>.
+     *
+     * @param source       The raw rows
+     * @param sourceOffset The offset of the row to encode, the previous raw row
+     *                     precedes it unless sourceOffset is 0
+     * @param result       The predicted rows
+     * @param resultOffset The offset of the row to write
+     * @throws IOException
+     */
+    protected abstract void encodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset)
+            throws IOException;
+
     public int getBitsPerComponent() {
         return bitsPerComponent;
     }
 
+    /**
+     * The number of bytes in a complete pixel, at least 1.
+     *
+     * @return The number of bytes in a complete pixel.
+     */
+    public int getBytesPerPixel() {
+        return bytesPerPixel;
+    }
+
     public int getColors() {
         return colors;
     }
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * An {@link InputStream} undoing a {@link Prediction} row by row.
+ * <p>
+ * Only the current and the previous row are held in memory. A trailing
+ * incomplete row is dropped, as in {@link Prediction#decode(byte[])}.
+ */
+public class PredictionInputStream extends FilterInputStream {
+
+    private int length = 0;
+
+    private int pos = 0;
+
+    private final Prediction prediction;
+
+    /**
+     * The previous row at 0, the current row at resultRowSize
+     */
+    private final byte[] result;
+
+    private int resultOffset = -1;
+
+    private final byte[] source;
+
+    public PredictionInputStream(InputStream in, Prediction prediction) {
+        super(in);
+        this.prediction = prediction;
+        this.source = new byte[prediction.getSourceRowSize() * 2];
+        this.result = new byte[prediction.getResultRowSize() * 2];
+    }
+
+    @Override
+    public int available() throws IOException {
+        return length - pos;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (pos >= length && !readRow()) {
+            return -1;
+        }
+        return result[resultOffset + pos++] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if ((off < 0) || (len < 0) || (len > b.length - off)) {
+            throw new IndexOutOfBoundsException();
+        }
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len) {
+            if (pos >= length && !readRow()) {
+                break;
+            }
+            int chunk = Math.min(len - count, length - pos);
+            System.arraycopy(result, resultOffset + pos, b, off + count, chunk);
+            pos += chunk;
+            count += chunk;
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    protected boolean readRow() throws IOException {
+        int sourceRowSize = prediction.getSourceRowSize();
+        int resultRowSize = prediction.getResultRowSize();
+        // the predictions detect the first row by a result offset of 0
+        int sourceOffset;
+        if (resultOffset == -1) {
+            sourceOffset = 0;
+            resultOffset = 0;
+        } else {
+            if (resultOffset != 0) {
+                System.arraycopy(result, resultOffset, result, 0, resultRowSize);
+            }
+            sourceOffset = sourceRowSize;
+            resultOffset = resultRowSize;
+        }
+        int index = 0;
+        while (index < sourceRowSize) {
+            int count = in.read(source, sourceOffset + index, sourceRowSize - index);
+            if (count == -1) {
+                length = 0;
+                pos = 0;
+                return false;
+            }
+            index += count;
+        }
+        prediction.decodeRow(source, sourceOffset, result, resultOffset);
+        length = resultRowSize;
+        pos = 0;
+        return true;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        throw new IOException("method not supported");
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long count = 0;
+        while (count < n && read() != -1) {
+            count++;
+        }
+        return count;
+    }
+}
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An {@link OutputStream} applying a {@link Prediction} row by row.
+ * <p>
+ * Only the current and the previous row are held in memory. An incomplete
+ * last row is padded with 0 when the stream is closed.
+ */
+public class PredictionOutputStream extends FilterOutputStream {
+
+    private boolean closed = false;
+
+    private int pos = 0;
+
+    private final Prediction prediction;
+
+    private final byte[] result;
+
+    /**
+     * The previous row at 0, the current row at resultRowSize
+     */
+    private final byte[] source;
+
+    private int sourceOffset = 0;
+
+    public PredictionOutputStream(OutputStream out, Prediction prediction) {
+        super(out);
+        this.prediction = prediction;
+        this.source = new byte[prediction.getResultRowSize() * 2];
+        this.result = new byte[prediction.getSourceRowSize()];
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        if (pos > 0) {
+            while (pos < prediction.getResultRowSize()) {
+                source[sourceOffset + pos++] = 0;
+            }
+            writeRow();
+        }
+        super.close();
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if ((off < 0) || (len < 0) || (len > b.length - off)) {
+            throw new IndexOutOfBoundsException();
+        }
+        int rowSize = prediction.getResultRowSize();
+        while (len > 0) {
+            int chunk = Math.min(len, rowSize - pos);
+            System.arraycopy(b, off, source, sourceOffset + pos, chunk);
+            pos += chunk;
+            off += chunk;
+            len -= chunk;
+            if (pos == rowSize) {
+                writeRow();
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        source[sourceOffset + pos++] = (byte) b;
+        if (pos == prediction.getResultRowSize()) {
+            writeRow();
+        }
+    }
+
+    protected void writeRow() throws IOException {
+        int rowSize = prediction.getResultRowSize();
+        prediction.encodeRow(source, sourceOffset, result, 0);
+        out.write(result, 0, result.length);
+        // the predictions detect the first row by a source offset of 0
+        if (sourceOffset != 0) {
+            System.arraycopy(source, sourceOffset, source, 0, rowSize);
+        }
+        sourceOffset = rowSize;
+        pos = 0;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import de.intarsys.pdf.cos.COSDictionary;
+import de.intarsys.pdf.cos.COSName;
+import de.intarsys.pdf.cos.COSStream;
+
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * The standard implementation for the {@link ICompressionPolicy}.
+ * <p>
+ * Level and strategy are chosen by the kind of the stream (content, font,
+ * image, object stream). A new policy uses the {@link Deflater} defaults for
+ * all of them and compresses everything, just like {@link FlateFilter}
+ * without a policy.
+ * <p>
+ * Use {@link #createFast()} or {@link #createArchive()} for the common
+ * trade offs between speed and size. These also store data that looks
+ * already compressed, judged by a quick trial compression of a small
+ * sample, without compression. See {@link #setRatioThreshold(float)}.
+ */
+public class StandardCompressionPolicy implements ICompressionPolicy {
+
+    public static final int TYPE_CONTENT = 0;
+
+    public static final int TYPE_FONT = 1;
+
+    public static final int TYPE_IMAGE = 2;
+
+    public static final int TYPE_OBJECT_STREAM = 3;
+
+    private static final int TYPE_COUNT = 4;
+
+    private static final COSName DK_Type = COSName.constant("Type"); //$NON-NLS-1$
+
+    private static final COSName DK_Subtype = COSName.constant("Subtype"); //$NON-NLS-1$
+
+    private static final COSName CN_Type_ObjStm = COSName.constant("ObjStm"); //$NON-NLS-1$
+
+    private static final COSName CN_Subtype_Image = COSName.constant("Image"); //$NON-NLS-1$
+
+    private static final COSName DK_Length1 = COSName.constant("Length1"); //$NON-NLS-1$
+
+    private static final COSName DK_Length2 = COSName.constant("Length2"); //$NON-NLS-1$
+
+    private static final COSName CN_Subtype_CIDFontType0C = COSName.constant("CIDFontType0C"); //$NON-NLS-1$
+
+    private static final COSName CN_Subtype_OpenType = COSName.constant("OpenType"); //$NON-NLS-1$
+
+    private static final COSName CN_Subtype_Type1C = COSName.constant("Type1C"); //$NON-NLS-1$
+
+    /**
+     * Inputs smaller than this are always compressed
+     */
+    private static final int MIN_SAMPLE_LENGTH = 512;
+
+    private static final int SAMPLE_WINDOW = 1024;
+
+    private static final int SAMPLE_WINDOWS = 4;
+
+    /**
+     * Best compression, data that is hard to compress is tried anyway.
+     *
+     * @return A new policy for archiving
+     */
+    public static StandardCompressionPolicy createArchive() {
+        StandardCompressionPolicy result = new StandardCompressionPolicy();
+        Arrays.fill(result.levels, Deflater.BEST_COMPRESSION);
+        // predicted image rows are small differences
+        result.strategies[TYPE_IMAGE] = Deflater.FILTERED;
+        result.setRatioThreshold(0.98f);
+        return result;
+    }
+
+    /**
+     * Fast compression, data that is hard to compress is stored.
+     *
+     * @return A new policy for fast saving
+     */
+    public static StandardCompressionPolicy createFast() {
+        StandardCompressionPolicy result = new StandardCompressionPolicy();
+        Arrays.fill(result.levels, Deflater.BEST_SPEED);
+        result.setRatioThreshold(0.9f);
+        return result;
+    }
+
+    /**
+     * The compressed to original size ratio of the sample above which the
+     * data is considered incompressible, 1 or more disables the check
+     */
+    private float ratioThreshold = 1;
+
+    private final int[] levels = new int[TYPE_COUNT];
+
+    private final int[] strategies = new int[TYPE_COUNT];
+
+    public StandardCompressionPolicy() {
+        super();
+        Arrays.fill(levels, Deflater.DEFAULT_COMPRESSION);
+        Arrays.fill(strategies, Deflater.DEFAULT_STRATEGY);
+    }
+
+    /**
+     * The compressed to original size ratio, estimated by deflating up to
+     * {@link #SAMPLE_WINDOWS} evenly spread windows of <code>source</code>
+     * with {@link Deflater#BEST_SPEED}. Unlike a byte histogram this sees
+     * repetition, as in predictor encoded image rows.
+     *
+     * @param source The data
+     * @param offset The offset of the data
+     * @param length The length of the data
+     * @return The estimated compression ratio
+     */
+    protected double estimateRatio(byte[] source, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED, true);
+        try {
+            byte[] buffer = new byte[SAMPLE_WINDOW];
+            int total = 0;
+            int compressed = 0;
+            int window = Math.min(SAMPLE_WINDOW, length);
+            int step = length / SAMPLE_WINDOWS;
+            for (int w = 0; w < SAMPLE_WINDOWS; w++) {
+                int start = offset + Math.min(w * step, length - window);
+                deflater.setInput(source, start, window);
+                while (!deflater.needsInput()) {
+                    compressed += deflater.deflate(buffer);
+                }
+                total += window;
+            }
+            deflater.finish();
+            while (!deflater.finished()) {
+                compressed += deflater.deflate(buffer);
+            }
+            return (double) compressed / total;
+        } finally {
+            deflater.end();
+        }
+    }
+
+    public int getLevel(int type) {
+        return levels[type];
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.ICompressionPolicy#getLevel(de.intarsys.pdf.cos.COSStream,
+     * byte[], int, int)
+     */
+    @Override
+    public int getLevel(COSStream stream, byte[] source, int offset, int length) {
+        int type = getType(stream);
+        // object streams are serialized objects, always worth compressing
+        if (type != TYPE_OBJECT_STREAM && source != null && length >= MIN_SAMPLE_LENGTH
+            && ratioThreshold < 1 && estimateRatio(source, offset, length) > ratioThreshold) {
+            return Deflater.NO_COMPRESSION;
+        }
+        return levels[type];
+    }
+
+    public float getRatioThreshold() {
+        return ratioThreshold;
+    }
+
+    public int getStrategy(int type) {
+        return strategies[type];
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.ICompressionPolicy#getStrategy(de.intarsys.pdf.cos.COSStream)
+     */
+    @Override
+    public int getStrategy(COSStream stream) {
+        return strategies[getType(stream)];
+    }
+
+    /**
+     * The kind of <code>stream</code>, one of the TYPE constants.
+     *
+     * @param stream The stream, may be null
+     * @return The kind of <code>stream</code>
+     */
+    protected int getType(COSStream stream) {
+        if (stream == null) {
+            return TYPE_CONTENT;
+        }
+        COSDictionary dict = stream.getDict();
+        COSName type = dict.get(DK_Type).asName();
+        COSName subtype = dict.get(DK_Subtype).asName();
+        if (CN_Type_ObjStm.equals(type)) {
+            return TYPE_OBJECT_STREAM;
+        }
+        if (CN_Subtype_Image.equals(subtype)) {
+            return TYPE_IMAGE;
+        }
+        if (!dict.get(DK_Length1).isNull() || !dict.get(DK_Length2).isNull()
+            || CN_Subtype_Type1C.equals(subtype) || CN_Subtype_CIDFontType0C.equals(subtype)
+            || CN_Subtype_OpenType.equals(subtype)) {
+            return TYPE_FONT;
+        }
+        return TYPE_CONTENT;
+    }
+
+    /**
+     * Set the compressed to original size ratio of the sample above which
+     * data is stored without compression. A value of 1 or more disables the
+     * check.
+     *
+     * @param ratioThreshold The ratio threshold
+     */
+    public void setRatioThreshold(float ratioThreshold) {
+        this.ratioThreshold = ratioThreshold;
+    }
+
+    public void setLevel(int type, int level) {
+        levels[type] = level;
+    }
+
+    public void setStrategy(int type, int strategy) {
+        strategies[type] = strategy;
+    }
+}
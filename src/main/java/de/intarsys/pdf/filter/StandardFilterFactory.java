@@ -76,4 +76,20 @@ public class StandardFilterFactory implements IFilterFactory {
         }
         return result;
     }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.filter.IFilterFactory#createFilter(de.intarsys.pdf.cos.COSName,
+     * de.intarsys.pdf.cos.COSDictionary, de.intarsys.pdf.filter.ICompressionPolicy)
+     */
+    @Override
+    public IFilter createFilter(COSName filterName, COSDictionary options, ICompressionPolicy policy)
+            throws IOException {
+        IFilter result = createFilter(filterName, options);
+        if (policy != null && result instanceof FlateFilter) {
+            ((FlateFilter) result).setCompressionPolicy(policy);
+        }
+        return result;
+    }
 }
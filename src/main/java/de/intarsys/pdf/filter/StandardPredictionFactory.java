@@ -56,9 +56,24 @@ public class StandardPredictionFactory implements IPredictionFactory {
         if (predictor == Prediction.TIFF) {
             return new TIFFPrediction(options);
         }
-        if (predictor >= Prediction.PNGNone) {
-            // according to spec actual function used should be encoded in the
-            // data
+        // according to spec actual function used for decoding is encoded in
+        // the data, the predictor selects the function for encoding
+        if (predictor == Prediction.PNGNone) {
+            return new PNGNonePrediction(options);
+        }
+        if (predictor == Prediction.PNGSub) {
+            return new PNGSubPrediction(options);
+        }
+        if (predictor == Prediction.PNGUp) {
+            return new PNGUpPrediction(options);
+        }
+        if (predictor == Prediction.PNGAverage) {
+            return new PNGAveragePrediction(options);
+        }
+        if (predictor == Prediction.PNGPaeth) {
+            return new PNGPaethPrediction(options);
+        }
+        if (predictor >= Prediction.PNGOptimum) {
             return new PNGOptimumPrediction(options);
         }
         throw new IOException("unknown predictor: " + predictor);
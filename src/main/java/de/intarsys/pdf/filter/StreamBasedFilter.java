@@ -58,7 +58,7 @@ public abstract class StreamBasedFilter extends Filter {
     protected byte[] encode(byte[] source) throws IOException {
         ByteArrayInputStream is = new ByteArrayInputStream(source);
         ByteArrayOutputStream os = new ByteArrayOutputStream();
-        OutputStream filter = createOutputFilterStream(os);
+        OutputStream filter = createEncodeStream(os);
         StreamTools.copyStream(is, true, filter, true);
         return os.toByteArray();
     }
@@ -72,11 +72,40 @@ public abstract class StreamBasedFilter extends Filter {
     protected byte[] decode(byte[] source) throws IOException {
         ByteArrayInputStream is = new ByteArrayInputStream(source);
         ByteArrayOutputStream os = new ByteArrayOutputStream();
-        InputStream filter = createInputFilterStream(is);
+        InputStream filter = createDecodeStream(is);
         StreamTools.copyStream(filter, true, os, true);
         return os.toByteArray();
     }
 
+    /**
+     * An {@link InputStream} decoding <code>is</code> on the fly.
+     * <p>
+     * The result is the same as {@link #decode(byte[])} for the complete
+     * input, without holding it in memory.
+     *
+     * @param is The encoded input
+     * @return An {@link InputStream} decoding <code>is</code>
+     * @throws IOException
+     */
+    @Override
+    public InputStream createDecodeStream(InputStream is) throws IOException {
+        return createInputFilterStream(is);
+    }
+
+    /**
+     * An {@link OutputStream} encoding to <code>os</code> on the fly.
+     * <p>
+     * The result is the same as {@link #encode(byte[])} for the complete
+     * input. The stream must be closed to complete the encoding.
+     *
+     * @param os The destination for the encoded output
+     * @return An {@link OutputStream} encoding to <code>os</code>
+     * @throws IOException
+     */
+    public OutputStream createEncodeStream(OutputStream os) throws IOException {
+        return createOutputFilterStream(os);
+    }
+
     protected abstract InputStream createInputFilterStream(InputStream is) throws IOException;
 
     protected abstract OutputStream createOutputFilterStream(OutputStream os) throws IOException;
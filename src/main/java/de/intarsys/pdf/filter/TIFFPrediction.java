@@ -31,6 +31,11 @@ package de.intarsys.pdf.filter;
 
 import de.intarsys.pdf.cos.COSDictionary;
 
+/**
+ * The TIFF predictor 2, horizontal differencing of the samples.
+ * <p>
+ * Supports 1, 2, 4, 8 and 16 bits per component.
+ */
 public class TIFFPrediction extends Prediction {
     public TIFFPrediction(COSDictionary options) {
         super(options);
@@ -38,28 +43,89 @@ public class TIFFPrediction extends Prediction {
 
     @Override
     protected void decodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) {
-        int colors;
-        int columns;
-
-        if (getBitsPerComponent() != 8) {
-            // TODO 2 @ehk implement
-            return;
+        int colors = getColors();
+        int rowSize = getResultRowSize();
+        switch (getBitsPerComponent()) {
+            case 8:
+                System.arraycopy(source, sourceOffset, result, resultOffset, Math.min(colors, rowSize));
+                for (int i = colors; i < rowSize; i++) {
+                    result[resultOffset + i] = (byte) (result[resultOffset + i - colors] + source[sourceOffset + i]);
+                }
+                break;
+            case 16:
+                System.arraycopy(source, sourceOffset, result, resultOffset, Math.min(colors * 2, rowSize));
+                for (int i = colors * 2; i + 1 < rowSize; i += 2) {
+                    int value = get16(result, resultOffset + i - colors * 2) + get16(source, sourceOffset + i);
+                    result[resultOffset + i] = (byte) (value >> 8);
+                    result[resultOffset + i + 1] = (byte) value;
+                }
+                break;
+            default:
+                int bpc = getBitsPerComponent();
+                int mask = (1 << bpc) - 1;
+                int samples = getColumns() * colors;
+                for (int i = 0; i < samples; i++) {
+                    int value = getBits(source, sourceOffset, i, bpc);
+                    if (i >= colors) {
+                        value += getBits(result, resultOffset, i - colors, bpc);
+                    }
+                    setBits(result, resultOffset, i, bpc, value & mask);
+                }
         }
+    }
 
-        colors = getColors();
-        columns = getColumns();
-        System.arraycopy(source, sourceOffset, result, resultOffset, colors);
-        for (int byteIndex = 1; byteIndex < columns; byteIndex++) {
-            for (int colorIndex = 0; colorIndex < colors; colorIndex++) {
-                result[resultOffset + (byteIndex * colors) + colorIndex] =
-                        (byte) (result[resultOffset + ((byteIndex - 1) * colors) + colorIndex] + source[sourceOffset + (
-                                byteIndex
-                                * colors) + colorIndex]);
-            }
+    @Override
+    protected void encodeRow(byte[] source, int sourceOffset, byte[] result, int resultOffset) {
+        int colors = getColors();
+        int rowSize = getResultRowSize();
+        switch (getBitsPerComponent()) {
+            case 8:
+                System.arraycopy(source, sourceOffset, result, resultOffset, Math.min(colors, rowSize));
+                for (int i = colors; i < rowSize; i++) {
+                    result[resultOffset + i] = (byte) (source[sourceOffset + i] - source[sourceOffset + i - colors]);
+                }
+                break;
+            case 16:
+                System.arraycopy(source, sourceOffset, result, resultOffset, Math.min(colors * 2, rowSize));
+                for (int i = colors * 2; i + 1 < rowSize; i += 2) {
+                    int value = get16(source, sourceOffset + i) - get16(source, sourceOffset + i - colors * 2);
+                    result[resultOffset + i] = (byte) (value >> 8);
+                    result[resultOffset + i + 1] = (byte) value;
+                }
+                break;
+            default:
+                int bpc = getBitsPerComponent();
+                int mask = (1 << bpc) - 1;
+                int samples = getColumns() * colors;
+                for (int i = 0; i < samples; i++) {
+                    int value = getBits(source, sourceOffset, i, bpc);
+                    if (i >= colors) {
+                        value -= getBits(source, sourceOffset, i - colors, bpc);
+                    }
+                    setBits(result, resultOffset, i, bpc, value & mask);
+                }
         }
     }
 
+    protected int get16(byte[] bytes, int offset) {
+        return ((bytes[offset] & 0xff) << 8) | (bytes[offset + 1] & 0xff);
+    }
+
+    protected int getBits(byte[] bytes, int offset, int index, int bpc) {
+        int bit = index * bpc;
+        int shift = 8 - bpc - (bit & 7);
+        return (bytes[offset + (bit >> 3)] >> shift) & ((1 << bpc) - 1);
+    }
+
     public int getRowSize() {
         return getColumns() * getColors();
     }
+
+    protected void setBits(byte[] bytes, int offset, int index, int bpc, int value) {
+        int bit = index * bpc;
+        int shift = 8 - bpc - (bit & 7);
+        int mask = ((1 << bpc) - 1) << shift;
+        int pos = offset + (bit >> 3);
+        bytes[pos] = (byte) ((bytes[pos] & ~mask) | (value << shift));
+    }
 }
@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.font;
+
+import de.intarsys.cwt.font.afm.AFM;
+import de.intarsys.cwt.font.afm.AFMChar;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.StringTokenizer;
+
+/**
+ * The numeric metrics of an {@link AFM}, parsed once.
+ * <p>
+ * {@link AFM} holds its header values as strings, so reading them in a hot
+ * path (text extraction, glyph geometry) means parsing them again and again.
+ * An {@link AFMMetrics} is immutable and may be shared by all fonts (and
+ * threads) using the same font program.
+ */
+public class AFMMetrics {
+
+    /**
+     * The metrics used when no {@link AFM} is available.
+     */
+    public static final AFMMetrics EMPTY = new AFMMetrics(null);
+
+    /**
+     * Create the metrics for <code>afm</code>.
+     *
+     * @param afm The {@link AFM} or null
+     * @return The new metrics
+     */
+    public static AFMMetrics create(AFM afm) {
+        if (afm == null) {
+            return EMPTY;
+        }
+        return new AFMMetrics(afm);
+    }
+
+    protected static float parseFloat(AFM afm, String name) {
+        if (afm == null) {
+            return 0;
+        }
+        String value = afm.getAttribute(name);
+        if (value == null) {
+            return 0;
+        }
+        try {
+            return Float.parseFloat(value.trim());
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private final float ascent;
+
+    private final float capHeight;
+
+    private final float descent;
+
+    /**
+     * llx, lly, urx, ury
+     */
+    private final float[] fontBB;
+
+    private final String fontName;
+
+    private final float italicAngle;
+
+    private final float stemH;
+
+    private final float stemV;
+
+    /**
+     * The width for each code in the builtin encoding, -1 if undefined.
+     */
+    private final int[] widthsByCode;
+
+    /**
+     * The width for each glyph name.
+     */
+    private final Map<String, Integer> widthsByName;
+
+    private final float xHeight;
+
+    protected AFMMetrics(AFM afm) {
+        ascent = parseFloat(afm, "Ascender"); //$NON-NLS-1$
+        capHeight = parseFloat(afm, "CapHeight"); //$NON-NLS-1$
+        descent = parseFloat(afm, "Descender"); //$NON-NLS-1$
+        italicAngle = parseFloat(afm, "ItalicAngle"); //$NON-NLS-1$
+        stemH = parseFloat(afm, "StdHW"); //$NON-NLS-1$
+        stemV = parseFloat(afm, "StdVW"); //$NON-NLS-1$
+        xHeight = parseFloat(afm, "XHeight"); //$NON-NLS-1$
+        fontBB = new float[4];
+        widthsByCode = new int[256];
+        for (int i = 0; i < widthsByCode.length; i++) {
+            widthsByCode[i] = -1;
+        }
+        widthsByName = new HashMap<String, Integer>();
+        if (afm == null) {
+            fontName = ""; //$NON-NLS-1$
+            return;
+        }
+        String value = afm.getAttribute("FontName"); //$NON-NLS-1$
+        fontName = value == null ? "" : value.trim(); //$NON-NLS-1$
+        value = afm.getAttribute("FontBBox"); //$NON-NLS-1$
+        if (value != null) {
+            StringTokenizer st = new StringTokenizer(value);
+            for (int i = 0; i < fontBB.length && st.hasMoreTokens(); i++) {
+                try {
+                    fontBB[i] = Float.parseFloat(st.nextToken());
+                } catch (NumberFormatException e) {
+                    break;
+                }
+            }
+        }
+        if (afm.getChars() != null) {
+            for (Iterator it = afm.getChars().iterator(); it.hasNext(); ) {
+                AFMChar afmChar = (AFMChar) it.next();
+                int code = afmChar.getCode();
+                if (code >= 0 && code < widthsByCode.length) {
+                    widthsByCode[code] = afmChar.getWidth();
+                }
+                if (afmChar.getName() != null && !widthsByName.containsKey(afmChar.getName())) {
+                    widthsByName.put(afmChar.getName(), afmChar.getWidth());
+                }
+            }
+        }
+    }
+
+    public float getAscent() {
+        return ascent;
+    }
+
+    public float getCapHeight() {
+        return capHeight;
+    }
+
+    public float getDescent() {
+        return descent;
+    }
+
+    public float getFontBBLowerLeftX() {
+        return fontBB[0];
+    }
+
+    public float getFontBBLowerLeftY() {
+        return fontBB[1];
+    }
+
+    public float getFontBBUpperRightX() {
+        return fontBB[2];
+    }
+
+    public float getFontBBUpperRightY() {
+        return fontBB[3];
+    }
+
+    public String getFontName() {
+        return fontName;
+    }
+
+    public float getItalicAngle() {
+        return italicAngle;
+    }
+
+    public float getStemH() {
+        return stemH;
+    }
+
+    public float getStemV() {
+        return stemV;
+    }
+
+    /**
+     * The width of the character with <code>code</code> in the font's builtin
+     * encoding or -1 if not defined.
+     *
+     * @param code The code in the builtin encoding
+     * @return The width or -1
+     */
+    public int getWidth(int code) {
+        if (code < 0 || code >= widthsByCode.length) {
+            return -1;
+        }
+        return widthsByCode[code];
+    }
+
+    /**
+     * The width of the glyph <code>name</code> or -1 if not defined.
+     *
+     * @param name The glyph name
+     * @return The width or -1
+     */
+    public int getWidth(String name) {
+        if (name == null) {
+            return -1;
+        }
+        Integer width = widthsByName.get(name);
+        if (width == null) {
+            return -1;
+        }
+        return width;
+    }
+
+    public float getXHeight() {
+        return xHeight;
+    }
+}
@@ -67,7 +67,7 @@ public abstract class CIDFont extends PDFont {
      */
     public static final MetaClass META = new MetaClass(MetaClass.class.getDeclaringClass());
 
-    private CIDWidthMap map = null;
+    private volatile CIDWidthMap map = null;
 
     protected CIDFont(COSObject object) {
         super(object);
@@ -78,10 +78,12 @@ public abstract class CIDFont extends PDFont {
     }
 
     public CIDWidthMap getCIDWidthMap() {
-        if (map == null) {
-            map = (CIDWidthMap) CIDWidthMap.META.createFromCos(cosGetField(DK_W));
+        CIDWidthMap widthMap = map;
+        if (widthMap == null) {
+            widthMap = (CIDWidthMap) CIDWidthMap.META.createFromCos(cosGetField(DK_W));
+            map = widthMap;
         }
-        return map;
+        return widthMap;
     }
 
     public int getDefaultGlyphWidth() {
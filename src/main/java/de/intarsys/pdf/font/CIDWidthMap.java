@@ -36,11 +36,18 @@ import de.intarsys.pdf.cos.COSNumber;
 import de.intarsys.pdf.cos.COSObject;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
 
 /**
- *
+ * The /W array of a CID font.
+ * <p>
+ * Lookup is done on a compiled, primitive representation of the entries. If
+ * the CID span is small (or densely populated) a flat width table is used,
+ * otherwise a sorted table of non overlapping ranges is searched binary.
  */
 public class CIDWidthMap extends COSBasedObject {
 
@@ -68,14 +75,160 @@ public class CIDWidthMap extends COSBasedObject {
      */
     public static final MetaClass META = new MetaClass(MetaClass.class.getDeclaringClass());
 
+    /**
+     * The compiled lookup structure for the entries.
+     * <p>
+     * The instance is immutable once published.
+     */
+    protected static class Lookup {
+
+        /**
+         * A CID span up to this size is always compiled to a flat table.
+         */
+        private static final int DENSE_SPAN = 1024;
+
+        /**
+         * A larger span is compiled to a flat table if it contains at least
+         * one defined CID per this number of slots.
+         */
+        private static final int DENSE_RATIO = 4;
+
+        /**
+         * Create the lookup for the entries.
+         * <p>
+         * If ranges overlap, the first definition wins.
+         *
+         * @param entries The entries in definition order
+         * @return The new lookup
+         */
+        protected static Lookup create(List<CIDWidthMapEntry> entries) {
+            // resolve to disjoint ranges, start -> {stop, width}
+            TreeMap<Integer, int[]> ranges = new TreeMap<>();
+            long covered = 0;
+            for (CIDWidthMapEntry entry : entries) {
+                int start = entry.getStart();
+                int stop = entry.getStop();
+                if (stop < start) {
+                    continue;
+                }
+                long cursor = start;
+                Map.Entry<Integer, int[]> floor = ranges.floorEntry(start);
+                if (floor != null && floor.getValue()[0] >= start) {
+                    cursor = (long) floor.getValue()[0] + 1;
+                }
+                List<int[]> gaps = null;
+                for (Map.Entry<Integer, int[]> next : ranges.subMap(start, false, stop, true).entrySet()) {
+                    if (cursor < next.getKey()) {
+                        if (gaps == null) {
+                            gaps = new ArrayList<>();
+                        }
+                        gaps.add(new int[]{(int) cursor, next.getKey() - 1});
+                    }
+                    cursor = Math.max(cursor, (long) next.getValue()[0] + 1);
+                }
+                if (cursor <= stop) {
+                    ranges.put((int) cursor, new int[]{stop, entry.getWidth()});
+                    covered += stop - cursor + 1;
+                }
+                if (gaps != null) {
+                    for (int[] gap : gaps) {
+                        ranges.put(gap[0], new int[]{gap[1], entry.getWidth()});
+                        covered += (long) gap[1] - gap[0] + 1;
+                    }
+                }
+            }
+            if (ranges.isEmpty()) {
+                return new Lookup(new int[0], new int[0], new int[0], null, 0);
+            }
+            int min = ranges.firstKey();
+            long span = (long) ranges.lastEntry().getValue()[0] - min + 1;
+            if (span <= DENSE_SPAN || (span <= Integer.MAX_VALUE / 2 && span <= covered * DENSE_RATIO)) {
+                int[] dense = new int[(int) span];
+                Arrays.fill(dense, -1);
+                for (Map.Entry<Integer, int[]> range : ranges.entrySet()) {
+                    Arrays.fill(dense, range.getKey() - min, range.getValue()[0] - min + 1, range.getValue()[1]);
+                }
+                return new Lookup(null, null, null, dense, min);
+            }
+            int count = ranges.size();
+            int[] starts = new int[count];
+            int[] stops = new int[count];
+            int[] widths = new int[count];
+            int size = 0;
+            for (Map.Entry<Integer, int[]> range : ranges.entrySet()) {
+                int start = range.getKey();
+                int stop = range.getValue()[0];
+                int width = range.getValue()[1];
+                if (size > 0 && widths[size - 1] == width && (long) stops[size - 1] + 1 == start) {
+                    // merge adjacent ranges, typical for the "c [w1 w2 ...]" form
+                    stops[size - 1] = stop;
+                    continue;
+                }
+                starts[size] = start;
+                stops[size] = stop;
+                widths[size] = width;
+                size++;
+            }
+            return new Lookup(Arrays.copyOf(starts, size), Arrays.copyOf(stops, size), Arrays.copyOf(widths, size),
+                              null, 0);
+        }
+
+        private final int[] starts;
+
+        private final int[] stops;
+
+        private final int[] widths;
+
+        private final int[] dense;
+
+        private final int denseOffset;
+
+        private Lookup(int[] starts, int[] stops, int[] widths, int[] dense, int denseOffset) {
+            this.starts = starts;
+            this.stops = stops;
+            this.widths = widths;
+            this.dense = dense;
+            this.denseOffset = denseOffset;
+        }
+
+        protected int getWidth(int cid) {
+            if (dense != null) {
+                long index = (long) cid - denseOffset;
+                if (index < 0 || index >= dense.length) {
+                    return -1;
+                }
+                return dense[(int) index];
+            }
+            int low = 0;
+            int high = starts.length - 1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] > cid) {
+                    high = mid - 1;
+                } else if (stops[mid] < cid) {
+                    low = mid + 1;
+                } else {
+                    return widths[mid];
+                }
+            }
+            return -1;
+        }
+    }
+
     private List<CIDWidthMapEntry> entries;
 
+    /**
+     * The compiled lookup, created lazily and reset on change.
+     */
+    private volatile Lookup lookup;
+
     protected CIDWidthMap(COSObject object) {
         super(object);
     }
 
     public void addWidth(int cid, int width) {
         entries.add(new CIDWidthMapEntry(cid, cid, width));
+        lookup = null;
         cosGetArray().add(COSInteger.create(cid));
         cosGetArray().add(COSInteger.create(cid));
         cosGetArray().add(COSInteger.create(width));
@@ -117,16 +270,19 @@ public class CIDWidthMap extends COSBasedObject {
         }
     }
 
+    /**
+     * The width defined for <code>cid</code> or -1 if not defined.
+     *
+     * @param cid The CID
+     * @return The width defined for <code>cid</code> or -1 if not defined.
+     */
     public int getWidth(int cid) {
-        for (Iterator<CIDWidthMapEntry> it = entries.iterator(); it.hasNext(); ) {
-            CIDWidthMapEntry entry = it.next();
-            if (entry.getStart() <= cid) {
-                if (entry.getStop() >= cid) {
-                    return entry.getWidth();
-                }
-            }
+        Lookup tempLookup = lookup;
+        if (tempLookup == null) {
+            tempLookup = Lookup.create(entries);
+            lookup = tempLookup;
         }
-        return -1;
+        return tempLookup.getWidth(cid);
     }
 
     public List<CIDWidthMapEntry> getEntries() {
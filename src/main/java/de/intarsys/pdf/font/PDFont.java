@@ -230,16 +230,16 @@ public abstract class PDFont extends PDObject {
     }
 
     // the encoding used for this font
-    private Encoding cachedEncoding;
+    private volatile Encoding cachedEncoding;
 
     // some detail information about the font
-    private PDFontDescriptor cachedFontDescriptor;
+    private volatile PDFontDescriptor cachedFontDescriptor;
 
-    private CMap cachedToUnicode = UNDEFINED;
+    private volatile CMap cachedToUnicode = UNDEFINED;
 
-    private Integer cachedEstimatedAvgWidth;
+    private volatile Integer cachedEstimatedAvgWidth;
 
-    private CMap rosToUnicode = UNDEFINED;
+    private volatile CMap rosToUnicode = UNDEFINED;
 
     /**
      * Create the receiver class from an already defined {@link COSDictionary}.
@@ -427,10 +427,12 @@ public abstract class PDFont extends PDObject {
      * @return The encoding of the glyphs in the font
      */
     public Encoding getEncoding() {
-        if (cachedEncoding == null) {
-            cachedEncoding = createEncoding();
+        Encoding encoding = cachedEncoding;
+        if (encoding == null) {
+            encoding = createEncoding();
+            cachedEncoding = encoding;
         }
-        return cachedEncoding;
+        return encoding;
     }
 
     /**
@@ -452,10 +454,12 @@ public abstract class PDFont extends PDObject {
      * @return The {@link PDFontDescriptor} object for this font
      */
     public PDFontDescriptor getFontDescriptor() {
-        if (cachedFontDescriptor == null) {
-            cachedFontDescriptor = createFontDescriptor();
+        PDFontDescriptor descriptor = cachedFontDescriptor;
+        if (descriptor == null) {
+            descriptor = createFontDescriptor();
+            cachedFontDescriptor = descriptor;
         }
-        return cachedFontDescriptor;
+        return descriptor;
     }
 
     public String getFontFamilyName() {
@@ -576,10 +580,12 @@ public abstract class PDFont extends PDObject {
      * @return the estimated width we should use for a missing/undefined glyph width
      */
     public int getEstimatedAvgCharWidth() {
-        if (cachedEstimatedAvgWidth == null) {
-            cachedEstimatedAvgWidth = estimateAvgCharWidth();
+        Integer width = cachedEstimatedAvgWidth;
+        if (width == null) {
+            width = estimateAvgCharWidth();
+            cachedEstimatedAvgWidth = width;
         }
-        return cachedEstimatedAvgWidth;
+        return width;
     }
 
     private int estimateAvgCharWidth() {
@@ -622,15 +628,17 @@ public abstract class PDFont extends PDObject {
     public abstract PDGlyphs getNextGlyphsEncoded(ByteArrayInputStream is) throws IOException;
 
     public CMap getToUnicode() {
-        if (cachedToUnicode == UNDEFINED) {
+        CMap toUnicode = cachedToUnicode;
+        if (toUnicode == UNDEFINED) {
             try {
-                cachedToUnicode = (CMap) CMap.META.createFromCos(cosGetField(DK_ToUnicode));
+                toUnicode = (CMap) CMap.META.createFromCos(cosGetField(DK_ToUnicode));
+                cachedToUnicode = toUnicode;
             } catch (RuntimeException e) {
                 cachedToUnicode = null;
                 throw e;
             }
         }
-        return cachedToUnicode == null ? getRosToUnicodeMap() : cachedToUnicode;
+        return toUnicode == null ? getRosToUnicodeMap() : toUnicode;
     }
 
     private CMap getRosToUnicodeMap() {
@@ -34,8 +34,6 @@ import de.intarsys.pdf.cds.CDSRectangle;
 import de.intarsys.pdf.cos.COSBasedObject;
 import de.intarsys.pdf.cos.COSObject;
 
-import java.util.StringTokenizer;
-
 /**
  * The {@link PDFontDescriptor} that is used when no explicit /FontDescriptor is
  * available in the PDF document. This will happen only when a built in font is
@@ -63,6 +61,11 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
 
     private AFM afm;
 
+    /**
+     * The numeric metrics, parsed once from the afm
+     */
+    private final AFMMetrics metrics;
+
     /**
      * derived value for the leading
      */
@@ -79,14 +82,29 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      * @param afm type 1 font containing the definitions.
      */
     protected PDFontDescriptorAFM(AFM afm) {
+        this(afm, AFMMetrics.create(afm));
+    }
+
+    /**
+     * Create a font descriptor for a type 1 font with shared metrics.
+     *
+     * @param afm     type 1 font containing the definitions.
+     * @param metrics The metrics parsed from <code>afm</code>, may be null.
+     */
+    protected PDFontDescriptorAFM(AFM afm, AFMMetrics metrics) {
         super(null);
         this.afm = afm;
+        this.metrics = metrics == null ? AFMMetrics.create(afm) : metrics;
     }
 
     public AFM getAfm() {
         return afm;
     }
 
+    public AFMMetrics getMetrics() {
+        return metrics;
+    }
+
     /*
      * (non-Javadoc)
      *
@@ -94,11 +112,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public float getAscent() {
-        String value = getAfm().getAttribute("Ascender");
-        if (value == null) {
-            return 0;
-        }
-        return Float.parseFloat(value);
+        return metrics.getAscent();
     }
 
     /*
@@ -118,11 +132,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public float getCapHeight() {
-        String value = getAfm().getAttribute("CapHeight");
-        if (value == null) {
-            return 0;
-        }
-        return Float.parseFloat(value);
+        return metrics.getCapHeight();
     }
 
     @Override
@@ -137,11 +147,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public float getDescent() {
-        String value = getAfm().getAttribute("Descender");
-        if (value == null) {
-            return 0;
-        }
-        return Float.parseFloat(value);
+        return metrics.getDescent();
     }
 
     /*
@@ -164,27 +170,10 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
     @Override
     public CDSRectangle getFontBB() {
         if (bb == null) {
-            float llx = 0;
-            float lly = 0;
-            float urx = 0;
-            float ury = 0;
-            String value = getAfm().getAttribute("FontBBox");
-            if (value != null) {
-                StringTokenizer st = new StringTokenizer(value);
-                if (st.hasMoreTokens()) {
-                    llx = Float.parseFloat(st.nextToken());
-                }
-                if (st.hasMoreTokens()) {
-                    lly = Float.parseFloat(st.nextToken());
-                }
-                if (st.hasMoreTokens()) {
-                    urx = Float.parseFloat(st.nextToken());
-                }
-                if (st.hasMoreTokens()) {
-                    ury = Float.parseFloat(st.nextToken());
-                }
-            }
-            bb = new CDSRectangle(llx, lly, urx, ury);
+            bb = new CDSRectangle(metrics.getFontBBLowerLeftX(),
+                                  metrics.getFontBBLowerLeftY(),
+                                  metrics.getFontBBUpperRightX(),
+                                  metrics.getFontBBUpperRightY());
         }
         return bb;
     }
@@ -206,14 +195,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public String getFontName() {
-        if (getAfm() == null) {
-            return "";
-        }
-        String value = getAfm().getAttribute("FontName");
-        if (value == null) {
-            return "";
-        }
-        return value.trim();
+        return metrics.getFontName();
     }
 
     @Override
@@ -233,11 +215,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public float getItalicAngle() {
-        String value = getAfm().getAttribute("ItalicAngle");
-        if (value == null) {
-            return 0;
-        }
-        return Float.parseFloat(value);
+        return metrics.getItalicAngle();
     }
 
     /*
@@ -282,11 +260,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public int getStemH() {
-        String value = getAfm().getAttribute("StdHW");
-        if (value == null) {
-            return 0;
-        }
-        return (int) Float.parseFloat(value);
+        return (int) metrics.getStemH();
     }
 
     /*
@@ -296,11 +270,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public int getStemV() {
-        String value = getAfm().getAttribute("StdVW");
-        if (value == null) {
-            return 0;
-        }
-        return (int) Float.parseFloat(value);
+        return (int) metrics.getStemV();
     }
 
     /*
@@ -310,11 +280,7 @@ public class PDFontDescriptorAFM extends PDFontDescriptor {
      */
     @Override
     public float getXHeight() {
-        String value = getAfm().getAttribute("XHeight");
-        if (value == null) {
-            return 0;
-        }
-        return Float.parseFloat(value);
+        return metrics.getXHeight();
     }
 
     @Override
@@ -38,8 +38,6 @@ import de.intarsys.pdf.encoding.Encoding;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.Map;
 
 /**
  * A composite (Type 0) font.
@@ -66,9 +64,9 @@ public class PDFontType0 extends PDFont {
      */
     public static final MetaClass META = new MetaClass(MetaClass.class.getDeclaringClass());
 
-    private CMap cachedMap;
+    private volatile CMap cachedMap;
 
-    private Map<Integer, PDGlyphs> cachedGlyphs = new HashMap<Integer, PDGlyphs>();
+    private final PDGlyphsCache cachedGlyphs = new PDGlyphsCache();
 
     public PDFontType0(COSObject object) {
         super(object);
@@ -103,10 +101,12 @@ public class PDFontType0 extends PDFont {
      * @return The {@link CMap} associated with the Type0 font.
      */
     public CMap getCMap() {
-        if (cachedMap == null) {
-            cachedMap = (CMap) CMap.META.createFromCos(cosGetField(DK_Encoding));
+        CMap map = cachedMap;
+        if (map == null) {
+            map = (CMap) CMap.META.createFromCos(cosGetField(DK_Encoding));
+            cachedMap = map;
         }
-        return cachedMap;
+        return map;
     }
 
     /**
@@ -162,8 +162,7 @@ public class PDFontType0 extends PDFont {
         // this codepoint may be true integer?
         PDGlyphs glyphs = cachedGlyphs.get(codepoint);
         if (glyphs == null) {
-            glyphs = new PDGlyphs(this, codepoint);
-            cachedGlyphs.put(codepoint, glyphs);
+            glyphs = cachedGlyphs.putIfAbsent(codepoint, new PDGlyphs(this, codepoint));
         }
         return glyphs;
     }
@@ -30,7 +30,6 @@
 package de.intarsys.pdf.font;
 
 import de.intarsys.cwt.font.afm.AFM;
-import de.intarsys.cwt.font.afm.AFMChar;
 import de.intarsys.pdf.cos.COSBasedObject;
 import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.pdf.cos.COSName;
@@ -44,6 +43,7 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 /**
@@ -122,7 +122,9 @@ public class PDFontType1 extends PDSingleByteFont {
      */
     public static final MetaClass META = new MetaClass(MetaClass.class.getDeclaringClass());
 
-    private static Map<String, AFM> builtins = new HashMap<String, AFM>();
+    private static final Map<String, AFM> builtins = new ConcurrentHashMap<String, AFM>();
+
+    private static final Map<String, AFMMetrics> builtinMetrics = new ConcurrentHashMap<String, AFMMetrics>();
 
     static {
         FONT_ALIASES = new HashMap<String, String>();
@@ -266,6 +268,38 @@ public class PDFontType1 extends PDSingleByteFont {
         return result;
     }
 
+    /**
+     * Lookup the {@link AFMMetrics} for the named builtin font.
+     * <p>
+     * The metrics are parsed once and shared by all fonts using the same
+     * builtin font program.
+     *
+     * @param name
+     * @return the {@link AFMMetrics} for the named builtin font or null.
+     */
+    public static AFMMetrics lookupBuiltinMetrics(String name) {
+        String aliased = FONT_ALIASES.get(name);
+        if (aliased == null) {
+            aliased = FONT_ALIASES_DEPRECATED.get(name);
+            if (aliased == null) {
+                return null;
+            }
+        }
+        AFMMetrics result = builtinMetrics.get(aliased);
+        if (result == null) {
+            AFM afm = lookupBuiltinAFM(name);
+            if (afm == null) {
+                return null;
+            }
+            result = AFMMetrics.create(afm);
+            AFMMetrics existing = builtinMetrics.putIfAbsent(aliased, result);
+            if (existing != null) {
+                result = existing;
+            }
+        }
+        return result;
+    }
+
     /**
      * Create the receiver class from an already defined {@link COSDictionary}.
      * NEVER use the constructor directly.
@@ -293,7 +327,8 @@ public class PDFontType1 extends PDSingleByteFont {
      */
     @Override
     protected PDFontDescriptor createBuiltinFontDescriptor() {
-        return new PDFontDescriptorAFM(lookupBuiltinAFM(getBaseFont().stringValue()));
+        String name = getBaseFont().stringValue();
+        return new PDFontDescriptorAFM(lookupBuiltinAFM(name), lookupBuiltinMetrics(name));
     }
 
     /*
@@ -303,23 +338,22 @@ public class PDFontType1 extends PDSingleByteFont {
      */
     @Override
     protected int[] createBuiltInWidths(int[] result) {
-        AFM afm = lookupBuiltinAFM(getBaseFont().stringValue());
-        if (afm == null) {
+        AFMMetrics metrics = lookupBuiltinMetrics(getBaseFont().stringValue());
+        if (metrics == null) {
             return result;
         }
         if (getEncoding().isFontSpecificEncoding()) {
             for (int i = 0; i < 256; i++) {
-                AFMChar afmChar = afm.getCharByCode(i);
-                if (afmChar != null) {
-                    result[i] = afmChar.getWidth();
+                int width = metrics.getWidth(i);
+                if (width != -1) {
+                    result[i] = width;
                 }
             }
         } else {
             for (int i = 0; i < 256; i++) {
-                String glyphName = getEncoding().getGlyphName(i);
-                AFMChar afmChar = afm.getCharByName(glyphName);
-                if (afmChar != null) {
-                    result[i] = afmChar.getWidth();
+                int width = metrics.getWidth(getEncoding().getGlyphName(i));
+                if (width != -1) {
+                    result[i] = width;
                 }
             }
         }
@@ -31,10 +31,13 @@ package de.intarsys.pdf.font;
 
 import de.intarsys.pdf.cds.CDSMatrix;
 import de.intarsys.pdf.cds.CDSRectangle;
+import de.intarsys.pdf.content.CSCompiledContent;
+import de.intarsys.pdf.content.CSContentCache;
 import de.intarsys.pdf.cos.COSBasedObject;
 import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.pdf.cos.COSName;
 import de.intarsys.pdf.cos.COSObject;
+import de.intarsys.pdf.cos.COSStream;
 import de.intarsys.pdf.pd.IResourcesProvider;
 import de.intarsys.pdf.pd.PDResources;
 
@@ -102,6 +105,27 @@ public class PDFontType3 extends PDSingleByteFont implements IResourcesProvider
         return new PDFontDescriptorType3(this);
     }
 
+    /**
+     * The compiled glyph procedure for {@code glyphName} or {@code null}.
+     * <p>
+     * The result is shared via the {@link CSContentCache}, so a glyph
+     * procedure is parsed only once for repeated use.
+     *
+     * @param glyphName The name of the glyph.
+     * @return The compiled glyph procedure for {@code glyphName}.
+     */
+    public CSCompiledContent getCharProc(COSName glyphName) {
+        COSDictionary charProcs = cosGetCharProcs();
+        if (charProcs == null) {
+            return null;
+        }
+        COSStream charProc = charProcs.get(glyphName).asStream();
+        if (charProc == null) {
+            return null;
+        }
+        return CSContentCache.get(charProc).getCompiledContent(charProc);
+    }
+
     public CDSRectangle getFontBB() {
         return CDSRectangle.createFromCOS(cosGetField(DK_FontBBox).asArray());
     }
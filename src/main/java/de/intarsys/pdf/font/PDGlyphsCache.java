@@ -0,0 +1,113 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.font;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A thread safe cache of {@link PDGlyphs} keyed by codepoint.
+ * <p>
+ * Codepoints up to two bytes are stored in lazily allocated pages of 256
+ * entries without boxing or locking. Larger codepoints fall back to a
+ * concurrent map. For every codepoint at most one {@link PDGlyphs} instance
+ * is ever published.
+ */
+public class PDGlyphsCache {
+
+    private static final int PAGE_BITS = 8;
+
+    private static final int PAGE_SIZE = 1 << PAGE_BITS;
+
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    private static final int PAGE_COUNT = 256;
+
+    private final AtomicReferenceArray<AtomicReferenceArray<PDGlyphs>> pages =
+            new AtomicReferenceArray<AtomicReferenceArray<PDGlyphs>>(PAGE_COUNT);
+
+    private final ConcurrentMap<Integer, PDGlyphs> overflow = new ConcurrentHashMap<Integer, PDGlyphs>();
+
+    public PDGlyphsCache() {
+        super();
+    }
+
+    /**
+     * Remove all entries.
+     */
+    public void clear() {
+        for (int i = 0; i < PAGE_COUNT; i++) {
+            pages.set(i, null);
+        }
+        overflow.clear();
+    }
+
+    /**
+     * The {@link PDGlyphs} cached for {@code codepoint} or {@code null}.
+     *
+     * @param codepoint The codepoint
+     * @return The {@link PDGlyphs} cached for {@code codepoint}.
+     */
+    public PDGlyphs get(int codepoint) {
+        int pageIndex = codepoint >>> PAGE_BITS;
+        if (pageIndex < PAGE_COUNT) {
+            AtomicReferenceArray<PDGlyphs> page = pages.get(pageIndex);
+            return page == null ? null : page.get(codepoint & PAGE_MASK);
+        }
+        return overflow.get(codepoint);
+    }
+
+    /**
+     * Cache {@code glyphs} for {@code codepoint} unless there is already an
+     * entry. The entry in the cache after the call is returned.
+     *
+     * @param codepoint The codepoint
+     * @param glyphs    The new {@link PDGlyphs}
+     * @return The {@link PDGlyphs} cached for {@code codepoint}.
+     */
+    public PDGlyphs putIfAbsent(int codepoint, PDGlyphs glyphs) {
+        int pageIndex = codepoint >>> PAGE_BITS;
+        if (pageIndex < PAGE_COUNT) {
+            AtomicReferenceArray<PDGlyphs> page = pages.get(pageIndex);
+            if (page == null) {
+                pages.compareAndSet(pageIndex, null, new AtomicReferenceArray<PDGlyphs>(PAGE_SIZE));
+                page = pages.get(pageIndex);
+            }
+            int index = codepoint & PAGE_MASK;
+            if (page.compareAndSet(index, null, glyphs)) {
+                return glyphs;
+            }
+            return page.get(index);
+        }
+        PDGlyphs old = overflow.putIfAbsent(codepoint, glyphs);
+        return old == null ? glyphs : old;
+    }
+}
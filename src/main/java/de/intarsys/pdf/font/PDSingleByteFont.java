@@ -32,17 +32,17 @@ package de.intarsys.pdf.font;
 import de.intarsys.pdf.cos.COSObject;
 
 import java.io.ByteArrayInputStream;
-import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 /**
  * A common superclass for the single byte encoded font flavors.
  */
 public abstract class PDSingleByteFont extends PDFont {
 
-    private PDGlyphs[] cachedGlyphs = new PDGlyphs[256];
+    private final AtomicReferenceArray<PDGlyphs> cachedGlyphs = new AtomicReferenceArray<PDGlyphs>(256);
 
     // an array for the width of each glyph used
-    private int[] cachedWidths;
+    private volatile int[] cachedWidths;
 
     protected PDSingleByteFont(COSObject object) {
         super(object);
@@ -51,10 +51,12 @@ public abstract class PDSingleByteFont extends PDFont {
     @Override
     public PDGlyphs getGlyphsEncoded(int codepoint) {
         // we can access the cache directly as we expect a one byte codepoint
-        PDGlyphs glyphs = cachedGlyphs[codepoint];
+        PDGlyphs glyphs = cachedGlyphs.get(codepoint);
         if (glyphs == null) {
             glyphs = new PDGlyphs(this, codepoint);
-            cachedGlyphs[codepoint] = glyphs;
+            if (!cachedGlyphs.compareAndSet(codepoint, null, glyphs)) {
+                glyphs = cachedGlyphs.get(codepoint);
+            }
         }
         return glyphs;
     }
@@ -73,13 +75,11 @@ public abstract class PDSingleByteFont extends PDFont {
      */
     @Override
     public int getGlyphWidthEncoded(int codepoint) {
-        if (cachedWidths == null) {
-            cachedWidths = createWidths();
-        }
-        if (codepoint < 0 || codepoint > cachedWidths.length) {
+        int[] widths = getGlyphWidths();
+        if (codepoint < 0 || codepoint > widths.length) {
             return getMissingWidth();
         }
-        return cachedWidths[codepoint];
+        return widths[codepoint];
     }
 
     /**
@@ -88,10 +88,12 @@ public abstract class PDSingleByteFont extends PDFont {
      * @return The array of glyph widths.
      */
     public int[] getGlyphWidths() {
-        if (cachedWidths == null) {
-            cachedWidths = createWidths();
+        int[] widths = cachedWidths;
+        if (widths == null) {
+            widths = createWidths();
+            cachedWidths = widths;
         }
-        return cachedWidths;
+        return widths;
     }
 
     @Override
@@ -107,6 +109,8 @@ public abstract class PDSingleByteFont extends PDFont {
     public void invalidateCaches() {
         super.invalidateCaches();
         cachedWidths = null;
-        Arrays.fill(cachedGlyphs, null);
+        for (int i = 0; i < cachedGlyphs.length(); i++) {
+            cachedGlyphs.set(i, null);
+        }
     }
 }
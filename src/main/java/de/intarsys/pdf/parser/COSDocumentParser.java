@@ -37,8 +37,10 @@ import de.intarsys.pdf.cos.COSName;
 import de.intarsys.pdf.cos.COSNull;
 import de.intarsys.pdf.cos.COSObject;
 import de.intarsys.pdf.cos.COSObjectKey;
+import de.intarsys.pdf.cos.COSStream;
 import de.intarsys.pdf.crypt.ISystemSecurityHandler;
 import de.intarsys.pdf.st.STDocument;
+import de.intarsys.pdf.st.STStreamRange;
 import de.intarsys.tools.randomaccess.IRandomAccess;
 
 import java.io.IOException;
@@ -94,10 +96,27 @@ public class COSDocumentParser extends PDFParser {
         return getDoc().getObjectReference(objectNumber, generationNumber);
     }
 
+    @Override
+    protected boolean deferStreamContent(COSStream stream, IRandomAccess input, long offset, int length) {
+        stream.basicSetEncodedRange(new STStreamRange(getDoc(),
+                                                      input,
+                                                      offset,
+                                                      length,
+                                                      getSecurityHandler(),
+                                                      getObjectKey()));
+        return true;
+    }
+
     public STDocument getDoc() {
         return doc;
     }
 
+    @Override
+    protected boolean isDeferStreamContent(IRandomAccess input) {
+        // only content in the document storage can be read later on
+        return getDoc().isLazyStreams() && input == getDoc().getRandomAccess();
+    }
+
     public boolean isTokenXRefAt(IRandomAccess input, int offset) throws IOException {
         input.seek(offset);
         readSpaces(input);
@@ -31,6 +31,7 @@ package de.intarsys.pdf.parser;
 
 import de.intarsys.pdf.content.CSContent;
 import de.intarsys.pdf.content.CSOperation;
+import de.intarsys.pdf.content.ICSOperationHandler;
 import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.pdf.cos.COSIndirectObject;
 import de.intarsys.pdf.cos.COSObject;
@@ -48,6 +49,8 @@ import java.util.Iterator;
 public class CSContentParser extends PDFParser {
     private static final COSObject[] EMPTY_OPERANDS = new COSObject[0];
 
+    private static final byte[] EMPTY_TOKEN = new byte[0];
+
     /**
      * This is an hopefully temporary workaround for identifying valid
      * operations. It is only used when parsing inline images to make some
@@ -264,7 +267,7 @@ public class CSContentParser extends PDFParser {
         return false;
     }
 
-    private Object[] operands = new Object[10];
+    private COSObject[] operands = new COSObject[10];
 
     private int size = 0;
 
@@ -334,20 +337,38 @@ public class CSContentParser extends PDFParser {
      * @throws COSLoadException
      */
     protected CSOperation parseOperation(IRandomAccess input) throws IOException, COSLoadException {
+        byte[] operatorToken = parseOperationElements(input);
+        if (operatorToken == null) {
+            return null;
+        }
+        COSObject[] copyOperands;
+
+        // speed
+        if (size == 0) {
+            copyOperands = EMPTY_OPERANDS;
+        } else {
+            copyOperands = new COSObject[size];
+            System.arraycopy(operands, 0, copyOperands, 0, size);
+        }
+        size = 0;
+        return new CSOperation(operatorToken, copyOperands);
+    }
+
+    /**
+     * Parse the operands of the next operation into the operand buffer and
+     * answer the operator token. After return, the first {@code size}
+     * elements of {@code operands} are the operands of the operation.
+     *
+     * @param input The stream content object that defines the context of the stream.
+     * @return The operator token or {@code null} at the end of the stream.
+     * @throws IOException
+     * @throws COSLoadException
+     */
+    protected byte[] parseOperationElements(IRandomAccess input) throws IOException, COSLoadException {
         do {
             Object element = parseElement(input);
             if (element instanceof byte[]) {
-                COSObject[] copyOperands;
-
-                // speed
-                if (size == 0) {
-                    copyOperands = EMPTY_OPERANDS;
-                } else {
-                    copyOperands = new COSObject[size];
-                    System.arraycopy(operands, 0, copyOperands, 0, size);
-                }
-                size = 0;
-                return new CSOperation((byte[]) element, copyOperands);
+                return (byte[]) element;
             } else if (element == null) {
                 int next = input.read();
                 // strange document contains a "Ctrl-D" in ToUnicode stream...
@@ -363,11 +384,11 @@ public class CSContentParser extends PDFParser {
                 return null;
             } else {
                 if (size >= operands.length) {
-                    Object[] newOperands = new Object[size << 2];
+                    COSObject[] newOperands = new COSObject[size << 2];
                     System.arraycopy(operands, 0, newOperands, 0, size);
                     operands = newOperands;
                 }
-                operands[size++] = element;
+                operands[size++] = (COSObject) element;
             }
         } while (true);
     }
@@ -447,4 +468,50 @@ public class CSContentParser extends PDFParser {
             }
         }
     }
+
+    /**
+     * parse a content stream, handing each operation to {@code handler} as
+     * soon as it is complete instead of collecting them in a
+     * {@link CSContent}.
+     * <p>
+     * A single {@link CSOperation} and operand buffer is reused for all
+     * operations, so the operation is valid only while the handler is
+     * called.
+     * </p>
+     *
+     * @param input   a open IRandomAccessData positioned at the beginning of
+     *                the content stream
+     * @param handler The handler receiving the operations.
+     * @throws IOException
+     * @throws COSLoadException
+     */
+    public void parseStream(IRandomAccess input, ICSOperationHandler handler) throws IOException, COSLoadException {
+        CSOperation op = new CSOperation(EMPTY_TOKEN, EMPTY_OPERANDS);
+        while (true) {
+            byte[] operatorToken = parseOperationElements(input);
+            if (operatorToken == null) {
+                return;
+            }
+            if ((operatorToken.length == 2) && (operatorToken[0] == 'I') && (operatorToken[1] == 'D')) {
+                COSDictionary parameters;
+
+                // after the "ID" tag we expect image data, followed by "EI"
+                parameters = COSDictionary.create();
+                for (int i = 0; i + 1 < size; i += 2) {
+                    parameters.put(operands[i].asName(), operands[i + 1].copyShallow());
+                }
+                size = 0;
+                CSOperation imageOp = parseOperationEI(input, parameters);
+                if (imageOp != null && !handler.handleOperation(imageOp)) {
+                    return;
+                }
+            } else {
+                op.basicReset(operatorToken, operands, size);
+                size = 0;
+                if (!handler.handleOperation(op)) {
+                    return;
+                }
+            }
+        }
+    }
 }
@@ -0,0 +1,351 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.parser;
+
+import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.tools.randomaccess.IRandomAccess;
+import de.intarsys.tools.stream.StreamTools;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * A read only {@link IRandomAccess} over a sequence of byte arrays, for
+ * example the chunks of a content stream spread over several streams.
+ * <p>
+ * The chunks are not copied. Optionally a separator byte is inserted after
+ * each chunk, so that tokens are not joined across chunk boundaries.
+ * <p>
+ * Created with {@link #createFromStreams(COSStream[], int)}, the chunks are
+ * decoded one after another as they are reached. Only the current and the
+ * previous chunk are held, a seek further back decodes the chunk again.
+ */
+public class ChunkedRandomAccess implements IRandomAccess {
+
+    /**
+     * Create a {@link ChunkedRandomAccess} over the decoded content of
+     * {@code streams}.
+     * <p>
+     * The streams are decoded on demand via
+     * {@link COSStream#getDecodedStream()}, so their decoded bytes are not
+     * cached.
+     *
+     * @param streams   The streams, in order.
+     * @param separator The byte inserted after each chunk or -1
+     * @return The new {@link ChunkedRandomAccess}
+     */
+    public static ChunkedRandomAccess createFromStreams(final COSStream[] streams, int separator) {
+        return new ChunkedRandomAccess(streams.length, separator) {
+            @Override
+            protected byte[] loadChunk(int index) throws IOException {
+                InputStream is = streams[index].getDecodedStream();
+                ByteArrayOutputStream os = new ByteArrayOutputStream();
+                StreamTools.copyStream(is, true, os, true);
+                return os.toByteArray();
+            }
+        };
+    }
+
+    /**
+     * The chunks, {@code null} if not yet loaded or released.
+     */
+    private final byte[][] chunks;
+
+    /**
+     * {@code true} if chunks are loaded on demand and may be released.
+     */
+    private final boolean lazy;
+
+    /**
+     * The offset of each chunk, with an additional entry for the total
+     * length. Only the first {@link #known} + 1 entries are valid.
+     */
+    private final long[] starts;
+
+    /**
+     * The number of chunks whose length is known.
+     */
+    private int known;
+
+    private final int separator;
+
+    private int chunkIndex;
+
+    private int chunkOffset;
+
+    private long mark;
+
+    /**
+     * Create a {@link ChunkedRandomAccess} over {@code chunks}.
+     *
+     * @param chunks    The byte arrays, in order.
+     * @param separator The byte inserted after each chunk or -1
+     */
+    public ChunkedRandomAccess(byte[][] chunks, int separator) {
+        this.chunks = chunks;
+        this.lazy = false;
+        this.separator = separator;
+        this.starts = new long[chunks.length + 1];
+        for (int i = 0; i < chunks.length; i++) {
+            starts[i + 1] = starts[i] + getChunkLength(chunks[i]);
+        }
+        this.known = chunks.length;
+    }
+
+    /**
+     * Create a {@link ChunkedRandomAccess} over {@code count} chunks,
+     * provided by {@link #loadChunk(int)}.
+     *
+     * @param count     The number of chunks
+     * @param separator The byte inserted after each chunk or -1
+     */
+    protected ChunkedRandomAccess(int count, int separator) {
+        this.chunks = new byte[count][];
+        this.lazy = true;
+        this.separator = separator;
+        this.starts = new long[count + 1];
+        this.known = 0;
+    }
+
+    @Override
+    public InputStream asInputStream() {
+        return new InputStream() {
+            @Override
+            public int read() throws IOException {
+                return ChunkedRandomAccess.this.read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return ChunkedRandomAccess.this.read(b, off, len);
+            }
+        };
+    }
+
+    @Override
+    public OutputStream asOutputStream() {
+        throw new UnsupportedOperationException("read only"); //$NON-NLS-1$
+    }
+
+    @Override
+    public void close() throws IOException {
+        for (int i = 0; lazy && i < chunks.length; i++) {
+            chunks[i] = null;
+        }
+    }
+
+    @Override
+    public void flush() throws IOException {
+        // read only
+    }
+
+    /**
+     * The chunk {@code index}, loaded if necessary. The lengths of all
+     * preceding chunks must be known.
+     *
+     * @param index The chunk index
+     * @return The chunk
+     * @throws IOException
+     */
+    protected byte[] getChunk(int index) throws IOException {
+        byte[] chunk = chunks[index];
+        if (chunk == null) {
+            chunk = loadChunk(index);
+            // keep the predecessor for looking back across the boundary
+            for (int i = 0; i < chunks.length; i++) {
+                if (i != index - 1) {
+                    chunks[i] = null;
+                }
+            }
+            chunks[index] = chunk;
+            if (index == known) {
+                starts[index + 1] = starts[index] + getChunkLength(chunk);
+                known++;
+            }
+        }
+        return chunk;
+    }
+
+    /**
+     * The length of {@code chunk}, including the separator.
+     *
+     * @param chunk The chunk
+     * @return The length of the chunk
+     */
+    protected int getChunkLength(byte[] chunk) {
+        return separator == -1 ? chunk.length : chunk.length + 1;
+    }
+
+    @Override
+    public long getLength() throws IOException {
+        // chunks loaded on demand are all read once to know the length
+        while (known < chunks.length) {
+            getChunk(known);
+        }
+        return starts[chunks.length];
+    }
+
+    @Override
+    public long getOffset() throws IOException {
+        return starts[chunkIndex] + chunkOffset;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return true;
+    }
+
+    /**
+     * Load the chunk {@code index}.
+     *
+     * @param index The chunk index
+     * @return The chunk
+     * @throws IOException
+     */
+    protected byte[] loadChunk(int index) throws IOException {
+        throw new IOException("chunk " + index + " not available"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+
+    @Override
+    public void mark() throws IOException {
+        mark = getOffset();
+    }
+
+    @Override
+    public int read() throws IOException {
+        while (chunkIndex < chunks.length) {
+            byte[] chunk = getChunk(chunkIndex);
+            if (chunkOffset < chunk.length) {
+                return chunk[chunkOffset++] & 0xff;
+            }
+            if (separator != -1 && chunkOffset == chunk.length) {
+                chunkOffset++;
+                return separator;
+            }
+            chunkIndex++;
+            chunkOffset = 0;
+        }
+        return -1;
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        int count = 0;
+        while (count < len && chunkIndex < chunks.length) {
+            byte[] chunk = getChunk(chunkIndex);
+            int available = chunk.length - chunkOffset;
+            if (available > 0) {
+                int n = Math.min(available, len - count);
+                System.arraycopy(chunk, chunkOffset, b, off + count, n);
+                chunkOffset += n;
+                count += n;
+            } else {
+                int next = read();
+                if (next == -1) {
+                    break;
+                }
+                b[off + count++] = (byte) next;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public void reset() throws IOException {
+        seek(mark);
+    }
+
+    @Override
+    public void seek(long offset) throws IOException {
+        if (offset < 0) {
+            throw new IOException("negative offset " + offset); //$NON-NLS-1$
+        }
+        while (known < chunks.length && starts[known] <= offset) {
+            getChunk(known);
+        }
+        if (known == chunks.length && offset >= starts[known]) {
+            chunkIndex = chunks.length;
+            chunkOffset = (int) (offset - starts[known]);
+            return;
+        }
+        int low = 0;
+        int high = known - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (starts[mid] <= offset) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        chunkIndex = low;
+        chunkOffset = (int) (offset - starts[low]);
+    }
+
+    @Override
+    public void seekBy(long delta) throws IOException {
+        long newOffset = chunkOffset + delta;
+        if (chunkIndex < known && newOffset >= 0 && newOffset < starts[chunkIndex + 1] - starts[chunkIndex]) {
+            chunkOffset = (int) newOffset;
+        } else {
+            seek(getOffset() + delta);
+        }
+    }
+
+    @Override
+    public void setLength(long newLength) throws IOException {
+        throw new IOException("read only"); //$NON-NLS-1$
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        throw new IOException("read only"); //$NON-NLS-1$
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        throw new IOException("read only"); //$NON-NLS-1$
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        throw new IOException("read only"); //$NON-NLS-1$
+    }
+}
@@ -340,6 +340,24 @@ public abstract class PDFParser {
     protected abstract COSIndirectObject createObjectReference(IRandomAccess input)
             throws IOException, COSLoadException;
 
+    /**
+     * Attach the physical content of {@code stream}, located at
+     * {@code offset} in {@code input}, without reading it.
+     * <p>
+     * This is only called when {@link #isDeferStreamContent(IRandomAccess)}
+     * answered {@code true}. The default implementation does not defer, the
+     * content is then read immediately.
+     *
+     * @param stream The stream parsed.
+     * @param input  The input the stream is read from.
+     * @param offset The offset of the physical content.
+     * @param length The length of the physical content.
+     * @return {@code true} if the content was deferred.
+     */
+    protected boolean deferStreamContent(COSStream stream, IRandomAccess input, long offset, int length) {
+        return false;
+    }
+
     public IPDFParserExceptionHandler getExceptionHandler() {
         return exceptionHandler;
     }
@@ -380,6 +398,18 @@ public abstract class PDFParser {
         }
     }
 
+    /**
+     * {@code true} if the physical content of a stream read from
+     * {@code input} should not be read now, but on demand.
+     *
+     * @param input The input the stream is read from.
+     * @return {@code true} if the physical content of a stream should be read
+     * on demand.
+     */
+    protected boolean isDeferStreamContent(IRandomAccess input) {
+        return false;
+    }
+
     /**
      * in order to read references we need a two object lookahead for the
      * integer numbers this method pops the first object from the fifo
@@ -1068,9 +1098,14 @@ public abstract class PDFParser {
         input.seek(offset);
 
         byte[] bytes = null;
+        boolean deferred = false;
 
         if (length < 0) {
             bytes = readStream(input);
+        } else if (isDeferStreamContent(input) && (offset + length) <= input.getLength()) {
+            // skip the content, it is read on demand
+            deferred = true;
+            input.seek(offset + length);
         } else {
             bytes = new byte[length];
             int count = input.read(bytes);
@@ -1113,6 +1148,7 @@ public abstract class PDFParser {
                 // retry from the beginning with undeterminate length
                 input.seek(offset);
                 bytes = readStream(input);
+                deferred = false;
                 // read "endstream"
                 token = new byte[9];
                 input.read(token);
@@ -1127,6 +1163,18 @@ public abstract class PDFParser {
                 handleError(e);
             }
         }
+        if (deferred && !deferStreamContent(stream, input, offset, length)) {
+            // not deferred after all, read the content now
+            long endOffset = input.getOffset();
+            input.seek(offset);
+            bytes = new byte[length];
+            input.read(bytes);
+            input.seek(endOffset);
+            deferred = false;
+        }
+        if (deferred) {
+            return stream;
+        }
         if ((securityHandler == null) || (objectKey == null)) {
             stream.basicSetEncodedBytes(bytes);
         } else {
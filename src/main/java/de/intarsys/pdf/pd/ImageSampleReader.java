@@ -0,0 +1,353 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.pd;
+
+import de.intarsys.pdf.cos.COSArray;
+import de.intarsys.pdf.cos.COSNumber;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Sequential access to the samples of a {@link PDImage}, one row or a strip
+ * of rows at a time.
+ * <p>
+ * The image stream is decoded on the fly (see
+ * {@link de.intarsys.pdf.cos.COSStream#getDecodedStream()}), so only a
+ * single row is held in memory. Missing data is padded with 0 bytes before
+ * /Decode is applied.
+ * <p>
+ * The reader must be closed when no longer needed.
+ */
+public class ImageSampleReader implements Closeable {
+
+    private final int bitsPerComponent;
+
+    private final int components;
+
+    /**
+     * The /Decode mapping for each component and raw sample value, null if
+     * the /Decode array is the default or bitsPerComponent is 16
+     */
+    private int[][] decodeTables;
+
+    /**
+     * Minimum and scale for each component if bitsPerComponent is 16
+     */
+    private float[] decodeValues;
+
+    private final int height;
+
+    private final InputStream in;
+
+    /**
+     * Invert the packed rows, as in {@link PDImage#getAdjustedBytes(int)}
+     */
+    private boolean invert;
+
+    /**
+     * The number of bytes in a packed row, padded to whole pixels
+     */
+    private final int packedRowSize;
+
+    private final int maxValue;
+
+    private int row;
+
+    private final byte[] rowBuffer;
+
+    /**
+     * The number of bytes of the current row present in the image data
+     */
+    private int rowLength;
+
+    /**
+     * The number of bytes of a row in the image data
+     */
+    private final int rowSize;
+
+    private final int width;
+
+    protected ImageSampleReader(PDImage image, int numComponents) throws IOException {
+        super();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+        this.components = numComponents;
+        this.bitsPerComponent = image.getBitsPerComponent();
+        this.maxValue = (1 << bitsPerComponent) - 1;
+        int bitsPerPixel = bitsPerComponent * numComponents;
+        int scanlinePad = (bitsPerPixel + 7) / 8;
+        this.rowSize = ((width * bitsPerPixel) + 7) / 8;
+        this.packedRowSize = (rowSize + scanlinePad - 1) / scanlinePad * scanlinePad;
+        this.rowBuffer = new byte[rowSize];
+        initDecode(image);
+        this.in = image.cosGetStream().getDecodedStream();
+    }
+
+    /**
+     * Close the underlying stream.
+     *
+     * @throws IOException
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    public int getBitsPerComponent() {
+        return bitsPerComponent;
+    }
+
+    public int getComponents() {
+        return components;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * The maximum sample value, 2^bitsPerComponent - 1.
+     *
+     * @return The maximum sample value.
+     */
+    public int getMaxValue() {
+        return maxValue;
+    }
+
+    /**
+     * The index of the next row to be read.
+     *
+     * @return The index of the next row to be read.
+     */
+    public int getRow() {
+        return row;
+    }
+
+    /**
+     * The number of bytes in a packed row, see {@link #readPackedRow(byte[])}.
+     *
+     * @return The number of bytes in a packed row.
+     */
+    public int getRowSize() {
+        return packedRowSize;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    protected void initDecode(PDImage image) {
+        COSArray cosDecode = image.cosGetField(PDImage.DK_Decode).asArray();
+        if (cosDecode == null) {
+            cosDecode = image.cosGetField(PDImage.DK_D).asArray();
+        }
+        int[] simpleDecode = image.getDecode();
+        invert = simpleDecode != null && simpleDecode.length == 2 && simpleDecode[0] == 1 && simpleDecode[1] == 0;
+        if (cosDecode == null || cosDecode.size() < components * 2) {
+            return;
+        }
+        // /Decode for indexed images is given in index values, else in 0..1
+        float scale = image.getColorSpace() instanceof PDCSIndexed ? 1 : maxValue;
+        float[] values = new float[components * 2];
+        boolean identity = true;
+        for (int c = 0; c < components; c++) {
+            COSNumber min = cosDecode.get(c * 2).asNumber();
+            COSNumber max = cosDecode.get(c * 2 + 1).asNumber();
+            float dMin = min == null ? 0 : min.floatValue() * scale;
+            float dMax = max == null ? maxValue : max.floatValue() * scale;
+            values[c * 2] = dMin;
+            values[c * 2 + 1] = (dMax - dMin) / maxValue;
+            identity = identity && dMin == 0 && dMax == maxValue;
+        }
+        if (identity) {
+            return;
+        }
+        if (bitsPerComponent == 16) {
+            decodeValues = values;
+            return;
+        }
+        decodeTables = new int[components][maxValue + 1];
+        for (int c = 0; c < components; c++) {
+            for (int v = 0; v <= maxValue; v++) {
+                decodeTables[c][v] = map(values[c * 2] + v * values[c * 2 + 1]);
+            }
+        }
+    }
+
+    protected int map(float value) {
+        int result = Math.round(value);
+        if (result < 0) {
+            return 0;
+        }
+        if (result > maxValue) {
+            return maxValue;
+        }
+        return result;
+    }
+
+    /**
+     * Read the next row of packed samples into {@link #getRowSize()} bytes.
+     * <p>
+     * As in {@link PDImage#getAdjustedBytes(int)} a /Decode of [1 0] is
+     * applied by inverting the bits and missing data is 0. Unlike there, each
+     * row is read with the stride of the image data, (width * bits per pixel +
+     * 7) / 8 bytes, and padded on its own.
+     *
+     * @param bytes The buffer of at least {@link #getRowSize()} bytes
+     * @return false if all rows are read
+     * @throws IOException
+     */
+    public boolean readPackedRow(byte[] bytes) throws IOException {
+        if (!readRawRow()) {
+            return false;
+        }
+        if (invert) {
+            for (int i = 0; i < rowLength; i++) {
+                bytes[i] = (byte) ~rowBuffer[i];
+            }
+        } else {
+            System.arraycopy(rowBuffer, 0, bytes, 0, rowLength);
+        }
+        for (int i = rowLength; i < packedRowSize; i++) {
+            bytes[i] = 0;
+        }
+        return true;
+    }
+
+    protected boolean readRawRow() throws IOException {
+        if (row >= height) {
+            return false;
+        }
+        int index = 0;
+        while (index < rowSize) {
+            int count = in.read(rowBuffer, index, rowSize - index);
+            if (count == -1) {
+                break;
+            }
+            index += count;
+        }
+        rowLength = index;
+        while (index < rowSize) {
+            rowBuffer[index++] = 0;
+        }
+        row++;
+        return true;
+    }
+
+    /**
+     * Read the samples of the next row, with bit depth and /Decode applied.
+     * <p>
+     * <code>samples</code> receives width * components values in the range
+     * 0..{@link #getMaxValue()}, the components of a pixel are adjacent.
+     *
+     * @param samples The buffer for the samples
+     * @return false if all rows are read
+     * @throws IOException
+     */
+    public boolean readRow(int[] samples) throws IOException {
+        return readRows(samples, 1) == 1;
+    }
+
+    /**
+     * Read the samples of a strip of up to <code>rowCount</code> rows, with
+     * bit depth and /Decode applied.
+     *
+     * @param samples  The buffer for rowCount * width * components samples
+     * @param rowCount The number of rows to read
+     * @return The number of rows read
+     * @throws IOException
+     */
+    public int readRows(int[] samples, int rowCount) throws IOException {
+        int count = 0;
+        int rowSamples = width * components;
+        while (count < rowCount && readRawRow()) {
+            unpack(samples, count * rowSamples, rowSamples);
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * Skip <code>count</code> rows.
+     *
+     * @param count The number of rows to skip
+     * @return The number of rows skipped
+     * @throws IOException
+     */
+    public int skipRows(int count) throws IOException {
+        int skipped = 0;
+        while (skipped < count && readRawRow()) {
+            skipped++;
+        }
+        return skipped;
+    }
+
+    protected void unpack(int[] samples, int offset, int count) {
+        switch (bitsPerComponent) {
+            case 8:
+                for (int i = 0; i < count; i++) {
+                    samples[offset + i] = rowBuffer[i] & 0xff;
+                }
+                break;
+            case 16:
+                for (int i = 0; i < count; i++) {
+                    samples[offset + i] = ((rowBuffer[i * 2] & 0xff) << 8) | (rowBuffer[i * 2 + 1] & 0xff);
+                }
+                break;
+            default:
+                int bit = 0;
+                for (int i = 0; i < count; i++) {
+                    int b = rowBuffer[bit >> 3] & 0xff;
+                    int shift = 8 - bitsPerComponent - (bit & 7);
+                    samples[offset + i] = (b >> shift) & maxValue;
+                    bit += bitsPerComponent;
+                }
+        }
+        if (decodeTables != null) {
+            int c = 0;
+            for (int i = 0; i < count; i++) {
+                samples[offset + i] = decodeTables[c][samples[offset + i]];
+                if (++c == components) {
+                    c = 0;
+                }
+            }
+        } else if (decodeValues != null) {
+            int c = 0;
+            for (int i = 0; i < count; i++) {
+                samples[offset + i] = map(decodeValues[c * 2] + samples[offset + i] * decodeValues[c * 2 + 1]);
+                if (++c == components) {
+                    c = 0;
+                }
+            }
+        }
+    }
+}
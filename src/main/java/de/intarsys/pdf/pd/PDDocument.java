@@ -55,6 +55,9 @@ import de.intarsys.tools.locator.ILocator;
 import de.intarsys.tools.locator.ILocatorSupport;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -62,6 +65,10 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 /**
  * The PD Level representation of a PDF Document. PD Level objects provide the
@@ -783,6 +790,63 @@ public class PDDocument implements IAdditionalActionSupport, IAttributeSupport,
         return destination;
     }
 
+    /**
+     * Process all pages of the document with {@code processor} on
+     * {@code executor} and return the results in page order.
+     * <p>
+     * The pages are processed concurrently, so {@code processor} must be
+     * safe for that. When a page fails, the first failure in page order is
+     * thrown after all pages have been processed.
+     *
+     * @param executor  The executor for the page tasks.
+     * @param processor The task for a single page.
+     * @param <T>       The type of the per page result.
+     * @return The results of {@code processor} for each page in page order.
+     * @throws IOException
+     */
+    public <T> List<T> processPages(ExecutorService executor, final IPageProcessor<T> processor) throws IOException {
+        List<Future<T>> futures = new ArrayList<Future<T>>();
+        for (PDPage page = getPageTree().getFirstPage(); page != null; page = page.getNextPage()) {
+            final PDPage currentPage = page;
+            futures.add(executor.submit(new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return processor.process(currentPage);
+                }
+            }));
+        }
+        List<T> results = new ArrayList<T>(futures.size());
+        Throwable failure = null;
+        for (Future<T> future : futures) {
+            try {
+                results.add(future.get());
+            } catch (InterruptedException e) {
+                for (Future<T> pending : futures) {
+                    pending.cancel(true);
+                }
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("interrupted while processing pages"); //$NON-NLS-1$
+            } catch (ExecutionException e) {
+                results.add(null);
+                if (failure == null) {
+                    failure = e.getCause();
+                }
+            }
+        }
+        if (failure instanceof IOException) {
+            throw (IOException) failure;
+        }
+        if (failure instanceof RuntimeException) {
+            throw (RuntimeException) failure;
+        }
+        if (failure != null) {
+            IOException ioe = new IOException("error processing pages"); //$NON-NLS-1$
+            ioe.initCause(failure);
+            throw ioe;
+        }
+        return results;
+    }
+
     public void removeApplicationData(String name) {
         COSDictionary pid = cosGetPieceInfoDict();
         if (pid == null) {
@@ -837,6 +901,49 @@ public class PDDocument implements IAdditionalActionSupport, IAttributeSupport,
         cosDoc.save(locator, actualOptions);
     }
 
+    /**
+     * Write the document to {@code outputStream} without changing its
+     * {@link ILocator}. Unless incremental save is preferred, the document is
+     * written completely.
+     *
+     * @param outputStream The destination, not closed by this method.
+     * @param options      The write options
+     * @throws IOException
+     */
+    public void saveTo(OutputStream outputStream, Map options) throws IOException {
+        cosDoc.saveTo(outputStream, createSaveToOptions(options));
+    }
+
+    /**
+     * Write the document to {@code channel} without changing its
+     * {@link ILocator}.
+     *
+     * @param channel The destination, not closed by this method.
+     * @param options The write options
+     * @throws IOException
+     * @see #saveTo(OutputStream, Map)
+     */
+    public void saveTo(WritableByteChannel channel, Map options) throws IOException {
+        cosDoc.saveTo(channel, createSaveToOptions(options));
+    }
+
+    protected Map createSaveToOptions(Map options) {
+        Map actualOptions = options;
+        if (actualOptions == null) {
+            actualOptions = new HashMap();
+        }
+        if (isPreferIncrementalSave()) {
+            actualOptions.put(STDocument.OPTION_WRITEMODEHINT, EnumWriteMode.INCREMENTAL);
+        } else {
+            EnumWriteMode mode = (EnumWriteMode) actualOptions.get(STDocument.OPTION_WRITEMODEHINT);
+            if (mode == null || mode.isUndefined()) {
+                // a new destination, like "save as..."
+                actualOptions.put(STDocument.OPTION_WRITEMODEHINT, EnumWriteMode.FULL);
+            }
+        }
+        return actualOptions;
+    }
+
     /**
      * Set AcroForm in PDF Document.
      */
@@ -31,7 +31,9 @@ package de.intarsys.pdf.pd;
 
 import de.intarsys.pdf.cds.CDSMatrix;
 import de.intarsys.pdf.cds.CDSRectangle;
+import de.intarsys.pdf.content.CSCompiledContent;
 import de.intarsys.pdf.content.CSContent;
+import de.intarsys.pdf.content.CSContentCache;
 import de.intarsys.pdf.content.CSOperation;
 import de.intarsys.pdf.content.IContentStreamProvider;
 import de.intarsys.pdf.cos.COSArray;
@@ -89,15 +91,6 @@ public class PDForm extends PDXObject implements IContentStreamProvider {
 
     public static final COSName DK_Group = COSName.constant("Group"); //$NON-NLS-1$
 
-    /**
-     * Cached content of the form.
-     * <p>
-     * <p>
-     * Requesting the content is frequent and expensive.
-     * </p>
-     */
-    private CSContent cachedContent;
-
     /**
      * Cached transformed rectangle.
      */
@@ -156,12 +149,39 @@ public class PDForm extends PDXObject implements IContentStreamProvider {
         return CDSRectangle.createFromCOS(array);
     }
 
+    /**
+     * The compiled content of the form, suitable for repeated interpretation.
+     *
+     * @return The compiled content of the form.
+     */
+    public CSCompiledContent getCompiledContent() {
+        COSStream stream = cosGetStream();
+        return CSContentCache.get(stream).getCompiledContent(stream);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.IContentStreamProvider#copyContentStream()
+     */
+    @Override
+    public CSContent copyContentStream() {
+        COSStream stream = cosGetStream();
+        return CSContentCache.get(stream).createContent(stream);
+    }
+
+    /**
+     * The {@link CSContent} of the form.
+     * <p>
+     * The result is shared and must not be modified, see
+     * {@link #copyContentStream()}.
+     *
+     * @return The {@link CSContent} of the form.
+     */
     @Override
     public CSContent getContentStream() {
-        if (cachedContent == null) {
-            cachedContent = CSContent.createFromCos(cosGetStream());
-        }
-        return cachedContent;
+        COSStream stream = cosGetStream();
+        return CSContentCache.get(stream).getContent(stream);
     }
 
     @Override
@@ -328,7 +348,6 @@ public class PDForm extends PDXObject implements IContentStreamProvider {
     @Override
     public void invalidateCaches() {
         super.invalidateCaches();
-        cachedContent = null;
         cachedTransformedBBox = null;
     }
 
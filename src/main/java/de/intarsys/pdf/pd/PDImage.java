@@ -32,11 +32,15 @@ package de.intarsys.pdf.pd;
 import de.intarsys.pdf.cos.COSArray;
 import de.intarsys.pdf.cos.COSBasedObject;
 import de.intarsys.pdf.cos.COSBoolean;
+import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.pdf.cos.COSInteger;
 import de.intarsys.pdf.cos.COSName;
 import de.intarsys.pdf.cos.COSNumber;
 import de.intarsys.pdf.cos.COSObject;
 import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.pdf.filter.DCTFilter;
+import de.intarsys.pdf.filter.Filter;
+import de.intarsys.pdf.filter.JPEGDecoder;
 
 import java.io.IOException;
 import java.lang.ref.SoftReference;
@@ -210,9 +214,49 @@ public class PDImage extends PDXObject {
         }
     }
 
+    /**
+     * A reader for the samples of the image, row by row.
+     * <p>
+     * Unlike {@link #getAdjustedBytes(int)} the image is decoded on the fly,
+     * so memory use is bounded by a single row for large images.
+     *
+     * @param numComponents The number of color components
+     * @return A new {@link ImageSampleReader}, to be closed by the caller
+     * @throws IOException
+     */
+    public ImageSampleReader createSampleReader(int numComponents) throws IOException {
+        return new ImageSampleReader(this, numComponents);
+    }
+
+    /**
+     * A decoder for the JPEG data of a DCTDecode image or null.
+     * <p>
+     * The decoder can produce a reduced image at a fraction of the cost of a
+     * full decode, see {@link JPEGDecoder#setScale(int)}.
+     *
+     * @return A new {@link JPEGDecoder} or null
+     * @throws IOException
+     */
+    public JPEGDecoder createJPEGDecoder() throws IOException {
+        COSStream stream = cosGetStream();
+        if (!stream.hasFilter(Filter.CN_Filter_DCTDecode) && !stream.hasFilter(Filter.CN_Filter_DCT)) {
+            return null;
+        }
+        stream = cosExtractJPEGStream();
+        COSName filter = stream.getFirstFilter();
+        if (!Filter.CN_Filter_DCTDecode.equals(filter) && !Filter.CN_Filter_DCT.equals(filter)) {
+            return null;
+        }
+        COSDictionary options = stream.getFirstDecodeParam();
+        return new DCTFilter(options).createDecoder(stream.getEncodedBytes());
+    }
+
     /**
      * Returns the raw image bytes. After decoding the cos stream a length check
      * is performed and decode parameters (if present) applied.
+     * <p>
+     * The complete image is held in memory, see
+     * {@link #createSampleReader(int)} for streaming access.
      *
      * @return the image bytes
      */
@@ -30,7 +30,9 @@
 package de.intarsys.pdf.pd;
 
 import de.intarsys.pdf.cds.CDSRectangle;
+import de.intarsys.pdf.content.CSCompiledContent;
 import de.intarsys.pdf.content.CSContent;
+import de.intarsys.pdf.content.CSContentCache;
 import de.intarsys.pdf.content.IContentStreamProvider;
 import de.intarsys.pdf.cos.COSArray;
 import de.intarsys.pdf.cos.COSBasedObject;
@@ -108,7 +110,6 @@ public class PDPage extends PDPageNode implements IAdditionalActionSupport, ICon
 
     private SoftReference cachedAnnotations = null;
 
-    private SoftReference cachedContentStream = null;
 
     /**
      * Create the receiver class from an already defined {@link COSDictionary}.
@@ -370,33 +371,48 @@ public class PDPage extends PDPageNode implements IAdditionalActionSupport, ICon
         return ((COSArray) contents).size();
     }
 
+    /**
+     * The compiled content of the page, suitable for repeated interpretation.
+     *
+     * @return The compiled content of the page or {@code null}.
+     */
+    public CSCompiledContent getCompiledContent() {
+        COSObject contents = cosGetContents();
+        if (contents.isNull()) {
+            return null;
+        }
+        return CSContentCache.get(contents).getCompiledContent(contents);
+    }
+
+    /*
+     * (non-Javadoc)
+     *
+     * @see de.intarsys.pdf.content.IContentStreamProvider#copyContentStream()
+     */
+    @Override
+    public CSContent copyContentStream() {
+        COSObject contents = cosGetContents();
+        if (contents.isNull()) {
+            return null;
+        }
+        return CSContentCache.get(contents).createContent(contents);
+    }
+
     /**
      * The {@link CSContent} defining the visual content of the page.
+     * <p>
+     * The result is shared and must not be modified, see
+     * {@link #copyContentStream()}.
      *
      * @return The {@link CSContent} defining the visual content of the page.
      */
     @Override
     public CSContent getContentStream() {
-        CSContent contentStream = null;
-        if (cachedContentStream != null) {
-            contentStream = (CSContent) cachedContentStream.get();
-        }
-        if (contentStream == null) {
-            COSObject contents = cosGetContents();
-            if (!contents.isNull()) {
-                if (contents instanceof COSStream) {
-                    contentStream = CSContent.createFromCos(contents.asStream());
-                } else {
-                    contentStream = CSContent.createFromCos(contents.asArray());
-                }
-                // just to be sure we are not registered before (soft ref!)
-                contents.removeObjectListener(this);
-                contents.addObjectListener(this);
-                // todo add listener to content streams in array...
-                cachedContentStream = new SoftReference(contentStream);
-            }
+        COSObject contents = cosGetContents();
+        if (contents.isNull()) {
+            return null;
         }
-        return contentStream;
+        return CSContentCache.get(contents).getContent(contents);
     }
 
     /*
@@ -604,11 +620,8 @@ public class PDPage extends PDPageNode implements IAdditionalActionSupport, ICon
     public void invalidateCaches() {
         super.invalidateCaches();
         cachedAnnotations = null;
-        cachedContentStream = null;
         COSObject cosAnnotations = cosGetField(DK_Annots);
         cosAnnotations.removeObjectListener(this);
-        COSObject cosContents = cosGetField(DK_Contents);
-        cosContents.removeObjectListener(this);
     }
 
     /*
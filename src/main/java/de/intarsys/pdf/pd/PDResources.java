@@ -39,6 +39,7 @@ import de.intarsys.pdf.font.PDFont;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * The implementation of a resource dictionary.
@@ -104,9 +105,10 @@ public class PDResources extends PDObject {
     private Map currentCounters = new HashMap();
 
     /**
-     * a cached representation of the resources
+     * a cached representation of the resources, {@link COSNull#NULL} marks a
+     * missing dictionary
      */
-    private Map cachedResources = new HashMap();
+    private final Map<COSName, COSObject> cachedResources = new ConcurrentHashMap<COSName, COSObject>();
 
     /**
      * Create a resource dictionary
@@ -179,12 +181,13 @@ public class PDResources extends PDObject {
     }
 
     public COSDictionary cosGetResources(COSName resourceType) {
-        COSDictionary resources = (COSDictionary) cachedResources.get(resourceType);
-        if (resources == null) {
-            resources = cosGetField(resourceType).asDictionary();
-            cachedResources.put(resourceType, resources);
+        COSObject cached = cachedResources.get(resourceType);
+        if (cached == null) {
+            COSDictionary resources = cosGetField(resourceType).asDictionary();
+            cachedResources.put(resourceType, resources == null ? COSNull.NULL : resources);
+            return resources;
         }
-        return resources;
+        return cached.asDictionary();
     }
 
     public COSDictionary cosInitResources(COSName resourceType) {
@@ -40,6 +40,7 @@ import de.intarsys.pdf.cos.COSNull;
 import de.intarsys.pdf.cos.COSObject;
 import de.intarsys.pdf.cos.COSObjectKey;
 import de.intarsys.pdf.cos.COSObjectWalkerDeep;
+import de.intarsys.pdf.cos.COSStream;
 import de.intarsys.pdf.cos.COSTrailer;
 import de.intarsys.pdf.cos.COSVisitorException;
 import de.intarsys.pdf.crypt.AccessPermissionsFull;
@@ -54,6 +55,7 @@ import de.intarsys.pdf.parser.COSLoadError;
 import de.intarsys.pdf.parser.COSLoadException;
 import de.intarsys.pdf.pd.PDObject;
 import de.intarsys.pdf.writer.COSWriter;
+import de.intarsys.pdf.writer.SequentialRandomAccess;
 import de.intarsys.tools.attribute.AttributeMap;
 import de.intarsys.tools.attribute.IAttributeSupport;
 import de.intarsys.tools.event.AttributeChangedEvent;
@@ -71,15 +73,19 @@ import de.intarsys.tools.randomaccess.BufferedRandomAccess;
 import de.intarsys.tools.randomaccess.IRandomAccess;
 import de.intarsys.tools.stream.StreamTools;
 
+import java.io.EOFException;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.WritableByteChannel;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Set;
@@ -127,6 +133,19 @@ public class STDocument implements INotificationSupport, IAttributeSupport, ILoc
 
     public static final String OPTION_WRITEMODEHINT = "writeModeHint"; //$NON-NLS-1$
 
+    /**
+     * Option to defer reading of stream content until it is really needed.
+     * Unchanged streams are then copied as is when the document is written
+     * completely to a new location.
+     */
+    public static final String OPTION_LAZYSTREAMS = "lazyStreams"; //$NON-NLS-1$
+
+    /**
+     * Save option for the number of threads used to render changed objects,
+     * an {@link Integer} or {@link String}. Defaults to 1.
+     */
+    public static final String OPTION_WRITEPARALLELISM = "writeParallelism"; //$NON-NLS-1$
+
     /**
      * Create a new document representing the data referenced by locator.
      *
@@ -491,6 +510,48 @@ public class STDocument implements INotificationSupport, IAttributeSupport, ILoc
         }
     }
 
+    /**
+     * The changed objects that are still reachable from the trailer. In
+     * contrast to {@link #incrementalGarbageCollect()} the document is not
+     * modified.
+     *
+     * @return The changed objects that are still reachable.
+     */
+    public Collection<COSIndirectObject> getReachableChanges() {
+        Set unknown = getUnreachableChanges();
+        List<COSIndirectObject> result;
+        synchronized (changes) {
+            result = new ArrayList<COSIndirectObject>(changes);
+        }
+        result.removeAll(unknown);
+        return result;
+    }
+
+    /**
+     * The changed objects that are no longer reachable from the trailer.
+     *
+     * @return The changed objects that are no longer reachable.
+     */
+    protected Set getUnreachableChanges() {
+        final Set unknown;
+        synchronized (changes) {
+            unknown = new HashSet(changes);
+        }
+        COSObjectWalkerDeep stripper = new COSObjectWalkerDeep(true, false) {
+            @Override
+            public Object visitFromIndirectObject(COSIndirectObject io) throws COSVisitorException {
+                unknown.remove(io);
+                return super.visitFromIndirectObject(io);
+            }
+        };
+        try {
+            cosGetTrailer().accept(stripper);
+        } catch (COSVisitorException e) {
+            // won't happen
+        }
+        return unknown;
+    }
+
     public Object getAccessLock() {
         return accessLock;
     }
@@ -699,22 +760,7 @@ public class STDocument implements INotificationSupport, IAttributeSupport, ILoc
     }
 
     public void incrementalGarbageCollect() {
-        final Set unknown;
-        synchronized (changes) {
-            unknown = new HashSet(changes);
-        }
-        COSObjectWalkerDeep stripper = new COSObjectWalkerDeep(true, false) {
-            @Override
-            public Object visitFromIndirectObject(COSIndirectObject io) throws COSVisitorException {
-                unknown.remove(io);
-                return super.visitFromIndirectObject(io);
-            }
-        };
-        try {
-            cosGetTrailer().accept(stripper);
-        } catch (COSVisitorException e) {
-            // won't happen
-        }
+        Set unknown = getUnreachableChanges();
         synchronized (changes) {
             changes.removeAll(unknown);
         }
@@ -811,6 +857,16 @@ public class STDocument implements INotificationSupport, IAttributeSupport, ILoc
         return getLinearizedDict() != null;
     }
 
+    /**
+     * {@code true} if stream content is read on demand from the storage.
+     *
+     * @return {@code true} if stream content is read on demand from the
+     * storage.
+     */
+    public boolean isLazyStreams() {
+        return Boolean.TRUE.equals(getAttribute(OPTION_LAZYSTREAMS));
+    }
+
     public boolean isNew() {
         return (getXRefSection().getOffset() == -1) && (getXRefSection().getPrevious() == null);
     }
@@ -1048,21 +1104,14 @@ public class STDocument implements INotificationSupport, IAttributeSupport, ILoc
         if (options == null) {
             options = new HashMap();
         }
+        boolean incremental = !consumeWriteMode(options).isFull();
         if ((pLocator != null) && (pLocator != getLocator())) {
-            replaceLocator(pLocator);
-        }
-        boolean incremental = true;
-        EnumWriteMode writeMode = doc.getWriteModeHint();
-        // reset write mode
-        doc.setWriteModeHint(EnumWriteMode.UNDEFINED);
-        if (writeMode.isUndefined()) {
-            Object tempHint = options.get(OPTION_WRITEMODEHINT);
-            if (tempHint instanceof EnumWriteMode) {
-                writeMode = (EnumWriteMode) tempHint;
+            if (!incremental && isLazyStreams() && getRandomAccess() != null) {
+                // keep the old storage as the source for unchanged streams
+                saveFull(pLocator, options);
+                return;
             }
-        }
-        if (writeMode.isFull()) {
-            incremental = false;
+            replaceLocator(pLocator);
         }
         IRandomAccess tempRandomAccess = getRandomAccess();
         if (tempRandomAccess == null) {
@@ -1072,12 +1121,181 @@ public class STDocument implements INotificationSupport, IAttributeSupport, ILoc
             throw new FileNotFoundException("destination is read only"); //$NON-NLS-1$
         }
         COSWriter writer = new COSWriter(tempRandomAccess, getWriteSecurityHandler());
-        writer.setAutoUpdate(isAutoUpdate());
+        configureWriter(writer, options);
         writer.setIncremental(incremental);
         writer.writeDocument(this);
         readSecurityHandler = writeSecurityHandler;
     }
 
+    /**
+     * Write this to {@code outputStream} without changing the document's
+     * storage. The bytes are written strictly sequential, so this can be used
+     * to stream the document to a destination that does not support random
+     * access. An incremental save appends the changes to the original bytes of
+     * this, a full save writes all reachable objects with new object numbers.
+     * In both cases the document itself, including its object numbers, change
+     * state and modification date, is left untouched.
+     * <p>
+     * The caller remains responsible for closing {@code outputStream}.
+     *
+     * @param outputStream The destination.
+     * @param options      The write options, see {@link #save(ILocator, Map)}.
+     * @throws IOException
+     */
+    public void saveTo(OutputStream outputStream, Map options) throws IOException {
+        saveSequential(new SequentialRandomAccess(outputStream), options);
+    }
+
+    /**
+     * Write this to {@code channel} without changing the document's storage.
+     *
+     * @param channel The destination.
+     * @param options The write options, see {@link #save(ILocator, Map)}.
+     * @throws IOException
+     * @see #saveTo(OutputStream, Map)
+     */
+    public void saveTo(WritableByteChannel channel, Map options) throws IOException {
+        saveSequential(new SequentialRandomAccess(channel), options);
+    }
+
+    protected void saveSequential(SequentialRandomAccess sink, Map options) throws IOException {
+        if (options == null) {
+            options = new HashMap();
+        }
+        boolean incremental = !consumeWriteMode(options).isFull();
+        if (incremental && !isNew() && getRandomAccess() != null) {
+            synchronized (getAccessLock()) {
+                copyStorage(sink);
+            }
+            COSWriter writer = new COSWriter(sink, getWriteSecurityHandler());
+            configureWriter(writer, options);
+            writer.setIncremental(true);
+            writer.setCommit(false);
+            writer.writeDocument(this);
+        } else {
+            // the writer renumbers without touching the document
+            COSWriter writer = new COSWriter(sink, getWriteSecurityHandler());
+            configureWriter(writer, options);
+            writer.setIncremental(false);
+            writer.setCommit(false);
+            writer.writeDocument(this);
+        }
+        sink.flush();
+    }
+
+    /**
+     * Copy the bytes of the current storage to {@code sink}.
+     *
+     * @param sink The destination.
+     * @throws IOException
+     */
+    protected void copyStorage(SequentialRandomAccess sink) throws IOException {
+        IRandomAccess source = getRandomAccess();
+        long sourceOffset = source.getOffset();
+        try {
+            source.seek(0);
+            long remaining = source.getLength();
+            byte[] buffer = new byte[(int) Math.min(COSWriter.COPY_BUFFER_SIZE, remaining)];
+            while (remaining > 0) {
+                int count = source.read(buffer, 0, (int) Math.min(buffer.length, remaining));
+                if (count <= 0) {
+                    throw new EOFException("unexpected end of document data"); //$NON-NLS-1$
+                }
+                sink.write(buffer, 0, count);
+                remaining -= count;
+            }
+        } finally {
+            source.seek(sourceOffset);
+        }
+    }
+
+    /**
+     * Apply the document settings and the write {@code options} to
+     * {@code writer}.
+     *
+     * @param writer  The writer to configure.
+     * @param options The write options.
+     */
+    protected void configureWriter(COSWriter writer, Map options) {
+        writer.setAutoUpdate(isAutoUpdate());
+        Object parallelism = options.get(OPTION_WRITEPARALLELISM);
+        if (parallelism instanceof Number) {
+            writer.setParallelism(((Number) parallelism).intValue());
+        } else if (parallelism instanceof String) {
+            try {
+                writer.setParallelism(Integer.parseInt((String) parallelism));
+            } catch (NumberFormatException ignored) {
+                // keep default
+            }
+        }
+    }
+
+    /**
+     * The write mode for the next save, as requested by the document's write
+     * mode hint or else by {@code options}. The write mode hint is reset.
+     *
+     * @param options The write options.
+     * @return The write mode for the next save.
+     */
+    protected EnumWriteMode consumeWriteMode(Map options) {
+        EnumWriteMode writeMode = doc.getWriteModeHint();
+        // reset write mode
+        doc.setWriteModeHint(EnumWriteMode.UNDEFINED);
+        if (writeMode.isUndefined()) {
+            Object tempHint = options.get(OPTION_WRITEMODEHINT);
+            if (tempHint instanceof EnumWriteMode) {
+                writeMode = (EnumWriteMode) tempHint;
+            }
+        }
+        return writeMode;
+    }
+
+    /**
+     * Write this completely to {@code newLocator}, which becomes the new
+     * storage afterwards. Other than {@link #replaceLocator(ILocator)} the
+     * current storage is not copied but left intact while writing, so that
+     * unchanged stream content can be copied from there directly.
+     *
+     * @param newLocator The new storage location.
+     * @param options    The write options.
+     * @throws IOException
+     */
+    protected void saveFull(ILocator newLocator, Map options) throws IOException {
+        ILocator oldLocator = getLocator();
+        IRandomAccess newRandomAccess = createRandomAccess(newLocator);
+        COSWriter writer;
+        try {
+            if (newRandomAccess.isReadOnly()) {
+                throw new FileNotFoundException("destination is read only"); //$NON-NLS-1$
+            }
+            writer = new COSWriter(newRandomAccess, getWriteSecurityHandler());
+            configureWriter(writer, options);
+            writer.setIncremental(false);
+            // not under the access lock, the writer takes it when appending
+            // and objects may be rendered concurrently before
+            writer.writeDocument(this);
+        } catch (Exception e) {
+            StreamTools.close(newRandomAccess);
+            if (e instanceof IOException) {
+                throw (IOException) e;
+            }
+            throw ExceptionTools.createIOException("unexpected exception saving '" + newLocator.getFullName() + "'",
+                                                   e);
+        }
+        synchronized (getAccessLock()) {
+            // streams copied as is now live in the new storage
+            for (Map.Entry<COSStream, STStreamRange> entry : writer.getRelocatedStreams().entrySet()) {
+                entry.getKey().basicSetEncodedRange(entry.getValue());
+            }
+            IRandomAccess oldRandomAccess = getRandomAccess();
+            setLocator(newLocator);
+            setRandomAccess(newRandomAccess);
+            StreamTools.close(oldRandomAccess);
+            readSecurityHandler = writeSecurityHandler;
+        }
+        triggerChanged(ATTR_LOCATOR, oldLocator, newLocator);
+    }
+
     @Override
     public final synchronized Object setAttribute(Object key, Object value) {
         Object oldValue = attributes.put(key, value);
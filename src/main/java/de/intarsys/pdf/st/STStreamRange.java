@@ -0,0 +1,179 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.st;
+
+import de.intarsys.pdf.cos.COSDictionary;
+import de.intarsys.pdf.cos.COSObjectKey;
+import de.intarsys.pdf.crypt.COSSecurityException;
+import de.intarsys.pdf.crypt.ISystemSecurityHandler;
+import de.intarsys.tools.randomaccess.IRandomAccess;
+
+import java.io.EOFException;
+import java.io.IOException;
+
+/**
+ * The location of the physical (encoded) content of a stream within the
+ * storage of a document.
+ * <p>
+ * A stream that is read with deferred content holds only this range until the
+ * bytes are really needed. The range is kept until the stream content is
+ * changed, which allows the {@link de.intarsys.pdf.writer.COSWriter} to copy
+ * the raw bytes without ever loading them into memory.
+ */
+public class STStreamRange {
+
+    private final STDocument doc;
+
+    private final IRandomAccess randomAccess;
+
+    private final long offset;
+
+    private final int length;
+
+    /**
+     * The security handler the content is encrypted with, if any.
+     */
+    private final ISystemSecurityHandler securityHandler;
+
+    /**
+     * The key of the object the content was encrypted for, if any.
+     */
+    private final COSObjectKey objectKey;
+
+    public STStreamRange(STDocument doc, IRandomAccess randomAccess, long offset, int length,
+                         ISystemSecurityHandler securityHandler, COSObjectKey objectKey) {
+        this.doc = doc;
+        this.randomAccess = randomAccess;
+        this.offset = offset;
+        this.length = length;
+        this.securityHandler = securityHandler;
+        this.objectKey = objectKey;
+    }
+
+    /**
+     * The document whose storage holds the content.
+     *
+     * @return The document whose storage holds the content.
+     */
+    public STDocument getDoc() {
+        return doc;
+    }
+
+    public int getLength() {
+        return length;
+    }
+
+    public COSObjectKey getObjectKey() {
+        return objectKey;
+    }
+
+    public long getOffset() {
+        return offset;
+    }
+
+    public IRandomAccess getRandomAccess() {
+        return randomAccess;
+    }
+
+    public ISystemSecurityHandler getSecurityHandler() {
+        return securityHandler;
+    }
+
+    /**
+     * {@code true} if the raw bytes in this range are encrypted.
+     *
+     * @return {@code true} if the raw bytes in this range are encrypted.
+     */
+    public boolean isEncrypted() {
+        return securityHandler != null && objectKey != null;
+    }
+
+    /**
+     * Read the (decrypted) physical content. The position of the underlying
+     * {@link IRandomAccess} is left untouched.
+     *
+     * @param dict The stream dictionary, needed for decryption.
+     * @return The (decrypted) physical content.
+     * @throws IOException
+     */
+    public byte[] load(COSDictionary dict) throws IOException {
+        byte[] bytes = readRaw();
+        if (isEncrypted()) {
+            try {
+                return securityHandler.decryptStream(objectKey, dict, bytes);
+            } catch (COSSecurityException e) {
+                IOException ioe = new IOException("error decrypting stream " + objectKey); //$NON-NLS-1$
+                ioe.initCause(e);
+                throw ioe;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Read the raw bytes as found in the storage. The position of the
+     * underlying {@link IRandomAccess} is left untouched.
+     *
+     * @return The raw bytes as found in the storage.
+     * @throws IOException
+     */
+    public byte[] readRaw() throws IOException {
+        synchronized (doc.getAccessLock()) {
+            long oldOffset = randomAccess.getOffset();
+            try {
+                byte[] bytes = new byte[length];
+                randomAccess.seek(offset);
+                int pos = 0;
+                while (pos < length) {
+                    int count = randomAccess.read(bytes, pos, length - pos);
+                    if (count <= 0) {
+                        throw new EOFException("unexpected end of stream data at " + (offset + pos)); //$NON-NLS-1$
+                    }
+                    pos += count;
+                }
+                return bytes;
+            } finally {
+                randomAccess.seek(oldOffset);
+            }
+        }
+    }
+
+    /**
+     * A new range describing the same content, copied without change to
+     * {@code newOffset} in {@code newRandomAccess}.
+     *
+     * @param newRandomAccess The new storage.
+     * @param newOffset       The new start of the content.
+     * @return A new range describing the same content.
+     */
+    public STStreamRange relocate(IRandomAccess newRandomAccess, long newOffset) {
+        return new STStreamRange(doc, newRandomAccess, newOffset, length, securityHandler, objectKey);
+    }
+}
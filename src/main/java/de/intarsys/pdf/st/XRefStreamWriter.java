@@ -30,8 +30,12 @@
 package de.intarsys.pdf.st;
 
 import de.intarsys.pdf.cos.COSArray;
+import de.intarsys.pdf.cos.COSDictionary;
 import de.intarsys.pdf.cos.COSIndirectObject;
 import de.intarsys.pdf.cos.COSInteger;
+import de.intarsys.pdf.cos.COSStream;
+import de.intarsys.pdf.filter.Filter;
+import de.intarsys.pdf.filter.Prediction;
 import de.intarsys.pdf.writer.COSWriter;
 import de.intarsys.tools.randomaccess.RandomAccessByteArray;
 
@@ -115,7 +119,15 @@ public class XRefStreamWriter extends AbstractXRefWriter {
     @Override
     protected void finish(STXRefSection xRefSection) throws IOException {
         byte[] innerBytes = ((RandomAccessByteArray) getRandomAccess()).toByteArray();
-        ((STStreamXRefSection) xRefSection).cosGetStream().setDecodedBytes(innerBytes);
+        COSStream stream = ((STStreamXRefSection) xRefSection).cosGetStream();
+        stream.getDict().remove(COSStream.DK_Filter);
+        stream.getDict().remove(COSStream.DK_DecodeParms);
+        stream.setDecodedBytes(innerBytes);
+        // the entries are rows of W bytes, "up" prediction leaves mostly 0
+        COSDictionary options = COSDictionary.create();
+        options.put(Prediction.DK_Predictor, COSInteger.create(Prediction.PNGUp));
+        options.put(Prediction.DK_Columns, COSInteger.create(wSize[0] + wSize[1] + wSize[2]));
+        stream.addFilter(Filter.CN_Filter_FlateDecode, options);
         getCosWriter().writeIndirectObject(((STStreamXRefSection) xRefSection).cosGetStream().getIndirectObject());
         super.finish(xRefSection);
     }
@@ -30,7 +30,7 @@
 package de.intarsys.pdf.st;
 
 import de.intarsys.pdf.writer.COSWriter;
-import de.intarsys.tools.string.StringTools;
+import de.intarsys.pdf.writer.SerializationBuffer;
 
 import java.io.IOException;
 import java.text.DecimalFormat;
@@ -50,6 +50,11 @@ public class XRefTrailerWriter extends AbstractXRefWriter {
 
     public static final byte[] XREF = "xref".getBytes();
 
+    /**
+     * Scratch buffer to assemble an entry line.
+     */
+    private final SerializationBuffer buffer = new SerializationBuffer();
+
     public XRefTrailerWriter(COSWriter cosWriter) {
         super(cosWriter);
     }
@@ -102,14 +107,11 @@ public class XRefTrailerWriter extends AbstractXRefWriter {
      */
     @Override
     protected void write(int col1, int col2, byte[] type) throws IOException {
-        String stCol1 = XRefTrailerWriter.FORMAT_XREF_OFFSET.format(col1);
-        String stCol2 = XRefTrailerWriter.FORMAT_XREF_GENERATION.format(col2);
-        getRandomAccess().write(StringTools.toByteArray(stCol1));
-        getRandomAccess().write(COSWriter.SPACE);
-        getRandomAccess().write(StringTools.toByteArray(stCol2));
-        getRandomAccess().write(COSWriter.SPACE);
-        getRandomAccess().write(type);
-        getRandomAccess().write(COSWriter.CRLF);
+        // same as FORMAT_XREF_OFFSET and FORMAT_XREF_GENERATION
+        buffer.appendPadded(col1, 10).append(' ');
+        buffer.appendPadded(col2, 5).append(' ');
+        buffer.append(type).append(COSWriter.CRLF);
+        buffer.flushTo(getRandomAccess());
     }
 
     /*
@@ -119,10 +121,9 @@ public class XRefTrailerWriter extends AbstractXRefWriter {
      */
     @Override
     protected void visitFromSubsection(STXRefSubsection section) throws IOException {
-        getRandomAccess().write(StringTools.toByteArray(Integer.toString(section.getStart())));
-        getRandomAccess().write(COSWriter.SPACE);
-        getRandomAccess().write(StringTools.toByteArray(Integer.toString(section.getSize())));
-        getRandomAccess().write(COSWriter.EOL);
+        buffer.appendInteger(section.getStart()).append(' ');
+        buffer.appendInteger(section.getSize()).append(COSWriter.EOL);
+        buffer.flushTo(getRandomAccess());
     }
 
     /*
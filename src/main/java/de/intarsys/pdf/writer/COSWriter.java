@@ -42,43 +42,94 @@ import de.intarsys.pdf.cos.COSInteger;
 import de.intarsys.pdf.cos.COSName;
 import de.intarsys.pdf.cos.COSNull;
 import de.intarsys.pdf.cos.COSObject;
+import de.intarsys.pdf.cos.COSObjectKey;
 import de.intarsys.pdf.cos.COSObjectProxy;
+import de.intarsys.pdf.cos.COSObjectWalkerDeep;
 import de.intarsys.pdf.cos.COSStream;
 import de.intarsys.pdf.cos.COSString;
+import de.intarsys.pdf.cos.COSTrailer;
 import de.intarsys.pdf.cos.COSVisitorException;
 import de.intarsys.pdf.cos.ICOSObjectVisitor;
 import de.intarsys.pdf.cos.ICOSProxyVisitor;
 import de.intarsys.pdf.crypt.COSSecurityException;
 import de.intarsys.pdf.crypt.ISystemSecurityHandler;
-import de.intarsys.pdf.parser.PDFParser;
+import de.intarsys.pdf.filter.ICompressionPolicy;
+import de.intarsys.pdf.filter.StandardCompressionPolicy;
 import de.intarsys.pdf.st.AbstractXRefWriter;
 import de.intarsys.pdf.st.STDocument;
+import de.intarsys.pdf.st.STStreamRange;
+import de.intarsys.pdf.st.STTrailerXRefSection;
 import de.intarsys.pdf.st.STXRefEntryOccupied;
 import de.intarsys.pdf.st.STXRefSection;
-import de.intarsys.tools.hex.HexTools;
+import de.intarsys.tools.locator.FileLocator;
+import de.intarsys.tools.locator.ILocator;
 import de.intarsys.tools.randomaccess.IRandomAccess;
 import de.intarsys.tools.randomaccess.RandomAccessByteArray;
-import de.intarsys.tools.string.StringTools;
 
+import java.io.EOFException;
+import java.io.FileInputStream;
 import java.io.IOException;
-import java.text.NumberFormat;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.IdentityHashMap;
 import java.util.Iterator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
 
 /**
  * A writer for PDF related data structures.
  */
 public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
+
+    /**
+     * A writer rendering a single indirect object to a memory buffer. Proxies
+     * are reserved with zeros, their position is relative to the buffer.
+     */
+    protected static class FragmentWriter extends COSWriter {
+
+        public FragmentWriter() {
+            super(new RandomAccessByteArray(null), null);
+        }
+
+        public byte[] getBytes() {
+            return ((RandomAccessByteArray) getRandomAccess()).toByteArray();
+        }
+
+        @Override
+        public Object visitFromProxy(COSObjectProxy obj) throws COSVisitorException {
+            try {
+                obj.setPosition(getRandomAccess().getOffset());
+                getRandomAccess().write(new byte[obj.getLength()]);
+            } catch (IOException e) {
+                throw new COSVisitorException(e);
+            }
+            getProxies().add(obj);
+            return null;
+        }
+    }
+
     public static final byte[] ARRAY_CLOSE = "]".getBytes(); //$NON-NLS-1$
 
     public static final byte[] ARRAY_OPEN = "[".getBytes(); //$NON-NLS-1$
 
     public static final byte[] COMMENT = "%".getBytes(); //$NON-NLS-1$
 
+    /**
+     * The chunk size when copying unchanged stream content.
+     */
+    public static final int COPY_BUFFER_SIZE = 65536;
+
     /*
      * todo 1 @mit break up streams longer than allowed line (255 chars, pp67)
      */
@@ -156,17 +207,26 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
 
     public static final byte[] TRUE = "true".getBytes(); //$NON-NLS-1$
 
-    private static final NumberFormat formatFixed = NumberFormat.getIntegerInstance(Locale.US);
+    /**
+     * Scratch buffers for the static serialization helpers.
+     */
+    private static final ThreadLocal<SerializationBuffer> buffers = new ThreadLocal<SerializationBuffer>() {
+        @Override
+        protected SerializationBuffer initialValue() {
+            return new SerializationBuffer();
+        }
+    };
 
-    public static synchronized void basicWriteFixed(IRandomAccess randomAccess, float value, int precision)
-            throws IOException {
-        formatFixed.setGroupingUsed(false);
-        formatFixed.setMaximumFractionDigits(precision);
-        randomAccess.write(StringTools.toByteArray(formatFixed.format(value)));
+    public static void basicWriteFixed(IRandomAccess randomAccess, float value, int precision) throws IOException {
+        SerializationBuffer buffer = buffers.get();
+        buffer.reset();
+        buffer.appendFixed(value, precision).flushTo(randomAccess);
     }
 
     public static void basicWriteInteger(IRandomAccess randomAccess, int value) throws IOException {
-        randomAccess.write(StringTools.toByteArray(Integer.toString(value)));
+        SerializationBuffer buffer = buffers.get();
+        buffer.reset();
+        buffer.appendInteger(value).flushTo(randomAccess);
     }
 
     /**
@@ -177,16 +237,9 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
      * @throws IOException
      */
     public static void basicWriteName(IRandomAccess randomAccess, byte[] name) throws IOException {
-        randomAccess.write(NAME_PREFIX);
-        for (int i = 0; i < name.length; i++) {
-            int current = name[i] & 0xff; // convert to unsigned byte
-            if (current <= 32 || current >= 127 || PDFParser.isDelimiter(current) || current == 35) {
-                randomAccess.write(NAME_ESCAPE);
-                randomAccess.write(HexTools.ByteToHex[current]);
-            } else {
-                randomAccess.write(current);
-            }
-        }
+        SerializationBuffer buffer = buffers.get();
+        buffer.reset();
+        buffer.appendName(name).flushTo(randomAccess);
     }
 
     /**
@@ -197,11 +250,9 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
      * @throws IOException
      */
     public static void basicWriteStringHex(IRandomAccess randomAccess, byte[] string) throws IOException {
-        randomAccess.write(STRING_HEX_OPEN);
-        for (int i = 0; i < string.length; i++) {
-            randomAccess.write(HexTools.ByteToHex[string[i] & 0xFF]);
-        }
-        randomAccess.write(STRING_HEX_CLOSE);
+        SerializationBuffer buffer = buffers.get();
+        buffer.reset();
+        buffer.appendHexString(string).flushTo(randomAccess);
     }
 
     /**
@@ -212,27 +263,9 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
      * @throws IOException
      */
     public static void basicWriteStringLiteral(IRandomAccess randomAccess, byte[] string) throws IOException {
-        randomAccess.write(STRING_OPEN);
-        for (int i = 0; i < string.length; i++) {
-            int b = string[i];
-            if (b == '\n') {
-                randomAccess.write(LITERAL_ESCAPED_LF);
-            } else if (b == '\r') {
-                randomAccess.write(LITERAL_ESCAPED_CR);
-            } else if (b == '\t') {
-                randomAccess.write(LITERAL_ESCAPED_HT);
-            } else if (b == '\f') {
-                randomAccess.write(LITERAL_ESCAPED_FF);
-            } else if (b == '\b') {
-                randomAccess.write(LITERAL_ESCAPED_BS);
-            } else if ((b == '(') || (b == ')') || (b == '\\')) {
-                randomAccess.write(PDF_ESCAPE);
-                randomAccess.write(b);
-            } else {
-                randomAccess.write(b);
-            }
-        }
-        randomAccess.write(STRING_CLOSE);
+        SerializationBuffer buffer = buffers.get();
+        buffer.reset();
+        buffer.appendLiteralString(string).flushTo(randomAccess);
     }
 
     /**
@@ -252,6 +285,36 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         return tempRandom.toByteArray();
     }
 
+    /**
+     * The threads rendering objects concurrently, shared by all writers.
+     */
+    private static ExecutorService renderExecutor;
+
+    /**
+     * The executor for rendering objects concurrently, created on demand and
+     * shared by all writers. Its threads are daemons and terminate when idle.
+     *
+     * @return The executor for rendering objects concurrently.
+     */
+    protected static synchronized ExecutorService getRenderExecutor() {
+        if (renderExecutor == null) {
+            renderExecutor = Executors.newCachedThreadPool(new ThreadFactory() {
+                private int count;
+
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread;
+                    synchronized (this) {
+                        thread = new Thread(runnable, "COSWriter render " + count++); //$NON-NLS-1$
+                    }
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+        }
+        return renderExecutor;
+    }
+
     private COSIndirectObject currentObject;
 
     private final ISystemSecurityHandler securityHandler;
@@ -260,6 +323,17 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
 
     private boolean autoUpdate = true;
 
+    private boolean commit = true;
+
+    private int parallelism = 1;
+
+    private ICompressionPolicy compressionPolicy;
+
+    /**
+     * Scratch buffer to assemble tokens before writing.
+     */
+    private final SerializationBuffer buffer = new SerializationBuffer();
+
     /**
      * flag to prevent generating two newlines in sequence
      */
@@ -267,6 +341,22 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
 
     private final List proxies = new ArrayList();
 
+    /**
+     * The streams whose content was copied as is, with their new location.
+     */
+    private final Map<COSStream, STStreamRange> relocatedStreams = new IdentityHashMap<COSStream, STStreamRange>();
+
+    /**
+     * Channels to read unchanged stream content from, per source document.
+     */
+    private final Map<STDocument, FileChannel> sourceChannels = new IdentityHashMap<STDocument, FileChannel>();
+
+    /**
+     * The keys the objects are written with when the document itself is not
+     * renumbered, see {@link #renumberObjects(STDocument)}.
+     */
+    private Map<COSIndirectObject, COSObjectKey> writeKeys;
+
     /**
      * The IRandomAccess we write to.
      */
@@ -278,7 +368,7 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     }
 
     protected void basicWriteDocument(STDocument doc) throws IOException {
-        if (doc.isDirty() && isAutoUpdate()) {
+        if (doc.isDirty() && isAutoUpdate() && isCommit()) {
             doc.updateModificationDate();
             doc.getTrailer().updateFileID();
         }
@@ -289,33 +379,66 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         if (doc.isClosed()) {
             return;
         }
-        if (!isIncremental()) {
-            doc.garbageCollect();
+        Collection<COSIndirectObject> changes;
+        if (isCommit()) {
+            if (!isIncremental()) {
+                doc.garbageCollect();
+            } else {
+                doc.incrementalGarbageCollect();
+            }
+            changes = doc.getChanges();
+        } else if (!isIncremental()) {
+            changes = renumberObjects(doc);
+        } else {
+            changes = doc.getReachableChanges();
+        }
+        // render before locking, workers may need to load data
+        Map<COSIndirectObject, FragmentWriter> fragments;
+        if (Thread.holdsLock(doc.getAccessLock())) {
+            // the workers would wait for the caller, write sequentially
+            fragments = new IdentityHashMap<COSIndirectObject, FragmentWriter>();
         } else {
-            doc.incrementalGarbageCollect();
+            fragments = renderFragments(changes);
         }
         synchronized (doc.getAccessLock()) {
             if (!isIncremental()) {
+                if (getRandomAccess() == doc.getRandomAccess()) {
+                    // we overwrite our own storage, content must be in memory
+                    hardenStreams(changes);
+                }
                 getRandomAccess().setLength(0);
                 writeHeader(doc);
             }
-            Collection changes = doc.getChanges();
             if (!changes.isEmpty()) {
                 seekToEnd();
-                STXRefSection xrefSection = doc.createNewXRefSection();
+                STXRefSection xrefSection;
+                if (writeKeys != null) {
+                    xrefSection = createRenumberedXRefSection(doc);
+                } else {
+                    xrefSection = doc.createNewXRefSection();
+                }
                 if (getSecurityHandler() != null) {
                     getSecurityHandler().updateTrailer(xrefSection.cosGetDict());
                 }
                 for (Iterator it = changes.iterator(); it.hasNext(); ) {
                     COSIndirectObject object = (COSIndirectObject) it.next();
-                    writeEntry(xrefSection, object);
-                    object.setDirty(false);
+                    FragmentWriter fragment = fragments.get(object);
+                    if (fragment == null) {
+                        writeEntry(xrefSection, object);
+                    } else {
+                        writeFragment(xrefSection, object, fragment);
+                    }
+                    if (isCommit()) {
+                        object.setDirty(false);
+                    }
                 }
                 seekToEnd();
                 writeXRef(xrefSection);
                 writeEOF();
-                doc.setXRefSection(xrefSection);
-                doc.setDirty(false);
+                if (isCommit()) {
+                    doc.setXRefSection(xrefSection);
+                    doc.setDirty(false);
+                }
             }
             for (Iterator it = getProxies().iterator(); it.hasNext(); ) {
                 COSObjectProxy proxy = (COSObjectProxy) it.next();
@@ -327,12 +450,90 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
 
     protected void close(STDocument doc) throws IOException {
         // todo 1 change dirty
+        for (FileChannel channel : sourceChannels.values()) {
+            channel.close();
+        }
+        sourceChannels.clear();
+    }
+
+    /**
+     * Copy the raw bytes described by {@code range} to the current position.
+     *
+     * @param range The location of the bytes to copy.
+     * @throws IOException
+     */
+    protected void copyRange(STStreamRange range) throws IOException {
+        IRandomAccess source = range.getRandomAccess();
+        synchronized (range.getDoc().getAccessLock()) {
+            FileChannel channel = getSourceChannel(range);
+            if (channel != null) {
+                OutputStream os = getRandomAccess().asOutputStream();
+                WritableByteChannel target;
+                if (getRandomAccess() instanceof SequentialRandomAccess) {
+                    target = ((SequentialRandomAccess) getRandomAccess()).asChannel();
+                } else {
+                    target = Channels.newChannel(os);
+                }
+                long position = range.getOffset();
+                long remaining = range.getLength();
+                while (remaining > 0) {
+                    long count = channel.transferTo(position, remaining, target);
+                    if (count <= 0) {
+                        throw new EOFException("unexpected end of stream data at " + position); //$NON-NLS-1$
+                    }
+                    position += count;
+                    remaining -= count;
+                }
+                os.flush();
+                return;
+            }
+            long sourceOffset = source.getOffset();
+            long position = getRandomAccess().getOffset();
+            byte[] buffer = new byte[(int) Math.min(COPY_BUFFER_SIZE, range.getLength())];
+            long from = range.getOffset();
+            int remaining = range.getLength();
+            while (remaining > 0) {
+                source.seek(from);
+                int count = source.read(buffer, 0, Math.min(buffer.length, remaining));
+                if (count <= 0) {
+                    throw new EOFException("unexpected end of stream data at " + from); //$NON-NLS-1$
+                }
+                if (source == getRandomAccess()) {
+                    getRandomAccess().seek(position);
+                }
+                getRandomAccess().write(buffer, 0, count);
+                position += count;
+                from += count;
+                remaining -= count;
+            }
+            if (source != getRandomAccess()) {
+                source.seek(sourceOffset);
+            }
+        }
+    }
+
+    /**
+     * Create the x ref section for a full write with the keys assigned by
+     * {@link #renumberObjects(STDocument)}. The trailer is copied, the
+     * document keeps its own x ref section.
+     *
+     * @param doc The document written.
+     * @return The new x ref section.
+     */
+    protected STXRefSection createRenumberedXRefSection(STDocument doc) {
+        STTrailerXRefSection xrefSection = new STTrailerXRefSection(doc);
+        COSDictionary trailer = xrefSection.cosGetDict();
+        trailer.addAll(doc.cosGetTrailer());
+        trailer.remove(COSTrailer.DK_Prev);
+        trailer.remove(COSTrailer.DK_Size);
+        trailer.remove(STXRefSection.DK_XRefStm);
+        return xrefSection;
     }
 
     protected byte[] encryptStream(COSDictionary dict, byte[] bytes) throws IOException {
         if (getSecurityHandler() != null && getCurrentObject() != null) {
             try {
-                return getSecurityHandler().encryptStream(getCurrentObject().getKey(), dict, bytes);
+                return getSecurityHandler().encryptStream(getWriteKey(getCurrentObject()), dict, bytes);
             } catch (COSSecurityException e) {
                 IOException ioe = new IOException("error encrypting data"); //$NON-NLS-1$
                 ioe.initCause(e);
@@ -346,7 +547,7 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         byte[] bytes = obj.byteValue();
         if (getSecurityHandler() != null && getCurrentObject() != null) {
             try {
-                return getSecurityHandler().encryptString(getCurrentObject().getKey(), bytes);
+                return getSecurityHandler().encryptString(getWriteKey(getCurrentObject()), bytes);
             } catch (COSSecurityException e) {
                 IOException ioe = new IOException("error encrypting data"); //$NON-NLS-1$
                 ioe.initCause(e);
@@ -356,6 +557,19 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         return bytes;
     }
 
+    /**
+     * {@code true} if {@code object} can be rendered by a
+     * {@link FragmentWriter} on a worker thread.
+     *
+     * @param object The indirect object to be written.
+     * @return {@code true} if {@code object} can be rendered concurrently.
+     */
+    protected boolean isFragmentable(COSIndirectObject object) {
+        COSStream stream = object.dereference().asStream();
+        // unchanged content is copied from the storage, under the access lock
+        return stream == null || stream.getEncodedRange() == null;
+    }
+
     protected COSIndirectObject getCurrentObject() {
         return currentObject;
     }
@@ -369,14 +583,99 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         return proxies;
     }
 
+    /**
+     * The policy for compressing streams that are encoded while writing or
+     * null for the VM default.
+     *
+     * @return The policy for compressing streams or null.
+     */
+    public ICompressionPolicy getCompressionPolicy() {
+        return compressionPolicy;
+    }
+
+    /**
+     * The maximum number of threads used to render changed objects.
+     *
+     * @return The maximum number of threads used to render changed objects.
+     */
+    public int getParallelism() {
+        return parallelism;
+    }
+
     public IRandomAccess getRandomAccess() {
         return randomAccess;
     }
 
+    /**
+     * The streams whose unchanged content was copied as is, associated with
+     * the location of the content in the {@link IRandomAccess} written to.
+     *
+     * @return The streams whose unchanged content was copied as is.
+     */
+    public Map<COSStream, STStreamRange> getRelocatedStreams() {
+        return relocatedStreams;
+    }
+
     protected ISystemSecurityHandler getSecurityHandler() {
         return securityHandler;
     }
 
+    /**
+     * A {@link FileChannel} to read the content described by {@code range}
+     * or {@code null} if not available.
+     *
+     * @param range The location of the bytes to read.
+     * @return A {@link FileChannel} to read from or {@code null}.
+     * @throws IOException
+     */
+    protected FileChannel getSourceChannel(STStreamRange range) throws IOException {
+        STDocument source = range.getDoc();
+        if (range.getRandomAccess() != source.getRandomAccess() || source.getRandomAccess() == getRandomAccess()) {
+            return null;
+        }
+        FileChannel channel = sourceChannels.get(source);
+        if (channel == null) {
+            ILocator locator = source.getLocator();
+            if (!(locator instanceof FileLocator)) {
+                return null;
+            }
+            channel = new FileInputStream(((FileLocator) locator).getFile()).getChannel();
+            sourceChannels.put(source, channel);
+        }
+        return channel;
+    }
+
+    /**
+     * Make sure the content of all streams in {@code objects} is held in
+     * memory.
+     *
+     * @param objects The indirect objects to inspect.
+     */
+    protected void hardenStreams(Collection<COSIndirectObject> objects) {
+        for (COSIndirectObject object : objects) {
+            COSStream stream = object.dereference().asStream();
+            if (stream != null) {
+                stream.harden();
+            }
+        }
+    }
+
+    /**
+     * The key {@code object} is written with.
+     *
+     * @param object The indirect object.
+     * @return The key {@code object} is written with.
+     */
+    protected COSObjectKey getWriteKey(COSIndirectObject object) {
+        if (writeKeys != null) {
+            COSObjectKey key = writeKeys.get(object);
+            if (key != null) {
+                return key;
+            }
+        }
+        return new COSObjectKey(object.getObjectNumber(), object.getGenerationNumber());
+    }
+
     /**
      * When auto update is true, the {@link COSWriter} will automatically create
      * new values for the file modification date in the info dictionary and the
@@ -389,10 +688,39 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         return autoUpdate;
     }
 
+    /**
+     * When commit is true, the document is updated to reflect the state
+     * written, the changes are marked as no longer dirty and the new x ref
+     * section is attached. When false, the document is left untouched, as is
+     * needed when writing a copy to some foreign destination.
+     *
+     * @return Answer {@code true} if the written state is committed to the
+     * document.
+     */
+    public boolean isCommit() {
+        return commit;
+    }
+
     public boolean isIncremental() {
         return incremental;
     }
 
+    /**
+     * {@code true} if the unchanged content described by {@code range} can be
+     * copied as is. This requires the same encryption for reading and writing.
+     *
+     * @param range The location of the unchanged content.
+     * @return {@code true} if the content can be copied as is.
+     */
+    protected boolean isCopyable(STStreamRange range) {
+        if (!range.isEncrypted() && getSecurityHandler() == null) {
+            return true;
+        }
+        return range.getSecurityHandler() == getSecurityHandler()
+               && getCurrentObject() != null
+               && range.getObjectKey().equals(getWriteKey(getCurrentObject()));
+    }
+
     /**
      * This will tell if we are on a new line.
      *
@@ -402,6 +730,119 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         return onNewLine;
     }
 
+    /**
+     * Render the objects in {@code objects} concurrently, including the
+     * encoding of their stream content. The result maps each rendered object
+     * to its {@link FragmentWriter}, objects not contained must be written
+     * the usual way.
+     * <p>
+     * Nothing is rendered if the parallelism is 1 or encryption is active, as
+     * the security handler keeps track of the current object.
+     *
+     * @param objects The indirect objects to be written.
+     * @return The rendered objects.
+     * @throws IOException
+     */
+    protected Map<COSIndirectObject, FragmentWriter> renderFragments(Collection objects) throws IOException {
+        Map<COSIndirectObject, FragmentWriter> result = new IdentityHashMap<COSIndirectObject, FragmentWriter>();
+        if (getParallelism() <= 1 || getSecurityHandler() != null || objects.size() < 2) {
+            return result;
+        }
+        List<COSIndirectObject> candidates = new ArrayList<COSIndirectObject>();
+        for (Iterator it = objects.iterator(); it.hasNext(); ) {
+            COSIndirectObject object = (COSIndirectObject) it.next();
+            if (isFragmentable(object)) {
+                candidates.add(object);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return result;
+        }
+        int taskCount = Math.min(getParallelism(), candidates.size());
+        List<Future<FragmentWriter[]>> futures = new ArrayList<Future<FragmentWriter[]>>(taskCount);
+        try {
+            for (int i = 0; i < taskCount; i++) {
+                final List<COSIndirectObject> chunk = new ArrayList<COSIndirectObject>();
+                for (int j = i; j < candidates.size(); j += taskCount) {
+                    chunk.add(candidates.get(j));
+                }
+                futures.add(getRenderExecutor().submit(new Callable<FragmentWriter[]>() {
+                    @Override
+                    public FragmentWriter[] call() throws IOException {
+                        FragmentWriter[] fragments = new FragmentWriter[chunk.size()];
+                        for (int k = 0; k < fragments.length; k++) {
+                            fragments[k] = new FragmentWriter();
+                            fragments[k].setWriteKeys(writeKeys);
+                            fragments[k].setCompressionPolicy(getCompressionPolicy());
+                            fragments[k].writeIndirectObject(chunk.get(k));
+                        }
+                        return fragments;
+                    }
+                }));
+            }
+            for (int i = 0; i < taskCount; i++) {
+                FragmentWriter[] fragments = futures.get(i).get();
+                for (int k = 0; k < fragments.length; k++) {
+                    result.put(candidates.get(i + k * taskCount), fragments[k]);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("interrupted while rendering objects"); //$NON-NLS-1$
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            IOException ioe = new IOException("error rendering objects"); //$NON-NLS-1$
+            ioe.initCause(cause);
+            throw ioe;
+        } finally {
+            for (Future<FragmentWriter[]> future : futures) {
+                future.cancel(true);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Assign new consecutive keys to all objects reachable from the trailer
+     * of {@code doc}, without changing the document. This is the full write
+     * counterpart of {@link STDocument#garbageCollect()} when the written
+     * state is not committed.
+     *
+     * @param doc The document to write.
+     * @return The objects to write, in the order of their new keys.
+     * @throws IOException
+     */
+    protected List<COSIndirectObject> renumberObjects(STDocument doc) throws IOException {
+        final List<COSIndirectObject> objects = new ArrayList<COSIndirectObject>();
+        COSObjectWalkerDeep walker = new COSObjectWalkerDeep() {
+            @Override
+            public Object visitFromIndirectObject(COSIndirectObject io) throws COSVisitorException {
+                if (!getVisited().contains(io)) {
+                    objects.add(io);
+                }
+                return super.visitFromIndirectObject(io);
+            }
+        };
+        try {
+            doc.cosGetTrailer().accept(walker);
+        } catch (COSVisitorException e) {
+            IOException ioe = new IOException("error collecting objects"); //$NON-NLS-1$
+            ioe.initCause(e);
+            throw ioe;
+        }
+        writeKeys = new IdentityHashMap<COSIndirectObject, COSObjectKey>(objects.size() * 2);
+        for (int i = 0; i < objects.size(); i++) {
+            writeKeys.put(objects.get(i), new COSObjectKey(i + 1, 0));
+        }
+        return objects;
+    }
+
     protected void reset() {
         onNewLine = false;
     }
@@ -415,6 +856,33 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         this.autoUpdate = autoUpdate;
     }
 
+    /**
+     * Set the policy for compressing streams that are encoded while writing,
+     * for example {@link StandardCompressionPolicy#createFast()} or
+     * {@link StandardCompressionPolicy#createArchive()}. Streams that are
+     * copied or already encoded are not affected.
+     *
+     * @param compressionPolicy The policy or null for the VM default
+     */
+    public void setCompressionPolicy(ICompressionPolicy compressionPolicy) {
+        this.compressionPolicy = compressionPolicy;
+    }
+
+    public void setCommit(boolean commit) {
+        this.commit = commit;
+    }
+
+    /**
+     * Set the maximum number of threads used to render changed objects. With
+     * a value greater than 1, objects are serialized and their streams are
+     * encoded concurrently to memory buffers, then appended in order.
+     *
+     * @param parallelism The maximum number of threads.
+     */
+    public void setParallelism(int parallelism) {
+        this.parallelism = parallelism;
+    }
+
     protected void setCurrentObject(COSIndirectObject currentObject) {
         this.currentObject = currentObject;
     }
@@ -423,6 +891,16 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         this.incremental = incremental;
     }
 
+    /**
+     * Write the objects with the keys from {@code writeKeys}, objects not
+     * contained are written with their own key.
+     *
+     * @param writeKeys The keys to write the objects with or {@code null}.
+     */
+    protected void setWriteKeys(Map<COSIndirectObject, COSObjectKey> writeKeys) {
+        this.writeKeys = writeKeys;
+    }
+
     /**
      * visitFromArray.
      *
@@ -505,8 +983,8 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
                 if (current != null) {
                     // this is purely defensive, if entry is set to null instead
                     // of removed
-                    basicWriteName(randomAccess, name.byteValue());
-                    write(SPACE);
+                    buffer.appendName(name.byteValue()).append(' ').flushTo(randomAccess);
+                    onNewLine = false;
                     current.accept(this);
                     writeEOL();
                 }
@@ -533,7 +1011,7 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     @Override
     public Object visitFromFixed(COSFixed obj) throws COSVisitorException {
         try {
-            basicWriteFixed(randomAccess, obj.floatValue(), obj.getPrecision());
+            buffer.appendFixed(obj.floatValue(), obj.getPrecision()).flushTo(randomAccess);
             onNewLine = false;
         } catch (IOException e) {
             throw new COSVisitorException(e);
@@ -551,11 +1029,11 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     public Object visitFromIndirectObject(COSIndirectObject obj) throws COSVisitorException {
         reset();
         try {
-            write(StringTools.toByteArray(Integer.toString(obj.getObjectNumber())));
-            write(SPACE);
-            write(StringTools.toByteArray(Integer.toString(obj.getGenerationNumber())));
-            write(SPACE);
-            write(REFERENCE);
+            COSObjectKey key = getWriteKey(obj);
+            buffer.appendInteger(key.getObjectNumber()).append(' ');
+            buffer.appendInteger(key.getGenerationNumber()).append(' ');
+            buffer.append(REFERENCE).flushTo(randomAccess);
+            onNewLine = false;
         } catch (IOException e) {
             throw new COSVisitorException(e);
         }
@@ -572,7 +1050,7 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     @Override
     public Object visitFromInteger(COSInteger obj) throws COSVisitorException {
         try {
-            basicWriteInteger(randomAccess, obj.intValue());
+            buffer.appendInteger(obj.intValue()).flushTo(randomAccess);
             onNewLine = false;
         } catch (IOException e) {
             throw new COSVisitorException(e);
@@ -590,7 +1068,7 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     @Override
     public Object visitFromName(COSName obj) throws COSVisitorException {
         try {
-            basicWriteName(randomAccess, obj.byteValue());
+            buffer.appendName(obj.byteValue()).flushTo(randomAccess);
             onNewLine = false;
         } catch (IOException e) {
             throw new COSVisitorException(e);
@@ -641,11 +1119,19 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
             if (getSecurityHandler() != null) {
                 getSecurityHandler().pushContextObject(obj);
             }
+            STStreamRange range = obj.getEncodedRange();
+            if (range != null) {
+                if (!obj.isExternal() && isCopyable(range)) {
+                    writeStreamRange(obj, range);
+                    return null;
+                }
+                obj.harden();
+            }
             int length;
             byte[] bytes = new byte[0];
             if (!obj.isExternal()) {
                 // only standard (internal) streams have a writable byte content
-                bytes = obj.getEncodedBytes();
+                bytes = obj.getEncodedBytes(getCompressionPolicy());
             }
             // MUST encrypt before dict is written - length may be changed
             byte[] encrypted = encryptStream(obj.getDict(), bytes);
@@ -758,13 +1244,40 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     }
 
     protected void writeEntry(STXRefSection xrefSection, COSIndirectObject object) throws IOException {
-        STXRefEntryOccupied entry = new STXRefEntryOccupied(object.getObjectNumber(),
-                                                            object.getGenerationNumber(),
+        COSObjectKey key = getWriteKey(object);
+        STXRefEntryOccupied entry = new STXRefEntryOccupied(key.getObjectNumber(),
+                                                            key.getGenerationNumber(),
                                                             getRandomAccess().getOffset());
         xrefSection.addEntry(entry);
         writeIndirectObject(object);
     }
 
+    /**
+     * Append the pre rendered {@code fragment} for {@code object}.
+     *
+     * @param xrefSection The section to record the object offset.
+     * @param object      The object rendered.
+     * @param fragment    The rendered object.
+     * @throws IOException
+     */
+    protected void writeFragment(STXRefSection xrefSection, COSIndirectObject object, FragmentWriter fragment)
+            throws IOException {
+        long offset = getRandomAccess().getOffset();
+        COSObjectKey key = getWriteKey(object);
+        STXRefEntryOccupied entry = new STXRefEntryOccupied(key.getObjectNumber(),
+                                                            key.getGenerationNumber(),
+                                                            offset);
+        xrefSection.addEntry(entry);
+        write(fragment.getBytes());
+        for (Iterator it = fragment.getProxies().iterator(); it.hasNext(); ) {
+            COSObjectProxy proxy = (COSObjectProxy) it.next();
+            proxy.setPosition(offset + proxy.getPosition());
+            proxies.add(proxy);
+        }
+        // fragments end with an EOL
+        onNewLine = true;
+    }
+
     protected void writeEOF() throws IOException {
         write(COSWriter.EOF);
         writeEOL();
@@ -812,11 +1325,11 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
     public void writeIndirectObject(COSIndirectObject obj) throws IOException {
         setCurrentObject(obj);
         reset();
-        write(StringTools.toByteArray(Integer.toString(obj.getObjectNumber())));
-        write(SPACE);
-        write(StringTools.toByteArray(Integer.toString(obj.getGenerationNumber())));
-        write(SPACE);
-        write(OBJ);
+        COSObjectKey key = getWriteKey(obj);
+        buffer.appendInteger(key.getObjectNumber()).append(' ');
+        buffer.appendInteger(key.getGenerationNumber()).append(' ');
+        buffer.append(OBJ).flushTo(randomAccess);
+        onNewLine = false;
         writeEOL();
         try {
             obj.dereference().accept(this);
@@ -872,12 +1385,35 @@ public class COSWriter implements ICOSObjectVisitor, ICOSProxyVisitor {
         writeEOL();
     }
 
+    /**
+     * Write {@code obj} with its unchanged content copied from {@code range}.
+     *
+     * @param obj   The stream to write.
+     * @param range The location of its unchanged content.
+     * @throws IOException
+     * @throws COSVisitorException
+     */
+    protected void writeStreamRange(COSStream obj, STStreamRange range) throws IOException, COSVisitorException {
+        obj.getDict().basicPutSilent(COSStream.DK_Length, COSInteger.create(range.getLength()));
+        // stream dictionaries are not indirect
+        obj.getDict().accept(this);
+        writeCRLF();
+        write(STREAM);
+        writeCRLF();
+        long offset = getRandomAccess().getOffset();
+        copyRange(range);
+        relocatedStreams.put(obj, range.relocate(getRandomAccess(), offset));
+        writeCRLF();
+        write(ENDSTREAM);
+        writeEOL();
+    }
+
     protected void writeStringHex(byte[] bytes) throws IOException {
-        basicWriteStringHex(randomAccess, bytes);
+        buffer.appendHexString(bytes).flushTo(randomAccess);
     }
 
     protected void writeStringLiteral(byte[] bytes) throws IOException {
-        basicWriteStringLiteral(randomAccess, bytes);
+        buffer.appendLiteralString(bytes).flushTo(randomAccess);
     }
 
     protected void writeXRef(STXRefSection xrefSection) throws IOException {
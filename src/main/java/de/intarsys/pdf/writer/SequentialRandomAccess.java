@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.writer;
+
+import de.intarsys.tools.randomaccess.IRandomAccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * A forward only, write only {@link IRandomAccess} on top of an
+ * {@link OutputStream} or {@link WritableByteChannel}.
+ * <p>
+ * This allows the {@link COSWriter} to serialize a document directly to a
+ * network connection or other sequential destination. The offset is tracked
+ * here, so x ref data can be written at the end. Seeking is only allowed to
+ * the current position, which means that features depending on back patching
+ * (like reserving space for a signature) are not available.
+ */
+public class SequentialRandomAccess implements IRandomAccess {
+
+    protected static final int BUFFER_SIZE = 8192;
+
+    private final WritableByteChannel channel;
+
+    private final OutputStream outputStream;
+
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+    /**
+     * The logical offset, including the bytes not yet flushed.
+     */
+    private long offset;
+
+    private boolean closed = false;
+
+    public SequentialRandomAccess(OutputStream outputStream) {
+        this(outputStream, 0);
+    }
+
+    /**
+     * Create a new {@link SequentialRandomAccess} where {@code offset} bytes
+     * are already written to {@code outputStream}.
+     *
+     * @param outputStream The destination
+     * @param offset       The number of bytes already written
+     */
+    public SequentialRandomAccess(OutputStream outputStream, long offset) {
+        this.outputStream = outputStream;
+        this.channel = Channels.newChannel(outputStream);
+        this.offset = offset;
+    }
+
+    public SequentialRandomAccess(WritableByteChannel channel) {
+        this(channel, 0);
+    }
+
+    /**
+     * Create a new {@link SequentialRandomAccess} where {@code offset} bytes
+     * are already written to {@code channel}.
+     *
+     * @param channel The destination
+     * @param offset  The number of bytes already written
+     */
+    public SequentialRandomAccess(WritableByteChannel channel, long offset) {
+        this.outputStream = null;
+        this.channel = channel;
+        this.offset = offset;
+    }
+
+    /**
+     * A {@link WritableByteChannel} writing to the current position of this.
+     * Bytes written to the channel are directly passed to the destination.
+     *
+     * @return A {@link WritableByteChannel} writing to this.
+     */
+    public WritableByteChannel asChannel() {
+        return new WritableByteChannel() {
+            @Override
+            public void close() {
+                // the channel is owned by the random access
+            }
+
+            @Override
+            public boolean isOpen() {
+                return !closed;
+            }
+
+            @Override
+            public int write(ByteBuffer src) throws IOException {
+                flushBuffer();
+                int count = channel.write(src);
+                offset += count;
+                return count;
+            }
+        };
+    }
+
+    @Override
+    public InputStream asInputStream() {
+        throw new UnsupportedOperationException("sequential output can't be read"); //$NON-NLS-1$
+    }
+
+    @Override
+    public OutputStream asOutputStream() {
+        return new OutputStream() {
+            @Override
+            public void flush() throws IOException {
+                SequentialRandomAccess.this.flush();
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                SequentialRandomAccess.this.write(b, off, len);
+            }
+
+            @Override
+            public void write(int b) throws IOException {
+                SequentialRandomAccess.this.write(b);
+            }
+        };
+    }
+
+    protected void checkOpen() throws IOException {
+        if (closed) {
+            throw new IOException("sequential output is closed"); //$NON-NLS-1$
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        flush();
+        closed = true;
+        channel.close();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        checkOpen();
+        flushBuffer();
+        if (outputStream != null) {
+            outputStream.flush();
+        }
+    }
+
+    protected void flushBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public long getLength() throws IOException {
+        return offset;
+    }
+
+    @Override
+    public long getOffset() throws IOException {
+        return offset;
+    }
+
+    @Override
+    public boolean isReadOnly() {
+        return false;
+    }
+
+    @Override
+    public void mark() throws IOException {
+        throw new IOException("sequential output can't be repositioned"); //$NON-NLS-1$
+    }
+
+    @Override
+    public int read() throws IOException {
+        throw new IOException("sequential output can't be read"); //$NON-NLS-1$
+    }
+
+    @Override
+    public int read(byte[] b) throws IOException {
+        return read(b, 0, b.length);
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        throw new IOException("sequential output can't be read"); //$NON-NLS-1$
+    }
+
+    @Override
+    public void reset() throws IOException {
+        throw new IOException("sequential output can't be repositioned"); //$NON-NLS-1$
+    }
+
+    @Override
+    public void seek(long newOffset) throws IOException {
+        if (newOffset != offset) {
+            throw new IOException("sequential output can't seek to " + newOffset //$NON-NLS-1$
+                                  + ", current offset is " + offset); //$NON-NLS-1$
+        }
+    }
+
+    @Override
+    public void seekBy(long delta) throws IOException {
+        seek(offset + delta);
+    }
+
+    @Override
+    public void setLength(long newLength) throws IOException {
+        if (newLength != offset) {
+            throw new IOException("sequential output can't change length to " + newLength); //$NON-NLS-1$
+        }
+    }
+
+    @Override
+    public void write(byte[] b) throws IOException {
+        write(b, 0, b.length);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        checkOpen();
+        if (len > buffer.remaining()) {
+            flushBuffer();
+            if (len > buffer.capacity()) {
+                ByteBuffer src = ByteBuffer.wrap(b, off, len);
+                while (src.hasRemaining()) {
+                    channel.write(src);
+                }
+                offset += len;
+                return;
+            }
+        }
+        buffer.put(b, off, len);
+        offset += len;
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        checkOpen();
+        if (!buffer.hasRemaining()) {
+            flushBuffer();
+        }
+        buffer.put((byte) b);
+        offset++;
+    }
+}
@@ -0,0 +1,337 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.writer;
+
+import de.intarsys.pdf.parser.PDFParser;
+import de.intarsys.tools.hex.HexTools;
+import de.intarsys.tools.randomaccess.IRandomAccess;
+import de.intarsys.tools.string.StringTools;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+/**
+ * A growable byte buffer for serializing the PDF tokens.
+ * <p>
+ * Numbers are emitted digit by digit and names are escaped using a
+ * precomputed table, so no intermediate strings are created. The content is
+ * written with a single call to the {@link IRandomAccess} in
+ * {@link #flushTo(IRandomAccess)}.
+ * <p>
+ * A {@link SerializationBuffer} is not thread safe.
+ */
+public class SerializationBuffer {
+
+    private static final byte[][] NAME_ENCODING = new byte[256][];
+
+    private static final long[] POW10 = new long[19];
+
+    /**
+     * The maximum precision handled by the direct digit emission.
+     */
+    private static final int MAX_PRECISION = 9;
+
+    /**
+     * Above this magnitude the scaled value is no longer exact in a long.
+     */
+    private static final double MAX_SCALED = 1e17;
+
+    static {
+        for (int i = 0; i < 256; i++) {
+            if (i <= 32 || i >= 127 || PDFParser.isDelimiter(i) || i == 35) {
+                byte[] hex = HexTools.ByteToHex[i];
+                NAME_ENCODING[i] = new byte[]{'#', hex[0], hex[1]};
+            } else {
+                NAME_ENCODING[i] = new byte[]{(byte) i};
+            }
+        }
+        POW10[0] = 1;
+        for (int i = 1; i < POW10.length; i++) {
+            POW10[i] = POW10[i - 1] * 10;
+        }
+    }
+
+    protected static int digitCount(long value) {
+        int count = 1;
+        while (count < POW10.length && value >= POW10[count]) {
+            count++;
+        }
+        return count;
+    }
+
+    private byte[] bytes;
+
+    private int count;
+
+    public SerializationBuffer() {
+        this(256);
+    }
+
+    public SerializationBuffer(int capacity) {
+        bytes = new byte[capacity];
+    }
+
+    public SerializationBuffer append(byte[] value) {
+        return append(value, 0, value.length);
+    }
+
+    public SerializationBuffer append(byte[] value, int offset, int length) {
+        ensureCapacity(length);
+        System.arraycopy(value, offset, bytes, count, length);
+        count += length;
+        return this;
+    }
+
+    public SerializationBuffer append(int b) {
+        ensureCapacity(1);
+        bytes[count++] = (byte) b;
+        return this;
+    }
+
+    /**
+     * Append the decimal representation of {@code value} with at most
+     * {@code precision} fraction digits. Trailing zeros and the period are
+     * omitted, "-0" is written as "0".
+     *
+     * @param value     The value to append
+     * @param precision The maximum number of fraction digits
+     * @return this
+     */
+    public SerializationBuffer appendFixed(float value, int precision) {
+        if (Float.isNaN(value) || Float.isInfinite(value)) {
+            return append('0');
+        }
+        if (precision < 0) {
+            precision = 0;
+        }
+        double scaled = Math.abs((double) value);
+        if (precision <= MAX_PRECISION) {
+            scaled = Math.rint(scaled * POW10[precision]);
+        }
+        if (precision > MAX_PRECISION || scaled >= MAX_SCALED) {
+            // rare, not worth optimizing
+            String text = new BigDecimal(value).setScale(precision, RoundingMode.HALF_EVEN).stripTrailingZeros()
+                                               .toPlainString();
+            return append(StringTools.toByteArray(text));
+        }
+        long units = (long) scaled;
+        if (units == 0) {
+            return append('0');
+        }
+        if (value < 0) {
+            append('-');
+        }
+        long integral = units / POW10[precision];
+        long fraction = units % POW10[precision];
+        appendInteger(integral);
+        if (fraction != 0) {
+            int digits = precision;
+            while (fraction % 10 == 0) {
+                fraction = fraction / 10;
+                digits--;
+            }
+            append('.');
+            appendPadded(fraction, digits);
+        }
+        return this;
+    }
+
+    /**
+     * Append the hex string representation of {@code string}, including the
+     * delimiters.
+     *
+     * @param string The string content
+     * @return this
+     */
+    public SerializationBuffer appendHexString(byte[] string) {
+        ensureCapacity(string.length * 2 + 2);
+        bytes[count++] = '<';
+        for (int i = 0; i < string.length; i++) {
+            byte[] hex = HexTools.ByteToHex[string[i] & 0xFF];
+            bytes[count++] = hex[0];
+            bytes[count++] = hex[1];
+        }
+        bytes[count++] = '>';
+        return this;
+    }
+
+    public SerializationBuffer appendInteger(long value) {
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                return append(StringTools.toByteArray(Long.toString(value)));
+            }
+            append('-');
+            value = -value;
+        }
+        return appendPadded(value, 1);
+    }
+
+    /**
+     * Append the literal string representation of {@code string}, including
+     * the delimiters.
+     *
+     * @param string The string content
+     * @return this
+     */
+    public SerializationBuffer appendLiteralString(byte[] string) {
+        ensureCapacity(string.length * 2 + 2);
+        bytes[count++] = '(';
+        for (int i = 0; i < string.length; i++) {
+            int b = string[i];
+            if (b == '\n') {
+                bytes[count++] = '\\';
+                bytes[count++] = 'n';
+            } else if (b == '\r') {
+                bytes[count++] = '\\';
+                bytes[count++] = 'r';
+            } else if (b == '\t') {
+                bytes[count++] = '\\';
+                bytes[count++] = 't';
+            } else if (b == '\f') {
+                bytes[count++] = '\\';
+                bytes[count++] = 'f';
+            } else if (b == '\b') {
+                bytes[count++] = '\\';
+                bytes[count++] = 'b';
+            } else if ((b == '(') || (b == ')') || (b == '\\')) {
+                bytes[count++] = '\\';
+                bytes[count++] = (byte) b;
+            } else {
+                bytes[count++] = (byte) b;
+            }
+        }
+        bytes[count++] = ')';
+        return this;
+    }
+
+    /**
+     * Append the name representation of {@code name}, including the prefix.
+     *
+     * @param name The name content
+     * @return this
+     */
+    public SerializationBuffer appendName(byte[] name) {
+        ensureCapacity(name.length * 3 + 1);
+        bytes[count++] = '/';
+        for (int i = 0; i < name.length; i++) {
+            byte[] encoded = NAME_ENCODING[name[i] & 0xff];
+            if (encoded.length == 1) {
+                bytes[count++] = encoded[0];
+            } else {
+                bytes[count++] = encoded[0];
+                bytes[count++] = encoded[1];
+                bytes[count++] = encoded[2];
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Append the non negative {@code value} with at least {@code width}
+     * digits, padded with leading zeros.
+     *
+     * @param value The non negative value
+     * @param width The minimum number of digits
+     * @return this
+     */
+    public SerializationBuffer appendPadded(long value, int width) {
+        int digits = Math.max(digitCount(value), width);
+        ensureCapacity(digits);
+        int pos = count + digits;
+        for (int i = 0; i < digits; i++) {
+            bytes[--pos] = (byte) ('0' + (value % 10));
+            value = value / 10;
+        }
+        count += digits;
+        return this;
+    }
+
+    protected void ensureCapacity(int length) {
+        if (count + length > bytes.length) {
+            byte[] newBytes = new byte[Math.max(bytes.length * 2, count + length)];
+            System.arraycopy(bytes, 0, newBytes, 0, count);
+            bytes = newBytes;
+        }
+    }
+
+    /**
+     * Write the content to {@code randomAccess} and reset this.
+     *
+     * @param randomAccess The destination
+     * @throws IOException
+     */
+    public void flushTo(IRandomAccess randomAccess) throws IOException {
+        if (count > 0) {
+            randomAccess.write(bytes, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Write the content to {@code outputStream} and reset this.
+     *
+     * @param outputStream The destination
+     * @throws IOException
+     */
+    public void flushTo(OutputStream outputStream) throws IOException {
+        if (count > 0) {
+            outputStream.write(bytes, 0, count);
+            count = 0;
+        }
+    }
+
+    public void reset() {
+        count = 0;
+    }
+
+    /**
+     * Truncate the content to {@code size} bytes.
+     *
+     * @param size The new size, not greater than the current size.
+     */
+    public void setSize(int size) {
+        if (size < 0 || size > count) {
+            throw new IllegalArgumentException("invalid size " + size); //$NON-NLS-1$
+        }
+        count = size;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public byte[] toByteArray() {
+        byte[] result = new byte[count];
+        System.arraycopy(bytes, 0, result, 0, count);
+        return result;
+    }
+}
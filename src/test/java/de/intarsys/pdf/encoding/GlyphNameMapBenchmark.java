@@ -0,0 +1,64 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.encoding;
+
+/**
+ * A small startup benchmark for loading the Adobe glyph list.
+ * <p>
+ * Run with the main and test classes on the class path, for example
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes de.intarsys.pdf.encoding.GlyphNameMapBenchmark
+ * </pre>
+ * <p>
+ * The first figure is the cold load in a fresh VM, including class loading,
+ * the second the average of repeated loads once the VM is warm.
+ */
+public class GlyphNameMapBenchmark {
+
+    private static final int WARM_RUNS = 50;
+
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        GlyphNameMap map = GlyphNameMap.Standard;
+        long cold = System.nanoTime() - start;
+        System.out.println("cold load: " + (cold / 1000) / 1000.0 + " ms, " //$NON-NLS-1$ //$NON-NLS-2$
+                           + map.getUnicode("A") + " " + map.getGlyphName(0x20AC)); //$NON-NLS-1$ //$NON-NLS-2$
+        for (int i = 0; i < WARM_RUNS; i++) {
+            new GlyphNameMap();
+        }
+        start = System.nanoTime();
+        for (int i = 0; i < WARM_RUNS; i++) {
+            new GlyphNameMap();
+        }
+        long warm = (System.nanoTime() - start) / WARM_RUNS;
+        System.out.println("warm load: " + (warm / 1000) / 1000.0 + " ms"); //$NON-NLS-1$ //$NON-NLS-2$
+    }
+}
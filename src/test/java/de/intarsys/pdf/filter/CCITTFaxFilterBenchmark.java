@@ -0,0 +1,281 @@
+/*
+ * Copyright (c) 2007, intarsys consulting GmbH
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions are met:
+ *
+ * - Redistributions of source code must retain the above copyright notice,
+ *   this list of conditions and the following disclaimer.
+ *
+ * - Redistributions in binary form must reproduce the above copyright notice,
+ *   this list of conditions and the following disclaimer in the documentation
+ *   and/or other materials provided with the distribution.
+ *
+ * - Neither the name of intarsys nor the names of its contributors may be used
+ *   to endorse or promote products derived from this software without specific
+ *   prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF THE
+ * POSSIBILITY OF SUCH DAMAGE.
+ */
+package de.intarsys.pdf.filter;
+
+import de.intarsys.pdf.cos.COSDictionary;
+import de.intarsys.pdf.cos.COSInteger;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferByte;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * A small benchmark for the CCITTFaxDecode filter.
+ * <p>
+ * Run with the main and test classes on the class path, for example
+ *
+ * <pre>
+ * java -cp target/classes:target/test-classes de.intarsys.pdf.filter.CCITTFaxFilterBenchmark
+ * </pre>
+ * <p>
+ * A synthetic A4 page at 300 dpi is encoded as Group 4 by the JDK TIFF
+ * writer, which is available from Java 9. The strips are decoded as a whole
+ * and, row by row, through the decode stream. Both results are compared
+ * with the original bitmap.
+ */
+public class CCITTFaxFilterBenchmark {
+
+    /**
+     * The encoded data of a single TIFF strip.
+     */
+    private static class Strip {
+
+        private final byte[] data;
+
+        private final int rows;
+
+        Strip(byte[] data, int rows) {
+            this.data = data;
+            this.rows = rows;
+        }
+    }
+
+    private static final int WIDTH = 2480;
+
+    private static final int HEIGHT = 3508;
+
+    private static final int ROW_SIZE = (WIDTH + 7) >> 3;
+
+    private static final int TAG_ROWS_PER_STRIP = 278;
+
+    private static final int TAG_STRIP_BYTE_COUNTS = 279;
+
+    private static final int TAG_STRIP_OFFSETS = 273;
+
+    private static final int WARM_RUNS = 10;
+
+    private static final int RUNS = 20;
+
+    protected static BufferedImage createPage() {
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_BYTE_BINARY);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(Color.WHITE);
+        graphics.fillRect(0, 0, WIDTH, HEIGHT);
+        graphics.setColor(Color.BLACK);
+        Random random = new Random(4711);
+        // lines of "words", now and then a rule
+        for (int y = 200; y < HEIGHT - 200; y += 50) {
+            if (random.nextInt(20) == 0) {
+                graphics.fillRect(200, y + 20, WIDTH - 400, 3);
+                continue;
+            }
+            int x = 200;
+            while (x < WIDTH - 350) {
+                int word = 20 + random.nextInt(120);
+                for (int c = 0; c < word; c += 14) {
+                    graphics.fillRect(x + c, y + random.nextInt(8), 9, 24 + random.nextInt(8));
+                }
+                x += word + 25;
+            }
+        }
+        graphics.dispose();
+        return image;
+    }
+
+    protected static CCITTFaxFilter createFilter(int rows) {
+        COSDictionary options = COSDictionary.create();
+        options.put(CCITTFaxFilter.DK_K, COSInteger.create(-1));
+        options.put(CCITTFaxFilter.DK_Columns, COSInteger.create(WIDTH));
+        options.put(CCITTFaxFilter.DK_Rows, COSInteger.create(rows));
+        return new CCITTFaxFilter(options);
+    }
+
+    protected static byte[] decode(List<Strip> strips) throws IOException {
+        byte[] result = new byte[HEIGHT * ROW_SIZE];
+        int offset = 0;
+        for (Strip strip : strips) {
+            byte[] decoded = createFilter(strip.rows).decode(strip.data, 0, strip.data.length);
+            System.arraycopy(decoded, 0, result, offset, decoded.length);
+            offset += decoded.length;
+        }
+        return result;
+    }
+
+    protected static byte[] decodeStreaming(List<Strip> strips) throws IOException {
+        byte[] result = new byte[HEIGHT * ROW_SIZE];
+        int offset = 0;
+        for (Strip strip : strips) {
+            InputStream is = createFilter(strip.rows).createDecodeStream(new ByteArrayInputStream(strip.data));
+            int count;
+            while ((count = is.read(result, offset, ROW_SIZE)) > 0) {
+                offset += count;
+            }
+            is.close();
+        }
+        return result;
+    }
+
+    protected static List<Strip> encode(BufferedImage image) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName("tiff"); //$NON-NLS-1$
+        if (!writers.hasNext()) {
+            return null;
+        }
+        ImageWriter writer = writers.next();
+        ByteArrayOutputStream os = new ByteArrayOutputStream();
+        ImageOutputStream ios = ImageIO.createImageOutputStream(os);
+        try {
+            writer.setOutput(ios);
+            ImageWriteParam param = writer.getDefaultWriteParam();
+            param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+            param.setCompressionType("CCITT T.6"); //$NON-NLS-1$
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            ios.close();
+            writer.dispose();
+        }
+        return readStrips(os.toByteArray());
+    }
+
+    public static void main(String[] args) throws IOException {
+        BufferedImage image = createPage();
+        List<Strip> strips = encode(image);
+        if (strips == null) {
+            System.out.println("no TIFF writer available, Java 9 or later required"); //$NON-NLS-1$
+            return;
+        }
+        byte[] expected = ((DataBufferByte) image.getRaster().getDataBuffer()).getData();
+        int encodedSize = 0;
+        for (Strip strip : strips) {
+            encodedSize += strip.data.length;
+        }
+        System.out.println("page: " + WIDTH + "x" + HEIGHT + ", " + strips.size() + " strips, " //$NON-NLS-1$ //$NON-NLS-2$ //$NON-NLS-3$
+                           + encodedSize + " bytes encoded, " + expected.length + " bytes decoded"); //$NON-NLS-1$ //$NON-NLS-2$
+        System.out.println("decode: equal " + Arrays.equals(expected, decode(strips))); //$NON-NLS-1$
+        System.out.println("stream: equal " + Arrays.equals(expected, decodeStreaming(strips))); //$NON-NLS-1$
+        for (int i = 0; i < WARM_RUNS; i++) {
+            decode(strips);
+            decodeStreaming(strips);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            decode(strips);
+        }
+        report("decode", System.nanoTime() - start, expected.length); //$NON-NLS-1$
+        start = System.nanoTime();
+        for (int i = 0; i < RUNS; i++) {
+            decodeStreaming(strips);
+        }
+        report("stream", System.nanoTime() - start, expected.length); //$NON-NLS-1$
+    }
+
+    protected static int readInt(byte[] tiff, int offset, boolean littleEndian) {
+        if (littleEndian) {
+            return (tiff[offset] & 0xff) | ((tiff[offset + 1] & 0xff) << 8) | ((tiff[offset + 2] & 0xff) << 16)
+                   | ((tiff[offset + 3] & 0xff) << 24);
+        }
+        return ((tiff[offset] & 0xff) << 24) | ((tiff[offset + 1] & 0xff) << 16) | ((tiff[offset + 2] & 0xff) << 8)
+               | (tiff[offset + 3] & 0xff);
+    }
+
+    protected static int readShort(byte[] tiff, int offset, boolean littleEndian) {
+        if (littleEndian) {
+            return (tiff[offset] & 0xff) | ((tiff[offset + 1] & 0xff) << 8);
+        }
+        return ((tiff[offset] & 0xff) << 8) | (tiff[offset + 1] & 0xff);
+    }
+
+    /**
+     * The strips of the first image in <code>tiff</code>.
+     *
+     * @param tiff The TIFF file
+     * @return The strips of the first image
+     */
+    protected static List<Strip> readStrips(byte[] tiff) {
+        boolean littleEndian = tiff[0] == 'I';
+        int ifd = readInt(tiff, 4, littleEndian);
+        int entries = readShort(tiff, ifd, littleEndian);
+        int rowsPerStrip = HEIGHT;
+        int[] offsets = null;
+        int[] counts = null;
+        for (int i = 0; i < entries; i++) {
+            int entry = ifd + 2 + i * 12;
+            int tag = readShort(tiff, entry, littleEndian);
+            if (tag == TAG_ROWS_PER_STRIP) {
+                rowsPerStrip = readValues(tiff, entry, littleEndian)[0];
+            } else if (tag == TAG_STRIP_OFFSETS) {
+                offsets = readValues(tiff, entry, littleEndian);
+            } else if (tag == TAG_STRIP_BYTE_COUNTS) {
+                counts = readValues(tiff, entry, littleEndian);
+            }
+        }
+        List<Strip> strips = new ArrayList<>();
+        for (int i = 0; i < offsets.length; i++) {
+            byte[] data = Arrays.copyOfRange(tiff, offsets[i], offsets[i] + counts[i]);
+            strips.add(new Strip(data, Math.min(rowsPerStrip, HEIGHT - i * rowsPerStrip)));
+        }
+        return strips;
+    }
+
+    protected static int[] readValues(byte[] tiff, int entry, boolean littleEndian) {
+        int type = readShort(tiff, entry + 2, littleEndian);
+        int count = readInt(tiff, entry + 4, littleEndian);
+        // SHORT or LONG values, stored inline if they fit in 4 bytes
+        int size = type == 3 ? 2 : 4;
+        int offset = count * size > 4 ? readInt(tiff, entry + 8, littleEndian) : entry + 8;
+        int[] values = new int[count];
+        for (int i = 0; i < count; i++) {
+            values[i] = size == 2 ? readShort(tiff, offset + i * 2, littleEndian)
+                                  : readInt(tiff, offset + i * 4, littleEndian);
+        }
+        return values;
+    }
+
+    protected static void report(String label, long nanos, int decodedSize) {
+        double millis = nanos / 1000000.0 / RUNS;
+        double throughput = decodedSize / 1024.0 / 1024.0 / (millis / 1000.0);
+        System.out.println(label + ": " + Math.round(millis * 100) / 100.0 + " ms per page, " //$NON-NLS-1$ //$NON-NLS-2$
+                           + Math.round(throughput) + " MB/s"); //$NON-NLS-1$
+    }
+}